@@ -1,19 +1,31 @@
 import graph.Graph;
+import graph.GraphFile;
+import graph.GraphPatch;
+import graph.MappedGraph;
 import parser.InputParser;
+import parser.PatchParser;
 import solver.RouteSolver;
 import solver.RouteSolver.SolutionResult;
 import writer.OutputWriter;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
 
 /**
  * Точка входа программы оптимизации маршрутов.
  * 
  * Программа читает входные данные из файла input.txt,
- * находит оптимальные маршруты по трём критериям (длина, время, стоимость)
+ * находит оптимальные маршруты по каждому критерию (по умолчанию длина, время, стоимость)
  * и записывает результаты в output.txt.
  * 
+ * Дополнительные режимы:
+ * <pre>
+ * java Main --convert input.txt graph.bin   — перевести граф в двоичный файл
+ * java Main --graph graph.bin [input.txt]   — решить запросы по двоичному файлу графа
+ * java Main --patch changes.txt             — применить патч к графу из input.txt и решить запросы
+ * </pre>
+ * 
  * @author Вариант 1 - Оптимизация маршрутов
  */
 public class Main {
@@ -23,28 +35,18 @@ public class Main {
 
     public static void main(String[] args) {
         try {
-            // 1. Парсинг входных данных
-            System.out.println("Чтение входных данных из " + INPUT_FILE + "...");
-            InputParser parser = new InputParser();
-            parser.parse(INPUT_FILE);
-
-            Graph graph = parser.getGraph();
-            List<InputParser.Request> requests = parser.getRequests();
-
-            System.out.println("Загружено городов: " + graph.getCityCount());
-            System.out.println("Загружено запросов: " + requests.size());
-
-            // 2. Решение задачи
-            System.out.println("Поиск оптимальных маршрутов...");
-            RouteSolver solver = new RouteSolver(graph);
-            List<SolutionResult> results = solver.solveAll(requests);
-
-            // 3. Запись результатов
-            System.out.println("Запись результатов в " + OUTPUT_FILE + "...");
-            OutputWriter writer = new OutputWriter();
-            writer.write(results, OUTPUT_FILE);
-
-            System.out.println("Готово! Результаты сохранены в " + OUTPUT_FILE);
+            if (args.length == 3 && args[0].equals("--convert")) {
+                convert(args[1], args[2]);
+            } else if ((args.length == 2 || args.length == 3) && args[0].equals("--graph")) {
+                solveMapped(args[1], args.length == 3 ? args[2] : INPUT_FILE);
+            } else if (args.length == 2 && args[0].equals("--patch")) {
+                solveText(args[1]);
+            } else if (args.length == 0) {
+                solveText(null);
+            } else {
+                System.err.println("Использование: java Main [--convert <вход.txt> <граф.bin> | --graph <граф.bin> [запросы.txt] | --patch <патч.txt>]");
+                System.exit(2);
+            }
 
         } catch (IOException e) {
             System.err.println("Ошибка ввода-вывода: " + e.getMessage());
@@ -58,4 +60,82 @@ public class Main {
             System.exit(1);
         }
     }
+
+    /**
+     * Основной режим: граф и запросы из текстового файла.
+     * 
+     * @param patchFile файл изменений дорожной сети или null
+     */
+    private static void solveText(String patchFile) throws IOException {
+        // 1. Парсинг входных данных
+        System.out.println("Чтение входных данных из " + INPUT_FILE + "...");
+        InputParser parser = new InputParser();
+        parser.parse(INPUT_FILE);
+
+        Graph graph = parser.getGraph();
+        List<InputParser.Request> requests = parser.getRequests();
+
+        System.out.println("Загружено городов: " + graph.getCityCount());
+        System.out.println("Загружено запросов: " + requests.size());
+
+        if (patchFile != null) {
+            GraphPatch patch = new PatchParser().parse(patchFile, graph.getCriteria());
+            graph.apply(patch);
+            System.out.println("Применено изменений из " + patchFile + ": " + patch.size());
+        }
+
+        // Удаляем параллельные дороги, которые не могут войти ни в один оптимальный маршрут
+        int prunedRoads = graph.pruneDominatedRoads();
+        System.out.println("Удалено доминируемых параллельных дорог: " + prunedRoads);
+
+        // 2. Решение задачи
+        System.out.println("Поиск оптимальных маршрутов...");
+        solveAndWrite(new RouteSolver(graph), requests);
+    }
+
+    /**
+     * Переводит граф из текстового файла в двоичный файл для отображения в память.
+     */
+    private static void convert(String inputFile, String graphFile) throws IOException {
+        System.out.println("Чтение входных данных из " + inputFile + "...");
+        InputParser parser = new InputParser();
+        parser.parse(inputFile);
+
+        Graph graph = parser.getGraph();
+        int prunedRoads = graph.pruneDominatedRoads();
+        System.out.println("Загружено городов: " + graph.getCityCount());
+        System.out.println("Удалено доминируемых параллельных дорог: " + prunedRoads);
+
+        GraphFile.write(graph, Path.of(graphFile));
+        System.out.println("Граф записан в " + graphFile);
+    }
+
+    /**
+     * Решает запросы по графу, отображённому из двоичного файла.
+     */
+    private static void solveMapped(String graphFile, String requestsFile) throws IOException {
+        long start = System.nanoTime();
+        MappedGraph graph = MappedGraph.open(Path.of(graphFile));
+        System.out.printf("Граф %s открыт за %.1f мс, городов: %d%n",
+                graphFile, (System.nanoTime() - start) / 1_000_000.0, graph.getCityCount());
+
+        InputParser parser = new InputParser();
+        parser.parseRequests(requestsFile, graph.getCriteria(), name -> graph.getCityByName(name) != null);
+        List<InputParser.Request> requests = parser.getRequests();
+        System.out.println("Загружено запросов: " + requests.size());
+
+        System.out.println("Поиск оптимальных маршрутов...");
+        solveAndWrite(new RouteSolver(graph), requests);
+    }
+
+    private static void solveAndWrite(RouteSolver solver, List<InputParser.Request> requests) throws IOException {
+        List<SolutionResult> results = solver.solveAll(requests);
+
+        // 3. Запись результатов
+        System.out.println("Запись результатов в " + OUTPUT_FILE + "...");
+        OutputWriter writer = new OutputWriter();
+        writer.write(results, OUTPUT_FILE);
+
+        System.out.println("Готово! Результаты сохранены в " + OUTPUT_FILE);
+    }
 }
@@ -0,0 +1,242 @@
+package graph;
+
+import model.City;
+import model.Criterion;
+import model.Route;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Двунаправленный алгоритм Дейкстры: прямой поиск от начального города
+ * по исходящим рёбрам и обратный от конечного по входящим
+ * ({@link SearchGraph#reverseEdgeCursor()}), по очереди.
+ *
+ * Каждый шаг продвигает поиск с меньшим минимальным расстоянием в куче.
+ * При просмотре ребра, конец которого уже достигнут встречным поиском,
+ * обновляется лучшая длина найденного пути μ и ребро встречи. Поиск
+ * завершается, когда сумма минимальных расстояний двух куч не меньше μ:
+ * любой ещё не найденный путь проходит через вершины обеих куч и не короче.
+ * В дорожной сети число обработанных вершин растёт примерно как квадрат
+ * радиуса поиска, поэтому два поиска радиусом в половину маршрута
+ * обрабатывают заметно меньше вершин, чем один на весь маршрут
+ * (см. {@link #getSettledCount()}).
+ *
+ * Маршрут собирается из предшественников прямого поиска до ребра встречи
+ * и последователей обратного после него, суммы по всем критериям
+ * считаются так же, как в {@link DijkstraPathFinder}. Значение критерия
+ * маршрута всегда оптимально; среди нескольких равноценных маршрутов
+ * может быть выбран другой.
+ *
+ * Рабочие области прямого и обратного поиска свои у каждого потока
+ * ({@link SearchWorkspace}, отметки эпох): запрос стоит O(затронутых вершин).
+ *
+ * Временная сложность: O(E · log V) по затронутой части графа.
+ * Пространственная сложность: десять массивов int[V] на поток, на запрос — O(1).
+ */
+public class BidirectionalPathFinder implements PathFinder {
+
+    private final Supplier<? extends SearchGraph> graphSource;
+    private final ThreadLocal<SearchWorkspace[]> workspaces =
+            ThreadLocal.withInitial(() -> new SearchWorkspace[] {new SearchWorkspace(), new SearchWorkspace()});
+
+    /** Обработанные вершины обоих поисков по всем запросам */
+    private final LongAdder settled = new LongAdder();
+
+    /** Выполненные поиски по одному критерию */
+    private final LongAdder searches = new LongAdder();
+
+    /**
+     * Создаёт поиск по изменяемому графу.
+     * Каждый запрос выполняется по актуальному CSR-снимку графа.
+     *
+     * @param graph граф дорожной сети
+     */
+    public BidirectionalPathFinder(Graph graph) {
+        this.graphSource = graph::snapshot;
+    }
+
+    /**
+     * Создаёт поиск по готовому индексному представлению графа.
+     *
+     * @param graph индексное представление графа (например, {@link CompactGraph})
+     */
+    public BidirectionalPathFinder(SearchGraph graph) {
+        this.graphSource = () -> graph;
+    }
+
+    @Override
+    public Route findPath(City from, City to, Criterion criterion) {
+        return findPath(graphSource.get(), from, to, criterion);
+    }
+
+    @Override
+    public Map<Criterion, Route> findAllOptimalPaths(City from, City to) {
+        SearchGraph graph = graphSource.get();
+        Map<Criterion, Route> results = new LinkedHashMap<>();
+        for (Criterion criterion : graph.getCriteria()) {
+            results.put(criterion, findPath(graph, from, to, criterion));
+        }
+        return results;
+    }
+
+    /**
+     * @return число вершин, обработанных прямым и обратным поисками всех запросов
+     *         (поиск по каждому критерию считается отдельно)
+     */
+    public long getSettledCount() {
+        return settled.sum();
+    }
+
+    /**
+     * @return число выполненных поисков по одному критерию
+     */
+    public long getSearchCount() {
+        return searches.sum();
+    }
+
+    /**
+     * Обнуляет счётчики обработанных вершин и поисков.
+     */
+    public void resetCounters() {
+        settled.reset();
+        searches.reset();
+    }
+
+    private Route findPath(SearchGraph graph, City from, City to, Criterion criterion) {
+        int source = graph.indexOf(from);
+        int target = graph.indexOf(to);
+        if (source < 0 || target < 0) {
+            return Route.empty();
+        }
+
+        SearchWorkspace[] pair = workspaces.get();
+        Search search = new Search(graph, pair[0], pair[1], criterion);
+        Route route = search.run(source, target);
+        settled.add(search.settledCount);
+        searches.increment();
+        return route;
+    }
+
+    /**
+     * Память рабочих областей прямого и обратного поиска одного потока.
+     */
+    @Override
+    public MemoryReport memoryReport() {
+        int cityCount = graphSource.get().getCityCount();
+        MemoryReport report = new MemoryReport("Двунаправленная Дейкстра: рабочие области потока");
+        report.add("Рабочие массивы", 2 * (SearchWorkspace.footprint(cityCount) - IndexedHeap.footprint(cityCount)), 0);
+        report.add("Кучи", 2 * IndexedHeap.footprint(cityCount), 0);
+        return report;
+    }
+
+    /**
+     * Состояние одного двунаправленного поиска.
+     */
+    private static final class Search {
+        final SearchGraph graph;
+        final SearchWorkspace forward;
+        final SearchWorkspace backward;
+        final EdgeCursor outgoing;
+        final EdgeCursor incoming;
+        final Criterion criterion;
+
+        /** Длина лучшего найденного пути и ребро встречи: from — в прямом поиске, to — в обратном */
+        int best = Integer.MAX_VALUE;
+        int meetingFrom = RouteReconstructor.NO_PREDECESSOR;
+        int meetingTo = RouteReconstructor.NO_PREDECESSOR;
+
+        int settledCount;
+
+        Search(SearchGraph graph, SearchWorkspace forward, SearchWorkspace backward, Criterion criterion) {
+            this.graph = graph;
+            this.forward = forward;
+            this.backward = backward;
+            this.outgoing = graph.edgeCursor();
+            this.incoming = graph.reverseEdgeCursor();
+            this.criterion = criterion;
+            forward.begin(graph.getCityCount());
+            backward.begin(graph.getCityCount());
+        }
+
+        Route run(int source, int target) {
+            forward.relax(source, 0, RouteReconstructor.NO_PREDECESSOR);
+            forward.heap().update(source);
+            backward.relax(target, 0, RouteReconstructor.NO_PREDECESSOR);
+            backward.heap().update(target);
+            if (source == target) {
+                best = 0;
+                meetingFrom = source;
+                meetingTo = target;
+            }
+
+            while (!forward.heap().isEmpty() && !backward.heap().isEmpty()) {
+                int forwardMin = forward.distance(forward.heap().peek());
+                int backwardMin = backward.distance(backward.heap().peek());
+                // Критерий остановки: непросмотренный путь не короче найденного
+                if ((long) forwardMin + backwardMin >= best) {
+                    break;
+                }
+                if (forwardMin <= backwardMin) {
+                    settleNext(forward, backward, outgoing, false);
+                } else {
+                    settleNext(backward, forward, incoming, true);
+                }
+            }
+
+            if (best == Integer.MAX_VALUE) {
+                return Route.empty();
+            }
+            return RouteReconstructor.build(graph, path(), criterion);
+        }
+
+        /**
+         * Обрабатывает ближайшую вершину одного поиска и при просмотре рёбер
+         * проверяет встречу с другим.
+         */
+        private void settleNext(SearchWorkspace own, SearchWorkspace other, EdgeCursor edges, boolean reverse) {
+            int current = own.heap().pop();
+            settledCount++;
+            int distance = own.distance(current);
+            edges.moveTo(current);
+            while (edges.next()) {
+                int neighbor = edges.target();
+                int newDistance = distance + edges.weight(criterion);
+                if (newDistance < own.distance(neighbor) && !own.isSettled(neighbor)) {
+                    own.relax(neighbor, newDistance, current);
+                    own.heap().update(neighbor);
+                }
+
+                // Петля не сокращает путь, а встреча в одном городе — только при from == to
+                int rest = neighbor == current ? Integer.MAX_VALUE : other.distance(neighbor);
+                if (rest != Integer.MAX_VALUE && (long) newDistance + rest < best) {
+                    best = newDistance + rest;
+                    meetingFrom = reverse ? neighbor : current;
+                    meetingTo = reverse ? current : neighbor;
+                }
+            }
+        }
+
+        /**
+         * Города маршрута: предшественники прямого поиска до meetingFrom,
+         * затем последователи обратного от meetingTo.
+         */
+        private IntList path() {
+            IntList path = new IntList();
+            int[] predecessors = forward.predecessors();
+            for (int city = meetingFrom; city != RouteReconstructor.NO_PREDECESSOR; city = predecessors[city]) {
+                path.add(city);
+            }
+            path.reverse();
+            if (meetingTo != meetingFrom) {
+                int[] successors = backward.predecessors();
+                for (int city = meetingTo; city != RouteReconstructor.NO_PREDECESSOR; city = successors[city]) {
+                    path.add(city);
+                }
+            }
+            return path;
+        }
+    }
+}
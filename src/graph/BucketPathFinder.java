@@ -0,0 +1,183 @@
+package graph;
+
+import model.City;
+import model.Criterion;
+import model.Route;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Алгоритм Дейкстры на целочисленной монотонной очереди ({@link MonotoneQueue}).
+ *
+ * Веса дорог — неотрицательные целые (километры, минуты, рубли), поэтому
+ * сравнения ключей в двоичной куче можно заменить корзинами. Очередь
+ * выбирается для каждого критерия по наибольшему весу ребра
+ * ({@link SearchGraph#getMaxWeight(Criterion)}): при весах до
+ * {@link MonotoneQueue#DIAL_MAX_WEIGHT} — корзины Дайла с O(1) на операцию
+ * (время в минутах, длина в километрах), иначе — radix-куча.
+ *
+ * Как и {@link IndexedHeapPathFinder}, поиск хранит состояние в рабочей
+ * области потока ({@link SearchWorkspace}) и останавливается, когда
+ * извлечена конечная вершина; устаревшие записи очереди пропускаются.
+ *
+ * Временная сложность: O(V + E + D) с корзинами Дайла (D — расстояние до цели),
+ * O(E + V · log C) с radix-кучей.
+ * Пространственная сложность: рабочая область и очередь на критерий на поток,
+ * в очереди — не больше E + 1 записей.
+ */
+public class BucketPathFinder implements PathFinder {
+
+    private final Supplier<? extends SearchGraph> graphSource;
+    private final ThreadLocal<ThreadState> states = ThreadLocal.withInitial(ThreadState::new);
+
+    /** Наибольшие веса последнего графа: для представлений без готового значения это O(E) */
+    private volatile MaxWeights maxWeights;
+
+    /**
+     * Создаёт поиск по изменяемому графу.
+     * Каждый запрос выполняется по актуальному CSR-снимку графа.
+     *
+     * @param graph граф дорожной сети
+     */
+    public BucketPathFinder(Graph graph) {
+        this.graphSource = graph::snapshot;
+    }
+
+    /**
+     * Создаёт поиск по готовому индексному представлению графа.
+     *
+     * @param graph индексное представление графа (например, {@link CompactGraph})
+     */
+    public BucketPathFinder(SearchGraph graph) {
+        this.graphSource = () -> graph;
+    }
+
+    @Override
+    public Route findPath(City from, City to, Criterion criterion) {
+        return findPath(graphSource.get(), from, to, criterion);
+    }
+
+    @Override
+    public Map<Criterion, Route> findAllOptimalPaths(City from, City to) {
+        SearchGraph graph = graphSource.get();
+        Map<Criterion, Route> results = new LinkedHashMap<>();
+        for (Criterion criterion : graph.getCriteria()) {
+            results.put(criterion, findPath(graph, from, to, criterion));
+        }
+        return results;
+    }
+
+    private Route findPath(SearchGraph graph, City from, City to, Criterion criterion) {
+        int source = graph.indexOf(from);
+        int target = graph.indexOf(to);
+        if (source < 0 || target < 0) {
+            return Route.empty();
+        }
+
+        ThreadState state = states.get();
+        SearchWorkspace workspace = state.workspace;
+        MonotoneQueue queue = state.queue(criterion, maxWeight(graph, criterion));
+        EdgeCursor edges = graph.edgeCursor();
+
+        workspace.begin(graph.getCityCount());
+        queue.clear();
+        workspace.relax(source, 0, RouteReconstructor.NO_PREDECESSOR);
+        queue.push(source, 0);
+
+        while (!queue.isEmpty()) {
+            int current = queue.pop();
+            // Устаревшая запись: вершина уже извлечена с меньшим ключом
+            if (workspace.isSettled(current)) {
+                continue;
+            }
+            workspace.settle(current);
+            if (current == target) {
+                return RouteReconstructor.build(graph, workspace.predecessors(), target, criterion);
+            }
+
+            int distance = queue.lastKey();
+            edges.moveTo(current);
+            while (edges.next()) {
+                int neighbor = edges.target();
+                int newDistance = distance + edges.weight(criterion);
+                if (newDistance < workspace.distance(neighbor) && !workspace.isSettled(neighbor)) {
+                    workspace.relax(neighbor, newDistance, current);
+                    queue.push(neighbor, newDistance);
+                }
+            }
+        }
+        return Route.empty();
+    }
+
+    /**
+     * Память рабочей области одного потока и очередей по критериям
+     * (очередь — не больше E + 1 записей); в названии части — выбранная очередь.
+     */
+    @Override
+    public MemoryReport memoryReport() {
+        SearchGraph graph = graphSource.get();
+        long entries = MemoryReport.edgeCount(graph) + 1;
+        MemoryReport report = new MemoryReport("Дейкстра на целочисленной очереди: рабочая область потока");
+        report.add("Рабочие массивы", SearchWorkspace.footprint(graph.getCityCount()), 0);
+        for (Criterion criterion : graph.getCriteria()) {
+            int maxWeight = maxWeight(graph, criterion);
+            MonotoneQueue queue = MonotoneQueue.forMaxWeight(maxWeight);
+            String kind = queue instanceof DialQueue ? "корзины Дайла, " + (maxWeight + 1) : "radix-куча";
+            report.add("Очередь " + criterion.getFullName() + " (" + kind + ")", queue.footprint(entries), 0);
+        }
+        return report;
+    }
+
+    private int maxWeight(SearchGraph graph, Criterion criterion) {
+        if (graph instanceof CompactGraph) {
+            // Снимок графа обновляется на месте и сам поддерживает наибольшие веса
+            return graph.getMaxWeight(criterion);
+        }
+        MaxWeights cached = maxWeights;
+        if (cached == null || cached.graph != graph) {
+            int[] weights = new int[graph.getCriteria().size()];
+            for (Criterion each : graph.getCriteria()) {
+                weights[each.index()] = graph.getMaxWeight(each);
+            }
+            cached = new MaxWeights(graph, weights);
+            maxWeights = cached;
+        }
+        return cached.weights[criterion.index()];
+    }
+
+    private static final class MaxWeights {
+        final SearchGraph graph;
+        final int[] weights;
+
+        MaxWeights(SearchGraph graph, int[] weights) {
+            this.graph = graph;
+            this.weights = weights;
+        }
+    }
+
+    /**
+     * Состояние потока: рабочая область и очереди по номеру критерия,
+     * пересоздаваемые при смене наибольшего веса.
+     */
+    private static final class ThreadState {
+        final SearchWorkspace workspace = new SearchWorkspace();
+        MonotoneQueue[] queues = new MonotoneQueue[0];
+        int[] maxWeights = new int[0];
+
+        MonotoneQueue queue(Criterion criterion, int maxWeight) {
+            int index = criterion.index();
+            if (index >= queues.length) {
+                queues = Arrays.copyOf(queues, index + 1);
+                maxWeights = Arrays.copyOf(maxWeights, index + 1);
+            }
+            if (queues[index] == null || maxWeights[index] != maxWeight) {
+                queues[index] = MonotoneQueue.forMaxWeight(maxWeight);
+                maxWeights[index] = maxWeight;
+            }
+            return queues[index];
+        }
+    }
+}
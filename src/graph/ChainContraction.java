@@ -0,0 +1,614 @@
+package graph;
+
+import model.City;
+import model.CriteriaSet;
+import model.Criterion;
+import model.Road;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Сжатие цепочек транзитных городов.
+ *
+ * Транзитный город — город ровно с двумя дорогами к двум разным соседям,
+ * по которым можно проехать в обе стороны с одинаковыми весами. Поэтому
+ * цепочка проходима в обоих направлениях, а односторонние дороги и паромы
+ * с разной стоимостью туда и обратно остаются в ядре.
+ * Цепочка транзитных городов между двумя узловыми городами (junction)
+ * заменяется одним ребром ядра с суммарными весами по всем критериям.
+ * Поиск выполняется только по узловым городам, а для восстановления
+ * маршрута каждая цепочка хранит последовательность своих городов
+ * и накопленные веса от её начала.
+ *
+ * Кольцо, целиком состоящее из транзитных городов, получает один
+ * искусственный узловой город.
+ *
+ * Сжатие, построенное по {@link Graph}, подписано на его изменения.
+ * Новые веса двусторонней дороги применяются на месте за O(d + длина цепочки):
+ * для узлового конца переписываются его прямые рёбра ядра, для транзитного —
+ * накопленные веса его цепочки и два ребра ядра, которые её заменяют.
+ * Такое изменение не меняет ни состав цепочек, ни ядро. Добавление и удаление
+ * дорог и городов и изменение односторонней дороги могут изменить, какие
+ * города транзитные, поэтому после них сжатие перестраивается при следующем
+ * запросе ({@link #refresh()}). Сжатие, построенное по индексному
+ * представлению, неизменяемо.
+ *
+ * Сложность построения: O(V + E). Память: O(V + E) примитивов.
+ */
+public final class ChainContraction {
+
+    /** Нет цепочки (у узлового города или у прямого ребра ядра) */
+    static final int NONE = -1;
+
+    /** Исходный граф: по нему считаются параметры восстановленного маршрута */
+    SearchGraph graph;
+
+    /** Индекс города в ядре или NONE для транзитного города */
+    int[] coreIndex;
+
+    /** Ядро -> индекс исходного города */
+    int[] coreCities;
+
+    /** Рёбра ядра в формате CSR */
+    int[] coreOffsets;
+    int[] coreTargets;
+    int[][] coreWeights;
+
+    /** Цепочка ребра ядра: chain << 1 | (1, если цепочка проходится от конца к началу); NONE для прямой дороги */
+    int[] coreChains;
+
+    /** Узловые города на концах цепочек (индексы ядра) */
+    int[] chainStart;
+    int[] chainEnd;
+
+    /** Промежуточные города цепочки i: chainCities[chainOffsets[i] .. chainOffsets[i + 1]) от начала к концу */
+    int[] chainOffsets;
+    int[] chainCities;
+
+    /** Накопленный вес от начала цепочки до промежуточного города: prefix[criterion][позиция в chainCities] */
+    int[][] prefix;
+
+    /** Полный вес цепочки: chainTotals[criterion][chain] */
+    int[][] chainTotals;
+
+    /** Для транзитного города — цепочка и позиция в chainCities; NONE для узлового */
+    int[] chainOf;
+    int[] chainPosition;
+
+    /** Граф, на изменения которого подписано сжатие; null у сжатия индексного представления */
+    private final Graph source;
+
+    /** Граф изменился так, что цепочки нужно построить заново */
+    private volatile boolean stale;
+
+    /**
+     * Сжимает цепочки в текущем состоянии графа.
+     *
+     * @param graph граф дорожной сети
+     */
+    public ChainContraction(Graph graph) {
+        this.source = graph;
+        build(graph.snapshot());
+        graph.addListener(new Updater());
+    }
+
+    /**
+     * Сжимает цепочки в индексном представлении графа.
+     *
+     * @param graph индексное представление графа
+     */
+    public ChainContraction(SearchGraph graph) {
+        this.source = null;
+        build(graph);
+    }
+
+    /**
+     * Перестраивает сжатие, если после изменения графа оно устарело.
+     * Вызывается поиском перед каждым запросом. Сложность: O(1), если
+     * перестроение не нужно, иначе O(V + E).
+     */
+    void refresh() {
+        if (source == null || !needsRebuild()) {
+            return;
+        }
+        synchronized (this) {
+            if (needsRebuild()) {
+                build(source.snapshot());
+                stale = false;
+            }
+        }
+    }
+
+    /**
+     * Сжатие устарело или построено по снимку, который граф заменил новым.
+     */
+    private boolean needsRebuild() {
+        return stale || graph != source.snapshot();
+    }
+
+    private void build(SearchGraph graph) {
+        this.graph = graph;
+        int cityCount = graph.getCityCount();
+        CriteriaSet criteria = graph.getCriteria();
+        int criteriaCount = criteria.size();
+        EdgeCursor cursor = graph.edgeCursor();
+        EdgeCursor reverse = graph.isDirected() ? graph.reverseEdgeCursor() : null;
+
+        // 1. Определяем транзитные города
+        boolean[] passThrough = new boolean[cityCount];
+        for (int city = 0; city < cityCount; city++) {
+            passThrough[city] = isPassThrough(cursor, city)
+                    && (reverse == null || isSymmetric(cursor, reverse, city, criteria));
+        }
+
+        this.coreIndex = new int[cityCount];
+        this.chainOf = new int[cityCount];
+        this.chainPosition = new int[cityCount];
+        Arrays.fill(coreIndex, NONE);
+        Arrays.fill(chainOf, NONE);
+        Arrays.fill(chainPosition, NONE);
+
+        IntList cores = new IntList();
+        for (int city = 0; city < cityCount; city++) {
+            if (!passThrough[city]) {
+                coreIndex[city] = cores.size();
+                cores.add(city);
+            }
+        }
+
+        // 2. Обходим цепочки из каждого узлового города; кольца без узлов получают искусственный узел
+        ChainBuilder builder = new ChainBuilder(graph, criteriaCount);
+        List<IntList> coreEdges = new ArrayList<>();
+        int processed = 0;
+        int nextCandidate = 0;
+        while (true) {
+            while (processed < cores.size()) {
+                builder.expandJunction(cores.get(processed), processed, coreEdges);
+                processed++;
+            }
+            while (nextCandidate < cityCount
+                    && (coreIndex[nextCandidate] != NONE || chainOf[nextCandidate] != NONE)) {
+                nextCandidate++;
+            }
+            if (nextCandidate == cityCount) {
+                break;
+            }
+            coreIndex[nextCandidate] = cores.size();
+            cores.add(nextCandidate);
+        }
+
+        this.coreCities = cores.toArray();
+        this.chainStart = builder.starts.toArray();
+        this.chainEnd = builder.ends.toArray();
+        this.chainOffsets = builder.offsets.toArray();
+        this.chainCities = builder.cities.toArray();
+        this.prefix = new int[criteriaCount][];
+        this.chainTotals = new int[criteriaCount][];
+        for (int c = 0; c < criteriaCount; c++) {
+            prefix[c] = builder.prefix[c].toArray();
+            chainTotals[c] = builder.totals[c].toArray();
+        }
+
+        // 3. Ядро в формате CSR: для каждого ребра — цель, веса и ссылка на цепочку
+        // Запись ребра ядра при построении: цель, цепочка, веса
+        int edgeStride = 2 + criteriaCount;
+        int coreCount = coreCities.length;
+        this.coreOffsets = new int[coreCount + 1];
+        for (int core = 0; core < coreCount; core++) {
+            coreOffsets[core + 1] = coreOffsets[core] + coreEdges.get(core).size() / edgeStride;
+        }
+        int edgeCount = coreOffsets[coreCount];
+        this.coreTargets = new int[edgeCount];
+        this.coreChains = new int[edgeCount];
+        this.coreWeights = new int[criteriaCount][edgeCount];
+        for (int core = 0, edge = 0; core < coreCount; core++) {
+            IntList edges = coreEdges.get(core);
+            for (int i = 0; i < edges.size(); i += edgeStride, edge++) {
+                coreTargets[edge] = edges.get(i);
+                coreChains[edge] = edges.get(i + 1);
+                for (int c = 0; c < criteriaCount; c++) {
+                    coreWeights[c][edge] = edges.get(i + 2 + c);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return байты объекта и массивов ядра и цепочек (см. {@link MemoryReport});
+     *         исходный граф не учитывается
+     */
+    long footprint() {
+        int[][] arrays = {coreIndex, coreCities, coreOffsets, coreTargets, coreChains,
+                chainStart, chainEnd, chainOffsets, chainCities, chainOf, chainPosition};
+        long bytes = MemoryReport.align(MemoryReport.OBJECT_HEADER + 16 * MemoryReport.REFERENCE + 1);
+        for (int[] array : arrays) {
+            bytes += MemoryReport.array(array.length, Integer.BYTES);
+        }
+        return bytes + MemoryReport.columns(coreWeights) + MemoryReport.columns(prefix)
+                + MemoryReport.columns(chainTotals);
+    }
+
+    /**
+     * Записывает новые веса двусторонней дороги в ядро и цепочки: для узлового
+     * города — во все его прямые рёбра ядра, для транзитного — в его цепочку.
+     */
+    private void updateWeights(int city) {
+        int core = coreIndex[city];
+        if (core == NONE) {
+            updateChain(chainOf[city]);
+            return;
+        }
+        // Рёбра ядра узлового города идут в порядке его дорог: i-е ребро — i-я дорога
+        CriteriaSet criteria = source.getCriteria();
+        int degree = source.getDegree(city);
+        for (int i = 0; i < degree; i++) {
+            int edge = coreOffsets[core] + i;
+            if (coreChains[edge] == NONE) {
+                int halfEdge = source.getHalfEdge(city, i);
+                for (Criterion criterion : criteria) {
+                    coreWeights[criterion.index()][edge] = source.getWeight(halfEdge, criterion);
+                }
+            }
+        }
+    }
+
+    /**
+     * Пересчитывает накопленные и полные веса цепочки обходом от её начала
+     * и переписывает два ребра ядра, которые её заменяют.
+     */
+    private void updateChain(int chain) {
+        CriteriaSet criteria = source.getCriteria();
+        int[] accumulated = new int[criteria.size()];
+        int begin = chainOffsets[chain];
+        int end = chainOffsets[chain + 1];
+        int previous = coreCities[chainStart[chain]];
+        for (int position = begin; position < end; position++) {
+            int current = chainCities[position];
+            int back = edgeTo(current, previous, true);
+            if (position == begin) {
+                // Дороги цепочки двусторонние: вес от начала равен весу обратного ребра
+                for (Criterion criterion : criteria) {
+                    accumulated[criterion.index()] = source.getWeight(back, criterion);
+                }
+            }
+            for (int c = 0; c < accumulated.length; c++) {
+                prefix[c][position] = accumulated[c];
+            }
+            int next = edgeTo(current, previous, false);
+            for (Criterion criterion : criteria) {
+                accumulated[criterion.index()] += source.getWeight(next, criterion);
+            }
+            previous = current;
+        }
+        for (int c = 0; c < accumulated.length; c++) {
+            chainTotals[c][chain] = accumulated[c];
+        }
+        setChainEdge(chainStart[chain], chain << 1);
+        setChainEdge(chainEnd[chain], (chain << 1) | 1);
+    }
+
+    /**
+     * @return полуребро транзитного города к соседу (toward) или к другому его соседу
+     */
+    private int edgeTo(int city, int neighbor, boolean toward) {
+        int first = source.getHalfEdge(city, 0);
+        return (source.getTarget(first) == neighbor) == toward ? first : source.getHalfEdge(city, 1);
+    }
+
+    /**
+     * Записывает полные веса цепочки в ребро ядра узлового города с этой ссылкой на цепочку.
+     */
+    private void setChainEdge(int core, int chainRef) {
+        for (int edge = coreOffsets[core]; edge < coreOffsets[core + 1]; edge++) {
+            if (coreChains[edge] == chainRef) {
+                for (int c = 0; c < coreWeights.length; c++) {
+                    coreWeights[c][edge] = chainTotals[c][chainRef >>> 1];
+                }
+            }
+        }
+    }
+
+    /**
+     * Переводит изменения графа в обновления сжатия.
+     */
+    private final class Updater implements GraphListener {
+
+        @Override
+        public void cityAdded(City city, int index) {
+            if (index >= coreIndex.length) {
+                stale = true;
+            }
+        }
+
+        @Override
+        public void roadAdded(Road road) {
+            stale = true;
+        }
+
+        @Override
+        public void roadsRemoved(City a, City b, int count) {
+            stale = true;
+        }
+
+        @Override
+        public void roadUpdated(Road road) {
+            if (stale || road.isOneWay()) {
+                // Односторонняя дорога с новыми весами может стать парой встречной
+                stale = true;
+                return;
+            }
+            int from = source.indexOf(road.getFrom());
+            int to = source.indexOf(road.getTo());
+            updateWeights(from);
+            if (to != from && !(coreIndex[to] == NONE && chainOf[to] == chainOf[from])) {
+                updateWeights(to);
+            }
+        }
+
+        @Override
+        public void restructured() {
+            stale = true;
+        }
+    }
+
+    /**
+     * Транзитный город: ровно две дороги к двум разным соседям, отличным от самого города.
+     */
+    private static boolean isPassThrough(EdgeCursor cursor, int city) {
+        cursor.moveTo(city);
+        int first = NONE;
+        int second = NONE;
+        int degree = 0;
+        while (cursor.next()) {
+            degree++;
+            if (degree == 1) {
+                first = cursor.target();
+            } else if (degree == 2) {
+                second = cursor.target();
+            } else {
+                return false;
+            }
+        }
+        return degree == 2 && first != second && first != city && second != city;
+    }
+
+    /**
+     * Проверяет, что входящие рёбра города совпадают с исходящими (та же пара
+     * соседей с теми же весами), то есть обе его дороги двусторонние.
+     * Вызывается только для города с двумя исходящими рёбрами.
+     */
+    private static boolean isSymmetric(EdgeCursor cursor, EdgeCursor reverse, int city, CriteriaSet criteria) {
+        reverse.moveTo(city);
+        int matched = 0;
+        int first = NONE;
+        while (reverse.next()) {
+            if (++matched > 2 || reverse.target() == first || !hasEdge(cursor, city, reverse, criteria)) {
+                return false;
+            }
+            first = reverse.target();
+        }
+        return matched == 2;
+    }
+
+    /**
+     * Есть ли у города исходящее ребро к соседу текущего входящего ребра с теми же весами.
+     */
+    private static boolean hasEdge(EdgeCursor cursor, int city, EdgeCursor incoming, CriteriaSet criteria) {
+        cursor.moveTo(city);
+        while (cursor.next()) {
+            if (cursor.target() != incoming.target()) {
+                continue;
+            }
+            boolean same = true;
+            for (Criterion criterion : criteria) {
+                same &= cursor.weight(criterion) == incoming.weight(criterion);
+            }
+            if (same) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Накопитель цепочек и рёбер ядра на время построения.
+     */
+    private final class ChainBuilder {
+        final SearchGraph graph;
+        final EdgeCursor junctionCursor;
+        final EdgeCursor chainCursor;
+        final CriteriaSet criteria;
+        final int[] accumulated;
+
+        final IntList starts = new IntList();
+        final IntList ends = new IntList();
+        final IntList offsets = new IntList();
+        final IntList cities = new IntList();
+        final IntList[] prefix;
+        final IntList[] totals;
+
+        ChainBuilder(SearchGraph graph, int criteriaCount) {
+            this.graph = graph;
+            this.criteria = graph.getCriteria();
+            this.junctionCursor = graph.edgeCursor();
+            this.chainCursor = graph.edgeCursor();
+            this.accumulated = new int[criteriaCount];
+            this.prefix = new IntList[criteriaCount];
+            this.totals = new IntList[criteriaCount];
+            for (int c = 0; c < criteriaCount; c++) {
+                prefix[c] = new IntList();
+                totals[c] = new IntList();
+            }
+            offsets.add(0);
+        }
+
+        /**
+         * Добавляет в ядро все рёбра узлового города в исходном порядке его дорог.
+         */
+        void expandJunction(int city, int core, List<IntList> coreEdges) {
+            IntList edges = new IntList();
+            coreEdges.add(edges);
+
+            junctionCursor.moveTo(city);
+            while (junctionCursor.next()) {
+                int next = junctionCursor.target();
+                if (coreIndex[next] != NONE) {
+                    // Прямая дорога между узловыми городами
+                    addEdge(edges, coreIndex[next], NONE, junctionCursor);
+                } else if (chainOf[next] != NONE) {
+                    // Цепочка уже пройдена с другого конца — используем её в обратном направлении
+                    int chain = chainOf[next];
+                    addEdge(edges, chainStart(chain), (chain << 1) | 1, chain);
+                } else {
+                    int chain = walkChain(city, core, next);
+                    addEdge(edges, ends.get(chain), chain << 1, chain);
+                }
+            }
+        }
+
+        /**
+         * Проходит цепочку транзитных городов от узлового города до следующего узлового.
+         *
+         * @return номер новой цепочки
+         */
+        int walkChain(int junction, int core, int first) {
+            int chain = starts.size();
+            for (Criterion criterion : criteria) {
+                accumulated[criterion.index()] = junctionCursor.weight(criterion);
+            }
+
+            int previous = junction;
+            int current = first;
+            while (coreIndex[current] == NONE) {
+                chainOf[current] = chain;
+                chainPosition[current] = cities.size();
+                cities.add(current);
+                for (int c = 0; c < accumulated.length; c++) {
+                    prefix[c].add(accumulated[c]);
+                }
+
+                // У транзитного города ровно одна дорога не ведёт назад
+                chainCursor.moveTo(current);
+                while (chainCursor.next() && chainCursor.target() == previous) {
+                    // пропускаем дорогу, по которой пришли
+                }
+                for (Criterion criterion : criteria) {
+                    accumulated[criterion.index()] += chainCursor.weight(criterion);
+                }
+                previous = current;
+                current = chainCursor.target();
+            }
+
+            starts.add(core);
+            ends.add(coreIndex[current]);
+            offsets.add(cities.size());
+            for (int c = 0; c < accumulated.length; c++) {
+                totals[c].add(accumulated[c]);
+            }
+            return chain;
+        }
+
+        int chainStart(int chain) {
+            return starts.get(chain);
+        }
+
+        private void addEdge(IntList edges, int target, int chainRef, EdgeCursor cursor) {
+            edges.add(target);
+            edges.add(chainRef);
+            for (Criterion criterion : criteria) {
+                edges.add(cursor.weight(criterion));
+            }
+        }
+
+        private void addEdge(IntList edges, int target, int chainRef, int chain) {
+            edges.add(target);
+            edges.add(chainRef);
+            for (IntList total : totals) {
+                edges.add(total.get(chain));
+            }
+        }
+    }
+
+    /**
+     * @return исходный граф, по которому построено сжатие
+     */
+    public SearchGraph getGraph() {
+        refresh();
+        return graph;
+    }
+
+    /**
+     * Возвращает количество узловых городов, по которым выполняется поиск.
+     *
+     * @return число вершин ядра
+     */
+    public int getCoreCityCount() {
+        refresh();
+        return coreCities.length;
+    }
+
+    /**
+     * Возвращает количество транзитных городов, убранных из поиска.
+     *
+     * @return число сжатых вершин
+     */
+    public int getContractedCityCount() {
+        refresh();
+        return chainCities.length;
+    }
+
+    /**
+     * Возвращает количество цепочек, заменённых рёбрами ядра.
+     *
+     * @return число цепочек
+     */
+    public int getChainCount() {
+        refresh();
+        return chainStart.length;
+    }
+
+    /**
+     * Возвращает количество направленных рёбер ядра.
+     *
+     * @return число рёбер
+     */
+    public int getCoreEdgeCount() {
+        refresh();
+        return coreTargets.length;
+    }
+
+    /**
+     * Проверяет, является ли город узловым (участвует в поиске по ядру).
+     *
+     * @param city город
+     * @return true для узлового города
+     */
+    public boolean isJunction(City city) {
+        refresh();
+        int index = graph.indexOf(city);
+        return index >= 0 && coreIndex[index] != NONE;
+    }
+
+    /**
+     * Дописывает в путь промежуточные города цепочки в направлении обхода.
+     *
+     * @param chainRef ссылка на цепочку из coreChains
+     * @param path     путь (индексы исходных городов)
+     */
+    void appendChain(int chainRef, IntList path) {
+        int chain = chainRef >>> 1;
+        int begin = chainOffsets[chain];
+        int end = chainOffsets[chain + 1];
+        if ((chainRef & 1) == 0) {
+            for (int i = begin; i < end; i++) {
+                path.add(chainCities[i]);
+            }
+        } else {
+            for (int i = end - 1; i >= begin; i--) {
+                path.add(chainCities[i]);
+            }
+        }
+    }
+}
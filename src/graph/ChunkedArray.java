@@ -0,0 +1,88 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * Неизменяемый массив с копированием при записи по частям (chunks).
+ * 
+ * Элементы хранятся блоками по CHUNK_SIZE. Изменение одного элемента копирует
+ * только верхний массив ссылок и один блок, а остальные блоки разделяются
+ * между старой и новой версией: O(n / CHUNK_SIZE + CHUNK_SIZE) вместо O(n).
+ * 
+ * @param <T> тип элементов
+ */
+final class ChunkedArray<T> {
+
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private static final ChunkedArray<?> EMPTY = new ChunkedArray<>(new Object[0][], 0);
+
+    private final Object[][] chunks;
+    private final int size;
+
+    private ChunkedArray(Object[][] chunks, int size) {
+        this.chunks = chunks;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> ChunkedArray<T> empty() {
+        return (ChunkedArray<T>) EMPTY;
+    }
+
+    /**
+     * Строит массив из готовых значений за O(n) (без поэлементных копий).
+     */
+    static <T> ChunkedArray<T> of(T[] values) {
+        int chunkCount = (values.length + CHUNK_SIZE - 1) >>> CHUNK_BITS;
+        Object[][] chunks = new Object[chunkCount][];
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            chunks[chunk] = new Object[CHUNK_SIZE];
+            int from = chunk << CHUNK_BITS;
+            System.arraycopy(values, from, chunks[chunk], 0, Math.min(CHUNK_SIZE, values.length - from));
+        }
+        return new ChunkedArray<>(chunks, values.length);
+    }
+
+    int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    T get(int index) {
+        return (T) chunks[index >>> CHUNK_BITS][index & CHUNK_MASK];
+    }
+
+    /**
+     * @return новая версия массива, в которой элемент index заменён на value
+     */
+    ChunkedArray<T> with(int index, T value) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Индекс " + index + " вне диапазона 0.." + (size - 1));
+        }
+        Object[][] newChunks = chunks.clone();
+        int chunk = index >>> CHUNK_BITS;
+        newChunks[chunk] = chunks[chunk].clone();
+        newChunks[chunk][index & CHUNK_MASK] = value;
+        return new ChunkedArray<>(newChunks, size);
+    }
+
+    /**
+     * @return новая версия массива с value в конце
+     */
+    ChunkedArray<T> append(T value) {
+        int chunk = size >>> CHUNK_BITS;
+        Object[][] newChunks;
+        if (chunk < chunks.length) {
+            newChunks = chunks.clone();
+            newChunks[chunk] = chunks[chunk].clone();
+        } else {
+            newChunks = Arrays.copyOf(chunks, chunk + 1);
+            newChunks[chunk] = new Object[CHUNK_SIZE];
+        }
+        newChunks[chunk][size & CHUNK_MASK] = value;
+        return new ChunkedArray<>(newChunks, size + 1);
+    }
+}
@@ -0,0 +1,115 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * Отображение ID города -> плотный внутренний индекс без упаковки в Integer/Long.
+ * 
+ * Открытая адресация с линейным пробированием по массивам long[]/int[].
+ * Поддерживает разреженные и большие идентификаторы (например, 10-значные ID
+ * из справочников), при этом не создаёт объектов при поиске.
+ * 
+ * Сложность: O(1) в среднем на поиск и вставку.
+ */
+final class CityIdIndex {
+
+    private static final int EMPTY = -1;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+
+    CityIdIndex() {
+        this(16);
+    }
+
+    CityIdIndex(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        Arrays.fill(values, EMPTY);
+    }
+
+    /**
+     * Возвращает индекс города по ID.
+     * 
+     * @param id идентификатор города
+     * @return индекс или -1, если ID не зарегистрирован
+     */
+    int get(long id) {
+        int mask = keys.length - 1;
+        for (int slot = hash(id) & mask; ; slot = (slot + 1) & mask) {
+            int value = values[slot];
+            if (value == EMPTY || keys[slot] == id) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * Регистрирует индекс для ID (перезаписывает существующий).
+     * 
+     * @param id    идентификатор города
+     * @param index неотрицательный индекс
+     */
+    void put(long id, int index) {
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        for (int slot = hash(id) & mask; ; slot = (slot + 1) & mask) {
+            if (values[slot] == EMPTY) {
+                keys[slot] = id;
+                values[slot] = index;
+                size++;
+                return;
+            }
+            if (keys[slot] == id) {
+                values[slot] = index;
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return независимая копия индекса (для неизменяемых снимков)
+     */
+    CityIdIndex copy() {
+        CityIdIndex copy = new CityIdIndex(1);
+        copy.keys = keys.clone();
+        copy.values = values.clone();
+        copy.size = size;
+        return copy;
+    }
+
+    /**
+     * @return байты объекта и таблиц (см. {@link MemoryReport})
+     */
+    long footprint() {
+        return MemoryReport.align(MemoryReport.OBJECT_HEADER + 2 * MemoryReport.REFERENCE + 4)
+                + MemoryReport.array(keys.length, Long.BYTES)
+                + MemoryReport.array(values.length, Integer.BYTES);
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, EMPTY);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != EMPTY) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    /**
+     * Перемешивание битов ID: последовательные ID не должны образовывать кластеры.
+     */
+    static int hash(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,586 @@
+package graph;
+
+import model.City;
+import model.CriteriaSet;
+import model.Criterion;
+import model.Road;
+
+import java.util.Arrays;
+
+/**
+ * Снимок графа в формате CSR (compressed sparse row).
+ *
+ * Исходящие дороги города с индексом i занимают позиции [offsets[i], offsets[i + 1])
+ * в общих массивах targets и weights. Для каждого критерия хранится отдельный
+ * массив весов, поэтому релаксация ребра — это чтение двух int подряд
+ * без обращения к HashMap и объектам Road.
+ *
+ * Входящие рёбра (для обратного поиска) хранятся во втором наборе массивов
+ * той же структуры. В неориентированном графе входящие рёбра совпадают
+ * с исходящими, и второй набор ссылается на те же массивы.
+ *
+ * Снимок, построенный конструктором, неизменяем. Снимок, который граф хранит
+ * для поиска ({@link Graph#snapshot()}), подписан на изменения графа и
+ * обновляется на месте за O(d), где d — степень концов изменённой дороги:
+ * строка с прежним числом рёбер (изменение весов) переписывается поверх
+ * общих массивов, а строка, число рёбер которой изменилось, — в отдельные
+ * массивы этого города, которые курсор читает вместо диапазона общих.
+ * Когда в таких строках оказывается больше восьмой части рёбер, снимок
+ * перестраивается целиком, поэтому перестроение O(V + E) приходится
+ * не чаще чем на E / 8 переписанных рёбер. Первая односторонняя дорога
+ * и перенумерация городов тоже перестраивают снимок.
+ *
+ * Сложность по памяти: (V + 1) + (1 + K)·E значений int, где E — число направленных рёбер,
+ * K — число критериев;
+ * для графа с односторонними дорогами — вдвое больше.
+ */
+public final class CompactGraph implements SearchGraph {
+
+    private City[] cities;
+    private int cityCount;
+    private CityIdIndex indexById;
+    private final CriteriaSet criteria;
+
+    /** Начало списка рёбер каждого города; offsets[n] = число рёбер */
+    int[] offsets;
+
+    /** Город назначения каждого ребра */
+    int[] targets;
+
+    /** Веса рёбер: weights[criterion.index()][edge] */
+    int[][] weights;
+
+    /** Входящие рёбра в том же формате: reverseTargets — город, из которого ведёт ребро */
+    int[] reverseOffsets;
+    int[] reverseTargets;
+    int[][] reverseWeights;
+
+    /**
+     * Переписанные строки исходящих и входящих рёбер по индексу города (null — строка
+     * в общих массивах); null, пока строк нет. У неориентированного графа один массив.
+     */
+    private Row[] rows;
+    private Row[] reverseRows;
+
+    /** Исходящих рёбер в переписанных строках */
+    private int rowEdges;
+
+    private int edgeCount;
+
+    private boolean directed;
+
+    /** Наибольший вес ребра по каждому критерию */
+    private int[] maxWeights;
+
+    /** Ребро с наибольшим весом удалено или стало легче: значения пересчитываются при обращении */
+    private volatile boolean maxWeightsStale;
+
+    /** Подписка на изменения графа; null у неизменяемого снимка */
+    private Updater updater;
+
+    /**
+     * Строит снимок текущего состояния графа.
+     * Индексы городов в снимке совпадают с внутренними индексами графа.
+     * Сложность: O(V + E).
+     *
+     * @param graph исходный граф
+     */
+    public CompactGraph(Graph graph) {
+        this.criteria = graph.getCriteria();
+        build(graph);
+    }
+
+    /**
+     * Строит снимок, который обновляется вместе с графом: граф подписывает
+     * {@link #updater()} на свои изменения.
+     */
+    static CompactGraph maintained(Graph graph) {
+        CompactGraph snapshot = new CompactGraph(graph);
+        snapshot.updater = snapshot.new Updater(graph);
+        return snapshot;
+    }
+
+    /**
+     * @return подписчик, обновляющий снимок, или null у неизменяемого снимка
+     */
+    GraphListener updater() {
+        return updater;
+    }
+
+    /**
+     * Отключает обновление: снимок остаётся в текущем состоянии.
+     */
+    void detach() {
+        updater = null;
+    }
+
+    /**
+     * Заполняет общие массивы по текущему состоянию графа и сбрасывает переписанные строки.
+     */
+    private void build(Graph graph) {
+        int cityCount = graph.getCityCount();
+
+        this.cities = graph.getAllCities().toArray(new City[0]);
+        this.cityCount = cityCount;
+        this.indexById = graph.copyIdIndex();
+
+        // Первый проход: степени вершин -> смещения
+        this.offsets = new int[cityCount + 1];
+        for (int i = 0; i < cityCount; i++) {
+            offsets[i + 1] = offsets[i] + graph.getDegree(i);
+        }
+
+        this.edgeCount = offsets[cityCount];
+        this.targets = new int[edgeCount];
+        this.weights = new int[criteria.size()][edgeCount];
+
+        // Второй проход: заполнение рёбер в исходном порядке списков смежности
+        for (int i = 0; i < cityCount; i++) {
+            fill(graph, i, false, targets, weights, offsets[i]);
+        }
+
+        this.maxWeights = new int[criteria.size()];
+        for (int k = 0; k < maxWeights.length; k++) {
+            for (int weight : weights[k]) {
+                maxWeights[k] = Math.max(maxWeights[k], weight);
+            }
+        }
+        this.maxWeightsStale = false;
+        this.rows = null;
+        this.reverseRows = null;
+        this.rowEdges = 0;
+
+        // Входящие рёбра: отдельные массивы только при наличии односторонних дорог
+        this.directed = graph.isDirected();
+        if (!directed) {
+            this.reverseOffsets = offsets;
+            this.reverseTargets = targets;
+            this.reverseWeights = weights;
+            return;
+        }
+        this.reverseOffsets = new int[cityCount + 1];
+        for (int i = 0; i < cityCount; i++) {
+            reverseOffsets[i + 1] = reverseOffsets[i] + graph.getReverseDegree(i);
+        }
+        int reverseCount = reverseOffsets[cityCount];
+        this.reverseTargets = new int[reverseCount];
+        this.reverseWeights = new int[criteria.size()][reverseCount];
+        for (int i = 0; i < cityCount; i++) {
+            fill(graph, i, true, reverseTargets, reverseWeights, reverseOffsets[i]);
+        }
+    }
+
+    /**
+     * Записывает исходящие (входящие) рёбра города в массивы начиная с позиции start.
+     */
+    private void fill(Graph graph, int city, boolean reverse, int[] targets, int[][] weights, int start) {
+        int degree = reverse ? graph.getReverseDegree(city) : graph.getDegree(city);
+        for (int i = 0; i < degree; i++) {
+            int halfEdge = reverse ? graph.getReverseHalfEdge(city, i) : graph.getHalfEdge(city, i);
+            targets[start + i] = reverse ? graph.getSource(halfEdge) : graph.getTarget(halfEdge);
+            for (Criterion criterion : criteria) {
+                weights[criterion.index()][start + i] = graph.getWeight(halfEdge, criterion);
+            }
+        }
+    }
+
+    @Override
+    public int getCityCount() {
+        return cityCount;
+    }
+
+    @Override
+    public CriteriaSet getCriteria() {
+        return criteria;
+    }
+
+    @Override
+    public City getCity(int index) {
+        return cities[index];
+    }
+
+    @Override
+    public int indexOf(City city) {
+        return indexById.get(city.getId());
+    }
+
+    @Override
+    public EdgeCursor edgeCursor() {
+        return rows == null ? new Cursor(offsets, targets, weights)
+                : new PatchedCursor(offsets, targets, weights, rows);
+    }
+
+    @Override
+    public EdgeCursor reverseEdgeCursor() {
+        return reverseRows == null ? new Cursor(reverseOffsets, reverseTargets, reverseWeights)
+                : new PatchedCursor(reverseOffsets, reverseTargets, reverseWeights, reverseRows);
+    }
+
+    @Override
+    public boolean isDirected() {
+        return directed;
+    }
+
+    /**
+     * Сложность: O(1); после удаления или облегчения самого тяжёлого ребра
+     * первый вызов пересчитывает значения за O(V + E).
+     */
+    @Override
+    public int getMaxWeight(Criterion criterion) {
+        if (maxWeightsStale) {
+            recomputeMaxWeights();
+        }
+        return maxWeights[criterion.index()];
+    }
+
+    /**
+     * Возвращает количество направленных рёбер (каждая двусторонняя дорога даёт два).
+     *
+     * @return число рёбер
+     */
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * Возвращает память снимка по частям. Объекты городов общие с графом
+     * и учитываются в его отчёте; здесь — только массив ссылок на них.
+     *
+     * @return отчёт о памяти
+     */
+    public MemoryReport memoryReport() {
+        MemoryReport report = new MemoryReport("CSR-снимок: " + cityCount + " городов, " + edgeCount + " рёбер");
+        report.add("Города", MemoryReport.align(MemoryReport.OBJECT_HEADER + 13 * MemoryReport.REFERENCE
+                + 3 * Integer.BYTES + 2) + MemoryReport.array(cities.length, MemoryReport.REFERENCE), 0);
+        report.add("Рёбра", MemoryReport.array(offsets.length, Integer.BYTES)
+                + MemoryReport.array(targets.length, Integer.BYTES), 0);
+        report.add("Веса", MemoryReport.columns(weights) + MemoryReport.array(maxWeights.length, Integer.BYTES), 0);
+        if (directed) {
+            report.add("Обратные рёбра", MemoryReport.array(reverseOffsets.length, Integer.BYTES)
+                    + MemoryReport.array(reverseTargets.length, Integer.BYTES)
+                    + MemoryReport.columns(reverseWeights), 0);
+        }
+        if (rows != null) {
+            report.add("Переписанные строки", footprint(rows) + (directed ? footprint(reverseRows) : 0), 0);
+        }
+        report.add("Индекс ID", indexById.footprint(), 0);
+        return report;
+    }
+
+    private static long footprint(Row[] rows) {
+        long bytes = MemoryReport.array(rows.length, MemoryReport.REFERENCE);
+        for (Row row : rows) {
+            if (row != null) {
+                bytes += MemoryReport.align(MemoryReport.OBJECT_HEADER + 2 * MemoryReport.REFERENCE)
+                        + MemoryReport.array(row.targets.length, Integer.BYTES) + MemoryReport.columns(row.weights);
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Возвращает количество исходящих рёбер города.
+     *
+     * @param city индекс города
+     * @return степень вершины
+     */
+    public int getDegree(int city) {
+        Row row = rows != null ? rows[city] : null;
+        if (row != null) {
+            return row.targets.length;
+        }
+        return city < offsets.length - 1 ? offsets[city + 1] - offsets[city] : 0;
+    }
+
+    // ═══ Обновление вместе с графом ═══
+
+    /**
+     * Добавляет город без рёбер.
+     */
+    private void addCity(City city) {
+        if (cityCount == cities.length) {
+            cities = Arrays.copyOf(cities, Math.max(16, cityCount * 2));
+        }
+        cities[cityCount] = city;
+        indexById.put(city.getId(), cityCount);
+        cityCount++;
+        // Города после общих массивов читает только курсор переписанных строк: там они без рёбер
+        if (rows == null) {
+            rows = new Row[cities.length];
+            reverseRows = directed ? new Row[cities.length] : rows;
+        } else if (rows.length < cities.length) {
+            rows = Arrays.copyOf(rows, cities.length);
+            reverseRows = directed ? Arrays.copyOf(reverseRows, cities.length) : rows;
+        }
+    }
+
+    /**
+     * Переписывает строки концов изменённой дороги по текущему состоянию графа.
+     */
+    private void updateRows(Graph graph, int a, int b) {
+        if (graph.isDirected() != directed) {
+            if (!directed) {
+                // Первая односторонняя дорога: граф тоже строит обратные списки заново
+                build(graph);
+                return;
+            }
+            // Входящие рёбра снова совпадают с исходящими
+            directed = false;
+            reverseOffsets = offsets;
+            reverseTargets = targets;
+            reverseWeights = weights;
+            reverseRows = rows;
+        }
+
+        updateRow(graph, a, false);
+        if (b != a) {
+            updateRow(graph, b, false);
+        }
+        if (directed) {
+            updateRow(graph, a, true);
+            if (b != a) {
+                updateRow(graph, b, true);
+            }
+        }
+        if (rowEdges > targets.length / 8 + 64) {
+            build(graph);
+        }
+    }
+
+    /**
+     * Записывает рёбра города поверх прежних, если их число не изменилось,
+     * иначе — в новую строку этого города.
+     */
+    private void updateRow(Graph graph, int city, boolean reverse) {
+        int degree = reverse ? graph.getReverseDegree(city) : graph.getDegree(city);
+        Row row = rows == null ? null : reverse ? reverseRows[city] : rows[city];
+        int[] rowTargets;
+        int[][] rowWeights;
+        int start;
+        int oldDegree;
+        if (row != null) {
+            rowTargets = row.targets;
+            rowWeights = row.weights;
+            start = 0;
+            oldDegree = row.targets.length;
+        } else {
+            int[] rowOffsets = reverse ? reverseOffsets : offsets;
+            rowTargets = reverse ? reverseTargets : targets;
+            rowWeights = reverse ? reverseWeights : weights;
+            start = city < rowOffsets.length - 1 ? rowOffsets[city] : 0;
+            oldDegree = city < rowOffsets.length - 1 ? rowOffsets[city + 1] - start : 0;
+        }
+
+        if (!reverse) {
+            // Входящие рёбра — те же дороги, наибольшие веса считаются по исходящим
+            forgetMaxWeights(rowWeights, start, oldDegree);
+            edgeCount += degree - oldDegree;
+        }
+        if (degree != oldDegree) {
+            if (rows == null) {
+                rows = new Row[cities.length];
+                reverseRows = directed ? new Row[cities.length] : rows;
+            }
+            row = new Row(degree, criteria.size());
+            (reverse ? reverseRows : rows)[city] = row;
+            rowTargets = row.targets;
+            rowWeights = row.weights;
+            start = 0;
+            if (!reverse) {
+                rowEdges += degree;
+            }
+        }
+        fill(graph, city, reverse, rowTargets, rowWeights, start);
+        if (!reverse) {
+            for (int k = 0; k < maxWeights.length; k++) {
+                for (int i = start; i < start + degree; i++) {
+                    maxWeights[k] = Math.max(maxWeights[k], rowWeights[k][i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Отмечает наибольшие веса устаревшими, если среди заменяемых рёбер есть ребро с таким весом.
+     */
+    private void forgetMaxWeights(int[][] rowWeights, int start, int degree) {
+        for (int k = 0; k < maxWeights.length && !maxWeightsStale; k++) {
+            for (int i = start; i < start + degree; i++) {
+                if (rowWeights[k][i] == maxWeights[k]) {
+                    maxWeightsStale = true;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Пересчитывает наибольшие веса по всем строкам. Новый массив публикуется
+     * целиком: параллельные запросы не видят частично посчитанных значений.
+     */
+    private synchronized void recomputeMaxWeights() {
+        if (!maxWeightsStale) {
+            return;
+        }
+        int[] result = new int[criteria.size()];
+        EdgeCursor cursor = edgeCursor();
+        for (int city = 0; city < cityCount; city++) {
+            cursor.moveTo(city);
+            while (cursor.next()) {
+                for (Criterion criterion : criteria) {
+                    result[criterion.index()] = Math.max(result[criterion.index()], cursor.weight(criterion));
+                }
+            }
+        }
+        maxWeights = result;
+        maxWeightsStale = false;
+    }
+
+    /**
+     * Переводит изменения графа в обновления снимка.
+     */
+    private final class Updater implements GraphListener {
+        private final Graph graph;
+
+        Updater(Graph graph) {
+            this.graph = graph;
+        }
+
+        @Override
+        public void cityAdded(City city, int index) {
+            if (index < cityCount) {
+                cities[index] = city;
+            } else {
+                addCity(city);
+            }
+        }
+
+        @Override
+        public void roadAdded(Road road) {
+            updateRows(graph, graph.indexOf(road.getFrom()), graph.indexOf(road.getTo()));
+        }
+
+        @Override
+        public void roadsRemoved(City a, City b, int count) {
+            updateRows(graph, graph.indexOf(a), graph.indexOf(b));
+        }
+
+        @Override
+        public void roadUpdated(Road road) {
+            updateRows(graph, graph.indexOf(road.getFrom()), graph.indexOf(road.getTo()));
+        }
+
+        @Override
+        public void restructured() {
+            build(graph);
+        }
+    }
+
+    /**
+     * Строка CSR, переписанная после изменения числа рёбер города: рёбра в собственных массивах.
+     */
+    private static final class Row {
+        final int[] targets;
+        final int[][] weights;
+
+        Row(int degree, int criteriaCount) {
+            this.targets = new int[degree];
+            this.weights = new int[criteriaCount][degree];
+        }
+    }
+
+    /**
+     * Курсор по непрерывному диапазону рёбер CSR (исходящих или входящих).
+     */
+    private static final class Cursor implements EdgeCursor {
+        private final int[] offsets;
+        private final int[] targets;
+        private final int[][] weights;
+        private int edge;
+        private int end;
+
+        Cursor(int[] offsets, int[] targets, int[][] weights) {
+            this.offsets = offsets;
+            this.targets = targets;
+            this.weights = weights;
+        }
+
+        @Override
+        public void moveTo(int city) {
+            edge = offsets[city] - 1;
+            end = offsets[city + 1];
+        }
+
+        @Override
+        public boolean next() {
+            return ++edge < end;
+        }
+
+        @Override
+        public int target() {
+            return targets[edge];
+        }
+
+        @Override
+        public int weight(Criterion criterion) {
+            return weights[criterion.index()][edge];
+        }
+    }
+
+    /**
+     * Курсор снимка с переписанными строками: строка города читается
+     * из его собственных массивов или из диапазона общих.
+     */
+    private static final class PatchedCursor implements EdgeCursor {
+        private final int[] offsets;
+        private final int[] sharedTargets;
+        private final int[][] sharedWeights;
+        private final Row[] rows;
+        private int[] targets;
+        private int[][] weights;
+        private int edge;
+        private int end;
+
+        PatchedCursor(int[] offsets, int[] targets, int[][] weights, Row[] rows) {
+            this.offsets = offsets;
+            this.sharedTargets = targets;
+            this.sharedWeights = weights;
+            this.rows = rows;
+        }
+
+        @Override
+        public void moveTo(int city) {
+            Row row = rows[city];
+            if (row != null) {
+                targets = row.targets;
+                weights = row.weights;
+                edge = -1;
+                end = row.targets.length;
+            } else if (city < offsets.length - 1) {
+                targets = sharedTargets;
+                weights = sharedWeights;
+                edge = offsets[city] - 1;
+                end = offsets[city + 1];
+            } else {
+                // Город добавлен после построения и ещё без дорог
+                edge = -1;
+                end = 0;
+            }
+        }
+
+        @Override
+        public boolean next() {
+            return ++edge < end;
+        }
+
+        @Override
+        public int target() {
+            return targets[edge];
+        }
+
+        @Override
+        public int weight(Criterion criterion) {
+            return weights[criterion.index()][edge];
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package graph;
+
+import model.City;
+import model.Road;
+
+/**
+ * Связные компоненты графа по индексам городов.
+ *
+ * Номер компоненты каждого города хранится явно, поэтому проверка
+ * достижимости — два чтения массива. Индекс подписан на изменения графа
+ * и обновляется на месте:
+ * <ul>
+ *   <li>новый город — новая компонента, O(1);</li>
+ *   <li>дорога между компонентами — меньшая из них получает номер большей
+ *       обходом своих городов, O(размер меньшей) (каждый город меняет номер
+ *       не больше log V раз при одних добавлениях);</li>
+ *   <li>удаление дорог между городами — обход в ширину сразу от обоих концов,
+ *       на каждом шаге продолжается обход с меньшим числом городов: встреча
+ *       обходов означает, что связность не изменилась, а исчерпанный обход —
+ *       отделившуюся компоненту, которая и получает новый номер. Стоимость —
+ *       O(меньшей стороны) при разделении и O(окрестности до встречи) иначе;
+ *       в дорожной сети объезд обычно короткий.</li>
+ * </ul>
+ * Для односторонних дорог компоненты означают слабую связность.
+ * Перенумерация городов пересчитывает индекс за O(V + E).
+ */
+final class ComponentIndex implements GraphListener {
+
+    private final Graph graph;
+
+    /** Номер компоненты каждого города */
+    private final IntList labels = new IntList();
+
+    /** Число городов по номеру компоненты; освободившиеся номера переиспользуются */
+    private final IntList sizes = new IntList();
+    private final IntList freeLabels = new IntList();
+    private int count;
+
+    /** Отметки обходов: mark + 0 — город достигнут обходом от первого конца, mark + 1 — от второго */
+    private final IntList marks = new IntList();
+    private int mark;
+
+    /** Очереди обходов; пройденная часть очереди — достигнутые города */
+    private final IntList[] queues = {new IntList(), new IntList()};
+
+    ComponentIndex(Graph graph) {
+        this.graph = graph;
+    }
+
+    @Override
+    public void cityAdded(City city, int index) {
+        // Замена города с тем же ID не меняет его дорог
+        if (index == labels.size()) {
+            labels.add(newLabel(1));
+            marks.add(0);
+        }
+    }
+
+    @Override
+    public void roadAdded(Road road) {
+        union(graph.indexOf(road.getFrom()), graph.indexOf(road.getTo()));
+    }
+
+    @Override
+    public void roadsRemoved(City a, City b, int removed) {
+        split(graph.indexOf(a), graph.indexOf(b));
+    }
+
+    @Override
+    public void restructured() {
+        rebuild();
+    }
+
+    /**
+     * Перестраивает компоненты обходом всего графа. Сложность: O(V + E).
+     */
+    void rebuild() {
+        int cityCount = graph.getCityCount();
+        labels.truncate(0);
+        sizes.truncate(0);
+        freeLabels.truncate(0);
+        marks.truncate(0);
+        count = 0;
+        for (int city = 0; city < cityCount; city++) {
+            labels.add(-1);
+            marks.add(0);
+        }
+        mark = 0;
+        for (int city = 0; city < cityCount; city++) {
+            if (labels.get(city) < 0) {
+                int label = newLabel(0);
+                labels.set(city, label);
+                sizes.set(label, relabel(city, -1, label) + 1);
+            }
+        }
+    }
+
+    /**
+     * @return номер компоненты города
+     */
+    int label(int city) {
+        return labels.get(city);
+    }
+
+    /**
+     * @return число компонент связности
+     */
+    int count() {
+        return count;
+    }
+
+    /**
+     * Освобождает запас ёмкости массивов.
+     */
+    void trim() {
+        labels.trim();
+        sizes.trim();
+        freeLabels.trim();
+        marks.trim();
+        for (IntList queue : queues) {
+            queue.trim();
+        }
+    }
+
+    /**
+     * @return байты объекта, номеров, размеров, отметок и очередей (см. {@link MemoryReport})
+     */
+    long footprint() {
+        long bytes = MemoryReport.align(MemoryReport.OBJECT_HEADER + 7 * MemoryReport.REFERENCE + 2 * Integer.BYTES)
+                + MemoryReport.array(queues.length, MemoryReport.REFERENCE);
+        for (IntList list : new IntList[]{labels, sizes, freeLabels, marks, queues[0], queues[1]}) {
+            bytes += list.footprint();
+        }
+        return bytes;
+    }
+
+    /**
+     * @return байты, которые освободит {@link #trim()}
+     */
+    long unusedBytes() {
+        return labels.unusedBytes() + sizes.unusedBytes() + freeLabels.unusedBytes() + marks.unusedBytes()
+                + queues[0].unusedBytes() + queues[1].unusedBytes();
+    }
+
+    private int newLabel(int size) {
+        count++;
+        if (freeLabels.size() > 0) {
+            int label = freeLabels.get(freeLabels.size() - 1);
+            freeLabels.truncate(freeLabels.size() - 1);
+            sizes.set(label, size);
+            return label;
+        }
+        sizes.add(size);
+        return sizes.size() - 1;
+    }
+
+    /**
+     * Объединяет компоненты концов новой дороги: меньшая получает номер большей.
+     */
+    private void union(int a, int b) {
+        int labelA = labels.get(a);
+        int labelB = labels.get(b);
+        if (labelA == labelB) {
+            return;
+        }
+        if (sizes.get(labelA) < sizes.get(labelB)) {
+            int swap = labelA;
+            labelA = labelB;
+            labelB = swap;
+            b = a;
+        }
+        labels.set(b, labelA);
+        relabel(b, labelB, labelA);
+        sizes.set(labelA, sizes.get(labelA) + sizes.get(labelB));
+        freeLabels.add(labelB);
+        count--;
+    }
+
+    /**
+     * Обходит в ширину города с номером from, достижимые из start, и присваивает им номер to.
+     * Сам start уже должен иметь номер to.
+     *
+     * @return число переименованных городов, кроме start
+     */
+    private int relabel(int start, int from, int to) {
+        IntList queue = queues[0];
+        queue.truncate(0);
+        queue.add(start);
+        for (int head = 0; head < queue.size(); head++) {
+            int city = queue.get(head);
+            int degree = neighborCount(city);
+            for (int i = 0; i < degree; i++) {
+                int neighbor = neighbor(city, i);
+                if (labels.get(neighbor) == from) {
+                    labels.set(neighbor, to);
+                    queue.add(neighbor);
+                }
+            }
+        }
+        return queue.size() - 1;
+    }
+
+    /**
+     * Проверяет, остались ли связаны города после удаления дорог между ними,
+     * и выделяет отделившуюся часть в новую компоненту.
+     */
+    private void split(int a, int b) {
+        if (a == b) {
+            return;
+        }
+        if (mark >= Integer.MAX_VALUE - 2) {
+            // Раз в ~1 млрд удалений отметки сбрасываются целиком
+            for (int city = 0; city < marks.size(); city++) {
+                marks.set(city, 0);
+            }
+            mark = 0;
+        }
+        mark += 2;
+
+        int[] heads = new int[2];
+        queues[0].truncate(0);
+        queues[1].truncate(0);
+        queues[0].add(a);
+        queues[1].add(b);
+        marks.set(a, mark);
+        marks.set(b, mark + 1);
+
+        // Исчерпанный обход перечислил отделившуюся часть; иначе продолжается меньший
+        while (true) {
+            for (int side = 0; side < 2; side++) {
+                if (heads[side] == queues[side].size()) {
+                    detach(queues[side]);
+                    return;
+                }
+            }
+            int side = queues[0].size() <= queues[1].size() ? 0 : 1;
+            IntList queue = queues[side];
+            int city = queue.get(heads[side]++);
+            int degree = neighborCount(city);
+            for (int i = 0; i < degree; i++) {
+                int neighbor = neighbor(city, i);
+                int seen = marks.get(neighbor);
+                if (seen == mark + 1 - side) {
+                    // Обходы встретились: города по-прежнему связаны
+                    return;
+                }
+                if (seen != mark + side) {
+                    marks.set(neighbor, mark + side);
+                    queue.add(neighbor);
+                }
+            }
+        }
+    }
+
+    /**
+     * Выделяет города, достигнутые исчерпанным обходом, в новую компоненту.
+     */
+    private void detach(IntList cities) {
+        int old = labels.get(cities.get(0));
+        int label = newLabel(cities.size());
+        sizes.set(old, sizes.get(old) - cities.size());
+        for (int i = 0; i < cities.size(); i++) {
+            labels.set(cities.get(i), label);
+        }
+    }
+
+    /**
+     * @return число соседей города без учёта направления дорог (с повторами)
+     */
+    private int neighborCount(int city) {
+        return graph.getDegree(city) + (graph.isDirected() ? graph.getReverseDegree(city) : 0);
+    }
+
+    /**
+     * @return i-й сосед города: сначала концы исходящих, затем начала входящих дорог
+     */
+    private int neighbor(int city, int i) {
+        int degree = graph.getDegree(city);
+        if (i < degree) {
+            return graph.getTarget(graph.getHalfEdge(city, i));
+        }
+        return graph.getSource(graph.getReverseHalfEdge(city, i - degree));
+    }
+}
@@ -0,0 +1,268 @@
+package graph;
+
+import model.City;
+import model.CriteriaSet;
+import model.Criterion;
+
+import java.util.Arrays;
+
+/**
+ * Неизменяемый снимок графа со сжатыми списками смежности.
+ * 
+ * Рёбра города хранятся в общем массиве byte[] и упорядочены по индексу цели.
+ * Цель кодируется разностью с предыдущей целью (для первого ребра — с индексом
+ * самого города) в формате zigzag + varint, веса — varint. После перенумерации
+ * ({@link GraphOrdering}) соседи близки по индексу, и типичное ребро занимает
+ * 5–7 байт вместо 16 байт в {@link CompactGraph}.
+ * Декодирование выполняется на лету при переходе курсора к следующему ребру.
+ * Входящие рёбра графа с односторонними дорогами сжимаются так же во второй массив.
+ * 
+ * Ограничение: закодированные рёбра занимают не более 2 ГБ.
+ * 
+ * Память: 4·(V + 1) + Σ длин закодированных рёбер байт.
+ */
+public final class CompressedGraph implements SearchGraph {
+
+    private final City[] cities;
+    private final CityIdIndex indexById;
+    private final CriteriaSet criteria;
+
+    private final Adjacency edges;
+    private final Adjacency reverseEdges;
+
+    /**
+     * Сжимает текущее состояние графа.
+     * 
+     * @param graph граф дорожной сети
+     */
+    public CompressedGraph(Graph graph) {
+        this(graph.snapshot());
+    }
+
+    /**
+     * Сжимает индексное представление графа. Индексы городов сохраняются.
+     * Сложность: O(V + E · log d), где d — максимальная степень вершины.
+     * 
+     * @param graph индексное представление графа
+     */
+    public CompressedGraph(SearchGraph graph) {
+        int cityCount = graph.getCityCount();
+        this.cities = new City[cityCount];
+        this.indexById = new CityIdIndex(cityCount);
+        for (int city = 0; city < cityCount; city++) {
+            cities[city] = graph.getCity(city);
+            indexById.put(cities[city].getId(), city);
+        }
+        this.criteria = graph.getCriteria();
+        this.edges = new Adjacency(cityCount, criteria, graph.edgeCursor());
+        this.reverseEdges = graph.isDirected() ? new Adjacency(cityCount, criteria, graph.reverseEdgeCursor()) : edges;
+    }
+
+    /**
+     * Закодированные рёбра всех городов.
+     */
+    private static final class Adjacency {
+        /** Начало закодированных рёбер каждого города в data; offsets[n] = data.length */
+        final int[] offsets;
+        final byte[] data;
+        final int edgeCount;
+        /** Число весов у каждого ребра */
+        final int weightCount;
+
+        Adjacency(int cityCount, CriteriaSet criteria, EdgeCursor cursor) {
+            this.weightCount = criteria.size();
+            this.offsets = new int[cityCount + 1];
+
+            Encoder encoder = new Encoder();
+            int stride = 1 + weightCount;
+            int[] edges = new int[0];
+            Integer[] order = new Integer[0];
+            int total = 0;
+            for (int city = 0; city < cityCount; city++) {
+                // Рёбра города: (цель, веса...), затем сортировка по цели для неотрицательных разностей
+                int degree = 0;
+                cursor.moveTo(city);
+                while (cursor.next()) {
+                    if ((degree + 1) * stride > edges.length) {
+                        edges = Arrays.copyOf(edges, Math.max(4 * stride, edges.length * 2));
+                    }
+                    edges[degree * stride] = cursor.target();
+                    for (Criterion criterion : criteria) {
+                        edges[degree * stride + 1 + criterion.index()] = cursor.weight(criterion);
+                    }
+                    degree++;
+                }
+                if (order.length < degree) {
+                    order = new Integer[Math.max(degree, order.length * 2)];
+                }
+                for (int i = 0; i < degree; i++) {
+                    order[i] = i;
+                }
+                int[] block = edges;
+                Arrays.sort(order, 0, degree, (a, b) -> Integer.compare(block[a * stride], block[b * stride]));
+
+                int previous = city;
+                for (int i = 0; i < degree; i++) {
+                    int edge = order[i] * stride;
+                    encoder.writeZigzag(edges[edge] - previous);
+                    previous = edges[edge];
+                    for (int c = 0; c < weightCount; c++) {
+                        encoder.writeVarint(edges[edge + 1 + c]);
+                    }
+                }
+                total += degree;
+                offsets[city + 1] = encoder.size;
+            }
+
+            this.data = Arrays.copyOf(encoder.buffer, encoder.size);
+            this.edgeCount = total;
+        }
+    }
+
+    @Override
+    public int getCityCount() {
+        return cities.length;
+    }
+
+    @Override
+    public CriteriaSet getCriteria() {
+        return criteria;
+    }
+
+    @Override
+    public City getCity(int index) {
+        return cities[index];
+    }
+
+    @Override
+    public int indexOf(City city) {
+        return indexById.get(city.getId());
+    }
+
+    @Override
+    public EdgeCursor edgeCursor() {
+        return new Cursor(edges);
+    }
+
+    @Override
+    public EdgeCursor reverseEdgeCursor() {
+        return new Cursor(reverseEdges);
+    }
+
+    @Override
+    public boolean isDirected() {
+        return reverseEdges != edges;
+    }
+
+    /**
+     * Возвращает количество направленных рёбер.
+     * 
+     * @return число рёбер
+     */
+    public int getEdgeCount() {
+        return edges.edgeCount;
+    }
+
+    /**
+     * Возвращает объём списков смежности: смещения и закодированные рёбра
+     * (вместе с входящими рёбрами ориентированного графа).
+     * 
+     * @return число байт
+     */
+    public long getAdjacencyBytes() {
+        long bytes = 4L * edges.offsets.length + edges.data.length;
+        if (reverseEdges != edges) {
+            bytes += 4L * reverseEdges.offsets.length + reverseEdges.data.length;
+        }
+        return bytes;
+    }
+
+    /**
+     * Курсор, декодирующий рёбра города по мере перебора.
+     */
+    private static final class Cursor implements EdgeCursor {
+        private final int[] offsets;
+        private final byte[] data;
+        private final int[] weights;
+        private int position;
+        private int end;
+        private int target;
+
+        Cursor(Adjacency adjacency) {
+            this.offsets = adjacency.offsets;
+            this.data = adjacency.data;
+            this.weights = new int[adjacency.weightCount];
+        }
+
+        @Override
+        public void moveTo(int city) {
+            position = offsets[city];
+            end = offsets[city + 1];
+            target = city;
+        }
+
+        @Override
+        public boolean next() {
+            if (position >= end) {
+                return false;
+            }
+            int delta = readVarint();
+            target += (delta >>> 1) ^ -(delta & 1);
+            for (int c = 0; c < weights.length; c++) {
+                weights[c] = readVarint();
+            }
+            return true;
+        }
+
+        @Override
+        public int target() {
+            return target;
+        }
+
+        @Override
+        public int weight(Criterion criterion) {
+            return weights[criterion.index()];
+        }
+
+        private int readVarint() {
+            int b = data[position++];
+            if (b >= 0) {
+                return b;
+            }
+            int value = b & 0x7F;
+            for (int shift = 7; ; shift += 7) {
+                b = data[position++];
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+    }
+
+    /**
+     * Растущий буфер для записи varint на время построения.
+     */
+    private static final class Encoder {
+        byte[] buffer = new byte[1024];
+        int size;
+
+        void writeZigzag(int value) {
+            writeVarint((value << 1) ^ (value >> 31));
+        }
+
+        void writeVarint(int value) {
+            if (size + 5 > buffer.length) {
+                if (buffer.length > Integer.MAX_VALUE / 2) {
+                    throw new IllegalArgumentException("Закодированные рёбра превышают 2 ГБ");
+                }
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            while ((value & ~0x7F) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+    }
+}
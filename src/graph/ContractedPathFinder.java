@@ -0,0 +1,303 @@
+package graph;
+
+import model.City;
+import model.Criterion;
+import model.Route;
+
+import java.util.*;
+
+/**
+ * Поиск по графу со сжатыми цепочками транзитных городов ({@link ChainContraction}).
+ *
+ * Алгоритм Дейкстры работает только по узловым городам. Если начальный город
+ * транзитный, поиск стартует сразу из обоих концов его цепочки с накопленными
+ * весами; если транзитный конечный город — ответ выбирается среди двух концов
+ * его цепочки (и прямого пути по цепочке, если оба города на ней).
+ * Найденный маршрут разворачивается обратно до полной последовательности
+ * городов, поэтому результат совпадает с {@link DijkstraPathFinder}
+ * (с точностью до выбора между равноценными маршрутами).
+ * Сжатие, построенное по изменяемому графу, перед запросом перестраивается,
+ * если граф с тех пор изменился структурно ({@link ChainContraction#refresh()}).
+ *
+ * Временная сложность: O((V' + E') · log V'), где V', E' — размер ядра.
+ */
+public class ContractedPathFinder implements PathFinder {
+
+    private final ChainContraction contraction;
+
+    public ContractedPathFinder(ChainContraction contraction) {
+        this.contraction = contraction;
+    }
+
+    @Override
+    public Route findPath(City from, City to, Criterion criterion) {
+        contraction.refresh();
+        SearchGraph graph = contraction.graph;
+        int source = graph.indexOf(from);
+        int target = graph.indexOf(to);
+        if (source < 0 || target < 0) {
+            return Route.empty();
+        }
+        return new Search(source, target, criterion).run();
+    }
+
+    @Override
+    public Map<Criterion, Route> findAllOptimalPaths(City from, City to) {
+        contraction.refresh();
+        Map<Criterion, Route> results = new LinkedHashMap<>();
+        for (Criterion criterion : contraction.graph.getCriteria()) {
+            results.put(criterion, findPath(from, to, criterion));
+        }
+        return results;
+    }
+
+    /**
+     * Память одного запроса по ядру и сжатые цепочки — кэш, общий для всех запросов.
+     */
+    @Override
+    public MemoryReport memoryReport() {
+        contraction.refresh();
+        int coreCount = contraction.coreCities.length;
+        MemoryReport report = new MemoryReport("Поиск по сжатым цепочкам: ядро " + coreCount + " городов");
+        report.add("Сжатые цепочки", contraction.footprint(), 0);
+        // Расстояния, предшественники, посещённые и сторона цепочки корня
+        report.add("Рабочие массивы", MemoryReport.searchArrays(coreCount)
+                + MemoryReport.array(coreCount, Integer.BYTES), 0);
+        report.add("Очередь (не более)", MemoryReport.queue(contraction.coreTargets.length + 2L), 0);
+        return report;
+    }
+
+    /**
+     * Состояние одного поиска по ядру.
+     */
+    private final class Search {
+        final ChainContraction cc = contraction;
+        final int source;
+        final int target;
+        final Criterion criterion;
+        final int[] weights;
+
+        final int[] distances;
+        final int[] predecessors;
+        final boolean[] settled;
+        final PriorityQueue<DijkstraNode> queue = new PriorityQueue<>();
+
+        /** Сторона цепочки начального города, с которой стартовал корень найденного пути */
+        final int[] rootSide;
+
+        /** Узловые города-кандидаты на конце маршрута и веса от них до конечного города */
+        final int[] exits = {ChainContraction.NONE, ChainContraction.NONE};
+        final int[] exitOffsets = new int[2];
+
+        Search(int source, int target, Criterion criterion) {
+            this.source = source;
+            this.target = target;
+            this.criterion = criterion;
+            this.weights = cc.coreWeights[criterion.index()];
+
+            int coreCount = cc.coreCities.length;
+            this.distances = new int[coreCount];
+            this.predecessors = new int[coreCount];
+            this.settled = new boolean[coreCount];
+            this.rootSide = new int[coreCount];
+            Arrays.fill(distances, Integer.MAX_VALUE);
+        }
+
+        Route run() {
+            if (source == target) {
+                IntList path = new IntList();
+                path.add(source);
+                return RouteReconstructor.build(cc.graph, path, criterion);
+            }
+
+            seedSource();
+            collectExits();
+
+            // Прямой путь по цепочке, если оба города на одной цепочке
+            int best = Integer.MAX_VALUE;
+            int bestExit = ChainContraction.NONE;
+            int sourceChain = cc.chainOf[source];
+            if (sourceChain != ChainContraction.NONE && sourceChain == cc.chainOf[target]) {
+                best = Math.abs(prefixOf(target) - prefixOf(source));
+            }
+
+            while (!queue.isEmpty()) {
+                DijkstraNode node = queue.poll();
+                int current = node.getCity();
+                if (settled[current]) {
+                    continue;
+                }
+                // Веса неотрицательны: дальше маршрут не улучшится
+                if (node.getDistance() >= best) {
+                    break;
+                }
+                settled[current] = true;
+
+                for (int i = 0; i < exits.length; i++) {
+                    if (exits[i] == current && distances[current] + exitOffsets[i] < best) {
+                        best = distances[current] + exitOffsets[i];
+                        bestExit = i;
+                    }
+                }
+
+                for (int edge = cc.coreOffsets[current]; edge < cc.coreOffsets[current + 1]; edge++) {
+                    int neighbor = cc.coreTargets[edge];
+                    if (settled[neighbor]) {
+                        continue;
+                    }
+                    int newDistance = distances[current] + weights[edge];
+                    if (newDistance < distances[neighbor]) {
+                        distances[neighbor] = newDistance;
+                        predecessors[neighbor] = current;
+                        queue.add(new DijkstraNode(neighbor, newDistance));
+                    }
+                }
+            }
+
+            if (best == Integer.MAX_VALUE) {
+                return Route.empty();
+            }
+            return RouteReconstructor.build(cc.graph, unpack(bestExit), criterion);
+        }
+
+        /**
+         * Стартовые узлы: сам начальный город или оба конца его цепочки.
+         */
+        void seedSource() {
+            int core = cc.coreIndex[source];
+            if (core != ChainContraction.NONE) {
+                seed(core, 0, 0);
+                return;
+            }
+            int chain = cc.chainOf[source];
+            int toStart = prefixOf(source);
+            seed(cc.chainStart[chain], toStart, 0);
+            seed(cc.chainEnd[chain], chainTotal(chain) - toStart, 1);
+        }
+
+        void seed(int core, int distance, int side) {
+            if (distance < distances[core]) {
+                distances[core] = distance;
+                predecessors[core] = RouteReconstructor.NO_PREDECESSOR;
+                rootSide[core] = side;
+                queue.add(new DijkstraNode(core, distance));
+            }
+        }
+
+        /**
+         * Конечные узлы: сам конечный город или оба конца его цепочки.
+         */
+        void collectExits() {
+            int core = cc.coreIndex[target];
+            if (core != ChainContraction.NONE) {
+                exits[0] = core;
+                return;
+            }
+            int chain = cc.chainOf[target];
+            int fromStart = prefixOf(target);
+            exits[0] = cc.chainStart[chain];
+            exitOffsets[0] = fromStart;
+            exits[1] = cc.chainEnd[chain];
+            exitOffsets[1] = chainTotal(chain) - fromStart;
+        }
+
+        /**
+         * Разворачивает найденный маршрут в полную последовательность исходных городов.
+         *
+         * @param exit номер выбранного конечного узла или NONE для прямого пути по цепочке
+         */
+        IntList unpack(int exit) {
+            IntList path = new IntList();
+            if (exit == ChainContraction.NONE) {
+                appendRange(path, cc.chainPosition[source], cc.chainPosition[target]);
+                return path;
+            }
+
+            // Узловые города от корня до конечного узла
+            IntList cores = new IntList();
+            for (int core = exits[exit]; core != RouteReconstructor.NO_PREDECESSOR; core = predecessors[core]) {
+                cores.add(core);
+            }
+            cores.reverse();
+
+            // Участок от начального транзитного города до корня
+            int root = cores.get(0);
+            if (cc.coreIndex[source] == ChainContraction.NONE) {
+                int chain = cc.chainOf[source];
+                int position = cc.chainPosition[source];
+                if (rootSide[root] == 0) {
+                    appendRange(path, position, cc.chainOffsets[chain]);
+                } else {
+                    appendRange(path, position, cc.chainOffsets[chain + 1] - 1);
+                }
+            }
+            path.add(cc.coreCities[root]);
+
+            // Рёбра ядра с раскрытием цепочек
+            for (int i = 1; i < cores.size(); i++) {
+                int edge = selectEdge(cores.get(i - 1), cores.get(i));
+                if (cc.coreChains[edge] != ChainContraction.NONE) {
+                    cc.appendChain(cc.coreChains[edge], path);
+                }
+                path.add(cc.coreCities[cores.get(i)]);
+            }
+
+            // Участок от конечного узла до транзитного конечного города
+            if (cc.coreIndex[target] == ChainContraction.NONE) {
+                int chain = cc.chainOf[target];
+                int position = cc.chainPosition[target];
+                if (exit == 0) {
+                    appendRange(path, cc.chainOffsets[chain], position);
+                } else {
+                    appendRange(path, cc.chainOffsets[chain + 1] - 1, position);
+                }
+            }
+            return path;
+        }
+
+        /**
+         * Выбирает ребро ядра u -> v по тому же правилу, что и {@link RouteReconstructor}:
+         * минимальный вес по критерию, при равенстве — лексикографически меньшие веса всех критериев.
+         */
+        int selectEdge(int from, int to) {
+            int best = ChainContraction.NONE;
+            for (int edge = cc.coreOffsets[from]; edge < cc.coreOffsets[from + 1]; edge++) {
+                if (cc.coreTargets[edge] != to) {
+                    continue;
+                }
+                if (best == ChainContraction.NONE || weights[edge] < weights[best]
+                        || (weights[edge] == weights[best] && isLess(edge, best))) {
+                    best = edge;
+                }
+            }
+            return best;
+        }
+
+        boolean isLess(int edge, int other) {
+            for (int[] column : cc.coreWeights) {
+                if (column[edge] != column[other]) {
+                    return column[edge] < column[other];
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Дописывает города цепочки с позициями от first до last включительно (в любом направлении).
+         */
+        void appendRange(IntList path, int first, int last) {
+            int step = first <= last ? 1 : -1;
+            for (int i = first; i != last + step; i += step) {
+                path.add(cc.chainCities[i]);
+            }
+        }
+
+        int prefixOf(int city) {
+            return cc.prefix[criterion.index()][cc.chainPosition[city]];
+        }
+
+        int chainTotal(int chain) {
+            return cc.chainTotals[criterion.index()][chain];
+        }
+    }
+}
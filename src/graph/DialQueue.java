@@ -0,0 +1,86 @@
+package graph;
+
+/**
+ * Очередь Дейкстры на корзинах (алгоритм Дайла) для малых целых весов рёбер.
+ *
+ * При наибольшем весе ребра C все ключи очереди лежат в диапазоне
+ * [lastKey, lastKey + C], поэтому C + 1 корзин по кругу хватает, чтобы
+ * ключ однозначно определялся номером корзины. Вставка — запись в конец
+ * корзины {@code key % (C + 1)}, извлечение — переход по пустым корзинам
+ * к ближайшей непустой. Сравнений ключей нет вовсе.
+ *
+ * Сложность: O(1) на вставку и извлечение, плюс O(D + C) на весь поиск
+ * за обход корзин, где D — расстояние до цели.
+ */
+final class DialQueue implements MonotoneQueue {
+
+    private final IntList[] buckets;
+    private int current;
+    private int bucket;
+    private int size;
+
+    /**
+     * @param maxWeight наибольший вес ребра C (корзин — C + 1)
+     */
+    DialQueue(int maxWeight) {
+        this.buckets = new IntList[maxWeight + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new IntList(4);
+        }
+    }
+
+    @Override
+    public void push(int item, int key) {
+        buckets[key % buckets.length].add(item);
+        size++;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public int pop() {
+        IntList list = buckets[bucket];
+        while (list.size() == 0) {
+            current++;
+            bucket = bucket + 1 == buckets.length ? 0 : bucket + 1;
+            list = buckets[bucket];
+        }
+        int last = list.size() - 1;
+        int item = list.get(last);
+        list.truncate(last);
+        size--;
+        return item;
+    }
+
+    @Override
+    public int lastKey() {
+        return current;
+    }
+
+    @Override
+    public void clear() {
+        if (size > 0) {
+            for (IntList list : buckets) {
+                list.truncate(0);
+            }
+        }
+        size = 0;
+        current = 0;
+        bucket = 0;
+    }
+
+    /**
+     * Корзины с entries записями без учёта запаса растущих массивов.
+     */
+    @Override
+    public long footprint(long entries) {
+        long emptyList = MemoryReport.align(MemoryReport.OBJECT_HEADER + MemoryReport.REFERENCE + 4)
+                + MemoryReport.array(4, Integer.BYTES);
+        return MemoryReport.align(MemoryReport.OBJECT_HEADER + MemoryReport.REFERENCE + 3 * 4)
+                + MemoryReport.array(buckets.length, MemoryReport.REFERENCE)
+                + buckets.length * emptyList + entries * Integer.BYTES;
+    }
+}
@@ -1,24 +1,25 @@
 package graph;
 
-import model.City;
-
 /**
  * Узел для использования в приоритетной очереди алгоритма Дейкстры.
- * Хранит город и расстояние до него.
+ * Хранит внутренний индекс города и расстояние до него.
  * 
  * Вынесен в отдельный класс для устранения дублирования между
  * DijkstraPathFinder и OptimizedDijkstraPathFinder.
  */
 public class DijkstraNode implements Comparable<DijkstraNode> {
-    private final City city;
+    private final int city;
     private final int distance;
 
-    public DijkstraNode(City city, int distance) {
+    public DijkstraNode(int city, int distance) {
         this.city = city;
         this.distance = distance;
     }
 
-    public City getCity() {
+    /**
+     * @return внутренний индекс города в {@link SearchGraph}
+     */
+    public int getCity() {
         return city;
     }
 
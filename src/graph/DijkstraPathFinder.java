@@ -2,27 +2,46 @@ package graph;
 
 import model.City;
 import model.Criterion;
-import model.Road;
 import model.Route;
 
 import java.util.*;
+import java.util.function.Supplier;
 
 /**
  * Реализация алгоритма Дейкстры для поиска кратчайшего пути.
  * Использует приоритетную очередь (min-heap) для эффективного выбора следующей вершины.
  * 
+ * Поиск выполняется по индексному представлению графа ({@link SearchGraph}),
+ * например по CSR-снимку {@link CompactGraph}.
+ * 
  * Временная сложность: O((V + E) · log V)
  * - V раз извлекаем минимум из очереди: O(V · log V)
  * - E раз обновляем расстояния и добавляем в очередь: O(E · log V)
  * 
- * Пространственная сложность: O(V) для хранения расстояний и предшественников.
+ * Пространственная сложность: O(V) для хранения расстояний и предшественников
+ * (примитивные массивы int[]/boolean[] по плотным индексам городов).
  */
-public class DijkstraPathFinder {
+public class DijkstraPathFinder implements PathFinder {
 
-    private final Graph graph;
+    private final Supplier<? extends SearchGraph> graphSource;
 
+    /**
+     * Создаёт поиск по изменяемому графу.
+     * Каждый запрос выполняется по актуальному CSR-снимку графа.
+     * 
+     * @param graph граф дорожной сети
+     */
     public DijkstraPathFinder(Graph graph) {
-        this.graph = graph;
+        this.graphSource = graph::snapshot;
+    }
+
+    /**
+     * Создаёт поиск по готовому индексному представлению графа.
+     * 
+     * @param graph индексное представление графа (например, {@link CompactGraph})
+     */
+    public DijkstraPathFinder(SearchGraph graph) {
+        this.graphSource = () -> graph;
     }
 
     /**
@@ -33,124 +52,167 @@ public class DijkstraPathFinder {
      * @param criterion критерий оптимизации (длина, время или стоимость)
      * @return оптимальный маршрут или пустой маршрут, если путь не существует
      */
+    @Override
     public Route findPath(City from, City to, Criterion criterion) {
+        return findPath(graphSource.get(), from, to, criterion);
+    }
+
+    /**
+     * Поиск по зафиксированному представлению графа.
+     * Всё состояние поиска хранится в примитивных массивах, индексированных
+     * внутренними индексами городов.
+     */
+    private Route findPath(SearchGraph graph, City from, City to, Criterion criterion) {
+        int source = graph.indexOf(from);
+        int target = graph.indexOf(to);
+        if (source < 0 || target < 0) {
+            return Route.empty();
+        }
+
+        int cityCount = graph.getCityCount();
+        EdgeCursor edges = graph.edgeCursor();
+
         // Расстояния от начальной вершины до всех остальных
-        Map<City, Integer> distances = new HashMap<>();
+        int[] distances = new int[cityCount];
         
         // Предшественники для восстановления пути
-        Map<City, City> predecessors = new HashMap<>();
-        
-        // Дороги, по которым пришли (для подсчёта всех параметров)
-        Map<City, Road> usedRoads = new HashMap<>();
+        int[] predecessors = new int[cityCount];
         
-        // Множество посещённых вершин
-        Set<City> visited = new HashSet<>();
+        // Посещённые вершины
+        boolean[] visited = new boolean[cityCount];
         
         // Приоритетная очередь (min-heap)
         PriorityQueue<DijkstraNode> queue = new PriorityQueue<>();
 
         // Инициализация: расстояние до начальной вершины = 0
-        for (City city : graph.getAllCities()) {
-            distances.put(city, Integer.MAX_VALUE);
-        }
-        distances.put(from, 0);
-        queue.add(new DijkstraNode(from, 0));
+        Arrays.fill(distances, Integer.MAX_VALUE);
+        distances[source] = 0;
+        predecessors[source] = RouteReconstructor.NO_PREDECESSOR;
+        queue.add(new DijkstraNode(source, 0));
 
         // Основной цикл алгоритма Дейкстры
         while (!queue.isEmpty()) {
-            DijkstraNode current = queue.poll();
-            City currentCity = current.getCity();
+            int current = queue.poll().getCity();
 
             // Пропускаем уже обработанные вершины
-            if (visited.contains(currentCity)) {
+            if (visited[current]) {
                 continue;
             }
-            visited.add(currentCity);
+            visited[current] = true;
 
             // Достигли целевой вершины — можно завершить
-            if (currentCity.equals(to)) {
+            if (current == target) {
                 break;
             }
 
             // Релаксация рёбер
-            for (Road road : graph.getRoadsFrom(currentCity)) {
-                City neighbor = road.getTo();
+            edges.moveTo(current);
+            while (edges.next()) {
+                int neighbor = edges.target();
                 
-                if (visited.contains(neighbor)) {
+                if (visited[neighbor]) {
                     continue;
                 }
 
                 // Вес ребра по выбранному критерию
-                int edgeWeight = road.getValueByCriterion(criterion);
-                int newDistance = distances.get(currentCity) + edgeWeight;
+                int newDistance = distances[current] + edges.weight(criterion);
 
                 // Обновляем расстояние, если нашли более короткий путь
-                if (newDistance < distances.get(neighbor)) {
-                    distances.put(neighbor, newDistance);
-                    predecessors.put(neighbor, currentCity);
-                    usedRoads.put(neighbor, road);
+                if (newDistance < distances[neighbor]) {
+                    distances[neighbor] = newDistance;
+                    predecessors[neighbor] = current;
                     queue.add(new DijkstraNode(neighbor, newDistance));
                 }
             }
         }
 
         // Путь не найден
-        if (!visited.contains(to) || distances.get(to) == Integer.MAX_VALUE) {
+        if (!visited[target]) {
             return Route.empty();
         }
 
         // Восстанавливаем путь от конца к началу
-        return reconstructRoute(from, to, predecessors, usedRoads);
+        return RouteReconstructor.build(graph, predecessors, target, criterion);
     }
 
     /**
-     * Восстанавливает маршрут по карте предшественников.
-     * Вычисляет суммарные параметры по всем трём критериям.
+     * Вычисляет оптимальные значения критерия от каждого города до заданного
+     * (поиск «многие к одному»). Выполняется один обратный поиск от конечного
+     * города по входящим рёбрам, поэтому односторонние дороги учитываются
+     * в правильном направлении, а рёбра не перебираются целиком.
+     * 
+     * Временная сложность: O((V + E) · log V).
+     * 
+     * @param to        конечный город
+     * @param criterion критерий оптимизации
+     * @return значения по внутренним индексам городов ({@link SearchGraph#indexOf});
+     *         Integer.MAX_VALUE — из города нельзя доехать до конечного
      */
-    private Route reconstructRoute(City from, City to, 
-                                   Map<City, City> predecessors, 
-                                   Map<City, Road> usedRoads) {
-        List<City> path = new ArrayList<>();
-        int totalDistance = 0;
-        int totalTime = 0;
-        int totalCost = 0;
-
-        // Идём от конца к началу
-        City current = to;
-        while (current != null) {
-            path.add(current);
-            
-            Road road = usedRoads.get(current);
-            if (road != null) {
-                totalDistance += road.getDistance();
-                totalTime += road.getTime();
-                totalCost += road.getCost();
-            }
-            
-            current = predecessors.get(current);
+    public int[] distancesTo(City to, Criterion criterion) {
+        SearchGraph graph = graphSource.get();
+        int[] distances = new int[graph.getCityCount()];
+        Arrays.fill(distances, Integer.MAX_VALUE);
+        int target = graph.indexOf(to);
+        if (target < 0) {
+            return distances;
         }
 
-        // Переворачиваем путь (был от конца к началу)
-        Collections.reverse(path);
+        EdgeCursor incoming = graph.reverseEdgeCursor();
+        boolean[] visited = new boolean[distances.length];
+        PriorityQueue<DijkstraNode> queue = new PriorityQueue<>();
+        distances[target] = 0;
+        queue.add(new DijkstraNode(target, 0));
 
-        return new Route(path, totalDistance, totalTime, totalCost);
+        while (!queue.isEmpty()) {
+            int current = queue.poll().getCity();
+            if (visited[current]) {
+                continue;
+            }
+            visited[current] = true;
+
+            // Релаксация входящих рёбер: сосед — город, из которого ребро ведёт в current
+            incoming.moveTo(current);
+            while (incoming.next()) {
+                int neighbor = incoming.target();
+                int newDistance = distances[current] + incoming.weight(criterion);
+                if (!visited[neighbor] && newDistance < distances[neighbor]) {
+                    distances[neighbor] = newDistance;
+                    queue.add(new DijkstraNode(neighbor, newDistance));
+                }
+            }
+        }
+        return distances;
     }
 
     /**
-     * Находит оптимальные маршруты по всем трём критериям.
+     * Находит оптимальные маршруты по всем критериям графа.
      * 
      * @param from начальный город
      * @param to   конечный город
      * @return карта: критерий -> оптимальный маршрут
      */
+    @Override
     public Map<Criterion, Route> findAllOptimalPaths(City from, City to) {
-        Map<Criterion, Route> results = new EnumMap<>(Criterion.class);
+        SearchGraph graph = graphSource.get();
+        Map<Criterion, Route> results = new LinkedHashMap<>();
         
-        for (Criterion criterion : Criterion.values()) {
-            Route route = findPath(from, to, criterion);
+        for (Criterion criterion : graph.getCriteria()) {
+            Route route = findPath(graph, from, to, criterion);
             results.put(criterion, route);
         }
         
         return results;
     }
+
+    /**
+     * Память одного запроса по одному критерию; кэшей нет.
+     */
+    @Override
+    public MemoryReport memoryReport() {
+        SearchGraph graph = graphSource.get();
+        MemoryReport report = new MemoryReport("Дейкстра: рабочая память запроса");
+        report.add("Рабочие массивы", MemoryReport.searchArrays(graph.getCityCount()), 0);
+        report.add("Очередь (не более)", MemoryReport.queue(MemoryReport.edgeCount(graph) + 1), 0);
+        return report;
+    }
 }
@@ -0,0 +1,45 @@
+package graph;
+
+import model.Criterion;
+
+/**
+ * Курсор по исходящим (или, для обратного поиска, входящим) рёбрам одного города
+ * в {@link SearchGraph}.
+ * 
+ * Используется вместо итератора по List&lt;Road&gt;, чтобы релаксация ребра
+ * не требовала создания объектов:
+ * <pre>
+ * cursor.moveTo(city);
+ * while (cursor.next()) {
+ *     int neighbor = cursor.target();
+ *     int weight = cursor.weight(criterion);
+ * }
+ * </pre>
+ */
+public interface EdgeCursor {
+
+    /**
+     * Устанавливает курсор перед первым ребром города.
+     * 
+     * @param city индекс города
+     */
+    void moveTo(int city);
+
+    /**
+     * Переходит к следующему ребру.
+     * 
+     * @return false, если рёбра закончились
+     */
+    boolean next();
+
+    /**
+     * @return индекс соседа по текущему ребру: куда оно ведёт (для входящих — откуда)
+     */
+    int target();
+
+    /**
+     * @param criterion критерий оптимизации
+     * @return вес текущего ребра по критерию
+     */
+    int weight(Criterion criterion);
+}
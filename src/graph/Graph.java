@@ -1,91 +1,1170 @@
 package graph;
 
 import model.City;
+import model.CriteriaSet;
+import model.Criterion;
 import model.Road;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * Граф дорожной сети.
  * Реализован на основе списка смежности (adjacency list).
  * 
- * Сложность по памяти: O(V + E), где V — количество городов, E — количество дорог.
+ * Каждый город при добавлении получает плотный внутренний индекс 0..n-1,
+ * по которому адресуются списки смежности и все структуры алгоритмов поиска.
+ * Перевод индекс <-> City выполняется только на границе API.
+ * 
+ * Двусторонняя дорога хранится один раз — в столбцах roadFrom/roadTo/roadWeights.
+ * Списки смежности обоих концов ссылаются на неё «полурёбрами»
+ * (roadIndex << 1 | направление), а направление обхода определяется тем,
+ * из какого конца раскрывается вершина. Объекты Road не хранятся.
+ * 
+ * Односторонняя дорога попадает только в список смежности своего начала.
+ * Как только в графе появляется первая односторонняя дорога, строится
+ * обратный список смежности (входящие полурёбра каждого города) для поиска
+ * от конечного города; пока все дороги двусторонние, он не нужен и не хранится.
+ * 
+ * Набор критериев ({@link CriteriaSet}) задаётся при создании графа: на каждый
+ * критерий приходится один столбец весов, и вес ребра по критерию — просто
+ * элемент столбца с номером {@link Criterion#index()}.
+ * 
+ * Небольшие ежедневные изменения (закрытие и добавление дорог, новые тарифы)
+ * применяются патчем ({@link GraphPatch}) за время, пропорциональное его размеру;
+ * подписчики ({@link GraphListener}) получают уведомление о каждом изменении.
+ * 
+ * Сложность по памяти: O(V + E · K), где V — количество городов, E — количество дорог,
+ * K — число критериев.
  */
 public class Graph {
-    /** Список смежности: для каждого города хранится список исходящих дорог */
-    private final Map<City, List<Road>> adjacencyList;
+    /** Города по внутреннему индексу */
+    private final List<City> cities;
+
+    /** Список смежности: для города с индексом i хранятся полурёбра исходящих дорог */
+    private final List<IntList> adjacencyList;
+
+    /** Обратный список смежности: полурёбра, ведущие в город i; null, пока нет односторонних дорог */
+    private List<IntList> reverseAdjacency;
+
+    /** Односторонние дороги (по индексу дороги) */
+    private BitSet oneWayRoads;
+
+    /** Начало и конец каждой дороги (индексы городов) */
+    private final IntList roadFrom;
+    private final IntList roadTo;
+
+    /** Набор критериев (число и порядок столбцов весов) */
+    private final CriteriaSet criteria;
+
+    /** Веса дорог: roadWeights[criterion.index()] — столбец по всем дорогам */
+    private final IntList[] roadWeights;
     
-    /** Быстрый доступ к городу по названию */
-    private final Map<String, City> citiesByName;
+    /** Координаты городов в микроградусах (по индексам); SpatialIndex.NO_LOCATION — нет координат */
+    private final IntList latitudes;
+    private final IntList longitudes;
+
+    /** Пространственный индекс; строится при первой привязке координат после изменения городов */
+    private SpatialIndex spatialIndex;
+
+    /** Словарь названий городов с индексами 0..names.size()-1; строится при первом поиске */
+    private NameDictionary names;
+
+    /**
+     * Названия городов, добавленных после построения словаря: название -> наибольший индекс.
+     * Словарь перестраивается целиком, когда их становится больше восьмой части.
+     */
+    private Map<String, Integer> addedNames = new HashMap<>();
     
-    /** Быстрый доступ к городу по ID */
-    private final Map<Integer, City> citiesById;
+    /** Быстрый доступ к индексу города по ID (без упаковки ID) */
+    private final CityIdIndex indexById;
+
+    /** Связные компоненты для проверки достижимости без поиска */
+    private final ComponentIndex components;
+
+    /** CSR-снимок для поиска; строится при первом обращении и обновляется вместе с графом */
+    private volatile CompactGraph snapshot;
+
+    /** Построение снимка и его подписка: первые запросы могут прийти из нескольких потоков сразу */
+    private final Object snapshotLock = new Object();
+
+    /** Снимок отдан представлению, которому нужно неизменяемое состояние: при изменении он отключается */
+    private boolean snapshotShared;
+
+    /** Внутренние индексы (компоненты, снимок): получают изменения раньше подписчиков */
+    private final List<GraphListener> indexes = new ArrayList<>();
+
+    /** Подписчики на изменения графа */
+    private final List<GraphListener> listeners = new ArrayList<>();
 
+    /**
+     * Создаёт пустой граф с классическим набором критериев (длина, время, стоимость).
+     */
     public Graph() {
-        this.adjacencyList = new HashMap<>();
-        this.citiesByName = new HashMap<>();
-        this.citiesById = new HashMap<>();
+        this(CriteriaSet.STANDARD);
     }
 
     /**
-     * Добавляет город в граф.
+     * Создаёт пустой граф с заданным набором критериев.
+     * 
+     * @param criteria набор критериев; у каждой дороги должно быть столько же весов
+     */
+    public Graph(CriteriaSet criteria) {
+        this.cities = new ArrayList<>();
+        this.adjacencyList = new ArrayList<>();
+        this.roadFrom = new IntList();
+        this.roadTo = new IntList();
+        this.criteria = criteria;
+        this.roadWeights = new IntList[criteria.size()];
+        for (int i = 0; i < roadWeights.length; i++) {
+            roadWeights[i] = new IntList();
+        }
+        this.latitudes = new IntList();
+        this.longitudes = new IntList();
+        this.indexById = new CityIdIndex();
+        this.oneWayRoads = new BitSet();
+        this.components = new ComponentIndex(this);
+        indexes.add(components);
+    }
+
+    /**
+     * Принимает готовые структуры от {@link GraphBuilder} без копирования.
+     */
+    Graph(List<City> cities, CityIdIndex indexById, IntList roadFrom, IntList roadTo,
+          CriteriaSet criteria, IntList[] roadWeights, IntList latitudes, IntList longitudes,
+          BitSet oneWayRoads, List<IntList> adjacencyList, List<IntList> reverseAdjacency) {
+        this.cities = cities;
+        this.adjacencyList = adjacencyList;
+        this.reverseAdjacency = reverseAdjacency;
+        this.oneWayRoads = oneWayRoads;
+        this.roadFrom = roadFrom;
+        this.roadTo = roadTo;
+        this.criteria = criteria;
+        this.roadWeights = roadWeights;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.indexById = indexById;
+        this.components = new ComponentIndex(this);
+        components.rebuild();
+        indexes.add(components);
+    }
+
+    /**
+     * Добавляет город в граф и назначает ему следующий свободный индекс.
+     * Повторное добавление города с тем же ID сохраняет его индекс и дороги.
      * Сложность: O(1) в среднем.
      * 
      * @param city город для добавления
      */
     public void addCity(City city) {
-        adjacencyList.putIfAbsent(city, new ArrayList<>());
-        citiesByName.put(city.getName(), city);
-        citiesById.put(city.getId(), city);
+        int index = indexById.get(city.getId());
+        if (index < 0) {
+            index = cities.size();
+            cities.add(city);
+            adjacencyList.add(new IntList());
+            if (reverseAdjacency != null) {
+                reverseAdjacency.add(new IntList());
+            }
+            indexById.put(city.getId(), index);
+            latitudes.add(SpatialIndex.NO_LOCATION);
+            longitudes.add(SpatialIndex.NO_LOCATION);
+            if (names != null) {
+                addedNames.put(city.getName(), index);
+            }
+        } else {
+            City previous = cities.set(index, city);
+            spatialIndex = null;
+            if (!previous.getName().equals(city.getName())) {
+                // Прежнее название осталось в словаре: переименование редко, перестраиваем целиком
+                dropNames();
+            }
+        }
+        int added = index;
+        notifyListeners(listener -> listener.cityAdded(city, added));
     }
 
     /**
-     * Добавляет двустороннюю дорогу между городами.
-     * Сложность: O(1).
+     * Задаёт координаты города. Хранятся в микроградусах (точность ~0.1 м).
+     * Сложность: O(1); пространственный индекс перестраивается при следующей привязке.
+     * 
+     * @param city      город графа
+     * @param latitude  широта в градусах [-90, 90]
+     * @param longitude долгота в градусах [-180, 180]
+     * @throws IllegalStateException    если город не добавлен в граф
+     * @throws IllegalArgumentException если координаты вне допустимого диапазона
+     */
+    public void setLocation(City city, double latitude, double longitude) {
+        int index = requireIndex(city);
+        SpatialIndex.checkLocation(latitude, longitude);
+        latitudes.set(index, SpatialIndex.encode(latitude));
+        longitudes.set(index, SpatialIndex.encode(longitude));
+        spatialIndex = null;
+    }
+
+    /**
+     * Проверяет, заданы ли координаты города.
+     * 
+     * @param index индекс города
+     * @return true, если координаты заданы
+     */
+    public boolean hasLocation(int index) {
+        return latitudes.get(index) != SpatialIndex.NO_LOCATION;
+    }
+
+    /**
+     * @param index индекс города
+     * @return широта в градусах или NaN, если координаты не заданы
+     */
+    public double getLatitude(int index) {
+        return hasLocation(index) ? SpatialIndex.decode(latitudes.get(index)) : Double.NaN;
+    }
+
+    /**
+     * @param index индекс города
+     * @return долгота в градусах или NaN, если координаты не заданы
+     */
+    public double getLongitude(int index) {
+        return hasLocation(index) ? SpatialIndex.decode(longitudes.get(index)) : Double.NaN;
+    }
+
+    /**
+     * Возвращает пространственный индекс городов с координатами для привязки
+     * GPS-позиций к ближайшему городу. Строится при первом обращении и
+     * переиспользуется до изменения городов или их координат.
+     * Сложность: O(n log n) при перестроении, O(1) иначе.
+     * 
+     * @return пространственный индекс
+     */
+    public SpatialIndex spatialIndex() {
+        if (spatialIndex == null) {
+            spatialIndex = new SpatialIndex(cities, latitudes, longitudes);
+        }
+        return spatialIndex;
+    }
+
+    /**
+     * Добавляет дорогу между городами (двустороннюю или одностороннюю, см. {@link Road#isOneWay()}).
+     * Параметры дороги копируются в столбцы графа; обратное направление
+     * не создаёт второго объекта и второй копии весов.
+     * Сложность: O(1) амортизированно; первая односторонняя дорога
+     * дополнительно строит обратный список смежности за O(V + E).
      * 
      * @param road дорога для добавления
      * @throws IllegalStateException если города дороги не добавлены в граф
+     * @throws IllegalArgumentException если число весов дороги не совпадает с числом критериев
      */
     public void addRoad(Road road) {
-        List<Road> fromList = adjacencyList.get(road.getFrom());
-        List<Road> toList = adjacencyList.get(road.getTo());
+        int fromIndex = indexOf(road.getFrom());
+        int toIndex = indexOf(road.getTo());
         
-        if (fromList == null) {
+        if (fromIndex < 0) {
             throw new IllegalStateException("Город не добавлен в граф: " + road.getFrom());
         }
-        if (toList == null) {
+        if (toIndex < 0) {
             throw new IllegalStateException("Город не добавлен в граф: " + road.getTo());
         }
+        if (road.getWeightCount() != criteria.size()) {
+            throw new IllegalArgumentException("Ожидалось " + criteria.size()
+                    + " весов дороги, получено " + road.getWeightCount() + ": " + road);
+        }
         
-        // Добавляем дорогу в обоих направлениях (граф неориентированный)
-        fromList.add(road);
-        
-        // Создаём обратную дорогу с теми же параметрами
-        Road reverseRoad = new Road(road.getTo(), road.getFrom(), 
-                road.getDistance(), road.getTime(), road.getCost());
-        toList.add(reverseRoad);
+        int roadIndex = roadFrom.size();
+        roadFrom.add(fromIndex);
+        roadTo.add(toIndex);
+        for (Criterion criterion : criteria) {
+            roadWeights[criterion.index()].add(road.getValueByCriterion(criterion));
+        }
+
+        // Одна запись двусторонней дороги видна из обоих концов
+        boolean oneWay = road.isOneWay();
+        adjacencyList.get(fromIndex).add(roadIndex << 1);
+        if (!oneWay) {
+            adjacencyList.get(toIndex).add((roadIndex << 1) | 1);
+        } else {
+            oneWayRoads.set(roadIndex);
+        }
+
+        if (reverseAdjacency != null) {
+            reverseAdjacency.get(toIndex).add(roadIndex << 1);
+            if (!oneWay) {
+                reverseAdjacency.get(fromIndex).add((roadIndex << 1) | 1);
+            }
+        } else if (oneWay) {
+            reverseAdjacency = buildReverseAdjacency();
+        }
+        notifyListeners(listener -> listener.roadAdded(road));
+    }
+
+    /**
+     * Удаляет (закрывает) все дороги между двумя городами в обоих направлениях.
+     * 
+     * Освободившееся место в столбцах дорог занимает последняя дорога,
+     * поэтому удаление не сдвигает остальные дороги. Порядок дорог в списках
+     * смежности городов сохраняется.
+     * Сложность: O(d), где d — суммарная степень концов удаляемых и перемещаемых дорог,
+     * плюс проверка, не разделилась ли компонента связности (см. {@link ComponentIndex}).
+     * 
+     * @param a первый город
+     * @param b второй город
+     * @return количество удалённых дорог
+     * @throws IllegalStateException    если города не добавлены в граф
+     * @throws IllegalArgumentException если между городами нет дороги
+     */
+    public int removeRoads(City a, City b) {
+        int first = requireIndex(a);
+        int second = requireIndex(b);
+
+        IntList found = new IntList();
+        collectRoads(first, second, found);
+        if (first != second) {
+            collectRoads(second, first, found);
+        }
+        int[] roads = found.toArray();
+        Arrays.sort(roads);
+        if (roads.length == 0) {
+            throw new IllegalArgumentException("Дорога не найдена: " + a + " - " + b);
+        }
+
+        // От больших индексов к меньшим: перемещаемая последняя дорога ещё не удалена
+        int removed = 0;
+        for (int i = roads.length - 1; i >= 0; i--) {
+            if (i == roads.length - 1 || roads[i] != roads[i + 1]) {
+                removeRoad(roads[i]);
+                removed++;
+            }
+        }
+        if (oneWayRoads.isEmpty()) {
+            reverseAdjacency = null;
+        }
+
+        int count = removed;
+        notifyListeners(listener -> listener.roadsRemoved(a, b, count));
+        return removed;
+    }
+
+    /**
+     * Собирает индексы дорог из списка смежности города city к городу other.
+     */
+    private void collectRoads(int city, int other, IntList found) {
+        IntList halfEdges = adjacencyList.get(city);
+        for (int i = 0; i < halfEdges.size(); i++) {
+            int halfEdge = halfEdges.get(i);
+            if (getTarget(halfEdge) == other) {
+                found.add(halfEdge >>> 1);
+            }
+        }
+    }
+
+    /**
+     * Удаляет одну дорогу; её место в столбцах занимает последняя дорога.
+     */
+    private void removeRoad(int road) {
+        int from = roadFrom.get(road);
+        int to = roadTo.get(road);
+        removeHalfEdges(adjacencyList.get(from), road);
+        removeHalfEdges(adjacencyList.get(to), road);
+        if (reverseAdjacency != null) {
+            removeHalfEdges(reverseAdjacency.get(from), road);
+            removeHalfEdges(reverseAdjacency.get(to), road);
+        }
+
+        int last = roadFrom.size() - 1;
+        if (road != last) {
+            int lastFrom = roadFrom.get(last);
+            int lastTo = roadTo.get(last);
+            roadFrom.set(road, lastFrom);
+            roadTo.set(road, lastTo);
+            oneWayRoads.set(road, oneWayRoads.get(last));
+            for (IntList column : roadWeights) {
+                column.set(road, column.get(last));
+            }
+            renameHalfEdges(adjacencyList.get(lastFrom), last, road);
+            renameHalfEdges(adjacencyList.get(lastTo), last, road);
+            if (reverseAdjacency != null) {
+                renameHalfEdges(reverseAdjacency.get(lastFrom), last, road);
+                renameHalfEdges(reverseAdjacency.get(lastTo), last, road);
+            }
+        }
+        roadFrom.truncate(last);
+        roadTo.truncate(last);
+        oneWayRoads.clear(last);
+        for (IntList column : roadWeights) {
+            column.truncate(last);
+        }
+    }
+
+    private static void removeHalfEdges(IntList halfEdges, int road) {
+        int size = 0;
+        for (int i = 0; i < halfEdges.size(); i++) {
+            int halfEdge = halfEdges.get(i);
+            if (halfEdge >>> 1 != road) {
+                halfEdges.set(size++, halfEdge);
+            }
+        }
+        halfEdges.truncate(size);
+    }
+
+    private static void renameHalfEdges(IntList halfEdges, int road, int newRoad) {
+        for (int i = 0; i < halfEdges.size(); i++) {
+            int halfEdge = halfEdges.get(i);
+            if (halfEdge >>> 1 == road) {
+                halfEdges.set(i, (newRoad << 1) | (halfEdge & 1));
+            }
+        }
+    }
+
+    /**
+     * Заменяет веса дорог между городами дороги на её веса.
+     * Для двусторонней дороги изменяются все двусторонние дороги между
+     * её городами, для односторонней — все односторонние дороги от начала к концу.
+     * Сложность: O(d), где d — степень начального города.
+     * 
+     * @param road дорога с новыми весами
+     * @return количество изменённых дорог
+     * @throws IllegalStateException    если города дороги не добавлены в граф
+     * @throws IllegalArgumentException если таких дорог нет или число весов
+     *                                  не совпадает с числом критериев
+     */
+    public int updateRoad(Road road) {
+        int from = requireIndex(road.getFrom());
+        int to = requireIndex(road.getTo());
+        if (road.getWeightCount() != criteria.size()) {
+            throw new IllegalArgumentException("Ожидалось " + criteria.size()
+                    + " весов дороги, получено " + road.getWeightCount() + ": " + road);
+        }
+
+        int updated = 0;
+        IntList halfEdges = adjacencyList.get(from);
+        for (int i = 0; i < halfEdges.size(); i++) {
+            int halfEdge = halfEdges.get(i);
+            int index = halfEdge >>> 1;
+            // Петля видна из своего города дважды
+            if (getTarget(halfEdge) != to || oneWayRoads.get(index) != road.isOneWay()
+                    || (from == to && (halfEdge & 1) != 0)) {
+                continue;
+            }
+            for (Criterion criterion : criteria) {
+                roadWeights[criterion.index()].set(index, road.getValueByCriterion(criterion));
+            }
+            updated++;
+        }
+        if (updated == 0) {
+            throw new IllegalArgumentException("Дорога не найдена: " + road);
+        }
+
+        notifyListeners(listener -> listener.roadUpdated(road));
+        return updated;
+    }
+
+    /**
+     * Применяет патч: изменения выполняются по порядку теми же методами
+     * {@link #addCity}, {@link #addRoad}, {@link #removeRoads} и {@link #updateRoad}.
+     * Ссылки на города, число весов и наличие удаляемых и изменяемых дорог
+     * проверяются до применения первого изменения (с учётом дорог, добавленных
+     * и удалённых предыдущими изменениями патча), поэтому ошибочный патч
+     * не оставляет граф изменённым наполовину.
+     * Сложность: O(размер патча · d), без перестроения графа.
+     * 
+     * @param patch патч
+     * @throws IllegalArgumentException если патч ссылается на неизвестный город,
+     *                                  число весов не совпадает с числом критериев
+     *                                  или удаляемой (изменяемой) дороги нет
+     */
+    public void apply(GraphPatch patch) {
+        Set<Long> added = new HashSet<>();
+        // Пары городов, дороги между которыми удалены патчем, и дороги, добавленные после этого
+        Set<String> removedPairs = new HashSet<>();
+        Set<String> addedTwoWay = new HashSet<>();
+        Set<String> addedOneWay = new HashSet<>();
+        int number = 0;
+        for (GraphPatch.Change change : patch.getChanges()) {
+            number++;
+            if (change.getKind() == GraphPatch.Kind.ADD_CITY) {
+                added.add(change.getCity().getId());
+                continue;
+            }
+            for (long id : new long[]{change.getFromId(), change.getToId()}) {
+                if (indexById.get(id) < 0 && !added.contains(id)) {
+                    throw new IllegalArgumentException("Изменение " + number + " (" + change
+                            + "): город с ID " + id + " не найден");
+                }
+            }
+            if (change.getKind() != GraphPatch.Kind.REMOVE_ROAD && change.getWeights().length != criteria.size()) {
+                throw new IllegalArgumentException("Изменение " + number + " (" + change
+                        + "): ожидалось " + criteria.size() + " весов дороги");
+            }
+
+            long from = change.getFromId();
+            long to = change.getToId();
+            String pair = Math.min(from, to) + "-" + Math.max(from, to);
+            boolean exists;
+            switch (change.getKind()) {
+                case ADD_ROAD:
+                    if (change.isOneWay()) {
+                        addedOneWay.add(from + ">" + to);
+                    } else {
+                        addedTwoWay.add(pair);
+                    }
+                    continue;
+                case REMOVE_ROAD:
+                    exists = addedTwoWay.remove(pair);
+                    exists |= addedOneWay.remove(from + ">" + to);
+                    exists |= addedOneWay.remove(to + ">" + from);
+                    exists = exists || !removedPairs.contains(pair) && hasRoad(from, to, false, false);
+                    removedPairs.add(pair);
+                    break;
+                default:
+                    exists = change.isOneWay() ? addedOneWay.contains(from + ">" + to) : addedTwoWay.contains(pair);
+                    exists = exists || !removedPairs.contains(pair) && hasRoad(from, to, true, change.isOneWay());
+                    break;
+            }
+            if (!exists) {
+                throw new IllegalArgumentException("Изменение " + number + " (" + change
+                        + "): дорога не найдена");
+            }
+        }
+
+        number = 0;
+        for (GraphPatch.Change change : patch.getChanges()) {
+            number++;
+            try {
+                switch (change.getKind()) {
+                    case ADD_CITY:
+                        addCity(change.getCity());
+                        break;
+                    case ADD_ROAD:
+                        addRoad(new Road(getCityById(change.getFromId()), getCityById(change.getToId()),
+                                change.getWeights(), change.isOneWay()));
+                        break;
+                    case REMOVE_ROAD:
+                        removeRoads(getCityById(change.getFromId()), getCityById(change.getToId()));
+                        break;
+                    case UPDATE_ROAD:
+                        updateRoad(new Road(getCityById(change.getFromId()), getCityById(change.getToId()),
+                                change.getWeights(), change.isOneWay()));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Неизвестное изменение: " + change.getKind());
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Изменение " + number + " (" + change + "): " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Проверяет, есть ли в графе дорога между городами с указанными ID.
+     * Без учёта направления — любая дорога между ними, иначе — дорога from → to
+     * того же вида (односторонняя или двусторонняя), что меняет {@link #updateRoad}.
+     */
+    private boolean hasRoad(long fromId, long toId, boolean directed, boolean oneWay) {
+        int from = indexById.get(fromId);
+        int to = indexById.get(toId);
+        if (from < 0 || to < 0) {
+            return false;
+        }
+        IntList halfEdges = adjacencyList.get(from);
+        for (int i = 0; i < halfEdges.size(); i++) {
+            int halfEdge = halfEdges.get(i);
+            if (getTarget(halfEdge) == to && (!directed || oneWayRoads.get(halfEdge >>> 1) == oneWay)) {
+                return true;
+            }
+        }
+        // Односторонняя дорога to → from видна только из списка города to
+        return !directed && from != to && hasRoad(toId, fromId, true, true);
+    }
+
+    /**
+     * Подписывает на изменения графа.
+     * 
+     * @param listener подписчик
+     */
+    public void addListener(GraphListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Отписывает от изменений графа.
+     * 
+     * @param listener подписчик
+     */
+    public void removeListener(GraphListener listener) {
+        listeners.remove(listener);
+    }
+
+    private int requireIndex(City city) {
+        int index = indexOf(city);
+        if (index < 0) {
+            throw new IllegalStateException("Город не добавлен в граф: " + city);
+        }
+        return index;
+    }
+
+    /**
+     * Строит обратный список смежности: полурёбра всех дорог в порядке
+     * добавления попадают в список города, в который они ведут.
+     */
+    private List<IntList> buildReverseAdjacency() {
+        List<IntList> reverse = new ArrayList<>(cities.size());
+        for (int city = 0; city < cities.size(); city++) {
+            reverse.add(new IntList());
+        }
+        for (int road = 0; road < roadFrom.size(); road++) {
+            reverse.get(roadTo.get(road)).add(road << 1);
+            if (!oneWayRoads.get(road)) {
+                reverse.get(roadFrom.get(road)).add((road << 1) | 1);
+            }
+        }
+        return reverse;
+    }
+
+    /**
+     * Удаляет параллельные дороги, доминируемые по Парето.
+     * 
+     * Для каждой пары городов остаются только дороги с недоминируемыми
+     * тройками (длина, время, стоимость): дорога удаляется, если другая дорога
+     * между теми же городами не хуже по всем критериям (для полных
+     * дубликатов остаётся первая). Оптимальные значения по каждому критерию
+     * и компромиссный выбор не меняются, а поиск перестаёт сканировать
+     * заведомо бесполезные рёбра. Односторонняя дорога может быть удалена
+     * только из-за дороги, проходимой в том же направлении; двусторонняя —
+     * только из-за двусторонней.
+     * 
+     * Сложность: O(V + E · log d), где d — максимальная степень вершины.
+     * 
+     * @return количество удалённых дорог
+     */
+    public int pruneDominatedRoads() {
+        int roadCount = roadFrom.size();
+        boolean[] removed = new boolean[roadCount];
+        int removedCount = 0;
+
+        for (int city = 0; city < cities.size(); city++) {
+            // Дороги к соседям с индексом >= city, упорядоченные по (сосед, индекс дороги):
+            // каждая пара городов просматривается ровно один раз
+            IntList halfEdges = adjacencyList.get(city);
+            IntList incoming = reverseAdjacency != null ? reverseAdjacency.get(city) : null;
+            long[] group = new long[halfEdges.size() + (incoming != null ? incoming.size() : 0)];
+            int size = 0;
+            for (int i = 0; i < halfEdges.size(); i++) {
+                int halfEdge = halfEdges.get(i);
+                int target = getTarget(halfEdge);
+                if (target > city || (target == city && (halfEdge & 1) == 0)) {
+                    group[size++] = ((long) target << 32) | (halfEdge >>> 1);
+                }
+            }
+            // Односторонние дороги в город от соседей с большим индексом не видны в прямом списке
+            for (int i = 0; incoming != null && i < incoming.size(); i++) {
+                int halfEdge = incoming.get(i);
+                int source = getSource(halfEdge);
+                if (source > city && oneWayRoads.get(halfEdge >>> 1)) {
+                    group[size++] = ((long) source << 32) | (halfEdge >>> 1);
+                }
+            }
+            Arrays.sort(group, 0, size);
+
+            for (int start = 0, end; start < size; start = end) {
+                end = start + 1;
+                while (end < size && (group[end] >>> 32) == (group[start] >>> 32)) {
+                    end++;
+                }
+                if (end - start > 1) {
+                    removedCount += markDominated(group, start, end, removed);
+                }
+            }
+        }
+
+        if (removedCount > 0) {
+            compactRoads(removed);
+            notifyListeners(GraphListener::restructured);
+        }
+        return removedCount;
+    }
+
+    /**
+     * Отмечает доминируемые дороги в группе параллельных дорог одной пары городов.
+     * 
+     * @return количество отмеченных дорог
+     */
+    private int markDominated(long[] group, int start, int end, boolean[] removed) {
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            int road = (int) group[i];
+            for (int j = start; j < end && !removed[road]; j++) {
+                int other = (int) group[j];
+                if (other != road && !removed[other] && covers(other, road)
+                        && dominates(other, road, j < i || oneWayRoads.get(road) && !oneWayRoads.get(other))) {
+                    removed[road] = true;
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Проверяет, проходима ли дорога a во всех направлениях, в которых проходима b
+     * (дороги соединяют одну пару городов).
+     */
+    private boolean covers(int a, int b) {
+        if (!oneWayRoads.get(a)) {
+            return true;
+        }
+        return oneWayRoads.get(b) && roadFrom.get(a) == roadFrom.get(b);
+    }
+
+    /**
+     * Проверяет, доминирует ли дорога a над дорогой b.
+     * Равные тройки считаются доминирующими только при разрешённом tieBreak
+     * (более ранняя дорога или двусторонняя против односторонней).
+     */
+    private boolean dominates(int a, int b, boolean tieBreak) {
+        boolean strictlyBetter = false;
+        for (IntList column : roadWeights) {
+            int wa = column.get(a);
+            int wb = column.get(b);
+            if (wa > wb) {
+                return false;
+            }
+            strictlyBetter |= wa < wb;
+        }
+        return strictlyBetter || tieBreak;
+    }
+
+    /**
+     * Удаляет отмеченные дороги из столбцов и списков смежности,
+     * сохраняя порядок оставшихся дорог.
+     */
+    private void compactRoads(boolean[] removed) {
+        int[] newIndex = new int[removed.length];
+        int kept = 0;
+        for (int road = 0; road < removed.length; road++) {
+            if (removed[road]) {
+                newIndex[road] = -1;
+                continue;
+            }
+            newIndex[road] = kept;
+            roadFrom.set(kept, roadFrom.get(road));
+            roadTo.set(kept, roadTo.get(road));
+            oneWayRoads.set(kept, oneWayRoads.get(road));
+            for (IntList column : roadWeights) {
+                column.set(kept, column.get(road));
+            }
+            kept++;
+        }
+        roadFrom.truncate(kept);
+        roadTo.truncate(kept);
+        oneWayRoads.clear(kept, removed.length);
+        for (IntList column : roadWeights) {
+            column.truncate(kept);
+        }
+
+        remapHalfEdges(adjacencyList, newIndex);
+        if (reverseAdjacency != null) {
+            remapHalfEdges(reverseAdjacency, newIndex);
+        }
+        // Связность не меняется: между каждой парой соседей остаётся хотя бы одна дорога
+    }
+
+    /**
+     * Переводит полурёбра списков смежности на новые индексы дорог, удаляя полурёбра удалённых дорог.
+     */
+    private static void remapHalfEdges(List<IntList> lists, int[] newIndex) {
+        for (IntList halfEdges : lists) {
+            int size = 0;
+            for (int i = 0; i < halfEdges.size(); i++) {
+                int halfEdge = halfEdges.get(i);
+                int road = newIndex[halfEdge >>> 1];
+                if (road >= 0) {
+                    halfEdges.set(size++, (road << 1) | (halfEdge & 1));
+                }
+            }
+            halfEdges.truncate(size);
+        }
+    }
+
+    /**
+     * Перенумеровывает внутренние индексы городов.
+     * 
+     * Город, стоявший на позиции order[i], получает индекс i. Списки смежности,
+     * столбцы дорог и индекс ID перестраиваются под новую нумерацию; ID, названия
+     * и порядок дорог каждого города не меняются. Используется для улучшения
+     * локальности памяти (см. {@link GraphOrdering}).
+     * Сложность: O(V + E).
+     * 
+     * @param order новый порядок городов: order[новый индекс] = старый индекс
+     * @throws IllegalArgumentException если order не является перестановкой 0..n-1
+     */
+    public void renumber(int[] order) {
+        int cityCount = cities.size();
+        if (order.length != cityCount) {
+            throw new IllegalArgumentException("Перестановка должна содержать " + cityCount + " элементов");
+        }
+        int[] newIndex = new int[cityCount];
+        Arrays.fill(newIndex, -1);
+        for (int i = 0; i < cityCount; i++) {
+            if (order[i] < 0 || order[i] >= cityCount || newIndex[order[i]] != -1) {
+                throw new IllegalArgumentException("Некорректная перестановка в позиции " + i);
+            }
+            newIndex[order[i]] = i;
+        }
+
+        List<City> oldCities = new ArrayList<>(cities);
+        List<IntList> oldAdjacency = new ArrayList<>(adjacencyList);
+        List<IntList> oldReverse = reverseAdjacency != null ? new ArrayList<>(reverseAdjacency) : null;
+        int[] oldLatitudes = latitudes.toArray();
+        int[] oldLongitudes = longitudes.toArray();
+        for (int i = 0; i < cityCount; i++) {
+            City city = oldCities.get(order[i]);
+            cities.set(i, city);
+            latitudes.set(i, oldLatitudes[order[i]]);
+            longitudes.set(i, oldLongitudes[order[i]]);
+            adjacencyList.set(i, oldAdjacency.get(order[i]));
+            if (oldReverse != null) {
+                reverseAdjacency.set(i, oldReverse.get(order[i]));
+            }
+            indexById.put(city.getId(), i);
+        }
+        for (int road = 0; road < roadFrom.size(); road++) {
+            roadFrom.set(road, newIndex[roadFrom.get(road)]);
+            roadTo.set(road, newIndex[roadTo.get(road)]);
+        }
+        dropNames();
+        spatialIndex = null;
+        notifyListeners(GraphListener::restructured);
+    }
+
+    /**
+     * Возвращает точный объём памяти графа по частям: города и названия,
+     * списки смежности, дороги, веса, индекс ID, словарь названий,
+     * компоненты связности и кэшированный CSR-снимок.
+     * Для каждой части указано, сколько освободит {@link #compact()}.
+     * Сложность: O(V + E).
+     * 
+     * @return отчёт о памяти
+     */
+    public MemoryReport memoryReport() {
+        MemoryReport report = new MemoryReport("Граф: " + cities.size() + " городов, " + roadFrom.size() + " дорог");
+
+        // Город: заголовок, ID, ссылка на название; одинаковые названия разными строками — кандидаты на общую строку
+        IdentityHashMap<String, Boolean> seen = new IdentityHashMap<>();
+        Map<String, String> canonical = new HashMap<>();
+        long duplicates = 0;
+        List<String> cityNames = new ArrayList<>(cities.size());
+        for (City city : cities) {
+            String name = city.getName();
+            cityNames.add(name);
+            String first = canonical.putIfAbsent(name, name);
+            if (first != null && first != name && !seen.containsKey(name)) {
+                duplicates += MemoryReport.string(name);
+            }
+            seen.put(name, Boolean.TRUE);
+        }
+        seen.clear();
+        report.add("Города", MemoryReport.ARRAY_LIST + MemoryReport.array(cities.size(), MemoryReport.REFERENCE)
+                + cities.size() * MemoryReport.align(MemoryReport.OBJECT_HEADER + Long.BYTES + MemoryReport.REFERENCE)
+                + MemoryReport.strings(cityNames, seen), duplicates);
+
+        report.add("Координаты", latitudes.footprint() + longitudes.footprint(),
+                latitudes.unusedBytes() + longitudes.unusedBytes());
+        addLists(report, "Смежность", adjacencyList);
+        if (reverseAdjacency != null) {
+            addLists(report, "Обратная смежность", reverseAdjacency);
+        }
+
+        long[] words = oneWayRoads.toLongArray();
+        report.add("Дороги", roadFrom.footprint() + roadTo.footprint()
+                        + MemoryReport.align(MemoryReport.OBJECT_HEADER + MemoryReport.REFERENCE + 4 + 1)
+                        + MemoryReport.array(oneWayRoads.size() / Long.SIZE, Long.BYTES),
+                roadFrom.unusedBytes() + roadTo.unusedBytes()
+                        + MemoryReport.array(oneWayRoads.size() / Long.SIZE, Long.BYTES)
+                        - MemoryReport.array(words.length, Long.BYTES));
+
+        long weightBytes = MemoryReport.array(roadWeights.length, MemoryReport.REFERENCE);
+        long weightUnused = 0;
+        for (IntList column : roadWeights) {
+            weightBytes += column.footprint();
+            weightUnused += column.unusedBytes();
+        }
+        report.add("Веса", weightBytes, weightUnused);
+
+        report.add("Индекс ID", indexById.footprint(), 0);
+        report.add("Словарь названий", (names != null ? names.footprint() : 0) + addedNamesFootprint(), 0);
+        report.add("Пространственный индекс", spatialIndex != null ? spatialIndex.footprint() : 0, 0);
+        report.add("Компоненты", components.footprint(), components.unusedBytes());
+        CompactGraph current = snapshot;
+        report.add("Снимок CSR", current != null ? current.memoryReport().getTotalBytes() : 0, 0);
+        return report;
+    }
+
+    private static void addLists(MemoryReport report, String part, List<IntList> lists) {
+        long bytes = MemoryReport.ARRAY_LIST + MemoryReport.array(lists.size(), MemoryReport.REFERENCE);
+        long unused = 0;
+        for (IntList list : lists) {
+            bytes += list.footprint();
+            unused += list.unusedBytes();
+        }
+        report.add(part, bytes, unused);
+    }
+
+    /**
+     * Уплотняет граф: обрезает запас ёмкости растущих массивов (списков
+     * смежности, столбцов дорог и весов, компонент) и заменяет одинаковые
+     * названия разных городов одной общей строкой. Дороги, индексы
+     * и объекты городов с уникальными названиями не меняются.
+     * Полезно после загрузки или большого патча, перед долгой работой графа.
+     * Сложность: O(V + E).
+     * 
+     * @return освобождённые байты (по {@link #memoryReport()})
+     */
+    public long compact() {
+        long before = memoryReport().getTotalBytes();
+
+        for (IntList list : adjacencyList) {
+            list.trim();
+        }
+        if (reverseAdjacency != null) {
+            for (IntList list : reverseAdjacency) {
+                list.trim();
+            }
+        }
+        roadFrom.trim();
+        roadTo.trim();
+        latitudes.trim();
+        longitudes.trim();
+        for (IntList column : roadWeights) {
+            column.trim();
+        }
+        components.trim();
+        oneWayRoads = BitSet.valueOf(oneWayRoads.toLongArray());
+
+        Map<String, String> canonical = new HashMap<>();
+        for (int i = 0; i < cities.size(); i++) {
+            City city = cities.get(i);
+            String name = canonical.putIfAbsent(city.getName(), city.getName());
+            if (name != null && name != city.getName()) {
+                // Город с тем же ID равен прежнему объекту
+                City canonicalCity = new City(city.getId(), name);
+                cities.set(i, canonicalCity);
+                spatialIndex = null;
+                int index = i;
+                notifyIndexes(each -> each.cityAdded(canonicalCity, index));
+            }
+        }
+        return before - memoryReport().getTotalBytes();
+    }
+
+    /**
+     * Возвращает CSR-снимок графа, по которому работают алгоритмы поиска.
+     * Снимок строится при первом обращении, а затем обновляется на месте
+     * при каждом изменении графа (см. {@link CompactGraph}), поэтому поиск
+     * после патча не платит за полное перестроение. Граф не должен
+     * изменяться во время поиска по снимку. Одновременные первые обращения
+     * из нескольких потоков получают один и тот же снимок.
+     * Сложность: O(V + E) при первом обращении, O(1) иначе.
+     * 
+     * @return снимок текущего состояния графа
+     */
+    public CompactGraph snapshot() {
+        CompactGraph current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (snapshotLock) {
+            if (snapshot == null) {
+                CompactGraph built = CompactGraph.maintained(this);
+                indexes.add(built.updater());
+                snapshot = built;
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Возвращает снимок для представления, которое хранит его дольше одного
+     * запроса и должно видеть неизменное состояние (например, {@link RegionView}).
+     * При следующем изменении графа такой снимок отключается от обновлений,
+     * а граф начинает новый.
+     *
+     * @return снимок текущего состояния графа
+     */
+    CompactGraph sharedSnapshot() {
+        synchronized (snapshotLock) {
+            CompactGraph shared = snapshot();
+            snapshotShared = true;
+            return shared;
+        }
+    }
+
+    /**
+     * Передаёт изменение внутренним индексам, затем подписчикам.
+     */
+    private void notifyListeners(Consumer<GraphListener> change) {
+        notifyIndexes(change);
+        for (GraphListener listener : listeners) {
+            change.accept(listener);
+        }
+    }
+
+    /**
+     * Передаёт изменение компонентам и снимку; снимок, отданный представлению,
+     * сначала отключается от обновлений.
+     */
+    private void notifyIndexes(Consumer<GraphListener> change) {
+        synchronized (snapshotLock) {
+            if (snapshotShared) {
+                indexes.remove(snapshot.updater());
+                snapshot.detach();
+                snapshot = null;
+                snapshotShared = false;
+            }
+        }
+        for (GraphListener index : indexes) {
+            change.accept(index);
+        }
     }
 
     /**
      * Возвращает список дорог, исходящих из указанного города.
-     * Сложность: O(1).
+     * Каждая дорога в списке ориентирована от этого города (getFrom() — сам город);
+     * односторонние дороги в этот город в список не входят.
+     * Сложность: O(1); объекты Road создаются при обращении к элементам списка.
      * 
      * @param city город-источник
      * @return список дорог из этого города
      */
     public List<Road> getRoadsFrom(City city) {
-        return adjacencyList.getOrDefault(city, Collections.emptyList());
+        int index = indexOf(city);
+        return index >= 0 ? getRoadsFrom(index) : Collections.emptyList();
     }
 
     /**
-     * Находит город по названию.
+     * Возвращает список дорог, исходящих из города с указанным индексом.
+     * Сложность: O(1); объекты Road создаются при обращении к элементам списка.
+     * 
+     * @param index внутренний индекс города
+     * @return неизменяемое представление списка дорог из этого города
+     */
+    public List<Road> getRoadsFrom(int index) {
+        IntList halfEdges = adjacencyList.get(index);
+        return new AbstractList<Road>() {
+            @Override
+            public Road get(int i) {
+                int halfEdge = halfEdges.get(i);
+                int[] weights = new int[roadWeights.length];
+                for (int k = 0; k < weights.length; k++) {
+                    weights[k] = roadWeights[k].get(halfEdge >>> 1);
+                }
+                return new Road(cities.get(index), cities.get(getTarget(halfEdge)),
+                        weights, oneWayRoads.get(halfEdge >>> 1));
+            }
+
+            @Override
+            public int size() {
+                return halfEdges.size();
+            }
+        };
+    }
+
+    /**
+     * Возвращает набор критериев графа.
+     * 
+     * @return набор критериев (порядок столбцов весов)
+     */
+    public CriteriaSet getCriteria() {
+        return criteria;
+    }
+
+    /**
+     * Возвращает наибольший вес дороги по критерию.
+     * Значение берётся из CSR-снимка, который поддерживает его при изменениях графа.
+     *
+     * @param criterion критерий
+     * @return наибольший вес или 0, если дорог нет
+     */
+    public int getMaxWeight(Criterion criterion) {
+        return snapshot().getMaxWeight(criterion);
+    }
+
+    /**
+     * Возвращает количество дорог в графе (каждая двусторонняя дорога учитывается один раз).
+     * 
+     * @return число дорог
+     */
+    public int getRoadCount() {
+        return roadFrom.size();
+    }
+
+    /**
+     * Возвращает внутренний индекс города.
      * Сложность: O(1) в среднем.
      * 
+     * @param city город
+     * @return индекс 0..n-1 или -1, если город не добавлен в граф
+     */
+    public int indexOf(City city) {
+        return indexById.get(city.getId());
+    }
+
+    /**
+     * Возвращает город по внутреннему индексу.
+     * Сложность: O(1).
+     * 
+     * @param index индекс города
+     * @return город
+     */
+    public City getCity(int index) {
+        return cities.get(index);
+    }
+
+    /**
+     * Находит город по названию без создания объектов.
+     * Сложность: O(1) амортизированно: словарь названий строится за O(V) при первом
+     * вызове и после переименования города, а добавленные позже города до перестроения
+     * словаря ищутся в небольшой таблице.
+     * При совпадении названий возвращается город с наибольшим индексом.
+     * 
      * @param name название города
      * @return город или null, если не найден
      */
     public City getCityByName(String name) {
-        return citiesByName.get(name);
+        int index = nameIndex(name);
+        return index >= 0 ? cities.get(index) : null;
+    }
+
+    /**
+     * Проверяет, связаны ли города дорогами (лежат в одной компоненте связности).
+     * Односторонние дороги учитываются без направления (слабая связность):
+     * false гарантирует, что пути нет ни в одну сторону, а true при односторонних
+     * дорогах означает лишь, что путь возможен.
+     * Сложность: O(1): компоненты обновляются при изменении графа (см. {@link ComponentIndex}).
+     * 
+     * @param a первый город
+     * @param b второй город
+     * @return true, если города в одной компоненте; false, если пути нет или город отсутствует
+     */
+    public boolean isConnected(City a, City b) {
+        int first = indexOf(a);
+        int second = indexOf(b);
+        return first >= 0 && second >= 0 && components.label(first) == components.label(second);
+    }
+
+    /**
+     * Возвращает количество компонент связности (изолированных частей сети).
+     * 
+     * @return число компонент
+     */
+    public int getComponentCount() {
+        return components.count();
+    }
+
+    /**
+     * Проверяет, есть ли в графе односторонние дороги.
+     * 
+     * @return true, если хотя бы одна дорога односторонняя
+     */
+    public boolean isDirected() {
+        return reverseAdjacency != null;
     }
 
     /**
@@ -95,17 +1174,18 @@ public class Graph {
      * @param id идентификатор города
      * @return город или null, если не найден
      */
-    public City getCityById(int id) {
-        return citiesById.get(id);
+    public City getCityById(long id) {
+        int index = indexById.get(id);
+        return index >= 0 ? cities.get(index) : null;
     }
 
     /**
-     * Возвращает все города графа.
+     * Возвращает все города графа в порядке внутренних индексов.
      * 
      * @return коллекция всех городов
      */
     public Collection<City> getAllCities() {
-        return Collections.unmodifiableCollection(citiesByName.values());
+        return Collections.unmodifiableList(cities);
     }
 
     /**
@@ -114,7 +1194,7 @@ public class Graph {
      * @return число вершин
      */
     public int getCityCount() {
-        return citiesByName.size();
+        return cities.size();
     }
 
     /**
@@ -124,6 +1204,121 @@ public class Graph {
      * @return true если город существует
      */
     public boolean hasCity(String name) {
-        return citiesByName.containsKey(name);
+        return nameIndex(name) >= 0;
+    }
+
+    /**
+     * Индекс города по названию: добавленные после построения словаря города
+     * имеют большие индексы, поэтому проверяются первыми.
+     */
+    private int nameIndex(String name) {
+        if (names == null || addedNames.size() > names.size() / 8 + 64) {
+            // Перестроение партиями: O(V) не чаще, чем раз на V/8 добавленных городов
+            String[] cityNames = new String[cities.size()];
+            for (int i = 0; i < cityNames.length; i++) {
+                cityNames[i] = cities.get(i).getName();
+            }
+            names = new NameDictionary(cityNames);
+            addedNames = new HashMap<>();
+        }
+        Integer added = addedNames.get(name);
+        return added != null ? added : names.indexOf(name);
+    }
+
+    private void dropNames() {
+        names = null;
+        addedNames = new HashMap<>();
+    }
+
+    /**
+     * Память таблицы добавленных названий: объект HashMap, таблица корзин
+     * (растёт удвоением от 16 при заполнении на 3/4), узлы и Integer вне кэша;
+     * сами строки принадлежат городам.
+     */
+    private long addedNamesFootprint() {
+        int size = addedNames.size();
+        long bytes = MemoryReport.align(MemoryReport.OBJECT_HEADER + 4 * MemoryReport.REFERENCE + 4 * 4);
+        if (size == 0) {
+            return bytes;
+        }
+        int capacity = 16;
+        while (size > capacity / 4 * 3) {
+            capacity *= 2;
+        }
+        bytes += MemoryReport.array(capacity, MemoryReport.REFERENCE)
+                + size * MemoryReport.align(MemoryReport.OBJECT_HEADER + 4 + 3 * MemoryReport.REFERENCE);
+        for (int index : addedNames.values()) {
+            if (index > 127) {
+                bytes += MemoryReport.align(MemoryReport.OBJECT_HEADER + 4);
+            }
+        }
+        return bytes;
+    }
+
+    // ═══ Доступ к полурёбрам для построения снимков ═══
+
+    /**
+     * @return число исходящих полурёбер города
+     */
+    int getDegree(int city) {
+        return adjacencyList.get(city).size();
+    }
+
+    /**
+     * @return i-е исходящее полуребро города
+     */
+    int getHalfEdge(int city, int i) {
+        return adjacencyList.get(city).get(i);
+    }
+
+    /**
+     * @return число входящих полурёбер города (совпадает с исходящими в неориентированном графе)
+     */
+    int getReverseDegree(int city) {
+        return (reverseAdjacency != null ? reverseAdjacency : adjacencyList).get(city).size();
+    }
+
+    /**
+     * Возвращает i-е входящее полуребро города. В неориентированном графе это
+     * i-е исходящее полуребро в обратном направлении.
+     */
+    int getReverseHalfEdge(int city, int i) {
+        return reverseAdjacency != null ? reverseAdjacency.get(city).get(i) : adjacencyList.get(city).get(i) ^ 1;
+    }
+
+    /**
+     * @return индекс города, из которого выходит полуребро
+     */
+    int getSource(int halfEdge) {
+        return getTarget(halfEdge ^ 1);
+    }
+
+    /**
+     * @return индекс города, в который ведёт полуребро
+     */
+    int getTarget(int halfEdge) {
+        int road = halfEdge >>> 1;
+        return (halfEdge & 1) == 0 ? roadTo.get(road) : roadFrom.get(road);
+    }
+
+    /**
+     * @return вес дороги полуребра по критерию (общий для обоих направлений)
+     */
+    int getWeight(int halfEdge, Criterion criterion) {
+        return roadWeights[criterion.index()].get(halfEdge >>> 1);
+    }
+
+    /**
+     * @return true, если полуребро принадлежит односторонней дороге
+     */
+    boolean isOneWay(int halfEdge) {
+        return oneWayRoads.get(halfEdge >>> 1);
+    }
+
+    /**
+     * Возвращает копию индекса ID -> индекс для неизменяемых снимков.
+     */
+    CityIdIndex copyIdIndex() {
+        return indexById.copy();
     }
 }
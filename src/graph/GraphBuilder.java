@@ -0,0 +1,396 @@
+package graph;
+
+import model.City;
+import model.CriteriaSet;
+import model.Criterion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Массовое построение {@link Graph} из сырых массивов дорог.
+ * 
+ * Города и дороги накапливаются в заранее выделенных примитивных массивах
+ * (дороги — по ID концов), а {@link #build()} строит граф целиком:
+ * <ol>
+ *   <li>ID концов переводятся в индексы параллельно по блокам дорог;</li>
+ *   <li>степени вершин подсчитываются параллельно (счётчики на каждый блок);</li>
+ *   <li>полурёбра раскладываются по городам параллельной устойчивой сортировкой подсчётом
+ *       (при наличии односторонних дорог — так же и входящие полурёбра).</li>
+ * </ol>
+ * Порядок дорог в списке смежности каждого города совпадает с порядком
+ * добавления, поэтому результат идентичен последовательным вызовам
+ * {@link Graph#addCity} и {@link Graph#addRoad}.
+ * 
+ * Сложность: O(V · T + E / T) при T потоках. Память при построении: O(E + V · T).
+ */
+public final class GraphBuilder {
+
+    /** Минимальное число дорог на блок параллельной обработки */
+    private static final int MIN_CHUNK = 1 << 16;
+
+    private final CriteriaSet criteria;
+    private final List<City> cities;
+    private final CityIdIndex indexById;
+
+    /** Координаты городов в микроградусах (по индексам) */
+    private final IntList latitudes;
+    private final IntList longitudes;
+
+    private long[] fromIds;
+    private long[] toIds;
+    private int[][] weights;
+    private int roadCount;
+    private final BitSet oneWay = new BitSet();
+
+    public GraphBuilder() {
+        this(16, 16);
+    }
+
+    /**
+     * Создаёт построитель с заранее выделенной памятью.
+     * 
+     * @param expectedCities ожидаемое число городов
+     * @param expectedRoads  ожидаемое число дорог
+     */
+    public GraphBuilder(int expectedCities, int expectedRoads) {
+        this(CriteriaSet.STANDARD, expectedCities, expectedRoads);
+    }
+
+    /**
+     * Создаёт построитель графа с заданным набором критериев.
+     * 
+     * @param criteria       набор критериев (число весов каждой дороги)
+     * @param expectedCities ожидаемое число городов
+     * @param expectedRoads  ожидаемое число дорог
+     */
+    public GraphBuilder(CriteriaSet criteria, int expectedCities, int expectedRoads) {
+        this.criteria = criteria;
+        this.cities = new ArrayList<>(expectedCities);
+        this.indexById = new CityIdIndex(expectedCities);
+        this.latitudes = new IntList(expectedCities);
+        this.longitudes = new IntList(expectedCities);
+        int capacity = Math.max(1, expectedRoads);
+        this.fromIds = new long[capacity];
+        this.toIds = new long[capacity];
+        this.weights = new int[criteria.size()][capacity];
+    }
+
+    /**
+     * Добавляет город. Повторный город с тем же ID заменяет прежний и сохраняет его индекс.
+     * 
+     * @param city город
+     * @return этот построитель
+     */
+    public GraphBuilder addCity(City city) {
+        int index = indexById.get(city.getId());
+        if (index < 0) {
+            indexById.put(city.getId(), cities.size());
+            cities.add(city);
+            latitudes.add(SpatialIndex.NO_LOCATION);
+            longitudes.add(SpatialIndex.NO_LOCATION);
+        } else {
+            cities.set(index, city);
+        }
+        return this;
+    }
+
+    /**
+     * Добавляет город с координатами (см. {@link Graph#setLocation}).
+     * 
+     * @param city      город
+     * @param latitude  широта в градусах [-90, 90]
+     * @param longitude долгота в градусах [-180, 180]
+     * @return этот построитель
+     * @throws IllegalArgumentException если координаты вне допустимого диапазона
+     */
+    public GraphBuilder addCity(City city, double latitude, double longitude) {
+        SpatialIndex.checkLocation(latitude, longitude);
+        addCity(city);
+        int index = indexById.get(city.getId());
+        latitudes.set(index, SpatialIndex.encode(latitude));
+        longitudes.set(index, SpatialIndex.encode(longitude));
+        return this;
+    }
+
+    /**
+     * Проверяет, добавлен ли город с указанным ID.
+     * 
+     * @param id идентификатор города
+     * @return true, если город добавлен
+     */
+    public boolean hasCity(long id) {
+        return indexById.get(id) >= 0;
+    }
+
+    /**
+     * Добавляет двустороннюю дорогу по ID городов. Существование городов
+     * проверяется при {@link #build()}, поэтому города можно добавлять и после дорог.
+     * 
+     * @param fromId   ID начального города
+     * @param toId     ID конечного города
+     * @param distance длина
+     * @param time     время
+     * @param cost     стоимость
+     * @return этот построитель
+     * @throws IllegalArgumentException если набор критериев не из трёх критериев
+     */
+    public GraphBuilder addRoad(long fromId, long toId, int distance, int time, int cost) {
+        checkWeightCount(3);
+        ensureRoadCapacity(roadCount + 1);
+        fromIds[roadCount] = fromId;
+        toIds[roadCount] = toId;
+        weights[Criterion.DISTANCE.index()][roadCount] = distance;
+        weights[Criterion.TIME.index()][roadCount] = time;
+        weights[Criterion.COST.index()][roadCount] = cost;
+        roadCount++;
+        return this;
+    }
+
+    /**
+     * Добавляет двустороннюю дорогу с весами по всем критериям набора.
+     * 
+     * @param fromId      ID начального города
+     * @param toId        ID конечного города
+     * @param roadWeights веса в порядке критериев набора
+     * @return этот построитель
+     * @throws IllegalArgumentException если число весов не совпадает с числом критериев
+     */
+    public GraphBuilder addRoad(long fromId, long toId, int[] roadWeights) {
+        checkWeightCount(roadWeights.length);
+        ensureRoadCapacity(roadCount + 1);
+        fromIds[roadCount] = fromId;
+        toIds[roadCount] = toId;
+        for (int c = 0; c < roadWeights.length; c++) {
+            weights[c][roadCount] = roadWeights[c];
+        }
+        roadCount++;
+        return this;
+    }
+
+    /**
+     * Добавляет одностороннюю дорогу по ID городов (проходима только от fromId к toId).
+     * 
+     * @param fromId   ID начального города
+     * @param toId     ID конечного города
+     * @param distance длина
+     * @param time     время
+     * @param cost     стоимость
+     * @return этот построитель
+     */
+    public GraphBuilder addOneWayRoad(long fromId, long toId, int distance, int time, int cost) {
+        checkWeightCount(3);
+        oneWay.set(roadCount);
+        return addRoad(fromId, toId, distance, time, cost);
+    }
+
+    /**
+     * Добавляет одностороннюю дорогу с весами по всем критериям набора.
+     * 
+     * @param fromId      ID начального города
+     * @param toId        ID конечного города
+     * @param roadWeights веса в порядке критериев набора
+     * @return этот построитель
+     * @throws IllegalArgumentException если число весов не совпадает с числом критериев
+     */
+    public GraphBuilder addOneWayRoad(long fromId, long toId, int[] roadWeights) {
+        checkWeightCount(roadWeights.length);
+        oneWay.set(roadCount);
+        return addRoad(fromId, toId, roadWeights);
+    }
+
+    /**
+     * Добавляет двусторонние дороги из сырых массивов одинаковой длины (например, от импортёра).
+     * 
+     * @param fromIds   ID начальных городов
+     * @param toIds     ID конечных городов
+     * @param distances длины
+     * @param times     времена
+     * @param costs     стоимости
+     * @return этот построитель
+     * @throws IllegalArgumentException если длины массивов различаются или набор критериев не из трёх
+     */
+    public GraphBuilder addRoads(long[] fromIds, long[] toIds, int[] distances, int[] times, int[] costs) {
+        checkWeightCount(3);
+        int count = fromIds.length;
+        if (toIds.length != count || distances.length != count || times.length != count || costs.length != count) {
+            throw new IllegalArgumentException("Массивы дорог должны иметь одинаковую длину");
+        }
+        ensureRoadCapacity(roadCount + count);
+        System.arraycopy(fromIds, 0, this.fromIds, roadCount, count);
+        System.arraycopy(toIds, 0, this.toIds, roadCount, count);
+        System.arraycopy(distances, 0, weights[Criterion.DISTANCE.index()], roadCount, count);
+        System.arraycopy(times, 0, weights[Criterion.TIME.index()], roadCount, count);
+        System.arraycopy(costs, 0, weights[Criterion.COST.index()], roadCount, count);
+        roadCount += count;
+        return this;
+    }
+
+    private void checkWeightCount(int count) {
+        if (count != criteria.size()) {
+            throw new IllegalArgumentException("Ожидалось " + criteria.size() + " весов дороги, получено " + count);
+        }
+    }
+
+    private void ensureRoadCapacity(int required) {
+        if (required > fromIds.length) {
+            int capacity = Math.max(required, fromIds.length + (fromIds.length >> 1) + 1);
+            fromIds = Arrays.copyOf(fromIds, capacity);
+            toIds = Arrays.copyOf(toIds, capacity);
+            for (int c = 0; c < weights.length; c++) {
+                weights[c] = Arrays.copyOf(weights[c], capacity);
+            }
+        }
+    }
+
+    /**
+     * Строит граф. Построитель после этого можно использовать повторно:
+     * граф получает собственные копии массивов.
+     * 
+     * @return граф, идентичный последовательному добавлению городов и дорог
+     * @throws IllegalStateException если дорога ссылается на отсутствующий город
+     */
+    public Graph build() {
+        int cityCount = cities.size();
+        int roads = roadCount;
+        int chunks = chunkCount(cityCount, roads);
+        int chunkSize = (roads + chunks - 1) / Math.max(1, chunks);
+
+        // 1. ID -> индексы
+        int[] from = new int[roads];
+        int[] to = new int[roads];
+        parallel(chunks, chunk -> {
+            for (int road = chunk * chunkSize, end = Math.min(roads, road + chunkSize); road < end; road++) {
+                from[road] = indexById.get(fromIds[road]);
+                to[road] = indexById.get(toIds[road]);
+            }
+        });
+        for (int road = 0; road < roads; road++) {
+            if (from[road] < 0) {
+                throw new IllegalStateException("Город с ID " + fromIds[road] + " не добавлен в граф");
+            }
+            if (to[road] < 0) {
+                throw new IllegalStateException("Город с ID " + toIds[road] + " не добавлен в граф");
+            }
+        }
+
+        // 2–3. Исходящие полурёбра; входящие — только при наличии односторонних дорог
+        BitSet oneWayRoads = oneWay.get(0, roads);
+        Layout layout = new Layout(cityCount, roads, chunks, chunkSize, oneWayRoads);
+        IntList[] adjacency = layout.place(from, to);
+        List<IntList> reverseAdjacency = oneWayRoads.isEmpty()
+                ? null : new ArrayList<>(Arrays.asList(layout.place(to, from)));
+
+        IntList[] roadWeights = new IntList[weights.length];
+        for (int c = 0; c < weights.length; c++) {
+            roadWeights[c] = new IntList(Arrays.copyOf(weights[c], roads));
+        }
+        return new Graph(new ArrayList<>(cities), indexById.copy(), new IntList(from), new IntList(to),
+                criteria, roadWeights, new IntList(latitudes.toArray()), new IntList(longitudes.toArray()),
+                oneWayRoads, new ArrayList<>(Arrays.asList(adjacency)), reverseAdjacency);
+    }
+
+    /**
+     * Параллельная устойчивая раскладка полурёбер по городам.
+     */
+    private static final class Layout {
+        final int cityCount;
+        final int roads;
+        final int chunks;
+        final int chunkSize;
+        final BitSet oneWay;
+
+        Layout(int cityCount, int roads, int chunks, int chunkSize, BitSet oneWay) {
+            this.cityCount = cityCount;
+            this.roads = roads;
+            this.chunks = chunks;
+            this.chunkSize = chunkSize;
+            this.oneWay = oneWay;
+        }
+
+        /**
+         * Раскладывает полурёбра: каждая дорога попадает в список города near[road]
+         * полуребром road << 1, а двусторонняя — ещё и в список far[road] полуребром
+         * road << 1 | 1. Для исходящих рёбер near = from, для входящих near = to.
+         */
+        IntList[] place(int[] near, int[] far) {
+            // Степени по блокам дорог
+            int[][] counts = new int[chunks][cityCount];
+            parallel(chunks, chunk -> {
+                int[] count = counts[chunk];
+                for (int road = chunk * chunkSize, end = Math.min(roads, road + chunkSize); road < end; road++) {
+                    count[near[road]]++;
+                    if (!oneWay.get(road)) {
+                        count[far[road]]++;
+                    }
+                }
+            });
+
+            // Смещения городов и начало каждого блока внутри списка города
+            int[] offsets = new int[cityCount + 1];
+            for (int city = 0; city < cityCount; city++) {
+                int degree = 0;
+                for (int[] count : counts) {
+                    degree += count[city];
+                }
+                offsets[city + 1] = offsets[city] + degree;
+            }
+            parallel(chunks, block -> {
+                int blockSize = (cityCount + chunks - 1) / chunks;
+                for (int city = block * blockSize, end = Math.min(cityCount, city + blockSize); city < end; city++) {
+                    int position = offsets[city];
+                    for (int[] count : counts) {
+                        int degree = count[city];
+                        count[city] = position;
+                        position += degree;
+                    }
+                }
+            });
+
+            // Устойчивая раскладка: блоки по порядку, дороги внутри блока по порядку
+            int[] halfEdges = new int[offsets[cityCount]];
+            parallel(chunks, chunk -> {
+                int[] position = counts[chunk];
+                for (int road = chunk * chunkSize, end = Math.min(roads, road + chunkSize); road < end; road++) {
+                    halfEdges[position[near[road]]++] = road << 1;
+                    if (!oneWay.get(road)) {
+                        halfEdges[position[far[road]]++] = (road << 1) | 1;
+                    }
+                }
+            });
+
+            IntList[] adjacency = new IntList[cityCount];
+            parallel(chunks, block -> {
+                int blockSize = (cityCount + chunks - 1) / chunks;
+                for (int city = block * blockSize, end = Math.min(cityCount, city + blockSize); city < end; city++) {
+                    adjacency[city] = new IntList(Arrays.copyOfRange(halfEdges, offsets[city], offsets[city + 1]));
+                }
+            });
+            return adjacency;
+        }
+    }
+
+    /**
+     * Число блоков: не больше числа потоков, не меньше MIN_CHUNK дорог на блок,
+     * а счётчики блоков (V на каждый) не больше массива полурёбер.
+     */
+    private static int chunkCount(int cityCount, int roadCount) {
+        int byThreads = ForkJoinPool.getCommonPoolParallelism();
+        int bySize = roadCount / MIN_CHUNK;
+        int byMemory = (int) Math.min(Integer.MAX_VALUE, 2L * roadCount / Math.max(1, cityCount));
+        return Math.max(1, Math.min(byThreads, Math.min(bySize, byMemory)));
+    }
+
+    private static void parallel(int chunks, IntConsumer task) {
+        if (chunks == 1) {
+            task.accept(0);
+        } else {
+            IntStream.range(0, chunks).parallel().forEach(task);
+        }
+    }
+}
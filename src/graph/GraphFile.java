@@ -0,0 +1,260 @@
+package graph;
+
+import model.City;
+import model.CriteriaSet;
+import model.Criterion;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Двоичный формат файла графа для мгновенного запуска.
+ * 
+ * Файл читается отображением в память ({@link MappedGraph}) без разбора
+ * и копирования. Все числа записаны в порядке байт big-endian, каждая
+ * секция выровнена на 8 байт:
+ * <pre>
+ * Заголовок (64 байта): магическое число, версия формата, V, E, K,
+ *                       ёмкость таблицы ID, ёмкость таблицы названий, флаги, длина названий,
+ *                       длина секции критериев
+ * offsets      int[V + 1]   — начало рёбер города (CSR)
+ * targets      int[E]       — цели рёбер
+ * weights      int[K][E]    — веса по каждому критерию
+ * (только с флагом FLAG_DIRECTED — входящие рёбра в том же формате:)
+ * reverseOffsets int[V + 1], reverseTargets int[E], reverseWeights int[K][E]
+ * cityIds      long[V]      — ID городов
+ * nameOffsets  int[V + 1]   — начало названия города в names
+ * names        byte[]       — названия в UTF-8
+ * idKeys       long[C]      — таблица ID -> индекс (открытая адресация)
+ * idValues     int[C]
+ * nameSlots    int[C']      — таблица название -> индекс (открытая адресация)
+ * criteria     byte[]       — строки «обозначение: название» в UTF-8; пусто для
+ *                             классического набора (длина, время, стоимость)
+ * </pre>
+ */
+public final class GraphFile {
+
+    /** "RGRF" */
+    static final int MAGIC = 0x52475246;
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_SIZE = 64;
+    static final int EMPTY = -1;
+
+    /** Флаг заголовка: граф с односторонними дорогами, в файле есть секции входящих рёбер */
+    static final int FLAG_DIRECTED = 1;
+
+    private GraphFile() {
+    }
+
+    /**
+     * Записывает текущее состояние графа в двоичный файл.
+     * 
+     * @param graph граф дорожной сети
+     * @param path  путь к файлу
+     * @throws IOException при ошибке записи
+     */
+    public static void write(Graph graph, Path path) throws IOException {
+        write(graph.snapshot(), path);
+    }
+
+    /**
+     * Записывает индексное представление графа в двоичный файл.
+     * Индексы городов в файле совпадают с индексами графа. Сложность: O(V + E).
+     * 
+     * @param graph индексное представление графа
+     * @param path  путь к файлу
+     * @throws IOException при ошибке записи
+     */
+    public static void write(SearchGraph graph, Path path) throws IOException {
+        int cityCount = graph.getCityCount();
+        CriteriaSet criteria = graph.getCriteria();
+        Csr edges = new Csr(cityCount, criteria, graph.edgeCursor());
+        Csr reverseEdges = graph.isDirected() ? new Csr(cityCount, criteria, graph.reverseEdgeCursor()) : null;
+        byte[] criteriaNames = encodeCriteria(criteria);
+        int edgeCount = edges.targets.length;
+
+        byte[][] names = new byte[cityCount][];
+        int[] nameOffsets = new int[cityCount + 1];
+        for (int city = 0; city < cityCount; city++) {
+            names[city] = graph.getCity(city).getName().getBytes(StandardCharsets.UTF_8);
+            nameOffsets[city + 1] = Math.addExact(nameOffsets[city], names[city].length);
+        }
+
+        // Таблицы ID -> индекс и название -> индекс
+        int idCapacity = capacityFor(cityCount);
+        long[] idKeys = new long[idCapacity];
+        int[] idValues = new int[idCapacity];
+        Arrays.fill(idValues, EMPTY);
+        int nameCapacity = capacityFor(cityCount);
+        int[] nameSlots = new int[nameCapacity];
+        Arrays.fill(nameSlots, EMPTY);
+        for (int city = 0; city < cityCount; city++) {
+            City value = graph.getCity(city);
+            int slot = CityIdIndex.hash(value.getId()) & (idCapacity - 1);
+            while (idValues[slot] != EMPTY) {
+                slot = (slot + 1) & (idCapacity - 1);
+            }
+            idKeys[slot] = value.getId();
+            idValues[slot] = city;
+
+            slot = nameHash(value.getName()) & (nameCapacity - 1);
+            while (nameSlots[slot] != EMPTY) {
+                slot = (slot + 1) & (nameCapacity - 1);
+            }
+            nameSlots[slot] = city;
+        }
+
+        try (OutputStream stream = Files.newOutputStream(path);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(cityCount);
+            out.writeInt(edgeCount);
+            out.writeInt(criteria.size());
+            out.writeInt(idCapacity);
+            out.writeInt(nameCapacity);
+            out.writeInt(reverseEdges != null ? FLAG_DIRECTED : 0);
+            out.writeLong(nameOffsets[cityCount]);
+            out.writeInt(criteriaNames.length);
+            pad(out, HEADER_SIZE - 44);
+
+            edges.write(out);
+            if (reverseEdges != null) {
+                reverseEdges.write(out);
+            }
+
+            for (int city = 0; city < cityCount; city++) {
+                out.writeLong(graph.getCity(city).getId());
+            }
+            writeInts(out, nameOffsets);
+            for (byte[] name : names) {
+                out.write(name);
+            }
+            pad(out, aligned(nameOffsets[cityCount]) - nameOffsets[cityCount]);
+            for (long key : idKeys) {
+                out.writeLong(key);
+            }
+            writeInts(out, idValues);
+            writeInts(out, nameSlots);
+            out.write(criteriaNames);
+            pad(out, aligned(criteriaNames.length) - criteriaNames.length);
+        }
+    }
+
+    /**
+     * Кодирует названия критериев; классический набор не записывается.
+     */
+    static byte[] encodeCriteria(CriteriaSet criteria) {
+        if (criteria == CriteriaSet.STANDARD) {
+            return new byte[0];
+        }
+        StringBuilder text = new StringBuilder();
+        for (Criterion criterion : criteria) {
+            text.append(criterion.getShortName()).append(": ").append(criterion.getFullName()).append('\n');
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Восстанавливает набор критериев из секции файла.
+     * 
+     * @param bytes содержимое секции (пустое — классический набор)
+     */
+    static CriteriaSet decodeCriteria(byte[] bytes) {
+        if (bytes.length == 0) {
+            return CriteriaSet.STANDARD;
+        }
+        List<String> shortNames = new ArrayList<>();
+        List<String> fullNames = new ArrayList<>();
+        for (String line : new String(bytes, StandardCharsets.UTF_8).split("\n")) {
+            int colon = line.indexOf(": ");
+            if (colon < 0) {
+                throw new IllegalArgumentException("Неверный формат файла графа: критерий " + line);
+            }
+            shortNames.add(line.substring(0, colon));
+            fullNames.add(line.substring(colon + 2));
+        }
+        return CriteriaSet.of(shortNames, fullNames);
+    }
+
+    /**
+     * Рёбра в формате CSR, собранные курсором перед записью.
+     */
+    private static final class Csr {
+        final int[] offsets;
+        final int[] targets;
+        final int[][] weights;
+
+        Csr(int cityCount, CriteriaSet criteria, EdgeCursor cursor) {
+            this.offsets = new int[cityCount + 1];
+            for (int city = 0; city < cityCount; city++) {
+                int degree = 0;
+                cursor.moveTo(city);
+                while (cursor.next()) {
+                    degree++;
+                }
+                offsets[city + 1] = offsets[city] + degree;
+            }
+            int edgeCount = offsets[cityCount];
+            this.targets = new int[edgeCount];
+            this.weights = new int[criteria.size()][edgeCount];
+            for (int city = 0, edge = 0; city < cityCount; city++) {
+                cursor.moveTo(city);
+                for (; cursor.next(); edge++) {
+                    targets[edge] = cursor.target();
+                    for (Criterion criterion : criteria) {
+                        weights[criterion.index()][edge] = cursor.weight(criterion);
+                    }
+                }
+            }
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            writeInts(out, offsets);
+            writeInts(out, targets);
+            for (int[] column : weights) {
+                writeInts(out, column);
+            }
+        }
+    }
+
+    /**
+     * Хеш названия; должен совпадать при записи и при поиске в {@link MappedGraph}.
+     */
+    static int nameHash(String name) {
+        int h = name.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    static int capacityFor(int size) {
+        return Integer.highestOneBit(Math.max(4, size * 2 - 1)) << 1;
+    }
+
+    /**
+     * Размер секции с выравниванием на 8 байт.
+     */
+    static long aligned(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for (int value : values) {
+            out.writeInt(value);
+        }
+        pad(out, aligned(4L * values.length) - 4L * values.length);
+    }
+
+    private static void pad(DataOutputStream out, long bytes) throws IOException {
+        for (long i = 0; i < bytes; i++) {
+            out.writeByte(0);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package graph;
+
+import model.City;
+import model.Road;
+
+/**
+ * Подписчик на изменения {@link Graph}.
+ * 
+ * Производные структуры (кэши, индексы, результаты предобработки) получают
+ * уведомление о каждом изменении сразу после того, как оно применено,
+ * и могут обновиться инкрементально вместо полного перестроения.
+ * Методы вызываются в потоке, изменяющем граф; по умолчанию ничего не делают.
+ */
+public interface GraphListener {
+
+    /**
+     * Добавлен новый город или заменён город с тем же ID.
+     * 
+     * @param city  город
+     * @param index внутренний индекс города
+     */
+    default void cityAdded(City city, int index) {
+    }
+
+    /**
+     * Добавлена дорога.
+     * 
+     * @param road дорога
+     */
+    default void roadAdded(Road road) {
+    }
+
+    /**
+     * Удалены все дороги между двумя городами.
+     * 
+     * @param a     первый город
+     * @param b     второй город
+     * @param count число удалённых дорог
+     */
+    default void roadsRemoved(City a, City b, int count) {
+    }
+
+    /**
+     * Изменены веса дорог между городами дороги (с той же направленностью).
+     * 
+     * @param road дорога с новыми весами
+     */
+    default void roadUpdated(Road road) {
+    }
+
+    /**
+     * Граф перестроен целиком (перенумерация городов или удаление доминируемых дорог):
+     * индексы городов и дорог могли измениться.
+     */
+    default void restructured() {
+    }
+}
@@ -0,0 +1,172 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * Порядки нумерации городов, улучшающие локальность памяти при поиске.
+ * 
+ * При исходной нумерации (порядок секции [CITIES]) соседи города могут
+ * оказаться далеко друг от друга в массивах расстояний и CSR-снимка, и каждая
+ * релаксация ребра превращается в промах кэша. Обход в ширину и его вариант
+ * Reverse Cuthill-McKee располагают топологически близкие города рядом.
+ * 
+ * Полученный порядок применяется через {@link Graph#renumber(int[])}.
+ */
+public final class GraphOrdering {
+
+    private GraphOrdering() {
+    }
+
+    /**
+     * Порядок обхода в ширину; компоненты связности обходятся по очереди.
+     * Сложность: O(V + E).
+     * 
+     * @param graph индексное представление графа
+     * @return order[новый индекс] = старый индекс
+     */
+    public static int[] breadthFirst(SearchGraph graph) {
+        return traverse(graph, false);
+    }
+
+    /**
+     * Порядок Reverse Cuthill-McKee: обход в ширину из вершины минимальной степени,
+     * соседи добавляются по возрастанию степени, итоговый порядок разворачивается.
+     * Минимизирует ширину ленты матрицы смежности.
+     * Сложность: O(V + E · log d), где d — максимальная степень.
+     * 
+     * @param graph индексное представление графа
+     * @return order[новый индекс] = старый индекс
+     */
+    public static int[] reverseCuthillMcKee(SearchGraph graph) {
+        int[] order = traverse(graph, true);
+        for (int i = 0, j = order.length - 1; i < j; i++, j--) {
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+        return order;
+    }
+
+    /**
+     * Средний разрыв индексов |u - v| по всем рёбрам.
+     * Чем он меньше, тем чаще сосед лежит в той же строке кэша, что и сам город.
+     * 
+     * @param graph индексное представление графа
+     * @return средний разрыв индексов соседей (0 для графа без рёбер)
+     */
+    public static double averageNeighborGap(SearchGraph graph) {
+        EdgeCursor cursor = graph.edgeCursor();
+        long totalGap = 0;
+        long edgeCount = 0;
+        for (int city = 0; city < graph.getCityCount(); city++) {
+            cursor.moveTo(city);
+            while (cursor.next()) {
+                totalGap += Math.abs(cursor.target() - city);
+                edgeCount++;
+            }
+        }
+        return edgeCount == 0 ? 0 : (double) totalGap / edgeCount;
+    }
+
+    /**
+     * Доля рёбер, соседи которых отстоят не дальше чем на window индексов.
+     * При window = 16 это рёбра, для которых расстояние до соседа в int[]
+     * с большой вероятностью лежит в той же или соседней строке кэша (64 байта).
+     * 
+     * @param graph  индексное представление графа
+     * @param window допустимый разрыв индексов
+     * @return доля рёбер от 0 до 1
+     */
+    public static double localEdgeShare(SearchGraph graph, int window) {
+        EdgeCursor cursor = graph.edgeCursor();
+        long localEdges = 0;
+        long edgeCount = 0;
+        for (int city = 0; city < graph.getCityCount(); city++) {
+            cursor.moveTo(city);
+            while (cursor.next()) {
+                if (Math.abs(cursor.target() - city) <= window) {
+                    localEdges++;
+                }
+                edgeCount++;
+            }
+        }
+        return edgeCount == 0 ? 0 : (double) localEdges / edgeCount;
+    }
+
+    /**
+     * Обход в ширину всех компонент. Для Cuthill-McKee каждая компонента
+     * начинается с вершины минимальной степени, а соседи сортируются по степени.
+     */
+    private static int[] traverse(SearchGraph graph, boolean byDegree) {
+        int cityCount = graph.getCityCount();
+        EdgeCursor cursor = graph.edgeCursor();
+
+        int[] degree = new int[cityCount];
+        for (int city = 0; city < cityCount; city++) {
+            cursor.moveTo(city);
+            while (cursor.next()) {
+                degree[city]++;
+            }
+        }
+
+        // Кандидаты на начало компоненты: по возрастанию степени для Cuthill-McKee
+        int[] starts = new int[cityCount];
+        for (int i = 0; i < cityCount; i++) {
+            starts[i] = i;
+        }
+        long[] keys = new long[byDegree ? cityCount : 0];
+        if (byDegree) {
+            sortByDegree(starts, cityCount, degree, keys);
+        }
+
+        int[] order = new int[cityCount];
+        boolean[] visited = new boolean[cityCount];
+        int[] neighbors = new int[16];
+        int head = 0;
+        int tail = 0;
+
+        for (int start : starts) {
+            if (visited[start]) {
+                continue;
+            }
+            visited[start] = true;
+            order[tail++] = start;
+
+            while (head < tail) {
+                int city = order[head++];
+                int count = 0;
+                cursor.moveTo(city);
+                while (cursor.next()) {
+                    int neighbor = cursor.target();
+                    if (!visited[neighbor]) {
+                        visited[neighbor] = true;
+                        if (count == neighbors.length) {
+                            neighbors = Arrays.copyOf(neighbors, count * 2);
+                        }
+                        neighbors[count++] = neighbor;
+                    }
+                }
+                if (byDegree) {
+                    sortByDegree(neighbors, count, degree, keys);
+                }
+                System.arraycopy(neighbors, 0, order, tail, count);
+                tail += count;
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Устойчивая сортировка первых count вершин по степени на месте.
+     * Ключ (степень, вершина) упакован в long, keys — переиспользуемый буфер.
+     */
+    private static void sortByDegree(int[] cities, int count, int[] degree, long[] keys) {
+        for (int i = 0; i < count; i++) {
+            keys[i] = ((long) degree[cities[i]] << 32) | cities[i];
+        }
+        Arrays.sort(keys, 0, count);
+        for (int i = 0; i < count; i++) {
+            cities[i] = (int) keys[i];
+        }
+    }
+}
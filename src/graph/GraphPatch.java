@@ -0,0 +1,164 @@
+package graph;
+
+import model.City;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Набор изменений дорожной сети (патч), применяемый к графу
+ * без полного перестроения ({@link Graph#apply(GraphPatch)}).
+ * 
+ * Изменения применяются в порядке добавления: можно добавить город
+ * и в том же патче проложить к нему дорогу.
+ */
+public final class GraphPatch {
+
+    /**
+     * Вид изменения.
+     */
+    public enum Kind {
+        /** Добавить город (или заменить город с тем же ID) */
+        ADD_CITY,
+        /** Добавить дорогу */
+        ADD_ROAD,
+        /** Удалить все дороги между двумя городами */
+        REMOVE_ROAD,
+        /** Заменить веса дорог между городами */
+        UPDATE_ROAD
+    }
+
+    /**
+     * Одно изменение патча.
+     */
+    public static final class Change {
+        private final Kind kind;
+        private final City city;
+        private final long fromId;
+        private final long toId;
+        private final int[] weights;
+        private final boolean oneWay;
+
+        private Change(Kind kind, City city, long fromId, long toId, int[] weights, boolean oneWay) {
+            this.kind = kind;
+            this.city = city;
+            this.fromId = fromId;
+            this.toId = toId;
+            this.weights = weights;
+            this.oneWay = oneWay;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * @return добавляемый город (только для ADD_CITY)
+         */
+        public City getCity() {
+            return city;
+        }
+
+        public long getFromId() {
+            return fromId;
+        }
+
+        public long getToId() {
+            return toId;
+        }
+
+        /**
+         * @return веса в порядке критериев графа (для ADD_ROAD и UPDATE_ROAD)
+         */
+        public int[] getWeights() {
+            return weights.clone();
+        }
+
+        public boolean isOneWay() {
+            return oneWay;
+        }
+
+        @Override
+        public String toString() {
+            switch (kind) {
+                case ADD_CITY:
+                    return "+ " + city;
+                case REMOVE_ROAD:
+                    return "- " + fromId + " - " + toId;
+                default:
+                    return (kind == Kind.ADD_ROAD ? "+ " : "= ") + fromId + (oneWay ? " -> " : " - ") + toId;
+            }
+        }
+    }
+
+    private static final int[] NO_WEIGHTS = new int[0];
+
+    private final List<Change> changes = new ArrayList<>();
+
+    /**
+     * Добавляет город.
+     * 
+     * @param city город
+     * @return этот патч
+     */
+    public GraphPatch addCity(City city) {
+        changes.add(new Change(Kind.ADD_CITY, city, city.getId(), city.getId(), NO_WEIGHTS, false));
+        return this;
+    }
+
+    /**
+     * Добавляет дорогу.
+     * 
+     * @param fromId  ID начального города
+     * @param toId    ID конечного города
+     * @param weights веса в порядке критериев графа
+     * @param oneWay  true — дорога проходима только от fromId к toId
+     * @return этот патч
+     */
+    public GraphPatch addRoad(long fromId, long toId, int[] weights, boolean oneWay) {
+        changes.add(new Change(Kind.ADD_ROAD, null, fromId, toId, weights.clone(), oneWay));
+        return this;
+    }
+
+    /**
+     * Удаляет (закрывает) все дороги между двумя городами в обоих направлениях.
+     * 
+     * @param aId ID первого города
+     * @param bId ID второго города
+     * @return этот патч
+     */
+    public GraphPatch removeRoad(long aId, long bId) {
+        changes.add(new Change(Kind.REMOVE_ROAD, null, aId, bId, NO_WEIGHTS, false));
+        return this;
+    }
+
+    /**
+     * Заменяет веса дорог между городами: двусторонних — для oneWay = false,
+     * односторонних от fromId к toId — для oneWay = true.
+     * 
+     * @param fromId  ID начального города
+     * @param toId    ID конечного города
+     * @param weights новые веса в порядке критериев графа
+     * @param oneWay  направленность изменяемых дорог
+     * @return этот патч
+     */
+    public GraphPatch updateRoad(long fromId, long toId, int[] weights, boolean oneWay) {
+        changes.add(new Change(Kind.UPDATE_ROAD, null, fromId, toId, weights.clone(), oneWay));
+        return this;
+    }
+
+    /**
+     * @return изменения в порядке применения
+     */
+    public List<Change> getChanges() {
+        return Collections.unmodifiableList(changes);
+    }
+
+    /**
+     * @return число изменений
+     */
+    public int size() {
+        return changes.size();
+    }
+}
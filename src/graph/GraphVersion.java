@@ -0,0 +1,172 @@
+package graph;
+
+import model.City;
+import model.CriteriaSet;
+import model.Criterion;
+
+import java.util.Map;
+
+/**
+ * Неизменяемая версия графа, опубликованная {@link VersionedGraph}.
+ * 
+ * Исходящие рёбра каждого города хранятся отдельным блоком int[]
+ * с записями (цель, веса по всем критериям набора). Блоки и города лежат
+ * в {@link ChunkedArray}, поэтому соседние версии разделяют всё,
+ * кроме частей, затронутых изменением.
+ * 
+ * Входящие рёбра (для обратного поиска) лежат в отдельных блоках того же
+ * формата, где цель — город, из которого ведёт ребро. Рёбра односторонних
+ * дорог в обоих блоках помечены старшим битом цели ({@link #ONE_WAY}). Пока в графе нет
+ * односторонних дорог, входящие блоки — это те же блоки исходящих рёбер.
+ * 
+ * Версия не ссылается ни на предыдущие, ни на следующие версии:
+ * как только последний запрос перестаёт её использовать, она
+ * (вместе с неразделяемыми блоками) освобождается сборщиком мусора.
+ * 
+ * Потокобезопасна: любое число потоков может искать по одной версии.
+ */
+public final class GraphVersion implements SearchGraph {
+
+    /** Блок города без дорог */
+    static final int[] NO_EDGES = new int[0];
+
+    /** Пометка ребра односторонней дороги (старший бит цели в блоке; курсор её снимает) */
+    static final int ONE_WAY = Integer.MIN_VALUE;
+
+    private final long number;
+    final CriteriaSet criteria;
+
+    /** Размер записи ребра: цель и веса по всем критериям */
+    final int stride;
+
+    final ChunkedArray<City> cities;
+    final ChunkedArray<int[]> edges;
+    final ChunkedArray<int[]> reverseEdges;
+    final CityIdIndex indexById;
+    final Map<String, City> citiesByName;
+    private final int roadCount;
+
+    GraphVersion(long number, CriteriaSet criteria, ChunkedArray<City> cities, ChunkedArray<int[]> edges,
+                 ChunkedArray<int[]> reverseEdges, CityIdIndex indexById, Map<String, City> citiesByName,
+                 int roadCount) {
+        this.number = number;
+        this.criteria = criteria;
+        this.stride = 1 + criteria.size();
+        this.cities = cities;
+        this.edges = edges;
+        this.reverseEdges = reverseEdges;
+        this.indexById = indexById;
+        this.citiesByName = citiesByName;
+        this.roadCount = roadCount;
+    }
+
+    /**
+     * Возвращает порядковый номер версии (растёт с каждой публикацией).
+     * 
+     * @return номер версии
+     */
+    public long getVersion() {
+        return number;
+    }
+
+    @Override
+    public int getCityCount() {
+        return cities.size();
+    }
+
+    @Override
+    public CriteriaSet getCriteria() {
+        return criteria;
+    }
+
+    @Override
+    public City getCity(int index) {
+        return cities.get(index);
+    }
+
+    @Override
+    public int indexOf(City city) {
+        return indexById.get(city.getId());
+    }
+
+    /**
+     * Находит город по названию в этой версии.
+     * 
+     * @param name название города
+     * @return город или null, если не найден
+     */
+    public City getCityByName(String name) {
+        return citiesByName.get(name);
+    }
+
+    /**
+     * Возвращает количество дорог в этой версии.
+     * 
+     * @return число дорог
+     */
+    public int getRoadCount() {
+        return roadCount;
+    }
+
+    /**
+     * Возвращает количество исходящих рёбер города.
+     * 
+     * @param city индекс города
+     * @return степень вершины
+     */
+    public int getDegree(int city) {
+        return edges.get(city).length / stride;
+    }
+
+    @Override
+    public EdgeCursor edgeCursor() {
+        return new Cursor(edges, stride);
+    }
+
+    @Override
+    public EdgeCursor reverseEdgeCursor() {
+        return new Cursor(reverseEdges, stride);
+    }
+
+    @Override
+    public boolean isDirected() {
+        return reverseEdges != edges;
+    }
+
+    /**
+     * Курсор по блоку рёбер одного города.
+     */
+    private static final class Cursor implements EdgeCursor {
+        private final ChunkedArray<int[]> blocks;
+        private final int stride;
+        private int[] block = NO_EDGES;
+        private int position;
+
+        Cursor(ChunkedArray<int[]> blocks, int stride) {
+            this.blocks = blocks;
+            this.stride = stride;
+        }
+
+        @Override
+        public void moveTo(int city) {
+            block = blocks.get(city);
+            position = -stride;
+        }
+
+        @Override
+        public boolean next() {
+            position += stride;
+            return position < block.length;
+        }
+
+        @Override
+        public int target() {
+            return block[position] & ~ONE_WAY;
+        }
+
+        @Override
+        public int weight(Criterion criterion) {
+            return block[position + 1 + criterion.index()];
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * Индексированная d-арная куча минимумов над плотными индексами городов.
+ *
+ * Ключи хранятся во внешнем массиве (расстояния поиска): вызывающий код
+ * уменьшает ключ элемента и вызывает {@link #update(int)}, который либо
+ * вставляет элемент, либо поднимает его на новое место (decrease-key).
+ * Каждый город находится в куче не более одного раза, поэтому устаревших
+ * записей нет, а куча не создаёт объектов — только три массива int.
+ *
+ * Арность 4: дерево вдвое ниже двоичного, а четыре соседних потомка
+ * лежат в одной строке кэша, что ускоряет просеивание вниз.
+ *
+ * Сложность: O(log_d V) на вставку и decrease-key, O(d · log_d V) на извлечение минимума.
+ */
+final class IndexedHeap {
+
+    /** Число потомков узла */
+    static final int ARITY = 4;
+
+    /** Элемент ещё не попадал в кучу */
+    private static final int ABSENT = -1;
+
+    /** Элемент извлечён из кучи (для Дейкстры — вершина окончательно обработана) */
+    private static final int REMOVED = -2;
+
+    private final int[] keys;
+    private final int[] heap;
+    private final int[] positions;
+    private int size;
+
+    /**
+     * @param keys ключи элементов 0..keys.length-1 (изменяются вызывающим кодом)
+     */
+    IndexedHeap(int[] keys) {
+        this(keys, new int[keys.length], keys.length);
+        Arrays.fill(positions, ABSENT);
+    }
+
+    /**
+     * Куча над общими массивами ключей и позиций: несколько куч с непересекающимися
+     * множествами элементов (см. {@link MultiSearchWorkspace}) делят один массив позиций.
+     * Позиции не сбрасываются — вызывающий код вызывает {@link #forget(int)} перед первым обращением.
+     *
+     * @param keys      ключи элементов
+     * @param positions позиции элементов (общие)
+     * @param capacity  наибольшее число элементов в куче
+     */
+    IndexedHeap(int[] keys, int[] positions, int capacity) {
+        this.keys = keys;
+        this.heap = new int[capacity];
+        this.positions = positions;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return true, если элемент уже извлечён из кучи
+     */
+    boolean isRemoved(int item) {
+        return positions[item] == REMOVED;
+    }
+
+    /**
+     * Вставляет элемент или восстанавливает порядок после уменьшения его ключа.
+     * Для извлечённого элемента ничего не делает.
+     */
+    void update(int item) {
+        int position = positions[item];
+        if (position == REMOVED) {
+            return;
+        }
+        if (position == ABSENT) {
+            position = size++;
+        }
+        siftUp(item, position);
+    }
+
+    /**
+     * Добавляет элемент в конец кучи без восстановления порядка —
+     * для массового построения; после всех добавлений нужен {@link #heapify()}.
+     * Элемент не должен находиться в куче.
+     */
+    void append(int item) {
+        heap[size] = item;
+        positions[item] = size++;
+    }
+
+    /**
+     * Восстанавливает порядок кучи после {@link #append(int)}. Сложность: O(n).
+     */
+    void heapify() {
+        for (int position = (size - 2) / ARITY; position >= 0; position--) {
+            siftDown(heap[position], position);
+        }
+    }
+
+    /**
+     * @return элемент с минимальным ключом без извлечения (куча не пуста)
+     */
+    int peek() {
+        return heap[0];
+    }
+
+    /**
+     * Извлекает элемент с минимальным ключом.
+     *
+     * @return элемент
+     */
+    int pop() {
+        int top = heap[0];
+        positions[top] = REMOVED;
+        int last = heap[--size];
+        if (size > 0) {
+            siftDown(last, 0);
+        }
+        return top;
+    }
+
+    /**
+     * Помечает элемент извлечённым, не трогая кучу
+     * (для поиска с собственной очередью, см. {@link SearchWorkspace#settle(int)}).
+     * Элемент не должен находиться в куче.
+     */
+    void markRemoved(int item) {
+        positions[item] = REMOVED;
+    }
+
+    /**
+     * Забывает элемент: он снова считается не попадавшим в кучу.
+     * Элемент не должен находиться в куче.
+     */
+    void forget(int item) {
+        positions[item] = ABSENT;
+    }
+
+    /**
+     * Опустошает кучу и забывает извлечённые элементы. Сложность: O(V).
+     */
+    void clear() {
+        size = 0;
+        Arrays.fill(positions, ABSENT);
+    }
+
+    /**
+     * Опустошает кучу за O(1), не сбрасывая позиции: перед первым
+     * обращением к каждому элементу вызывающий код сам вызывает {@link #forget(int)}.
+     */
+    void truncate() {
+        size = 0;
+    }
+
+    /**
+     * @return байты кучи без массива ключей (см. {@link MemoryReport})
+     */
+    static long footprint(int capacity) {
+        return MemoryReport.align(MemoryReport.OBJECT_HEADER + 3 * MemoryReport.REFERENCE + 4)
+                + 2 * MemoryReport.array(capacity, Integer.BYTES);
+    }
+
+    private void siftUp(int item, int position) {
+        int key = keys[item];
+        while (position > 0) {
+            int parentPosition = (position - 1) / ARITY;
+            int parent = heap[parentPosition];
+            if (keys[parent] <= key) {
+                break;
+            }
+            heap[position] = parent;
+            positions[parent] = position;
+            position = parentPosition;
+        }
+        heap[position] = item;
+        positions[item] = position;
+    }
+
+    private void siftDown(int item, int position) {
+        int key = keys[item];
+        while (true) {
+            int first = position * ARITY + 1;
+            if (first >= size) {
+                break;
+            }
+            int last = Math.min(first + ARITY, size);
+            int best = first;
+            int bestKey = keys[heap[first]];
+            for (int child = first + 1; child < last; child++) {
+                int childKey = keys[heap[child]];
+                if (childKey < bestKey) {
+                    best = child;
+                    bestKey = childKey;
+                }
+            }
+            if (bestKey >= key) {
+                break;
+            }
+            int child = heap[best];
+            heap[position] = child;
+            positions[child] = position;
+            position = best;
+        }
+        heap[position] = item;
+        positions[item] = position;
+    }
+}
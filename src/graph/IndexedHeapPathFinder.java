@@ -0,0 +1,116 @@
+package graph;
+
+import model.City;
+import model.Criterion;
+import model.Route;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Алгоритм Дейкстры на индексированной d-арной куче ({@link IndexedHeap}) с decrease-key.
+ *
+ * В отличие от {@link DijkstraPathFinder}, улучшение расстояния не создаёт
+ * новый узел очереди: город уже в куче поднимается на новое место, поэтому
+ * в куче не больше V элементов и нет устаревших записей, которые нужно
+ * пропускать. Всё состояние поиска — примитивные массивы по плотным
+ * индексам городов; на релаксацию ребра не выделяется память.
+ * Признак обработанной вершины хранится в массиве позиций кучи.
+ *
+ * Массивы не выделяются и не заполняются на каждый запрос: у каждого потока
+ * своя {@link SearchWorkspace} с отметками эпох, поэтому запрос обходит
+ * только затронутые вершины, и поиск можно вызывать из нескольких потоков.
+ *
+ * Временная сложность: O(E · log_d V + V · d · log_d V) по затронутой части графа.
+ * Пространственная сложность: пять массивов int[V] на поток, на запрос — O(1).
+ */
+public class IndexedHeapPathFinder implements PathFinder {
+
+    private final Supplier<? extends SearchGraph> graphSource;
+    private final ThreadLocal<SearchWorkspace> workspaces = ThreadLocal.withInitial(SearchWorkspace::new);
+
+    /**
+     * Создаёт поиск по изменяемому графу.
+     * Каждый запрос выполняется по актуальному CSR-снимку графа.
+     *
+     * @param graph граф дорожной сети
+     */
+    public IndexedHeapPathFinder(Graph graph) {
+        this.graphSource = graph::snapshot;
+    }
+
+    /**
+     * Создаёт поиск по готовому индексному представлению графа.
+     *
+     * @param graph индексное представление графа (например, {@link CompactGraph})
+     */
+    public IndexedHeapPathFinder(SearchGraph graph) {
+        this.graphSource = () -> graph;
+    }
+
+    @Override
+    public Route findPath(City from, City to, Criterion criterion) {
+        return findPath(graphSource.get(), from, to, criterion);
+    }
+
+    @Override
+    public Map<Criterion, Route> findAllOptimalPaths(City from, City to) {
+        SearchGraph graph = graphSource.get();
+        Map<Criterion, Route> results = new LinkedHashMap<>();
+        for (Criterion criterion : graph.getCriteria()) {
+            results.put(criterion, findPath(graph, from, to, criterion));
+        }
+        return results;
+    }
+
+    /**
+     * Поиск по указанному снимку графа в рабочей области вызывающего потока.
+     */
+    Route findPath(SearchGraph graph, City from, City to, Criterion criterion) {
+        int source = graph.indexOf(from);
+        int target = graph.indexOf(to);
+        if (source < 0 || target < 0) {
+            return Route.empty();
+        }
+
+        SearchWorkspace workspace = workspaces.get();
+        workspace.begin(graph.getCityCount());
+        IndexedHeap heap = workspace.heap();
+        EdgeCursor edges = graph.edgeCursor();
+
+        workspace.relax(source, 0, RouteReconstructor.NO_PREDECESSOR);
+        heap.update(source);
+
+        while (!heap.isEmpty()) {
+            int current = heap.pop();
+            if (current == target) {
+                return RouteReconstructor.build(graph, workspace.predecessors(), target, criterion);
+            }
+
+            int distance = workspace.distance(current);
+            edges.moveTo(current);
+            while (edges.next()) {
+                int neighbor = edges.target();
+                int newDistance = distance + edges.weight(criterion);
+                if (newDistance < workspace.distance(neighbor) && !workspace.isSettled(neighbor)) {
+                    workspace.relax(neighbor, newDistance, current);
+                    heap.update(neighbor);
+                }
+            }
+        }
+        return Route.empty();
+    }
+
+    /**
+     * Память рабочей области одного потока: расстояния, предшественники, отметки эпох и куча.
+     */
+    @Override
+    public MemoryReport memoryReport() {
+        int cityCount = graphSource.get().getCityCount();
+        MemoryReport report = new MemoryReport("Дейкстра на индексированной куче: рабочая область потока");
+        report.add("Рабочие массивы", SearchWorkspace.footprint(cityCount) - IndexedHeap.footprint(cityCount), 0);
+        report.add("Куча", IndexedHeap.footprint(cityCount), 0);
+        return report;
+    }
+}
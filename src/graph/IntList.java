@@ -0,0 +1,95 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * Растущий массив примитивных int (аналог ArrayList&lt;Integer&gt; без упаковки).
+ * Используется для хранения столбцов рёбер и списков смежности графа.
+ */
+final class IntList {
+
+    private int[] values;
+    private int size;
+
+    IntList() {
+        this(4);
+    }
+
+    IntList(int initialCapacity) {
+        this.values = new int[Math.max(1, initialCapacity)];
+    }
+
+    /**
+     * Оборачивает готовый массив без копирования (для массового построения).
+     */
+    IntList(int[] values) {
+        this.values = values.length == 0 ? new int[1] : values;
+        this.size = values.length;
+    }
+
+    void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size + (size >> 1) + 1);
+        }
+        values[size++] = value;
+    }
+
+    int get(int index) {
+        return values[index];
+    }
+
+    void set(int index, int value) {
+        values[index] = value;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Разворачивает порядок элементов на месте.
+     */
+    void reverse() {
+        for (int i = 0, j = size - 1; i < j; i++, j--) {
+            int tmp = values[i];
+            values[i] = values[j];
+            values[j] = tmp;
+        }
+    }
+
+    /**
+     * Отбрасывает элементы с индексами >= size.
+     */
+    void truncate(int size) {
+        this.size = size;
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    /**
+     * Освобождает запас ёмкости сверх size.
+     */
+    void trim() {
+        if (values.length > Math.max(1, size)) {
+            values = Arrays.copyOf(values, Math.max(1, size));
+        }
+    }
+
+    /**
+     * @return байты объекта и массива (см. {@link MemoryReport})
+     */
+    long footprint() {
+        return MemoryReport.align(MemoryReport.OBJECT_HEADER + MemoryReport.REFERENCE + 4)
+                + MemoryReport.array(values.length, Integer.BYTES);
+    }
+
+    /**
+     * @return байты, которые освободит {@link #trim()}
+     */
+    long unusedBytes() {
+        return MemoryReport.array(values.length, Integer.BYTES)
+                - MemoryReport.array(Math.max(1, size), Integer.BYTES);
+    }
+}
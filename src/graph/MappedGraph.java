@@ -0,0 +1,280 @@
+package graph;
+
+import model.City;
+import model.CriteriaSet;
+import model.Criterion;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Граф, отображённый в память из двоичного файла {@link GraphFile}.
+ * 
+ * Открытие файла читает только заголовок и отображает секции
+ * через {@link FileChannel#map}: массивы не разбираются и не копируются,
+ * страницы подгружаются операционной системой при первом обращении.
+ * Поэтому запуск занимает миллисекунды независимо от размера графа,
+ * а несколько процессов разделяют одни и те же страницы кэша.
+ * 
+ * Файл графа с односторонними дорогами содержит и входящие рёбра
+ * для обратного поиска; в файле неориентированного графа их нет.
+ * 
+ * Каждая секция ограничена 2 ГБ (до ~500 млн направленных рёбер).
+ */
+public final class MappedGraph implements SearchGraph {
+
+    private final int cityCount;
+    private final CriteriaSet criteria;
+    private final IntBuffer offsets;
+    private final IntBuffer targets;
+    private final IntBuffer[] weights;
+    private final IntBuffer reverseOffsets;
+    private final IntBuffer reverseTargets;
+    private final IntBuffer[] reverseWeights;
+    private final LongBuffer cityIds;
+    private final IntBuffer nameOffsets;
+    private final ByteBuffer names;
+    private final LongBuffer idKeys;
+    private final IntBuffer idValues;
+    private final IntBuffer nameSlots;
+
+    private MappedGraph(FileChannel channel) throws IOException {
+        long fileSize = channel.size();
+        if (fileSize < GraphFile.HEADER_SIZE) {
+            throw new IllegalArgumentException("Неверный формат файла графа: файл короче заголовка");
+        }
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, GraphFile.HEADER_SIZE);
+        if (header.getInt() != GraphFile.MAGIC) {
+            throw new IllegalArgumentException("Неверный формат файла графа: нет магического числа");
+        }
+        int version = header.getInt();
+        if (version != GraphFile.FORMAT_VERSION) {
+            throw new IllegalArgumentException("Неподдерживаемая версия файла графа: " + version);
+        }
+        this.cityCount = header.getInt();
+        int edgeCount = header.getInt();
+        int criteriaCount = header.getInt();
+        int idCapacity = header.getInt();
+        int nameCapacity = header.getInt();
+        int flags = header.getInt();
+        long nameBytes = header.getLong();
+        int criteriaBytes = header.getInt();
+
+        Sections sections = new Sections(channel, GraphFile.HEADER_SIZE);
+        this.offsets = sections.ints(cityCount + 1L);
+        this.targets = sections.ints(edgeCount);
+        this.weights = new IntBuffer[criteriaCount];
+        for (int c = 0; c < criteriaCount; c++) {
+            weights[c] = sections.ints(edgeCount);
+        }
+        if ((flags & GraphFile.FLAG_DIRECTED) != 0) {
+            this.reverseOffsets = sections.ints(cityCount + 1L);
+            this.reverseTargets = sections.ints(edgeCount);
+            this.reverseWeights = new IntBuffer[criteriaCount];
+            for (int c = 0; c < criteriaCount; c++) {
+                reverseWeights[c] = sections.ints(edgeCount);
+            }
+        } else {
+            this.reverseOffsets = offsets;
+            this.reverseTargets = targets;
+            this.reverseWeights = weights;
+        }
+        this.cityIds = sections.next(8L * cityCount).asLongBuffer();
+        this.nameOffsets = sections.ints(cityCount + 1L);
+        this.names = sections.next(nameBytes);
+        this.idKeys = sections.next(8L * idCapacity).asLongBuffer();
+        this.idValues = sections.ints(idCapacity);
+        this.nameSlots = sections.ints(nameCapacity);
+        byte[] criteriaNames = new byte[criteriaBytes];
+        sections.next(criteriaBytes).get(criteriaNames);
+        this.criteria = GraphFile.decodeCriteria(criteriaNames);
+        if (criteria.size() != criteriaCount) {
+            throw new IllegalArgumentException("Неверный формат файла графа: " + criteriaCount
+                    + " столбцов весов при " + criteria.size() + " критериях");
+        }
+        if (sections.position != fileSize) {
+            throw new IllegalArgumentException("Неверный формат файла графа: размер " + fileSize
+                    + " байт, ожидалось " + sections.position);
+        }
+    }
+
+    /**
+     * Отображает файл графа в память.
+     * 
+     * @param path путь к файлу, записанному {@link GraphFile#write}
+     * @return граф, готовый к поиску
+     * @throws IOException              при ошибке чтения
+     * @throws IllegalArgumentException если файл не является файлом графа
+     */
+    public static MappedGraph open(Path path) throws IOException {
+        // Отображение остаётся действительным и после закрытия канала
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new MappedGraph(channel);
+        }
+    }
+
+    /**
+     * Последовательное отображение секций файла.
+     */
+    private static final class Sections {
+        final FileChannel channel;
+        long position;
+
+        Sections(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+        }
+
+        MappedByteBuffer next(long bytes) throws IOException {
+            if (bytes > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Секция файла графа превышает 2 ГБ: " + bytes + " байт");
+            }
+            if (position + bytes > channel.size()) {
+                throw new IllegalArgumentException("Неверный формат файла графа: файл обрезан");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, bytes);
+            position += GraphFile.aligned(bytes);
+            return buffer;
+        }
+
+        IntBuffer ints(long count) throws IOException {
+            return next(4L * count).asIntBuffer();
+        }
+    }
+
+    @Override
+    public int getCityCount() {
+        return cityCount;
+    }
+
+    @Override
+    public CriteriaSet getCriteria() {
+        return criteria;
+    }
+
+    /**
+     * Создаёт объект города по данным файла.
+     * Повторные вызовы возвращают равные (equals), но разные объекты.
+     */
+    @Override
+    public City getCity(int index) {
+        int begin = nameOffsets.get(index);
+        byte[] name = new byte[nameOffsets.get(index + 1) - begin];
+        names.get(begin, name);
+        return new City(cityIds.get(index), new String(name, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public int indexOf(City city) {
+        long id = city.getId();
+        int mask = idValues.capacity() - 1;
+        for (int slot = CityIdIndex.hash(id) & mask; ; slot = (slot + 1) & mask) {
+            int value = idValues.get(slot);
+            if (value == GraphFile.EMPTY || idKeys.get(slot) == id) {
+                return value;
+            }
+        }
+    }
+
+    /**
+     * Находит город по названию через таблицу названий файла.
+     * 
+     * @param name название города
+     * @return город или null, если не найден
+     */
+    public City getCityByName(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int mask = nameSlots.capacity() - 1;
+        for (int slot = GraphFile.nameHash(name) & mask; ; slot = (slot + 1) & mask) {
+            int city = nameSlots.get(slot);
+            if (city == GraphFile.EMPTY) {
+                return null;
+            }
+            if (nameEquals(city, bytes)) {
+                return getCity(city);
+            }
+        }
+    }
+
+    private boolean nameEquals(int city, byte[] bytes) {
+        int begin = nameOffsets.get(city);
+        if (nameOffsets.get(city + 1) - begin != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (names.get(begin + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Возвращает количество направленных рёбер.
+     * 
+     * @return число рёбер
+     */
+    public int getEdgeCount() {
+        return targets.capacity();
+    }
+
+    @Override
+    public EdgeCursor edgeCursor() {
+        return new Cursor(offsets, targets, weights);
+    }
+
+    @Override
+    public EdgeCursor reverseEdgeCursor() {
+        return new Cursor(reverseOffsets, reverseTargets, reverseWeights);
+    }
+
+    @Override
+    public boolean isDirected() {
+        return reverseTargets != targets;
+    }
+
+    /**
+     * Курсор по непрерывному диапазону рёбер отображённого файла.
+     */
+    private static final class Cursor implements EdgeCursor {
+        private final IntBuffer offsets;
+        private final IntBuffer targets;
+        private final IntBuffer[] weights;
+        private int edge;
+        private int end;
+
+        Cursor(IntBuffer offsets, IntBuffer targets, IntBuffer[] weights) {
+            this.offsets = offsets;
+            this.targets = targets;
+            this.weights = weights;
+        }
+
+        @Override
+        public void moveTo(int city) {
+            edge = offsets.get(city) - 1;
+            end = offsets.get(city + 1);
+        }
+
+        @Override
+        public boolean next() {
+            return ++edge < end;
+        }
+
+        @Override
+        public int target() {
+            return targets.get(edge);
+        }
+
+        @Override
+        public int weight(Criterion criterion) {
+            return weights[criterion.index()].get(edge);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Отчёт о занимаемой памяти по составным частям структуры.
+ *
+ * Размеры считаются по самим массивам и объектам структуры, а не по
+ * разнице {@code Runtime.freeMemory()}, поэтому не зависят от сборщика мусора
+ * и повторяются от запуска к запуску. Раскладка объектов — 64-битная HotSpot
+ * со сжатыми указателями (куча меньше 32 ГБ): заголовок объекта 12 байт,
+ * заголовок массива 16 байт, ссылка 4 байта, выравнивание по 8 байт.
+ *
+ * Для каждой части кроме занятых байт указывается, сколько освободит
+ * уплотнение ({@link Graph#compact()}): обрезка запаса растущих массивов
+ * и общие строки для одинаковых названий.
+ */
+public final class MemoryReport {
+
+    /** Заголовок объекта */
+    static final int OBJECT_HEADER = 12;
+
+    /** Заголовок массива (заголовок объекта + длина) */
+    static final int ARRAY_HEADER = 16;
+
+    /** Сжатая ссылка */
+    static final int REFERENCE = 4;
+
+    /** ArrayList: заголовок, modCount, size, ссылка на массив */
+    static final long ARRAY_LIST = align(OBJECT_HEADER + 4 + 4 + REFERENCE);
+
+    private final String title;
+    private final Map<String, long[]> parts = new LinkedHashMap<>();
+
+    MemoryReport(String title) {
+        this.title = title;
+    }
+
+    /**
+     * Добавляет часть структуры (повторное добавление суммируется).
+     *
+     * @param part        название части
+     * @param bytes       занятые байты
+     * @param reclaimable байты, которые освободит уплотнение
+     */
+    void add(String part, long bytes, long reclaimable) {
+        long[] sizes = parts.computeIfAbsent(part, key -> new long[2]);
+        sizes[0] += bytes;
+        sizes[1] += reclaimable;
+    }
+
+    /**
+     * Возвращает названия частей в порядке добавления.
+     *
+     * @return названия частей
+     */
+    public List<String> getParts() {
+        return Collections.unmodifiableList(new ArrayList<>(parts.keySet()));
+    }
+
+    /**
+     * Возвращает занятые частью байты.
+     *
+     * @param part название части
+     * @return байты или 0, если такой части нет
+     */
+    public long getBytes(String part) {
+        long[] sizes = parts.get(part);
+        return sizes == null ? 0 : sizes[0];
+    }
+
+    /**
+     * Возвращает байты части, которые освободит уплотнение.
+     *
+     * @param part название части
+     * @return байты или 0, если такой части нет
+     */
+    public long getReclaimableBytes(String part) {
+        long[] sizes = parts.get(part);
+        return sizes == null ? 0 : sizes[1];
+    }
+
+    /**
+     * @return сумма по всем частям
+     */
+    public long getTotalBytes() {
+        long total = 0;
+        for (long[] sizes : parts.values()) {
+            total += sizes[0];
+        }
+        return total;
+    }
+
+    /**
+     * @return сколько всего освободит уплотнение
+     */
+    public long getTotalReclaimableBytes() {
+        long total = 0;
+        for (long[] sizes : parts.values()) {
+            total += sizes[1];
+        }
+        return total;
+    }
+
+    /**
+     * Таблица «часть — байты — освободит уплотнение».
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(title).append('\n');
+        for (Map.Entry<String, long[]> entry : parts.entrySet()) {
+            sb.append(String.format("  %-24s %,14d  %,12d%n", entry.getKey(), entry.getValue()[0], entry.getValue()[1]));
+        }
+        sb.append(String.format("  %-24s %,14d  %,12d", "Всего", getTotalBytes(), getTotalReclaimableBytes()));
+        return sb.toString();
+    }
+
+    /**
+     * Округляет размер объекта до границы выравнивания.
+     */
+    static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    /**
+     * Размер массива из length элементов по elementSize байт.
+     */
+    static long array(long length, int elementSize) {
+        return align(ARRAY_HEADER + length * elementSize);
+    }
+
+    /**
+     * Размер массива массивов int (столбцы весов по критериям).
+     */
+    static long columns(int[][] columns) {
+        long bytes = array(columns.length, REFERENCE);
+        for (int[] column : columns) {
+            bytes += array(column.length, Integer.BYTES);
+        }
+        return bytes;
+    }
+
+    /**
+     * Наибольший размер очереди Дейкстры с ленивым удалением: объект
+     * {@code PriorityQueue}, массив элементов и узлы {@link DijkstraNode}.
+     *
+     * @param entries наибольшее число элементов (не больше числа рёбер + 1)
+     */
+    static long queue(long entries) {
+        return align(OBJECT_HEADER + 2 * REFERENCE + 4 + 4)
+                + array(entries, REFERENCE)
+                + entries * align(OBJECT_HEADER + 4 + 4);
+    }
+
+    /**
+     * Массивы поиска по индексам городов: расстояния, предшественники, посещённые.
+     */
+    static long searchArrays(int cityCount) {
+        return 2 * array(cityCount, Integer.BYTES) + array(cityCount, 1);
+    }
+
+    /**
+     * Число направленных рёбер представления графа (обход курсором).
+     */
+    static long edgeCount(SearchGraph graph) {
+        EdgeCursor cursor = graph.edgeCursor();
+        long count = 0;
+        for (int city = 0; city < graph.getCityCount(); city++) {
+            cursor.moveTo(city);
+            while (cursor.next()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Размер строки: объект String (значение, hash, coder, hashIsZero) и массив символов
+     * в Latin-1 (1 байт на символ) или UTF-16 (2 байта, например для кириллицы).
+     */
+    static long string(String value) {
+        boolean latin1 = true;
+        for (int i = 0; i < value.length() && latin1; i++) {
+            latin1 = value.charAt(i) < 256;
+        }
+        return align(OBJECT_HEADER + REFERENCE + 4 + 1 + 1) + array(value.length(), latin1 ? 1 : 2);
+    }
+
+    /**
+     * Размер строк без повторного учёта одного и того же объекта.
+     *
+     * @param strings строки
+     * @param seen    уже учтённые объекты строк
+     * @return байты ещё не учтённых строк
+     */
+    static long strings(Iterable<String> strings, IdentityHashMap<String, Boolean> seen) {
+        long bytes = 0;
+        for (String value : strings) {
+            if (seen.put(value, Boolean.TRUE) == null) {
+                bytes += string(value);
+            }
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,71 @@
+package graph;
+
+/**
+ * Монотонная очередь с приоритетом по целым неотрицательным ключам.
+ *
+ * В алгоритме Дейкстры ключ извлекаемой вершины не убывает, а ключ новой
+ * записи не меньше последнего извлечённого и превышает его не больше чем
+ * на наибольший вес ребра C. Целочисленные очереди используют это свойство
+ * и обходятся без сравнений элементов между собой:
+ * <ul>
+ *   <li>{@link DialQueue} — C + 1 корзин по кругу: O(1) на вставку и извлечение
+ *       плюс O(D) на проход по корзинам, где D — расстояние до цели;</li>
+ *   <li>{@link RadixHeap} — 33 корзины по старшему отличающемуся биту ключа:
+ *       O(log C) амортизированно на запись независимо от величины весов.</li>
+ * </ul>
+ *
+ * Удаления и decrease-key нет: улучшенное расстояние добавляется новой записью,
+ * а устаревшие записи вызывающий код пропускает при извлечении.
+ * Очередь не потокобезопасна и переиспользуется между запросами через {@link #clear()}.
+ */
+interface MonotoneQueue {
+
+    /**
+     * Наибольший вес ребра, при котором выбирается {@link DialQueue}:
+     * корзины занимают не больше 4096 ссылок, а их обход дешевле просеивания кучи.
+     */
+    int DIAL_MAX_WEIGHT = 4096;
+
+    /**
+     * Добавляет запись.
+     *
+     * @param item элемент (индекс города)
+     * @param key  ключ: не меньше {@link #lastKey()} и не больше {@code lastKey() + C}
+     */
+    void push(int item, int key);
+
+    boolean isEmpty();
+
+    /**
+     * Извлекает запись с минимальным ключом; ключ доступен через {@link #lastKey()}.
+     *
+     * @return элемент
+     */
+    int pop();
+
+    /**
+     * @return ключ последней извлечённой записи (0 до первого извлечения)
+     */
+    int lastKey();
+
+    /**
+     * Опустошает очередь и сбрасывает последний ключ в 0.
+     */
+    void clear();
+
+    /**
+     * @return байты очереди с entries записями (см. {@link MemoryReport})
+     */
+    long footprint(long entries);
+
+    /**
+     * Выбирает очередь по наибольшему весу ребра критерия: корзины Дейкстры
+     * для малых весов (минуты, километры), radix-куча для больших.
+     *
+     * @param maxWeight наибольший вес ребра
+     * @return пустая очередь
+     */
+    static MonotoneQueue forMaxWeight(int maxWeight) {
+        return maxWeight <= DIAL_MAX_WEIGHT ? new DialQueue(maxWeight) : new RadixHeap();
+    }
+}
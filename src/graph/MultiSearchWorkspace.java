@@ -0,0 +1,197 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * Рабочая область поиска по нескольким критериям сразу: метки всех критериев
+ * одного города лежат рядом.
+ *
+ * Метка (город, критерий) имеет номер {@code city * K + k}; расстояния,
+ * предшественники, просмотренные расстояния и позиции в куче — массивы по
+ * этим номерам. Поэтому при просмотре ребра метки соседа по всем K критериям
+ * читаются из одной строки кэша, а не из K разных массивов. У каждого
+ * критерия своя {@link IndexedHeap}, но все кучи делят один массив позиций:
+ * множества их элементов (метки своего критерия) не пересекаются.
+ *
+ * Метку критерия, поиск по которому ещё не начат, можно улучшать без кучи
+ * ({@link #improve(int, int, int)}): куча строится из всех достигнутых меток
+ * за линейное время при старте поиска ({@link #startHeap(int)}).
+ *
+ * Как и в {@link SearchWorkspace}, начальное состояние задаётся отметкой
+ * эпохи у города, поэтому запрос стоит O(затронутых городов · K), а не O(V · K).
+ * Рабочая область не потокобезопасна: поиск хранит её по одной на поток.
+ *
+ * Память: (4K + 2) int на город плюс K массивов куч по V.
+ */
+final class MultiSearchWorkspace {
+
+    private int criteriaCount;
+    private int[] stamps = new int[0];
+    private int[] distances = new int[0];
+    private int[] predecessors = new int[0];
+    private int[] scanned = new int[0];
+    private int[] positions = new int[0];
+    private IndexedHeap[] heaps = new IndexedHeap[0];
+    private int[] touched = new int[0];
+    private int touchedCount;
+    private int epoch;
+
+    /**
+     * Начинает новый запрос: O(K), кроме роста массивов и переполнения счётчика эпох.
+     *
+     * @param cityCount     число городов графа запроса
+     * @param criteriaCount число критериев K
+     */
+    void begin(int cityCount, int criteriaCount) {
+        if (stamps.length < cityCount || this.criteriaCount != criteriaCount) {
+            int labels = cityCount * criteriaCount;
+            this.criteriaCount = criteriaCount;
+            stamps = new int[cityCount];
+            touched = new int[cityCount];
+            distances = new int[labels];
+            predecessors = new int[labels];
+            scanned = new int[labels];
+            positions = new int[labels];
+            heaps = new IndexedHeap[criteriaCount];
+            for (int k = 0; k < criteriaCount; k++) {
+                heaps[k] = new IndexedHeap(distances, positions, cityCount);
+            }
+            epoch = 0;
+        }
+        if (epoch == Integer.MAX_VALUE) {
+            // Раз в ~2 млрд запросов отметки сбрасываются целиком
+            Arrays.fill(stamps, 0);
+            epoch = 0;
+        }
+        epoch++;
+        touchedCount = 0;
+        for (IndexedHeap heap : heaps) {
+            heap.truncate();
+        }
+    }
+
+    /**
+     * @return номер метки (город, критерий) — индекс в массивах и элемент кучи критерия
+     */
+    int label(int city, int criterion) {
+        return city * criteriaCount + criterion;
+    }
+
+    /**
+     * @return город метки
+     */
+    int city(int label) {
+        return label / criteriaCount;
+    }
+
+    /**
+     * Делает метки города начальными для текущего запроса, если он ещё не затронут.
+     * Вызывается перед чтением меток города через {@link #distance(int)} и другие методы.
+     *
+     * @return первая метка города ({@code label(city, 0)})
+     */
+    int touch(int city) {
+        int first = city * criteriaCount;
+        if (stamps[city] != epoch) {
+            stamps[city] = epoch;
+            touched[touchedCount++] = city;
+            for (int label = first; label < first + criteriaCount; label++) {
+                distances[label] = Integer.MAX_VALUE;
+                scanned[label] = Integer.MAX_VALUE;
+                heaps[0].forget(label);
+            }
+        }
+        return first;
+    }
+
+    /**
+     * @return true, если город затронут текущим запросом
+     */
+    boolean isTouched(int city) {
+        return stamps[city] == epoch;
+    }
+
+    /**
+     * @return расстояние метки затронутого города ({@link Integer#MAX_VALUE} — не достигнута)
+     */
+    int distance(int label) {
+        return distances[label];
+    }
+
+    /**
+     * Записывает улучшенное расстояние и предшественника и обновляет кучу критерия.
+     */
+    void relax(int label, int criterion, int distance, int predecessor) {
+        distances[label] = distance;
+        predecessors[label] = predecessor;
+        heaps[criterion].update(label);
+    }
+
+    /**
+     * Записывает улучшенное расстояние и предшественника, не трогая кучу:
+     * для критерия, поиск по которому ещё не начат.
+     */
+    void improve(int label, int distance, int predecessor) {
+        distances[label] = distance;
+        predecessors[label] = predecessor;
+    }
+
+    /**
+     * Строит кучу критерия из всех достигнутых меток затронутых городов. Сложность: O(затронутых городов).
+     */
+    void startHeap(int criterion) {
+        IndexedHeap heap = heaps[criterion];
+        for (int i = 0; i < touchedCount; i++) {
+            int label = touched[i] * criteriaCount + criterion;
+            if (distances[label] != Integer.MAX_VALUE) {
+                heap.append(label);
+            }
+        }
+        heap.heapify();
+    }
+
+    /**
+     * @return город-предшественник метки ({@link RouteReconstructor#NO_PREDECESSOR} для начальной)
+     */
+    int predecessor(int label) {
+        return predecessors[label];
+    }
+
+    /**
+     * @return true, если метка окончательна (извлечена из кучи своего критерия)
+     */
+    boolean isSettled(int label) {
+        return heaps[0].isRemoved(label);
+    }
+
+    /**
+     * Запоминает, что рёбра города релаксированы с текущим расстоянием метки.
+     */
+    void markScanned(int label) {
+        scanned[label] = distances[label];
+    }
+
+    /**
+     * @return true, если рёбра города уже релаксированы с текущим расстоянием метки
+     */
+    boolean isScanned(int label) {
+        return scanned[label] == distances[label];
+    }
+
+    IndexedHeap heap(int criterion) {
+        return heaps[criterion];
+    }
+
+    /**
+     * @return байты рабочей области на графе из cityCount городов и criteriaCount критериев
+     */
+    static long footprint(int cityCount, int criteriaCount) {
+        long labels = (long) cityCount * criteriaCount;
+        long heapObject = MemoryReport.align(MemoryReport.OBJECT_HEADER + 3 * MemoryReport.REFERENCE + 4);
+        return MemoryReport.align(MemoryReport.OBJECT_HEADER + 7 * MemoryReport.REFERENCE + 4 + 4 + 4)
+                + 2 * MemoryReport.array(cityCount, Integer.BYTES)
+                + 4 * MemoryReport.array(labels, Integer.BYTES)
+                + MemoryReport.array(criteriaCount, MemoryReport.REFERENCE)
+                + criteriaCount * (heapObject + MemoryReport.array(cityCount, Integer.BYTES));
+    }
+}
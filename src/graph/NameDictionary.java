@@ -0,0 +1,300 @@
+package graph;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Неизменяемый словарь названий городов: название -> индекс.
+ * 
+ * Все названия хранятся в одном массиве байт UTF-8 с таблицей смещений,
+ * а индекс по названию находится через минимальную совершенную хеш-функцию
+ * (схема hash-and-displace): ключи раскладываются по корзинам, и для каждой
+ * корзины подбирается смещение, при котором её ключи попадают в свободные
+ * ячейки таблицы из ровно n ячеек. Корзины из одного ключа занимают
+ * оставшиеся ячейки напрямую (смещение хранит номер ячейки со знаком минус),
+ * поэтому построение не замедляется на последних свободных ячейках. Поиск — одно вычисление хеша по символам
+ * строки, одно чтение смещения и одно сравнение с байтами UTF-8 без создания
+ * объектов.
+ * 
+ * Память: длина названий в UTF-8 + 4·(n + 1) смещений + 4·n ячеек + 4·n/3 смещений корзин.
+ * Построение: O(n) в среднем.
+ */
+public final class NameDictionary {
+
+    private static final int NOT_FOUND = -1;
+    private static final int KEYS_PER_BUCKET = 3;
+    private static final int MAX_DISPLACEMENT = 1 << 20;
+
+    /** Названия в UTF-8: название i занимает arena[offsets[i] .. offsets[i + 1]) */
+    private final byte[] arena;
+    private final int[] offsets;
+
+    /** Ячейка хеш-таблицы -> индекс названия */
+    private final int[] slots;
+
+    /** Смещение, подобранное для каждой корзины */
+    private final int[] displacements;
+    private final long seed;
+
+    /**
+     * Строит словарь. Названия с одинаковым текстом допускаются:
+     * поиск возвращает наибольший индекс среди совпадающих.
+     * 
+     * @param names названия по индексам 0..n-1
+     */
+    public NameDictionary(String[] names) {
+        int count = names.length;
+        this.offsets = new int[count + 1];
+        byte[][] encoded = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            encoded[i] = names[i].getBytes(StandardCharsets.UTF_8);
+            offsets[i + 1] = Math.addExact(offsets[i], encoded[i].length);
+        }
+        this.arena = new byte[offsets[count]];
+        for (int i = 0; i < count; i++) {
+            System.arraycopy(encoded[i], 0, arena, offsets[i], encoded[i].length);
+        }
+
+        // В хеш-таблицу попадают только уникальные названия (последнее по индексу)
+        Map<String, Integer> unique = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            unique.put(names[i], i);
+        }
+        String[] keys = new String[unique.size()];
+        int[] values = new int[unique.size()];
+        int k = 0;
+        for (Map.Entry<String, Integer> entry : unique.entrySet()) {
+            keys[k] = entry.getKey();
+            values[k] = entry.getValue();
+            k++;
+        }
+
+        int bucketCount = Math.max(1, keys.length / KEYS_PER_BUCKET);
+        this.slots = new int[keys.length];
+        this.displacements = new int[bucketCount];
+        long attempt = 0x9E3779B97F4A7C15L;
+        while (!build(keys, values, attempt)) {
+            attempt = mix(attempt + 1);
+        }
+        this.seed = attempt;
+    }
+
+    /**
+     * Подбирает смещения корзин для заданного зерна хеша.
+     * 
+     * @return false, если для какой-то корзины смещение не найдено (нужно другое зерно)
+     */
+    private boolean build(String[] keys, int[] values, long seed) {
+        int n = keys.length;
+        int bucketCount = displacements.length;
+        long[] hashes = new long[n];
+        int[] bucketSizes = new int[bucketCount];
+        for (int i = 0; i < n; i++) {
+            hashes[i] = hash(keys[i], seed);
+            bucketSizes[bucket(hashes[i], bucketCount)]++;
+        }
+
+        // Ключи сгруппированы по корзинам (сортировка подсчётом)
+        int[] bucketStart = new int[bucketCount + 1];
+        for (int b = 0; b < bucketCount; b++) {
+            bucketStart[b + 1] = bucketStart[b] + bucketSizes[b];
+        }
+        int[] bucketKeys = new int[n];
+        int[] fill = Arrays.copyOf(bucketStart, bucketCount);
+        for (int i = 0; i < n; i++) {
+            bucketKeys[fill[bucket(hashes[i], bucketCount)]++] = i;
+        }
+
+        // Корзины обрабатываются от больших к малым, пока свободных ячеек много
+        int maxSize = 0;
+        for (int size : bucketSizes) {
+            maxSize = Math.max(maxSize, size);
+        }
+        int[] bySizeStart = new int[maxSize + 2];
+        for (int size : bucketSizes) {
+            bySizeStart[maxSize - size + 1]++;
+        }
+        for (int i = 1; i < bySizeStart.length; i++) {
+            bySizeStart[i] += bySizeStart[i - 1];
+        }
+        int[] order = new int[bucketCount];
+        for (int b = 0; b < bucketCount; b++) {
+            order[bySizeStart[maxSize - bucketSizes[b]]++] = b;
+        }
+
+        boolean[] taken = new boolean[n];
+        int[] candidate = new int[maxSize];
+        Arrays.fill(displacements, 0);
+        int freeSlot = 0;
+        for (int bucket : order) {
+            int begin = bucketStart[bucket];
+            int size = bucketStart[bucket + 1] - begin;
+            if (size == 0) {
+                break;
+            }
+            if (size == 1) {
+                while (taken[freeSlot]) {
+                    freeSlot++;
+                }
+                taken[freeSlot] = true;
+                slots[freeSlot] = values[bucketKeys[begin]];
+                displacements[bucket] = -freeSlot - 1;
+                continue;
+            }
+            int displacement = 0;
+            while (!fits(hashes, bucketKeys, begin, size, displacement, taken, candidate)) {
+                if (++displacement == MAX_DISPLACEMENT) {
+                    return false;
+                }
+            }
+            displacements[bucket] = displacement;
+            for (int i = 0; i < size; i++) {
+                taken[candidate[i]] = true;
+                slots[candidate[i]] = values[bucketKeys[begin + i]];
+            }
+        }
+        return true;
+    }
+
+    private static boolean fits(long[] hashes, int[] bucketKeys, int begin, int size, int displacement,
+                                boolean[] taken, int[] candidate) {
+        for (int i = 0; i < size; i++) {
+            int slot = slot(hashes[bucketKeys[begin + i]], displacement, taken.length);
+            if (taken[slot]) {
+                return false;
+            }
+            for (int j = 0; j < i; j++) {
+                if (candidate[j] == slot) {
+                    return false;
+                }
+            }
+            candidate[i] = slot;
+        }
+        return true;
+    }
+
+    /**
+     * Находит индекс названия. Не создаёт объектов.
+     * 
+     * @param name название
+     * @return индекс или -1, если название отсутствует
+     */
+    public int indexOf(CharSequence name) {
+        if (slots.length == 0) {
+            return NOT_FOUND;
+        }
+        long h = hash(name, seed);
+        int displacement = displacements[bucket(h, displacements.length)];
+        int index = slots[displacement < 0 ? -displacement - 1 : slot(h, displacement, slots.length)];
+        return matches(index, name) ? index : NOT_FOUND;
+    }
+
+    /**
+     * Возвращает название по индексу (декодируется из UTF-8).
+     * 
+     * @param index индекс названия
+     * @return название
+     */
+    public String getName(int index) {
+        return new String(arena, offsets[index], offsets[index + 1] - offsets[index], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return число названий
+     */
+    public int size() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * Возвращает объём памяти словаря без заголовков массивов.
+     * 
+     * @return число байт
+     */
+    public long getMemoryBytes() {
+        return arena.length + 4L * (offsets.length + slots.length + displacements.length);
+    }
+
+    /**
+     * @return байты объекта и массивов с заголовками (см. {@link MemoryReport})
+     */
+    long footprint() {
+        return MemoryReport.align(MemoryReport.OBJECT_HEADER + 4 * MemoryReport.REFERENCE + Long.BYTES)
+                + MemoryReport.array(arena.length, 1)
+                + MemoryReport.array(offsets.length, Integer.BYTES)
+                + MemoryReport.array(slots.length, Integer.BYTES)
+                + MemoryReport.array(displacements.length, Integer.BYTES);
+    }
+
+    /**
+     * Возвращает суммарную длину названий в UTF-8.
+     * 
+     * @return число байт
+     */
+    public int getArenaBytes() {
+        return arena.length;
+    }
+
+    /**
+     * Сравнивает название с байтами UTF-8 в массиве, декодируя их по ходу.
+     */
+    private boolean matches(int index, CharSequence name) {
+        int position = offsets[index];
+        int end = offsets[index + 1];
+        int length = name.length();
+        int i = 0;
+        while (position < end) {
+            int b = arena[position++] & 0xFF;
+            int codePoint;
+            if (b < 0x80) {
+                codePoint = b;
+            } else if (b < 0xE0) {
+                codePoint = (b & 0x1F) << 6 | (arena[position++] & 0x3F);
+            } else if (b < 0xF0) {
+                codePoint = (b & 0x0F) << 12 | (arena[position++] & 0x3F) << 6 | (arena[position++] & 0x3F);
+            } else {
+                codePoint = (b & 0x07) << 18 | (arena[position++] & 0x3F) << 12
+                        | (arena[position++] & 0x3F) << 6 | (arena[position++] & 0x3F);
+            }
+            if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+                if (i >= length || name.charAt(i++) != codePoint) {
+                    return false;
+                }
+            } else {
+                if (i + 1 >= length || name.charAt(i++) != Character.highSurrogate(codePoint)
+                        || name.charAt(i++) != Character.lowSurrogate(codePoint)) {
+                    return false;
+                }
+            }
+        }
+        return i == length;
+    }
+
+    private static long hash(CharSequence name, long seed) {
+        long h = seed;
+        for (int i = 0; i < name.length(); i++) {
+            h = (h ^ name.charAt(i)) * 0x100000001B3L;
+        }
+        return mix(h ^ name.length());
+    }
+
+    private static int bucket(long hash, int bucketCount) {
+        return (int) Long.remainderUnsigned(hash >>> 32, bucketCount);
+    }
+
+    private static int slot(long hash, int displacement, int slotCount) {
+        long h = mix(hash + displacement * 0x9E3779B97F4A7C15L);
+        return (int) Long.remainderUnsigned(h, slotCount);
+    }
+
+    /**
+     * Финальное перемешивание (SplitMix64).
+     */
+    private static long mix(long h) {
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        return h ^ (h >>> 31);
+    }
+}
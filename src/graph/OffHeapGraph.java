@@ -0,0 +1,275 @@
+package graph;
+
+import model.City;
+import model.CriteriaSet;
+import model.Criterion;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Неизменяемый снимок графа вне кучи (direct ByteBuffer).
+ * 
+ * Массивы CSR (offsets, targets, столбцы весов), ID и названия городов
+ * (UTF-8) и таблица ID -> индекс лежат в памяти вне кучи. В куче остаются
+ * только несколько буферов-обёрток, поэтому её размер и работа сборщика
+ * мусора не зависят от числа городов и дорог. Объект City создаётся
+ * по требованию — только на границе API (запрос и построение маршрута).
+ * 
+ * Входящие рёбра графа с односторонними дорогами копируются во второй
+ * набор буферов CSR; в неориентированном графе оба курсора читают один набор.
+ * 
+ * Память освобождается вместе с объектом снимка. Каждый буфер ограничен
+ * 2 ГБ, то есть до ~500 млн направленных рёбер.
+ * 
+ * Память: 4·(V + 1) + 4·E·(1 + K) + 12·V + длина названий + 12·C байт,
+ * где K — число критериев, C ≤ 4V — ёмкость таблицы ID
+ * (плюс 4·(V + 1) + 4·E·(1 + K) для входящих рёбер ориентированного графа).
+ */
+public final class OffHeapGraph implements SearchGraph {
+
+    private static final int EMPTY = -1;
+
+    private final int cityCount;
+    private final CriteriaSet criteria;
+    private final Edges edges;
+    private final Edges reverseEdges;
+
+    private final LongBuffer cityIds;
+    private final IntBuffer nameOffsets;
+    private final ByteBuffer names;
+
+    /** Таблица ID -> индекс с открытой адресацией (как {@link CityIdIndex}) */
+    private final LongBuffer idKeys;
+    private final IntBuffer idValues;
+    private final int idMask;
+
+    private final long allocatedBytes;
+
+    /**
+     * Строит снимок текущего состояния графа вне кучи.
+     * 
+     * @param graph граф дорожной сети
+     */
+    public OffHeapGraph(Graph graph) {
+        this(graph.snapshot());
+    }
+
+    /**
+     * Копирует индексное представление графа в память вне кучи.
+     * Индексы городов сохраняются. Сложность: O(V + E).
+     * 
+     * @param graph индексное представление графа
+     */
+    public OffHeapGraph(SearchGraph graph) {
+        this.cityCount = graph.getCityCount();
+        this.criteria = graph.getCriteria();
+        this.edges = new Edges(cityCount, criteria, graph.edgeCursor());
+        this.reverseEdges = graph.isDirected() ? new Edges(cityCount, criteria, graph.reverseEdgeCursor()) : edges;
+        long bytes = edges.bytes + (reverseEdges != edges ? reverseEdges.bytes : 0);
+
+        long nameBytes = 0;
+        for (int city = 0; city < cityCount; city++) {
+            nameBytes += graph.getCity(city).getName().getBytes(StandardCharsets.UTF_8).length;
+        }
+        if (nameBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Суммарная длина названий превышает 2 ГБ");
+        }
+
+        // Города: ID и названия в UTF-8
+        this.cityIds = allocate(8L * cityCount).asLongBuffer();
+        this.nameOffsets = allocateInts(cityCount + 1);
+        this.names = allocate(nameBytes);
+        for (int city = 0; city < cityCount; city++) {
+            City value = graph.getCity(city);
+            cityIds.put(city, value.getId());
+            nameOffsets.put(city, names.position());
+            names.put(value.getName().getBytes(StandardCharsets.UTF_8));
+        }
+        nameOffsets.put(cityCount, names.position());
+        bytes += 8L * cityCount + 4L * (cityCount + 1) + nameBytes;
+
+        // Таблица ID -> индекс
+        int capacity = Integer.highestOneBit(Math.max(4, cityCount * 2 - 1)) << 1;
+        this.idKeys = allocate(8L * capacity).asLongBuffer();
+        this.idValues = allocateInts(capacity);
+        this.idMask = capacity - 1;
+        for (int slot = 0; slot < capacity; slot++) {
+            idValues.put(slot, EMPTY);
+        }
+        for (int city = 0; city < cityCount; city++) {
+            long id = cityIds.get(city);
+            int slot = CityIdIndex.hash(id) & idMask;
+            while (idValues.get(slot) != EMPTY) {
+                slot = (slot + 1) & idMask;
+            }
+            idKeys.put(slot, id);
+            idValues.put(slot, city);
+        }
+        bytes += 12L * capacity;
+
+        this.allocatedBytes = bytes;
+    }
+
+    /**
+     * Рёбра в формате CSR вне кучи: смещения, цели и столбцы весов.
+     */
+    private static final class Edges {
+        final IntBuffer offsets;
+        final IntBuffer targets;
+        final IntBuffer[] weights;
+        final long bytes;
+
+        /**
+         * Копирует рёбра, перечисляемые курсором, в исходном порядке. Сложность: O(V + E).
+         */
+        Edges(int cityCount, CriteriaSet criteria, EdgeCursor cursor) {
+            // Первый проход: степени -> смещения
+            this.offsets = allocateInts(cityCount + 1);
+            int edgeCount = 0;
+            offsets.put(0, 0);
+            for (int city = 0; city < cityCount; city++) {
+                cursor.moveTo(city);
+                while (cursor.next()) {
+                    edgeCount++;
+                }
+                offsets.put(city + 1, edgeCount);
+            }
+
+            // Второй проход: рёбра
+            this.targets = allocateInts(edgeCount);
+            this.weights = new IntBuffer[criteria.size()];
+            for (Criterion criterion : criteria) {
+                weights[criterion.index()] = allocateInts(edgeCount);
+            }
+            for (int city = 0, edge = 0; city < cityCount; city++) {
+                cursor.moveTo(city);
+                for (; cursor.next(); edge++) {
+                    targets.put(edge, cursor.target());
+                    for (Criterion criterion : criteria) {
+                        weights[criterion.index()].put(edge, cursor.weight(criterion));
+                    }
+                }
+            }
+            this.bytes = 4L * (cityCount + 1) + 4L * edgeCount * (1 + criteria.size());
+        }
+    }
+
+    private static ByteBuffer allocate(long bytes) {
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Массив графа превышает 2 ГБ: " + bytes + " байт");
+        }
+        return ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder());
+    }
+
+    private static IntBuffer allocateInts(long count) {
+        return allocate(4L * count).asIntBuffer();
+    }
+
+    @Override
+    public int getCityCount() {
+        return cityCount;
+    }
+
+    @Override
+    public CriteriaSet getCriteria() {
+        return criteria;
+    }
+
+    /**
+     * Создаёт объект города по данным вне кучи.
+     * Повторные вызовы возвращают равные (equals), но разные объекты.
+     */
+    @Override
+    public City getCity(int index) {
+        int begin = nameOffsets.get(index);
+        byte[] name = new byte[nameOffsets.get(index + 1) - begin];
+        names.get(begin, name);
+        return new City(cityIds.get(index), new String(name, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public int indexOf(City city) {
+        long id = city.getId();
+        for (int slot = CityIdIndex.hash(id) & idMask; ; slot = (slot + 1) & idMask) {
+            int value = idValues.get(slot);
+            if (value == EMPTY || idKeys.get(slot) == id) {
+                return value;
+            }
+        }
+    }
+
+    @Override
+    public EdgeCursor edgeCursor() {
+        return new Cursor(edges);
+    }
+
+    @Override
+    public EdgeCursor reverseEdgeCursor() {
+        return new Cursor(reverseEdges);
+    }
+
+    @Override
+    public boolean isDirected() {
+        return reverseEdges != edges;
+    }
+
+    /**
+     * Возвращает количество направленных рёбер.
+     * 
+     * @return число рёбер
+     */
+    public int getEdgeCount() {
+        return edges.targets.capacity();
+    }
+
+    /**
+     * Возвращает объём памяти вне кучи, занятый снимком.
+     * 
+     * @return число байт
+     */
+    public long getOffHeapBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * Курсор по непрерывному диапазону рёбер; чтения по абсолютным позициям потокобезопасны.
+     */
+    private static final class Cursor implements EdgeCursor {
+        private final IntBuffer offsets;
+        private final IntBuffer targets;
+        private final IntBuffer[] weights;
+        private int edge;
+        private int end;
+
+        Cursor(Edges edges) {
+            this.offsets = edges.offsets;
+            this.targets = edges.targets;
+            this.weights = edges.weights;
+        }
+
+        @Override
+        public void moveTo(int city) {
+            edge = offsets.get(city) - 1;
+            end = offsets.get(city + 1);
+        }
+
+        @Override
+        public boolean next() {
+            return ++edge < end;
+        }
+
+        @Override
+        public int target() {
+            return targets.get(edge);
+        }
+
+        @Override
+        public int weight(Criterion criterion) {
+            return weights[criterion.index()].get(edge);
+        }
+    }
+}
@@ -2,185 +2,303 @@ package graph;
 
 import model.City;
 import model.Criterion;
-import model.Road;
 import model.Route;
 
-import java.util.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * Оптимизированная реализация алгоритма Дейкстры.
  * 
  * ОПТИМИЗАЦИЯ: Вместо трёх отдельных запусков алгоритма для каждого критерия,
  * выполняется один проход по графу с параллельным отслеживанием расстояний
- * по всем трём критериям.
+ * по всем критериям графа.
  * 
- * Это уменьшает константу времени выполнения в ~3 раза за счёт:
- * - Однократного выделения памяти под структуры данных
- * - Однократного обхода рёбер графа
- * - Уменьшения накладных расходов на создание объектов
+ * Рёбра извлечённого города просматриваются один раз для всех критериев:
+ * в одном проходе по списку смежности релаксируются метки каждого критерия,
+ * у которого город уже достигнут. Для критерия, где метка города ещё
+ * не окончательна, это допустимая оценка сверху (путь существует); рабочая
+ * область запоминает, с каким расстоянием рёбра просмотрены, и когда город
+ * извлекает сам этот критерий, повторный просмотр нужен, только если метка
+ * с тех пор уменьшилась. Критерии дорожной сети согласованы (время и стоимость
+ * растут с длиной), поэтому оценки, полученные при поиске по первому критерию,
+ * обычно уже окончательны, и каждое ребро читается из памяти примерно один раз
+ * вместо одного раза на критерий.
  * 
- * Временная сложность: O((V + E) · log V) — та же асимптотика, но меньше константа.
- * Пространственная сложность: O(V) для каждого критерия.
+ * Метки всех критериев города лежат рядом ({@link MultiSearchWorkspace}):
+ * при просмотре ребра они читаются из одной строки кэша. Кучи критериев
+ * обрабатываются по очереди до извлечения цели — поочерёдное извлечение
+ * по одной вершине из каждой кучи держит в кэше рабочие данные всех поисков
+ * сразу и на практике медленнее. Метки следующих критериев до начала их поиска
+ * только записываются, а куча строится из них один раз за линейное время. Рабочая область своя у каждого потока
+ * и не заполняется на каждый запрос (отметки эпох), поэтому короткий
+ * локальный запрос в большом графе стоит O(затронутых вершин), а не O(V).
+ * 
+ * При равных расстояниях предшественником остаётся город с меньшей меткой —
+ * тот, которого извлёк бы первым обычный алгоритм Дейкстры, поэтому среди
+ * равноценных маршрутов выбирается тот же, что и в {@link DijkstraPathFinder}.
+ * 
+ * Временная сложность: O((V + E) · log V) по затронутой части графа.
+ * Пространственная сложность: O(V · K) на поток (примитивные массивы
+ * по номерам меток), на запрос — O(K).
  */
-public class OptimizedDijkstraPathFinder {
+public class OptimizedDijkstraPathFinder implements PathFinder {
+
+    private final Supplier<? extends SearchGraph> graphSource;
 
-    private final Graph graph;
+    /** Рабочая область потока: метки всех критериев */
+    private final ThreadLocal<MultiSearchWorkspace> workspaces = ThreadLocal.withInitial(MultiSearchWorkspace::new);
 
     /**
-     * Контейнер для хранения состояния поиска по одному критерию.
+     * Создаёт поиск по изменяемому графу.
+     * Каждый запрос выполняется по актуальному CSR-снимку графа.
+     * 
+     * @param graph граф дорожной сети
      */
-    private static class SearchState {
-        final Criterion criterion;
-        final Map<City, Integer> distances = new HashMap<>();
-        final Map<City, City> predecessors = new HashMap<>();
-        final Map<City, Road> usedRoads = new HashMap<>();
-        final Set<City> visited = new HashSet<>();
-        final PriorityQueue<DijkstraNode> queue = new PriorityQueue<>();
-
-        SearchState(Criterion criterion) {
-            this.criterion = criterion;
-        }
+    public OptimizedDijkstraPathFinder(Graph graph) {
+        this.graphSource = graph::snapshot;
     }
 
-    public OptimizedDijkstraPathFinder(Graph graph) {
-        this.graph = graph;
+    /**
+     * Создаёт поиск по готовому индексному представлению графа.
+     * 
+     * @param graph индексное представление графа (например, {@link CompactGraph})
+     */
+    public OptimizedDijkstraPathFinder(SearchGraph graph) {
+        this.graphSource = () -> graph;
+    }
+
+    /**
+     * Создаёт поиск по версионированному графу.
+     * Каждый запрос выполняется по версии, опубликованной на момент его начала;
+     * рабочие области потоков общие для всех версий и растут вместе с числом городов.
+     *
+     * @param graph версионированный граф дорожной сети
+     */
+    public OptimizedDijkstraPathFinder(VersionedGraph graph) {
+        this.graphSource = graph::current;
     }
 
     /**
      * Находит оптимальные маршруты по всем критериям за один проход.
      * 
-     * Алгоритм использует три параллельных состояния поиска (по одному на критерий),
-     * но обрабатывает их в едином цикле, что позволяет переиспользовать
-     * обход структуры графа.
+     * Алгоритм использует отдельные кучи (по одной на критерий) над общей
+     * рабочей областью, и рёбра каждого извлечённого города просматриваются
+     * один раз для всех критериев.
      * 
      * @param from начальный город
      * @param to   конечный город
      * @return карта: критерий -> оптимальный маршрут
      */
+    @Override
     public Map<Criterion, Route> findAllOptimalPaths(City from, City to) {
-        // Инициализация состояний для всех критериев
-        Map<Criterion, SearchState> states = new EnumMap<>(Criterion.class);
-        for (Criterion criterion : Criterion.values()) {
-            SearchState state = new SearchState(criterion);
-            
-            // Инициализация расстояний
-            for (City city : graph.getAllCities()) {
-                state.distances.put(city, Integer.MAX_VALUE);
+        return findAllOptimalPaths(graphSource.get(), from, to);
+    }
+
+    /**
+     * Находит оптимальные маршруты по всем критериям в указанном представлении графа,
+     * используя рабочую область вызывающего потока. Так запрос, который уже
+     * зафиксировал версию графа (например, для поиска городов по названию),
+     * ищет маршруты в ней же.
+     *
+     * @param graph индексное представление графа (например, {@link GraphVersion})
+     * @param from  начальный город
+     * @param to    конечный город
+     * @return карта: критерий -> оптимальный маршрут
+     */
+    public Map<Criterion, Route> findAllOptimalPaths(SearchGraph graph, City from, City to) {
+        int source = graph.indexOf(from);
+        int target = graph.indexOf(to);
+        if (source < 0 || target < 0) {
+            Map<Criterion, Route> results = new LinkedHashMap<>();
+            for (Criterion criterion : graph.getCriteria()) {
+                results.put(criterion, Route.empty());
             }
-            state.distances.put(from, 0);
-            state.queue.add(new DijkstraNode(from, 0));
-            
-            states.put(criterion, state);
+            return results;
         }
 
-        // Основной цикл: обрабатываем все критерии параллельно
-        boolean anyActive = true;
-        while (anyActive) {
-            anyActive = false;
-            
-            for (SearchState state : states.values()) {
-                // Пропускаем завершённые поиски
-                if (state.visited.contains(to) || state.queue.isEmpty()) {
-                    continue;
-                }
-                
-                anyActive = true;
-                
-                // Обработка одной вершины для данного критерия
-                processNextVertex(state);
+        // Инициализация меток начального города по всем критериям: O(K)
+        Search search = new Search(graph, workspaces.get(), target);
+        int first = search.workspace.touch(source);
+        for (int k = 0; k < search.criteria.length; k++) {
+            search.workspace.improve(first + k, 0, RouteReconstructor.NO_PREDECESSOR);
+        }
+
+        // Основной цикл: критерии по очереди до извлечения цели, рёбра — сразу для всех
+        for (int k = 0; k < search.criteria.length; k++) {
+            search.start(k);
+            while (!search.finished[k] && !search.workspace.heap(k).isEmpty()) {
+                search.processNextVertex(k);
             }
         }
 
         // Восстановление маршрутов
-        Map<Criterion, Route> results = new EnumMap<>(Criterion.class);
-        for (Criterion criterion : Criterion.values()) {
-            SearchState state = states.get(criterion);
-            Route route = reconstructRoute(from, to, state);
-            results.put(criterion, route);
+        Map<Criterion, Route> results = new LinkedHashMap<>();
+        for (int k = 0; k < search.criteria.length; k++) {
+            results.put(search.criteria[k], search.reconstructRoute(k));
         }
 
         return results;
     }
 
     /**
-     * Обрабатывает следующую вершину в очереди для заданного состояния поиска.
+     * Находит оптимальный маршрут по одному критерию.
+     * Для единичного запроса использует стандартную реализацию.
+     * 
+     * @param from      начальный город
+     * @param to        конечный город
+     * @param criterion критерий оптимизации
+     * @return оптимальный маршрут
      */
-    private void processNextVertex(SearchState state) {
-        while (!state.queue.isEmpty()) {
-            DijkstraNode current = state.queue.poll();
-            City currentCity = current.getCity();
-
-            // Пропускаем уже обработанные вершины
-            if (state.visited.contains(currentCity)) {
-                continue;
-            }
-            state.visited.add(currentCity);
+    @Override
+    public Route findPath(City from, City to, Criterion criterion) {
+        return findAllOptimalPaths(from, to).get(criterion);
+    }
 
-            // Релаксация рёбер
-            for (Road road : graph.getRoadsFrom(currentCity)) {
-                City neighbor = road.getTo();
+    /**
+     * Память рабочей области одного потока: метки и кучи всех критериев.
+     */
+    @Override
+    public MemoryReport memoryReport() {
+        SearchGraph graph = graphSource.get();
+        int criteriaCount = graph.getCriteria().size();
+        int cityCount = graph.getCityCount();
+        long heaps = criteriaCount * (MemoryReport.align(MemoryReport.OBJECT_HEADER + 3 * MemoryReport.REFERENCE + 4)
+                + MemoryReport.array(cityCount, Integer.BYTES));
+        MemoryReport report = new MemoryReport("Дейкстра за один проход: рабочая область потока ("
+                + criteriaCount + " критерия)");
+        report.add("Рабочие массивы", MultiSearchWorkspace.footprint(cityCount, criteriaCount) - heaps, 0);
+        report.add("Кучи", heaps, 0);
+        return report;
+    }
 
-                if (state.visited.contains(neighbor)) {
-                    continue;
-                }
+    /**
+     * Состояние одного запроса поверх рабочей области потока.
+     */
+    private static final class Search {
+        final SearchGraph graph;
+        final MultiSearchWorkspace workspace;
+        final Criterion[] criteria;
+        final EdgeCursor edges;
+        final int target;
 
-                int edgeWeight = road.getValueByCriterion(state.criterion);
-                int newDistance = state.distances.get(currentCity) + edgeWeight;
+        /** Цель извлечена из кучи критерия — поиск по нему завершён */
+        final boolean[] finished;
 
-                if (newDistance < state.distances.get(neighbor)) {
-                    state.distances.put(neighbor, newDistance);
-                    state.predecessors.put(neighbor, currentCity);
-                    state.usedRoads.put(neighbor, road);
-                    state.queue.add(new DijkstraNode(neighbor, newDistance));
-                }
-            }
+        /** Критерии, метки которых релаксируются в текущем проходе, и расстояния до просматриваемого города */
+        final int[] scanning;
+        final int[] bases;
 
-            // Обработали одну вершину — возвращаем управление
-            break;
+        /** Критерий, поиск по которому идёт сейчас: только у него метки в куче */
+        int running;
+
+        Search(SearchGraph graph, MultiSearchWorkspace workspace, int target) {
+            this.graph = graph;
+            this.workspace = workspace;
+            this.criteria = graph.getCriteria().asList().toArray(new Criterion[0]);
+            this.edges = graph.edgeCursor();
+            this.target = target;
+            this.finished = new boolean[criteria.length];
+            this.scanning = new int[criteria.length];
+            this.bases = new int[criteria.length];
+            workspace.begin(graph.getCityCount(), criteria.length);
         }
-    }
 
-    /**
-     * Восстанавливает маршрут по результатам поиска.
-     */
-    private Route reconstructRoute(City from, City to, SearchState state) {
-        if (!state.visited.contains(to) || state.distances.get(to) == Integer.MAX_VALUE) {
-            return Route.empty();
+        /**
+         * Начинает поиск по критерию: куча строится из меток, найденных предыдущими проходами.
+         */
+        void start(int criterion) {
+            running = criterion;
+            workspace.startHeap(criterion);
         }
 
-        List<City> path = new ArrayList<>();
-        int totalDistance = 0;
-        int totalTime = 0;
-        int totalCost = 0;
+        /**
+         * Извлекает следующую вершину из кучи критерия и за один проход по её рёбрам
+         * релаксирует метки всех критериев, для которых этот просмотр что-то даёт.
+         */
+        void processNextVertex(int criterion) {
+            int label = workspace.heap(criterion).pop();
+            int current = workspace.city(label);
+            if (current == target) {
+                finished[criterion] = true;
+                return;
+            }
 
-        City current = to;
-        while (current != null) {
-            path.add(current);
+            // Рёбра уже релаксированы с окончательным расстоянием — при просмотре другим критерием
+            if (workspace.isScanned(label)) {
+                return;
+            }
 
-            Road road = state.usedRoads.get(current);
-            if (road != null) {
-                totalDistance += road.getDistance();
-                totalTime += road.getTime();
-                totalCost += road.getCost();
+            // Критерии, у которых город достигнут и рёбра с этим расстоянием ещё не просмотрены
+            int first = workspace.label(current, 0);
+            int count = 0;
+            for (int k = 0; k < criteria.length; k++) {
+                int distance = workspace.distance(first + k);
+                if (!finished[k] && distance != Integer.MAX_VALUE && !workspace.isScanned(first + k)) {
+                    workspace.markScanned(first + k);
+                    scanning[count] = k;
+                    bases[count++] = distance;
+                }
             }
 
-            current = state.predecessors.get(current);
+            // Релаксация рёбер: цель ребра и метки соседа читаются один раз для всех критериев
+            edges.moveTo(current);
+            while (edges.next()) {
+                int neighbor = workspace.touch(edges.target());
+                for (int i = 0; i < count; i++) {
+                    int k = scanning[i];
+                    int neighborLabel = neighbor + k;
+                    if (workspace.isSettled(neighborLabel)) {
+                        continue;
+                    }
+
+                    int newDistance = bases[i] + edges.weight(criteria[k]);
+
+                    int known = workspace.distance(neighborLabel);
+                    if (newDistance < known) {
+                        relax(neighborLabel, k, newDistance, current);
+                    } else if (newDistance == known && bases[i] < predecessorDistance(neighborLabel, k)) {
+                        // Равный путь через город с меньшей меткой: его выбрал бы обычный Дейкстра,
+                        // извлекающий города по возрастанию расстояния
+                        relax(neighborLabel, k, newDistance, current);
+                    }
+                }
+            }
         }
 
-        Collections.reverse(path);
-        return new Route(path, totalDistance, totalTime, totalCost);
-    }
+        /**
+         * Улучшает метку: в куче — только для уже начатого поиска, у следующих
+         * критериев куча построится из меток при старте.
+         */
+        private void relax(int label, int criterion, int distance, int predecessor) {
+            if (criterion == running) {
+                workspace.relax(label, criterion, distance, predecessor);
+            } else {
+                workspace.improve(label, distance, predecessor);
+            }
+        }
 
-    /**
-     * Находит оптимальный маршрут по одному критерию.
-     * Для единичного запроса использует стандартную реализацию.
-     * 
-     * @param from      начальный город
-     * @param to        конечный город
-     * @param criterion критерий оптимизации
-     * @return оптимальный маршрут
-     */
-    public Route findPath(City from, City to, Criterion criterion) {
-        return findAllOptimalPaths(from, to).get(criterion);
+        private int predecessorDistance(int label, int criterion) {
+            int predecessor = workspace.predecessor(label);
+            return predecessor == RouteReconstructor.NO_PREDECESSOR
+                    ? -1 : workspace.distance(workspace.label(predecessor, criterion));
+        }
+
+        /**
+         * Восстанавливает маршрут по результатам поиска.
+         */
+        Route reconstructRoute(int criterion) {
+            if (!finished[criterion]) {
+                return Route.empty();
+            }
+            IntList path = new IntList();
+            for (int city = target; city != RouteReconstructor.NO_PREDECESSOR;
+                 city = workspace.predecessor(workspace.label(city, criterion))) {
+                path.add(city);
+            }
+            path.reverse();
+            return RouteReconstructor.build(graph, path, criteria[criterion]);
+        }
     }
 }
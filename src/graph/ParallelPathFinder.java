@@ -0,0 +1,135 @@
+package graph;
+
+import model.City;
+import model.CriteriaSet;
+import model.Criterion;
+import model.Route;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * Поиск по всем критериям, выполняемый параллельно: каждый критерий —
+ * отдельная задача однокритериального поиска.
+ *
+ * Поиски по разным критериям не зависят друг от друга, поэтому задержка
+ * запроса на многоядерной машине приближается к времени самого долгого
+ * из них, а не к их сумме. Первый критерий ищется в вызывающем потоке,
+ * остальные — в пуле потоков ({@link ForkJoinPool#commonPool()} по умолчанию);
+ * результаты собираются в порядке набора критериев. Пропускная способность
+ * при этом не растёт: общий объём работы тот же, что у последовательных
+ * поисков, поэтому режим нужен для интерактивных запросов, а не для пакетов.
+ *
+ * Обёрнутый поиск должен допускать одновременные вызовы из нескольких
+ * потоков — например, {@link IndexedHeapPathFinder} или {@link BucketPathFinder}
+ * с рабочей областью на поток. Граф не должен изменяться во время запроса.
+ * Поиск, созданный по графу, берёт его снимок один раз в вызывающем потоке
+ * и передаёт во все задачи; обёрнутый поиск по изменяемому графу берёт
+ * снимок сам в каждой задаче, поэтому снимок нужно построить заранее
+ * ({@link Graph#snapshot()}).
+ */
+public class ParallelPathFinder implements PathFinder {
+
+    private final PathFinder finder;
+    private final Supplier<? extends SearchGraph> graphSource;
+    private final SnapshotSearch search;
+    private final List<Criterion> criteria;
+    private final Executor executor;
+
+    /**
+     * Создаёт параллельный поиск на индексированной куче в общем пуле потоков.
+     *
+     * @param graph граф дорожной сети
+     */
+    public ParallelPathFinder(Graph graph) {
+        IndexedHeapPathFinder finder = new IndexedHeapPathFinder(graph);
+        this.finder = finder;
+        this.graphSource = graph::snapshot;
+        this.search = finder::findPath;
+        this.criteria = graph.getCriteria().asList();
+        this.executor = ForkJoinPool.commonPool();
+    }
+
+    /**
+     * @param finder   потокобезопасный поиск по одному критерию
+     * @param criteria критерии, по которым ищутся маршруты
+     * @param executor пул потоков для всех критериев, кроме первого
+     */
+    public ParallelPathFinder(PathFinder finder, CriteriaSet criteria, Executor executor) {
+        this.finder = finder;
+        this.graphSource = () -> null;
+        this.search = (graph, from, to, criterion) -> finder.findPath(from, to, criterion);
+        this.criteria = criteria.asList();
+        this.executor = executor;
+    }
+
+    @Override
+    public Route findPath(City from, City to, Criterion criterion) {
+        return finder.findPath(from, to, criterion);
+    }
+
+    @Override
+    public Map<Criterion, Route> findAllOptimalPaths(City from, City to) {
+        // Снимок берётся до запуска задач: задачи не строят его одновременно
+        SearchGraph graph = graphSource.get();
+        List<CompletableFuture<Route>> forked = new ArrayList<>();
+        for (Criterion criterion : criteria.subList(Math.min(1, criteria.size()), criteria.size())) {
+            forked.add(CompletableFuture.supplyAsync(() -> search.findPath(graph, from, to, criterion), executor));
+        }
+
+        Map<Criterion, Route> results = new LinkedHashMap<>();
+        if (!criteria.isEmpty()) {
+            results.put(criteria.get(0), search.findPath(graph, from, to, criteria.get(0)));
+        }
+        for (int k = 0; k < forked.size(); k++) {
+            results.put(criteria.get(k + 1), join(forked.get(k)));
+        }
+        return results;
+    }
+
+    /**
+     * Память обёрнутого поиска: рабочая область на каждый одновременный поиск.
+     */
+    @Override
+    public MemoryReport memoryReport() {
+        MemoryReport perSearch = finder.memoryReport();
+        MemoryReport report = new MemoryReport("Параллельный поиск: " + criteria.size()
+                + " одновременных поисков");
+        for (String part : perSearch.getParts()) {
+            report.add(part, criteria.size() * perSearch.getBytes(part),
+                    criteria.size() * perSearch.getReclaimableBytes(part));
+        }
+        return report;
+    }
+
+    /**
+     * Поиск по одному критерию в снимке, общем для всех критериев запроса
+     * (null — обёрнутый поиск берёт снимок сам).
+     */
+    @FunctionalInterface
+    private interface SnapshotSearch {
+        Route findPath(SearchGraph graph, City from, City to, Criterion criterion);
+    }
+
+    private static Route join(CompletableFuture<Route> search) {
+        try {
+            return search.join();
+        } catch (CompletionException e) {
+            // Исключение поиска пробрасывается как из последовательного вызова
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package graph;
+
+import model.City;
+import model.Criterion;
+import model.Route;
+
+import java.util.Map;
+
+/**
+ * Общий интерфейс алгоритмов поиска оптимальных маршрутов.
+ * Позволяет подключать к {@link solver.RouteSolver} разные реализации поиска.
+ */
+public interface PathFinder {
+
+    /**
+     * Находит оптимальный маршрут между двумя городами по заданному критерию.
+     * 
+     * @param from      начальный город
+     * @param to        конечный город
+     * @param criterion критерий оптимизации
+     * @return оптимальный маршрут или пустой маршрут, если путь не существует
+     */
+    Route findPath(City from, City to, Criterion criterion);
+
+    /**
+     * Находит оптимальные маршруты по всем критериям.
+     * 
+     * @param from начальный город
+     * @param to   конечный город
+     * @return карта: критерий -> оптимальный маршрут
+     */
+    Map<Criterion, Route> findAllOptimalPaths(City from, City to);
+
+    /**
+     * Возвращает память поиска: рабочие массивы одного запроса (очередь —
+     * в наибольшем возможном размере) и собственные кэши алгоритма.
+     * Память самого графа — в {@link Graph#memoryReport()}.
+     * 
+     * @return отчёт о памяти
+     */
+    MemoryReport memoryReport();
+}
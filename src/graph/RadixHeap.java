@@ -0,0 +1,112 @@
+package graph;
+
+/**
+ * Radix-куча: монотонная очередь с приоритетом для целых ключей любой величины.
+ *
+ * Запись лежит в корзине с номером старшего бита, в котором её ключ отличается
+ * от последнего извлечённого ключа (корзина 0 — ключ равен ему). Когда корзина 0
+ * пуста, минимальный ключ ищется в первой непустой корзине, становится последним
+ * извлечённым, а записи этой корзины раскладываются по младшим корзинам.
+ * Каждая запись за время жизни только опускается, поэтому переносится
+ * не больше 32 раз.
+ *
+ * Сложность: O(1) на вставку, O(log C) амортизированно на извлечение,
+ * где C — наибольший вес ребра.
+ */
+final class RadixHeap implements MonotoneQueue {
+
+    /** Корзина 0 и по одной на каждый бит int */
+    private static final int BUCKETS = Integer.SIZE + 1;
+
+    private final IntList[] items = new IntList[BUCKETS];
+    private final IntList[] keys = new IntList[BUCKETS];
+    private int last;
+    private int size;
+
+    RadixHeap() {
+        for (int i = 0; i < BUCKETS; i++) {
+            items[i] = new IntList(4);
+            keys[i] = new IntList(4);
+        }
+    }
+
+    @Override
+    public void push(int item, int key) {
+        int bucket = bucket(key);
+        items[bucket].add(item);
+        keys[bucket].add(key);
+        size++;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public int pop() {
+        if (items[0].size() == 0) {
+            int bucket = 1;
+            while (items[bucket].size() == 0) {
+                bucket++;
+            }
+            IntList bucketKeys = keys[bucket];
+            int min = Integer.MAX_VALUE;
+            for (int i = 0; i < bucketKeys.size(); i++) {
+                min = Math.min(min, bucketKeys.get(i));
+            }
+            last = min;
+
+            // Все записи корзины переходят в корзины с меньшими номерами
+            IntList bucketItems = items[bucket];
+            for (int i = 0; i < bucketItems.size(); i++) {
+                int key = bucketKeys.get(i);
+                int target = bucket(key);
+                items[target].add(bucketItems.get(i));
+                keys[target].add(key);
+            }
+            bucketItems.truncate(0);
+            bucketKeys.truncate(0);
+        }
+        IntList list = items[0];
+        int lastIndex = list.size() - 1;
+        int item = list.get(lastIndex);
+        list.truncate(lastIndex);
+        keys[0].truncate(lastIndex);
+        size--;
+        return item;
+    }
+
+    @Override
+    public int lastKey() {
+        return last;
+    }
+
+    @Override
+    public void clear() {
+        if (size > 0) {
+            for (int i = 0; i < BUCKETS; i++) {
+                items[i].truncate(0);
+                keys[i].truncate(0);
+            }
+        }
+        size = 0;
+        last = 0;
+    }
+
+    /**
+     * Корзины с entries записями (элемент и ключ) без учёта запаса растущих массивов.
+     */
+    @Override
+    public long footprint(long entries) {
+        long emptyList = MemoryReport.align(MemoryReport.OBJECT_HEADER + MemoryReport.REFERENCE + 4)
+                + MemoryReport.array(4, Integer.BYTES);
+        return MemoryReport.align(MemoryReport.OBJECT_HEADER + 2 * MemoryReport.REFERENCE + 2 * 4)
+                + 2 * (MemoryReport.array(BUCKETS, MemoryReport.REFERENCE) + BUCKETS * emptyList)
+                + entries * 2 * Integer.BYTES;
+    }
+
+    private int bucket(int key) {
+        return key == last ? 0 : Integer.SIZE - Integer.numberOfLeadingZeros(key ^ last);
+    }
+}
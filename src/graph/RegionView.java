@@ -0,0 +1,214 @@
+package graph;
+
+import model.City;
+import model.CriteriaSet;
+import model.Criterion;
+
+import java.util.BitSet;
+import java.util.function.Predicate;
+
+/**
+ * Регион — представление части графа без копирования.
+ *
+ * Представление ссылается на массивы снимка родительского графа и хранит
+ * только битовую маску городов региона. Индексы городов совпадают
+ * с индексами родителя; город вне региона не находится по {@link #indexOf}
+ * и не имеет рёбер, а курсоры пропускают рёбра, ведущие из региона.
+ * Поэтому поиск внутри региона обходит только его города и дороги,
+ * а маршрут никогда не выходит за его границу.
+ *
+ * Представление неизменяемо и потокобезопасно: пакеты запросов разных
+ * регионов можно обрабатывать в отдельных пулах потоков. Изменения
+ * родительского графа после создания региона в нём не видны — в том числе
+ * названия: словарь строится по городам региона при его создании.
+ *
+ * Память: V / 8 байт на маску и словарь названий городов региона.
+ */
+public final class RegionView implements SearchGraph {
+
+    private final SearchGraph parent;
+    private final BitSet members;
+    private final int size;
+
+    /** Названия городов региона и индексы этих городов в родительском графе */
+    private final NameDictionary names;
+    private final int[] nameCities;
+
+    private RegionView(SearchGraph parent, BitSet members) {
+        this.parent = parent;
+        this.members = members;
+        this.size = members.cardinality();
+        String[] cityNames = new String[size];
+        this.nameCities = new int[size];
+        for (int city = members.nextSetBit(0), i = 0; city >= 0; city = members.nextSetBit(city + 1), i++) {
+            cityNames[i] = parent.getCity(city).getName();
+            nameCities[i] = city;
+        }
+        this.names = new NameDictionary(cityNames);
+    }
+
+    /**
+     * Создаёт регион из городов с заданными ID.
+     *
+     * @param graph граф дорожной сети
+     * @param ids   ID городов региона
+     * @return представление региона поверх текущего снимка графа
+     * @throws IllegalArgumentException если город с таким ID не добавлен в граф
+     */
+    public static RegionView ofCityIds(Graph graph, long... ids) {
+        BitSet members = new BitSet(graph.getCityCount());
+        for (long id : ids) {
+            City city = graph.getCityById(id);
+            if (city == null) {
+                throw new IllegalArgumentException("Город с ID " + id + " не найден");
+            }
+            members.set(graph.indexOf(city));
+        }
+        return new RegionView(graph.sharedSnapshot(), members);
+    }
+
+    /**
+     * Создаёт регион из городов, удовлетворяющих условию
+     * (например, попадающих в границы федерального округа).
+     * Сложность: O(V).
+     *
+     * @param graph    граф дорожной сети
+     * @param inRegion условие принадлежности города региону
+     * @return представление региона поверх текущего снимка графа
+     */
+    public static RegionView of(Graph graph, Predicate<City> inRegion) {
+        CompactGraph snapshot = graph.sharedSnapshot();
+        BitSet members = new BitSet(snapshot.getCityCount());
+        for (int city = 0; city < snapshot.getCityCount(); city++) {
+            if (inRegion.test(snapshot.getCity(city))) {
+                members.set(city);
+            }
+        }
+        return new RegionView(snapshot, members);
+    }
+
+    /**
+     * Проверяет, входит ли город в регион.
+     *
+     * @param index индекс города в родительском графе
+     * @return true для города региона
+     */
+    public boolean contains(int index) {
+        return members.get(index);
+    }
+
+    /**
+     * Возвращает количество городов региона.
+     *
+     * @return число городов
+     */
+    public int getRegionSize() {
+        return size;
+    }
+
+    /**
+     * Находит город региона по названию.
+     * При совпадении названий возвращается город региона с наибольшим индексом.
+     *
+     * @param name название города
+     * @return город или null, если такого города нет в регионе
+     */
+    public City getCityByName(String name) {
+        int index = names.indexOf(name);
+        return index >= 0 ? parent.getCity(nameCities[index]) : null;
+    }
+
+    /**
+     * Возвращает размер пространства индексов (совпадает с родительским графом);
+     * число городов региона — {@link #getRegionSize()}.
+     */
+    @Override
+    public int getCityCount() {
+        return parent.getCityCount();
+    }
+
+    @Override
+    public CriteriaSet getCriteria() {
+        return parent.getCriteria();
+    }
+
+    @Override
+    public City getCity(int index) {
+        return parent.getCity(index);
+    }
+
+    @Override
+    public int indexOf(City city) {
+        int index = parent.indexOf(city);
+        return index >= 0 && members.get(index) ? index : -1;
+    }
+
+    @Override
+    public EdgeCursor edgeCursor() {
+        return new Cursor(parent.edgeCursor(), members);
+    }
+
+    @Override
+    public EdgeCursor reverseEdgeCursor() {
+        return new Cursor(parent.reverseEdgeCursor(), members);
+    }
+
+    @Override
+    public boolean isDirected() {
+        return parent.isDirected();
+    }
+
+    /**
+     * Возвращает наибольший вес во всём родительском графе — верхнюю границу
+     * для рёбер региона, без перебора рёбер.
+     */
+    @Override
+    public int getMaxWeight(Criterion criterion) {
+        return parent.getMaxWeight(criterion);
+    }
+
+    /**
+     * Курсор родителя, пропускающий рёбра с концом вне региона.
+     */
+    private static final class Cursor implements EdgeCursor {
+        private final EdgeCursor cursor;
+        private final BitSet members;
+        private boolean inside;
+
+        Cursor(EdgeCursor cursor, BitSet members) {
+            this.cursor = cursor;
+            this.members = members;
+        }
+
+        @Override
+        public void moveTo(int city) {
+            inside = members.get(city);
+            if (inside) {
+                cursor.moveTo(city);
+            }
+        }
+
+        @Override
+        public boolean next() {
+            if (!inside) {
+                return false;
+            }
+            while (cursor.next()) {
+                if (members.get(cursor.target())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public int target() {
+            return cursor.target();
+        }
+
+        @Override
+        public int weight(Criterion criterion) {
+            return cursor.weight(criterion);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package graph;
+
+import model.City;
+import model.CriteriaSet;
+import model.Criterion;
+import model.Route;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Восстановление маршрута с суммарными параметрами по массиву предшественников.
+ * Общий код для всех реализаций поиска, работающих по {@link SearchGraph}.
+ */
+final class RouteReconstructor {
+
+    /** Отсутствие предшественника (начальная вершина) */
+    static final int NO_PREDECESSOR = -1;
+
+    private RouteReconstructor() {
+    }
+
+    /**
+     * Строит маршрут, проходя по предшественникам от конечного города к начальному.
+     * 
+     * Для каждого перегона u -> v среди параллельных рёбер выбирается ребро
+     * с минимальным весом по критерию поиска (именно по нему прошла релаксация),
+     * а при равенстве — лексикографически меньшее по весам всех критериев
+     * в порядке набора (для классического набора — по длине, времени, стоимости).
+     * Такое ребро никогда не доминируется другим, поэтому маршрут не меняется
+     * после удаления доминируемых дорог ({@link Graph#pruneDominatedRoads()}).
+     * 
+     * @param graph        граф, по которому выполнялся поиск
+     * @param predecessors предшественник каждой вершины (NO_PREDECESSOR для начальной)
+     * @param to           индекс конечного города
+     * @param criterion    критерий, по которому строился маршрут
+     * @return маршрут с суммами по всем критериям
+     */
+    static Route build(SearchGraph graph, int[] predecessors, int to, Criterion criterion) {
+        IntList path = new IntList();
+
+        // Идём от конца к началу
+        for (int current = to; current != NO_PREDECESSOR; current = predecessors[current]) {
+            path.add(current);
+        }
+
+        // Переворачиваем путь (был от конца к началу)
+        path.reverse();
+
+        return build(graph, path, criterion);
+    }
+
+    /**
+     * Строит маршрут по последовательности индексов городов от начала к концу.
+     * Правило выбора ребра для каждого перегона то же, что и в
+     * {@link #build(SearchGraph, int[], int, Criterion)}.
+     * 
+     * @param graph     граф, по которому выполнялся поиск
+     * @param path      индексы городов маршрута от начала к концу
+     * @param criterion критерий, по которому строился маршрут
+     * @return маршрут с суммами по всем критериям
+     */
+    static Route build(SearchGraph graph, IntList path, Criterion criterion) {
+        CriteriaSet criteria = graph.getCriteria();
+        List<City> cities = new ArrayList<>(path.size());
+        EdgeCursor cursor = graph.edgeCursor();
+        int[] totals = new int[criteria.size()];
+        int[] best = new int[criteria.size()];
+        int[] candidate = new int[criteria.size()];
+
+        cities.add(graph.getCity(path.get(0)));
+        for (int i = 1; i < path.size(); i++) {
+            int previous = path.get(i - 1);
+            int current = path.get(i);
+
+            int bestWeight = Integer.MAX_VALUE;
+            Arrays.fill(best, 0);
+
+            cursor.moveTo(previous);
+            while (cursor.next()) {
+                if (cursor.target() != current) {
+                    continue;
+                }
+                int weight = cursor.weight(criterion);
+                if (weight > bestWeight) {
+                    continue;
+                }
+                for (int c = 0; c < candidate.length; c++) {
+                    candidate[c] = cursor.weight(criteria.get(c));
+                }
+                if (weight < bestWeight || isLess(candidate, best)) {
+                    bestWeight = weight;
+                    int[] swap = best;
+                    best = candidate;
+                    candidate = swap;
+                }
+            }
+
+            for (int c = 0; c < totals.length; c++) {
+                totals[c] += best[c];
+            }
+            cities.add(graph.getCity(current));
+        }
+
+        return new Route(cities, criteria, totals);
+    }
+
+    /**
+     * Лексикографическое сравнение весов по всем критериям в порядке набора.
+     */
+    static boolean isLess(int[] a, int[] b) {
+        for (int c = 0; c < a.length; c++) {
+            if (a[c] != b[c]) {
+                return a[c] < b[c];
+            }
+        }
+        return false;
+    }
+}
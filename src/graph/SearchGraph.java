@@ -0,0 +1,92 @@
+package graph;
+
+import model.City;
+import model.CriteriaSet;
+import model.Criterion;
+
+/**
+ * Индексное представление дорожной сети, по которому работают алгоритмы поиска.
+ * 
+ * Города пронумерованы плотными индексами 0..n-1, рёбра перебираются
+ * через {@link EdgeCursor}: исходящие — для прямого поиска, входящие —
+ * для обратного (от конечного города). Перевод индекс <-> City выполняется только
+ * на границе API (при приёме запроса и при построении маршрута).
+ */
+public interface SearchGraph {
+
+    /**
+     * Возвращает количество городов (индексы городов лежат в диапазоне 0..n-1).
+     * 
+     * @return число вершин
+     */
+    int getCityCount();
+
+    /**
+     * Возвращает набор критериев: курсор отдаёт вес ребра по любому из них.
+     * 
+     * @return набор критериев графа
+     */
+    CriteriaSet getCriteria();
+
+    /**
+     * Возвращает город по внутреннему индексу.
+     * 
+     * @param index индекс города
+     * @return город
+     */
+    City getCity(int index);
+
+    /**
+     * Возвращает внутренний индекс города.
+     * 
+     * @param city город
+     * @return индекс или -1, если город отсутствует в графе
+     */
+    int indexOf(City city);
+
+    /**
+     * Создаёт курсор для перебора исходящих рёбер.
+     * Курсор не потокобезопасен и предназначен для переиспользования в рамках одного поиска.
+     * 
+     * @return новый курсор
+     */
+    EdgeCursor edgeCursor();
+
+    /**
+     * Создаёт курсор для перебора входящих рёбер: target() — город, из которого
+     * ребро ведёт в текущий, weight() — вес этого ребра.
+     * В неориентированном графе совпадает с перебором исходящих рёбер.
+     * 
+     * @return новый курсор
+     */
+    EdgeCursor reverseEdgeCursor();
+
+    /**
+     * Проверяет, есть ли в графе односторонние дороги
+     * (входящие рёбра города могут отличаться от исходящих).
+     * 
+     * @return true для ориентированного графа
+     */
+    boolean isDirected();
+
+    /**
+     * Возвращает наибольший вес ребра по критерию — по нему поиск выбирает
+     * очередь с приоритетом ({@link MonotoneQueue#forMaxWeight(int)}).
+     * Реализация по умолчанию перебирает все рёбра за O(E);
+     * представления с готовым значением переопределяют её.
+     * 
+     * @param criterion критерий
+     * @return наибольший вес или 0, если рёбер нет
+     */
+    default int getMaxWeight(Criterion criterion) {
+        EdgeCursor cursor = edgeCursor();
+        int max = 0;
+        for (int city = 0; city < getCityCount(); city++) {
+            cursor.moveTo(city);
+            while (cursor.next()) {
+                max = Math.max(max, cursor.weight(criterion));
+            }
+        }
+        return max;
+    }
+}
@@ -0,0 +1,126 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * Переиспользуемое рабочее состояние поиска Дейкстры с отметками эпох.
+ *
+ * Массивы расстояний, предшественников и кучи выделяются один раз и живут
+ * между запросами. Вместо заполнения их перед каждым запросом ({@code Arrays.fill}
+ * за O(V)) у каждой вершины хранится номер эпохи — запроса, в котором она
+ * последний раз была затронута. Запрос увеличивает эпоху, и все значения с
+ * другой отметкой считаются начальными: расстояние — бесконечность, вершина —
+ * не в куче и не обработана. Поэтому запрос стоит O(затронутых вершин),
+ * а не O(V): короткий локальный поиск в графе на миллион городов не трогает
+ * остальные мегабайты массивов.
+ *
+ * Рабочая область не потокобезопасна: поиски хранят её по одной на поток
+ * ({@link ThreadLocal}). Массивы растут до размера наибольшего графа,
+ * по которому искали в этом потоке.
+ *
+ * Память: пять массивов int на город ({@link #footprint(int)}).
+ */
+final class SearchWorkspace {
+
+    private int[] stamps = new int[0];
+    private int[] distances = new int[0];
+    private int[] predecessors = new int[0];
+    private IndexedHeap heap = new IndexedHeap(distances);
+    private int epoch;
+    private int touched;
+
+    /**
+     * Начинает новый запрос: O(1), кроме роста массивов и переполнения счётчика эпох.
+     *
+     * @param cityCount число городов графа запроса
+     */
+    void begin(int cityCount) {
+        if (stamps.length < cityCount) {
+            stamps = new int[cityCount];
+            distances = new int[cityCount];
+            predecessors = new int[cityCount];
+            heap = new IndexedHeap(distances);
+            epoch = 0;
+        }
+        if (epoch == Integer.MAX_VALUE) {
+            // Раз в ~2 млрд запросов отметки сбрасываются целиком
+            Arrays.fill(stamps, 0);
+            epoch = 0;
+        }
+        epoch++;
+        touched = 0;
+        heap.truncate();
+    }
+
+    /**
+     * @return расстояние до города в текущем запросе или {@link Integer#MAX_VALUE}, если город не достигнут
+     */
+    int distance(int city) {
+        return stamps[city] == epoch ? distances[city] : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Записывает улучшенное расстояние и предшественника города.
+     * Позиция города в куче не меняется: после вызова нужен {@code heap().update(city)}.
+     */
+    void relax(int city, int distance, int predecessor) {
+        touch(city);
+        distances[city] = distance;
+        predecessors[city] = predecessor;
+    }
+
+    /**
+     * @return true, если город окончательно обработан в текущем запросе
+     */
+    boolean isSettled(int city) {
+        return stamps[city] == epoch && heap.isRemoved(city);
+    }
+
+    /**
+     * Помечает город обработанным — для поиска с собственной очередью вместо {@link #heap()}.
+     */
+    void settle(int city) {
+        touch(city);
+        heap.markRemoved(city);
+    }
+
+    /**
+     * Куча по расстояниям текущего запроса; в неё можно помещать только
+     * города, затронутые {@link #relax(int, int, int)}.
+     */
+    IndexedHeap heap() {
+        return heap;
+    }
+
+    /**
+     * Предшественники для {@link RouteReconstructor}: значения достоверны только
+     * для городов, достигнутых в текущем запросе.
+     */
+    int[] predecessors() {
+        return predecessors;
+    }
+
+    /**
+     * @return число городов, затронутых текущим запросом
+     */
+    int touchedCount() {
+        return touched;
+    }
+
+    /**
+     * @return байты рабочей области на графе из cityCount городов (см. {@link MemoryReport})
+     */
+    static long footprint(int cityCount) {
+        return MemoryReport.align(MemoryReport.OBJECT_HEADER + 4 * MemoryReport.REFERENCE + 4 + 4)
+                + 3 * MemoryReport.array(cityCount, Integer.BYTES)
+                + IndexedHeap.footprint(cityCount);
+    }
+
+    private void touch(int city) {
+        if (stamps[city] != epoch) {
+            stamps[city] = epoch;
+            heap.forget(city);
+            touched++;
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package graph;
+
+import model.City;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Пространственный индекс городов для привязки GPS-координат к ближайшему городу.
+ *
+ * Неявное k-d дерево по точкам на единичной сфере: широта и долгота переводятся
+ * в трёхмерный вектор, и евклидово расстояние между векторами (хорда) монотонно
+ * по расстоянию по поверхности Земли. Поэтому поиск точен на всём земном шаре,
+ * включая полюса и линию перемены дат, без проекций. Узлы хранятся в
+ * примитивных массивах в порядке дерева: узел диапазона [lo, hi) — его середина.
+ *
+ * Индекс неизменяем и потокобезопасен; строится {@link Graph#spatialIndex()}
+ * по городам с координатами и перестраивается после их изменения.
+ *
+ * Построение: O(n log n). Поиск ближайшего: O(log n) в среднем,
+ * k ближайших: O(k log n) в среднем.
+ */
+public final class SpatialIndex {
+
+    /** Средний радиус Земли */
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+
+    /** Нет координат у города (в столбцах графа, в микроградусах) */
+    static final int NO_LOCATION = Integer.MIN_VALUE;
+
+    /** Микроградусов в градусе: точность хранения ~0.1 м */
+    private static final double MICRODEGREES = 1_000_000.0;
+
+    private final City[] cities;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] zs;
+
+    /** Ось разбиения узла: 0 — x, 1 — y, 2 — z */
+    private final byte[] axes;
+
+    /**
+     * Строит индекс по городам с координатами.
+     *
+     * @param cities     города
+     * @param latitudes  широты в микроградусах ({@link #NO_LOCATION} — город пропускается)
+     * @param longitudes долготы в микроградусах
+     */
+    SpatialIndex(List<City> cities, IntList latitudes, IntList longitudes) {
+        int count = 0;
+        for (int i = 0; i < cities.size(); i++) {
+            if (latitudes.get(i) != NO_LOCATION) {
+                count++;
+            }
+        }
+        this.cities = new City[count];
+        this.xs = new double[count];
+        this.ys = new double[count];
+        this.zs = new double[count];
+        this.axes = new byte[count];
+
+        int point = 0;
+        for (int i = 0; i < cities.size(); i++) {
+            if (latitudes.get(i) == NO_LOCATION) {
+                continue;
+            }
+            double lat = Math.toRadians(decode(latitudes.get(i)));
+            double lon = Math.toRadians(decode(longitudes.get(i)));
+            this.cities[point] = cities.get(i);
+            xs[point] = Math.cos(lat) * Math.cos(lon);
+            ys[point] = Math.cos(lat) * Math.sin(lon);
+            zs[point] = Math.sin(lat);
+            point++;
+        }
+        build(0, count);
+    }
+
+    /**
+     * Возвращает число городов с координатами.
+     *
+     * @return размер индекса
+     */
+    public int size() {
+        return cities.length;
+    }
+
+    /**
+     * Находит ближайший к точке город.
+     *
+     * @param latitude  широта в градусах
+     * @param longitude долгота в градусах
+     * @return ближайший город или null, если ни у одного города нет координат
+     * @throws IllegalArgumentException если координаты вне допустимого диапазона
+     */
+    public City nearest(double latitude, double longitude) {
+        List<City> result = nearest(latitude, longitude, 1);
+        return result.isEmpty() ? null : result.get(0);
+    }
+
+    /**
+     * Находит k ближайших к точке городов.
+     *
+     * @param latitude  широта в градусах
+     * @param longitude долгота в градусах
+     * @param k         число городов
+     * @return города в порядке возрастания расстояния (меньше k, если городов с координатами меньше)
+     * @throws IllegalArgumentException если координаты вне допустимого диапазона или k < 1
+     */
+    public List<City> nearest(double latitude, double longitude, int k) {
+        checkLocation(latitude, longitude);
+        if (k < 1) {
+            throw new IllegalArgumentException("Число городов должно быть положительным: " + k);
+        }
+        Search search = new Search(latitude, longitude, Math.min(k, cities.length));
+        search.visit(0, cities.length);
+
+        // Куча максимумов -> порядок по возрастанию расстояния
+        List<City> result = new ArrayList<>(search.size);
+        for (int i = 0; i < search.size; i++) {
+            result.add(null);
+        }
+        while (search.size > 0) {
+            result.set(search.size - 1, cities[search.points[0]]);
+            search.pop();
+        }
+        return result;
+    }
+
+    /**
+     * @return байты объекта и массивов (см. {@link MemoryReport}); объекты городов общие с графом
+     */
+    long footprint() {
+        return MemoryReport.align(MemoryReport.OBJECT_HEADER + 5 * MemoryReport.REFERENCE)
+                + MemoryReport.array(cities.length, MemoryReport.REFERENCE)
+                + 3 * MemoryReport.array(cities.length, Double.BYTES)
+                + MemoryReport.array(cities.length, 1);
+    }
+
+    /**
+     * Расстояние по поверхности Земли между двумя точками (формула гаверсинусов).
+     *
+     * @return расстояние в километрах
+     */
+    public static double distanceKm(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double dLat = Math.toRadians(latitude2 - latitude1);
+        double dLon = Math.toRadians(longitude2 - longitude1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /**
+     * Проверяет диапазон координат: широта [-90, 90], долгота [-180, 180].
+     *
+     * @throws IllegalArgumentException если координаты вне диапазона
+     */
+    static void checkLocation(double latitude, double longitude) {
+        if (!(latitude >= -90 && latitude <= 90) || !(longitude >= -180 && longitude <= 180)) {
+            throw new IllegalArgumentException("Координаты вне допустимого диапазона: " + latitude + ", " + longitude);
+        }
+    }
+
+    /**
+     * Градусы -> микроградусы для хранения в столбцах int.
+     */
+    static int encode(double degrees) {
+        return (int) Math.round(degrees * MICRODEGREES);
+    }
+
+    static double decode(int microdegrees) {
+        return microdegrees / MICRODEGREES;
+    }
+
+    /**
+     * Строит поддерево диапазона [lo, hi): медиана по оси наибольшего разброса — в середину.
+     */
+    private void build(int lo, int hi) {
+        if (hi - lo <= 1) {
+            return;
+        }
+        int axis = widestAxis(lo, hi);
+        int mid = (lo + hi) >>> 1;
+        select(lo, hi - 1, mid, axis);
+        axes[mid] = (byte) axis;
+        build(lo, mid);
+        build(mid + 1, hi);
+    }
+
+    private int widestAxis(int lo, int hi) {
+        double[] spread = new double[3];
+        for (int axis = 0; axis < 3; axis++) {
+            double[] values = coordinates(axis);
+            double min = Double.MAX_VALUE;
+            double max = -Double.MAX_VALUE;
+            for (int i = lo; i < hi; i++) {
+                min = Math.min(min, values[i]);
+                max = Math.max(max, values[i]);
+            }
+            spread[axis] = max - min;
+        }
+        return spread[0] >= spread[1] && spread[0] >= spread[2] ? 0 : spread[1] >= spread[2] ? 1 : 2;
+    }
+
+    /**
+     * Быстрый выбор: k-й по оси элемент на своё место, меньшие — слева, большие — справа.
+     */
+    private void select(int left, int right, int k, int axis) {
+        double[] values = coordinates(axis);
+        while (left < right) {
+            double pivot = values[(left + right) >>> 1];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (values[i] < pivot) {
+                    i++;
+                }
+                while (values[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void swap(int a, int b) {
+        City city = cities[a];
+        cities[a] = cities[b];
+        cities[b] = city;
+        swap(xs, a, b);
+        swap(ys, a, b);
+        swap(zs, a, b);
+    }
+
+    private static void swap(double[] values, int a, int b) {
+        double value = values[a];
+        values[a] = values[b];
+        values[b] = value;
+    }
+
+    private double[] coordinates(int axis) {
+        return axis == 0 ? xs : axis == 1 ? ys : zs;
+    }
+
+    /**
+     * Состояние одного поиска: k лучших точек в куче максимумов по квадрату хорды.
+     */
+    private final class Search {
+        final double x;
+        final double y;
+        final double z;
+        final int k;
+        final int[] points;
+        final double[] distances;
+        int size;
+
+        Search(double latitude, double longitude, int k) {
+            double lat = Math.toRadians(latitude);
+            double lon = Math.toRadians(longitude);
+            this.x = Math.cos(lat) * Math.cos(lon);
+            this.y = Math.cos(lat) * Math.sin(lon);
+            this.z = Math.sin(lat);
+            this.k = k;
+            this.points = new int[k];
+            this.distances = new double[k];
+        }
+
+        void visit(int lo, int hi) {
+            if (lo >= hi || k == 0) {
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            double dx = xs[mid] - x;
+            double dy = ys[mid] - y;
+            double dz = zs[mid] - z;
+            offer(mid, dx * dx + dy * dy + dz * dz);
+            if (hi - lo == 1) {
+                return;
+            }
+
+            // Сначала сторона точки запроса; другая — только если плоскость разбиения ближе k-го кандидата
+            int axis = axes[mid];
+            double diff = axis == 0 ? x - xs[mid] : axis == 1 ? y - ys[mid] : z - zs[mid];
+            if (diff < 0) {
+                visit(lo, mid);
+                if (size < k || diff * diff < distances[0]) {
+                    visit(mid + 1, hi);
+                }
+            } else {
+                visit(mid + 1, hi);
+                if (size < k || diff * diff < distances[0]) {
+                    visit(lo, mid);
+                }
+            }
+        }
+
+        void offer(int point, double distance) {
+            if (size < k) {
+                points[size] = point;
+                distances[size] = distance;
+                siftUp(size++);
+            } else if (distance < distances[0]) {
+                points[0] = point;
+                distances[0] = distance;
+                siftDown(0);
+            }
+        }
+
+        void pop() {
+            size--;
+            points[0] = points[size];
+            distances[0] = distances[size];
+            siftDown(0);
+        }
+
+        void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (distances[parent] >= distances[i]) {
+                    return;
+                }
+                swapEntries(i, parent);
+                i = parent;
+            }
+        }
+
+        void siftDown(int i) {
+            while (true) {
+                int largest = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < size && distances[left] > distances[largest]) {
+                    largest = left;
+                }
+                if (right < size && distances[right] > distances[largest]) {
+                    largest = right;
+                }
+                if (largest == i) {
+                    return;
+                }
+                swapEntries(i, largest);
+                i = largest;
+            }
+        }
+
+        void swapEntries(int a, int b) {
+            int point = points[a];
+            points[a] = points[b];
+            points[b] = point;
+            double distance = distances[a];
+            distances[a] = distances[b];
+            distances[b] = distance;
+        }
+    }
+}
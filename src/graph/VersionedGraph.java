@@ -0,0 +1,365 @@
+package graph;
+
+import model.City;
+import model.CriteriaSet;
+import model.Criterion;
+import model.Road;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Граф с копированием при записи для обновления дорог во время обработки запросов.
+ * 
+ * Читатели берут текущую неизменяемую {@link GraphVersion} одним чтением
+ * атомарной ссылки и никогда не блокируются. Писатели выполняются по одному:
+ * каждое изменение копирует только затронутые блоки рёбер и части
+ * {@link ChunkedArray}, после чего атомарно публикует новую версию.
+ * Запрос, уже начатый на старой версии, доводится до конца по ней.
+ * 
+ * Первая односторонняя дорога отделяет входящие рёбра от исходящих:
+ * новый массив входящих блоков поначалу разделяет с исходящими все блоки,
+ * а дальше каждое изменение дороги обновляет оба массива.
+ * 
+ * Стоимость изменения дороги: O(d + V / 1024 + 1024), где d — степень концов дороги.
+ * Добавление нового города дополнительно копирует индексы по ID и названию: O(V).
+ */
+public final class VersionedGraph {
+
+    private final CriteriaSet criteria;
+
+    /** Размер записи ребра в блоке: цель и веса по всем критериям */
+    private final int stride;
+
+    private final AtomicReference<GraphVersion> current;
+
+    /**
+     * Создаёт пустой версионированный граф с классическим набором критериев.
+     */
+    public VersionedGraph() {
+        this(CriteriaSet.STANDARD);
+    }
+
+    /**
+     * Создаёт пустой версионированный граф с заданным набором критериев.
+     * 
+     * @param criteria набор критериев
+     */
+    public VersionedGraph(CriteriaSet criteria) {
+        this.criteria = criteria;
+        this.stride = 1 + criteria.size();
+        ChunkedArray<int[]> edges = ChunkedArray.empty();
+        this.current = new AtomicReference<>(new GraphVersion(0, criteria, ChunkedArray.empty(), edges, edges,
+                new CityIdIndex(), new HashMap<>(), 0));
+    }
+
+    /**
+     * Создаёт версионированный граф с начальной версией, равной текущему состоянию графа.
+     * Индексы городов совпадают с внутренними индексами графа.
+     * Сложность: O(V + E).
+     * 
+     * @param graph исходный граф
+     */
+    public VersionedGraph(Graph graph) {
+        int cityCount = graph.getCityCount();
+        this.criteria = graph.getCriteria();
+        this.stride = 1 + criteria.size();
+
+        City[] cities = graph.getAllCities().toArray(new City[0]);
+        int[][] edges = new int[cityCount][];
+        Map<String, City> citiesByName = new HashMap<>();
+        for (int city = 0; city < cityCount; city++) {
+            int degree = graph.getDegree(city);
+            int[] block = degree == 0 ? GraphVersion.NO_EDGES : new int[degree * stride];
+            for (int k = 0, position = 0; k < degree; k++, position += stride) {
+                int halfEdge = graph.getHalfEdge(city, k);
+                block[position] = graph.getTarget(halfEdge) | (graph.isOneWay(halfEdge) ? GraphVersion.ONE_WAY : 0);
+                for (Criterion criterion : criteria) {
+                    block[position + 1 + criterion.index()] = graph.getWeight(halfEdge, criterion);
+                }
+            }
+            edges[city] = block;
+            citiesByName.put(cities[city].getName(), cities[city]);
+        }
+        ChunkedArray<int[]> forward = ChunkedArray.of(edges);
+        ChunkedArray<int[]> reverse = graph.isDirected() ? ChunkedArray.of(reverseBlocks(graph)) : forward;
+
+        this.current = new AtomicReference<>(new GraphVersion(0, criteria, ChunkedArray.of(cities), forward, reverse,
+                graph.copyIdIndex(), citiesByName, graph.getRoadCount()));
+    }
+
+    /**
+     * Блоки входящих рёбер графа с односторонними дорогами.
+     */
+    private int[][] reverseBlocks(Graph graph) {
+        int[][] blocks = new int[graph.getCityCount()][];
+        for (int city = 0; city < blocks.length; city++) {
+            int degree = graph.getReverseDegree(city);
+            int[] block = degree == 0 ? GraphVersion.NO_EDGES : new int[degree * stride];
+            for (int k = 0, position = 0; k < degree; k++, position += stride) {
+                int halfEdge = graph.getReverseHalfEdge(city, k);
+                block[position] = graph.getSource(halfEdge) | (graph.isOneWay(halfEdge) ? GraphVersion.ONE_WAY : 0);
+                for (Criterion criterion : criteria) {
+                    block[position + 1 + criterion.index()] = graph.getWeight(halfEdge, criterion);
+                }
+            }
+            blocks[city] = block;
+        }
+        return blocks;
+    }
+
+    /**
+     * Возвращает последнюю опубликованную версию. Не блокируется.
+     * Поиск должен выполняться целиком по одной полученной версии.
+     * 
+     * @return текущая версия графа
+     */
+    public GraphVersion current() {
+        return current.get();
+    }
+
+    /**
+     * Добавляет город (или заменяет город с тем же ID, сохраняя его индекс и дороги).
+     * 
+     * @param city город
+     * @return опубликованная версия
+     */
+    public synchronized GraphVersion addCity(City city) {
+        GraphVersion version = current.get();
+        ChunkedArray<City> cities;
+        ChunkedArray<int[]> edges = version.edges;
+        ChunkedArray<int[]> reverseEdges = version.reverseEdges;
+        CityIdIndex indexById = version.indexById;
+
+        int index = indexById.get(city.getId());
+        if (index < 0) {
+            indexById = indexById.copy();
+            indexById.put(city.getId(), version.getCityCount());
+            cities = version.cities.append(city);
+            edges = edges.append(GraphVersion.NO_EDGES);
+            reverseEdges = version.isDirected() ? reverseEdges.append(GraphVersion.NO_EDGES) : edges;
+        } else {
+            cities = version.cities.with(index, city);
+        }
+
+        Map<String, City> citiesByName = new HashMap<>(version.citiesByName);
+        if (index >= 0) {
+            // Прежнее название заменённого города больше к нему не ведёт
+            citiesByName.remove(version.getCity(index).getName(), version.getCity(index));
+        }
+        citiesByName.put(city.getName(), city);
+        return publish(version, cities, edges, reverseEdges, indexById, citiesByName, version.getRoadCount());
+    }
+
+    /**
+     * Добавляет дорогу (двустороннюю или одностороннюю).
+     * 
+     * @param road дорога
+     * @return опубликованная версия
+     * @throws IllegalStateException    если города дороги не добавлены в граф
+     * @throws IllegalArgumentException если число весов дороги не совпадает с числом критериев
+     */
+    public synchronized GraphVersion addRoad(Road road) {
+        checkWeights(road);
+        GraphVersion version = current.get();
+        int from = indexOf(version, road.getFrom());
+        int to = indexOf(version, road.getTo());
+        boolean oneWay = road.isOneWay();
+
+        ChunkedArray<int[]> edges = appendEdge(version.edges, from, oneWay ? to | GraphVersion.ONE_WAY : to, road);
+        if (!oneWay) {
+            edges = appendEdge(edges, to, from, road);
+        }
+        ChunkedArray<int[]> reverseEdges = edges;
+        if (oneWay || version.isDirected()) {
+            reverseEdges = appendEdge(version.reverseEdges, to, oneWay ? from | GraphVersion.ONE_WAY : from, road);
+            if (!oneWay) {
+                reverseEdges = appendEdge(reverseEdges, from, to, road);
+            }
+        }
+        return publish(version, version.cities, edges, reverseEdges, version.indexById, version.citiesByName,
+                version.getRoadCount() + 1);
+    }
+
+    /**
+     * Заменяет веса дорог между городами дороги на её веса, как {@link Graph#updateRoad(Road)}:
+     * для двусторонней дороги изменяются все двусторонние дороги между её городами,
+     * для односторонней — все односторонние дороги от начала к концу.
+     * 
+     * @param road дорога с новыми параметрами
+     * @return опубликованная версия
+     * @throws IllegalStateException    если города дороги не добавлены в граф
+     * @throws IllegalArgumentException если между городами нет дороги
+     *                                  или число весов дороги не совпадает с числом критериев
+     */
+    public synchronized GraphVersion updateRoad(Road road) {
+        checkWeights(road);
+        GraphVersion version = current.get();
+        int from = indexOf(version, road.getFrom());
+        int to = indexOf(version, road.getTo());
+        // Пометка направления отделяет односторонние дороги от двусторонних между теми же городами
+        int flag = road.isOneWay() ? GraphVersion.ONE_WAY : 0;
+        boolean bothWays = !road.isOneWay() && from != to;
+        if (countExact(version.edges.get(from), to | flag) == 0) {
+            throw new IllegalArgumentException("Дорога не найдена: " + road.getFrom() + " - " + road.getTo());
+        }
+
+        ChunkedArray<int[]> edges = setWeights(version.edges, from, to | flag, road);
+        if (bothWays) {
+            edges = setWeights(edges, to, from, road);
+        }
+        ChunkedArray<int[]> reverseEdges = edges;
+        if (version.isDirected()) {
+            reverseEdges = setWeights(version.reverseEdges, to, from | flag, road);
+            if (bothWays) {
+                reverseEdges = setWeights(reverseEdges, from, to, road);
+            }
+        }
+        return publish(version, version.cities, edges, reverseEdges, version.indexById, version.citiesByName,
+                version.getRoadCount());
+    }
+
+    /**
+     * Закрывает (удаляет) все дороги между двумя городами в обоих направлениях.
+     * 
+     * @param a первый город
+     * @param b второй город
+     * @return опубликованная версия
+     * @throws IllegalStateException    если города не добавлены в граф
+     * @throws IllegalArgumentException если между городами нет дороги
+     */
+    public synchronized GraphVersion closeRoad(City a, City b) {
+        GraphVersion version = current.get();
+        int from = indexOf(version, a);
+        int to = indexOf(version, b);
+
+        int removed = countRoads(version, from, to);
+        if (removed == 0) {
+            throw new IllegalArgumentException("Дорога не найдена: " + a + " - " + b);
+        }
+        ChunkedArray<int[]> edges = removeEdges(version.edges, from, to);
+        if (from != to) {
+            edges = removeEdges(edges, to, from);
+        }
+        ChunkedArray<int[]> reverseEdges = edges;
+        if (version.isDirected()) {
+            reverseEdges = removeEdges(version.reverseEdges, to, from);
+            if (from != to) {
+                reverseEdges = removeEdges(reverseEdges, from, to);
+            }
+        }
+        return publish(version, version.cities, edges, reverseEdges, version.indexById, version.citiesByName,
+                version.getRoadCount() - removed);
+    }
+
+    private GraphVersion publish(GraphVersion previous, ChunkedArray<City> cities, ChunkedArray<int[]> edges,
+                                 ChunkedArray<int[]> reverseEdges, CityIdIndex indexById,
+                                 Map<String, City> citiesByName, int roadCount) {
+        GraphVersion next = new GraphVersion(previous.getVersion() + 1, criteria, cities, edges, reverseEdges,
+                indexById, citiesByName, roadCount);
+        current.set(next);
+        return next;
+    }
+
+    private void checkWeights(Road road) {
+        if (road.getWeightCount() != criteria.size()) {
+            throw new IllegalArgumentException("Ожидалось " + criteria.size()
+                    + " весов дороги, получено " + road.getWeightCount() + ": " + road);
+        }
+    }
+
+    private static int indexOf(GraphVersion version, City city) {
+        int index = version.indexOf(city);
+        if (index < 0) {
+            throw new IllegalStateException("Город не добавлен в граф: " + city);
+        }
+        return index;
+    }
+
+    /**
+     * Число дорог между городами a и b в любом направлении.
+     * Во входящих блоках ориентированного графа односторонние дороги помечены,
+     * поэтому двусторонняя дорога не учитывается дважды.
+     */
+    private int countRoads(GraphVersion version, int a, int b) {
+        if (!version.isDirected()) {
+            int edges = countEdges(version.edges.get(a), b);
+            // Петля занимает две записи в блоке своего города
+            return a == b ? edges / 2 : edges;
+        }
+        int[] intoB = version.reverseEdges.get(b);
+        int oneWay = countExact(intoB, a | GraphVersion.ONE_WAY);
+        int twoWay = countExact(intoB, a);
+        if (a == b) {
+            return oneWay + twoWay / 2;
+        }
+        return oneWay + twoWay + countExact(version.reverseEdges.get(a), b | GraphVersion.ONE_WAY);
+    }
+
+    private int countEdges(int[] block, int target) {
+        int count = 0;
+        for (int position = 0; position < block.length; position += stride) {
+            if ((block[position] & ~GraphVersion.ONE_WAY) == target) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int countExact(int[] block, int value) {
+        int count = 0;
+        for (int position = 0; position < block.length; position += stride) {
+            if (block[position] == value) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private ChunkedArray<int[]> appendEdge(ChunkedArray<int[]> blocks, int city, int target, Road road) {
+        return blocks.with(city, appendEdge(blocks.get(city), target, road));
+    }
+
+    private int[] appendEdge(int[] block, int target, Road road) {
+        int[] result = Arrays.copyOf(block, block.length + stride);
+        result[block.length] = target;
+        for (Criterion criterion : criteria) {
+            result[block.length + 1 + criterion.index()] = road.getValueByCriterion(criterion);
+        }
+        return result;
+    }
+
+    /**
+     * Копирует блок города с новыми весами всех рёбер к заданной цели
+     * (с пометкой {@link GraphVersion#ONE_WAY} — только рёбер односторонних дорог).
+     */
+    private ChunkedArray<int[]> setWeights(ChunkedArray<int[]> blocks, int city, int target, Road road) {
+        int[] block = blocks.get(city).clone();
+        for (int position = 0; position < block.length; position += stride) {
+            if (block[position] == target) {
+                for (Criterion criterion : criteria) {
+                    block[position + 1 + criterion.index()] = road.getValueByCriterion(criterion);
+                }
+            }
+        }
+        return blocks.with(city, block);
+    }
+
+    private ChunkedArray<int[]> removeEdges(ChunkedArray<int[]> blocks, int city, int target) {
+        return blocks.with(city, removeEdges(blocks.get(city), target));
+    }
+
+    private int[] removeEdges(int[] block, int target) {
+        int[] result = new int[block.length];
+        int length = 0;
+        for (int position = 0; position < block.length; position += stride) {
+            if ((block[position] & ~GraphVersion.ONE_WAY) != target) {
+                System.arraycopy(block, position, result, length, stride);
+                length += stride;
+            }
+        }
+        return length == 0 ? GraphVersion.NO_EDGES : Arrays.copyOf(result, length);
+    }
+}
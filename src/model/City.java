@@ -5,21 +5,21 @@ package model;
  * Город идентифицируется уникальным ID и имеет название.
  */
 public class City {
-    private final int id;
+    private final long id;
     private final String name;
 
     /**
      * Создаёт новый город.
      * 
-     * @param id   уникальный идентификатор города
+     * @param id   уникальный идентификатор города (допускаются разреженные и 10-значные ID)
      * @param name название города
      */
-    public City(int id, String name) {
+    public City(long id, String name) {
         this.id = id;
         this.name = name;
     }
 
-    public int getId() {
+    public long getId() {
         return id;
     }
 
@@ -37,7 +37,7 @@ public class City {
 
     @Override
     public int hashCode() {
-        return id; // Прямое использование примитива эффективнее Objects.hash()
+        return Long.hashCode(id); // Прямое использование примитива эффективнее Objects.hash()
     }
 
     @Override
@@ -0,0 +1,142 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Упорядоченный набор критериев, заданный заголовком входного файла.
+ *
+ * Порядок критериев в наборе — порядок весов в строке дороги, столбцов весов
+ * в графе и параметров в выводе маршрута. Набор по умолчанию {@link #STANDARD}
+ * состоит из длины, времени и стоимости; в наборе с теми же первыми критериями
+ * используются те же константы {@link Criterion}, поэтому классические
+ * критерии можно сравнивать как раньше.
+ */
+public final class CriteriaSet implements Iterable<Criterion> {
+
+    /** Классический набор: длина, время, стоимость */
+    public static final CriteriaSet STANDARD =
+            new CriteriaSet(Criterion.DISTANCE, Criterion.TIME, Criterion.COST);
+
+    private static final Criterion[] STANDARD_CRITERIA = {Criterion.DISTANCE, Criterion.TIME, Criterion.COST};
+
+    private final Criterion[] criteria;
+
+    private CriteriaSet(Criterion... criteria) {
+        this.criteria = criteria;
+    }
+
+    /**
+     * Создаёт набор критериев по обозначениям.
+     *
+     * @param shortNames короткие обозначения в порядке столбцов весов
+     * @param fullNames  полные названия в том же порядке
+     * @return набор критериев
+     * @throws IllegalArgumentException если набор пуст, списки разной длины
+     *                                  или обозначения повторяются
+     */
+    public static CriteriaSet of(List<String> shortNames, List<String> fullNames) {
+        if (shortNames.isEmpty()) {
+            throw new IllegalArgumentException("Пустой набор критериев");
+        }
+        if (shortNames.size() != fullNames.size()) {
+            throw new IllegalArgumentException("Число обозначений и названий критериев не совпадает");
+        }
+        Criterion[] criteria = new Criterion[shortNames.size()];
+        for (int i = 0; i < criteria.length; i++) {
+            String shortName = shortNames.get(i);
+            for (int j = 0; j < i; j++) {
+                if (criteria[j].getShortName().equals(shortName)) {
+                    throw new IllegalArgumentException("Повторяющийся критерий: " + shortName);
+                }
+            }
+            Criterion criterion = new Criterion(i, shortName, fullNames.get(i));
+            // Классические критерии на своих местах — те же константы
+            if (i < STANDARD_CRITERIA.length && STANDARD_CRITERIA[i].equals(criterion)) {
+                criterion = STANDARD_CRITERIA[i];
+            }
+            criteria[i] = criterion;
+        }
+        if (Arrays.equals(criteria, STANDARD_CRITERIA)) {
+            return STANDARD;
+        }
+        return new CriteriaSet(criteria);
+    }
+
+    /**
+     * @return число критериев
+     */
+    public int size() {
+        return criteria.length;
+    }
+
+    /**
+     * @param index номер критерия
+     * @return критерий с этим номером
+     */
+    public Criterion get(int index) {
+        return criteria[index];
+    }
+
+    /**
+     * Проверяет, что критерий принадлежит этому набору.
+     */
+    public boolean contains(Criterion criterion) {
+        int index = criterion.index();
+        return index < criteria.length && criteria[index].equals(criterion);
+    }
+
+    /**
+     * Получает критерий по его короткому обозначению.
+     *
+     * @param shortName короткое обозначение критерия
+     * @return соответствующий критерий
+     * @throws IllegalArgumentException если обозначение не найдено
+     */
+    public Criterion fromShortName(String shortName) {
+        for (Criterion criterion : criteria) {
+            if (criterion.getShortName().equals(shortName)) {
+                return criterion;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестный критерий: " + shortName);
+    }
+
+    /**
+     * @return критерии в порядке набора
+     */
+    public List<Criterion> asList() {
+        return Collections.unmodifiableList(Arrays.asList(criteria));
+    }
+
+    @Override
+    public Iterator<Criterion> iterator() {
+        return asList().iterator();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CriteriaSet)) return false;
+        return Arrays.equals(criteria, ((CriteriaSet) o).criteria);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(criteria);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Criterion criterion : criteria) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(criterion.getShortName()).append(": ").append(criterion.getFullName());
+        }
+        return sb.toString();
+    }
+}
@@ -1,27 +1,48 @@
 package model;
 
 /**
- * Критерии оптимизации маршрута.
- * Каждый критерий соответствует одному из параметров дороги.
+ * Критерий оптимизации маршрута — один из параметров дороги.
+ *
+ * Набор критериев задаётся заголовком входного файла ({@link CriteriaSet});
+ * классические длина, время и стоимость доступны как константы и составляют
+ * набор по умолчанию. Номер критерия {@link #index()} — номер столбца весов
+ * в графе, поэтому поиск берёт вес ребра без ветвления по критерию.
  */
-public enum Criterion {
+public final class Criterion {
     /** Длина маршрута в километрах */
-    DISTANCE("Д", "ДЛИНА"),
-    
+    public static final Criterion DISTANCE = new Criterion(0, "Д", "ДЛИНА");
+
     /** Время в пути в минутах */
-    TIME("В", "ВРЕМЯ"),
-    
+    public static final Criterion TIME = new Criterion(1, "В", "ВРЕМЯ");
+
     /** Стоимость проезда в рублях */
-    COST("С", "СТОИМОСТЬ");
+    public static final Criterion COST = new Criterion(2, "С", "СТОИМОСТЬ");
 
+    private final int index;
     private final String shortName;
     private final String fullName;
 
-    Criterion(String shortName, String fullName) {
+    /**
+     * @param index     номер критерия в наборе (номер столбца весов)
+     * @param shortName короткое обозначение для запросов и вывода
+     * @param fullName  полное название для вывода
+     */
+    public Criterion(int index, String shortName, String fullName) {
+        if (index < 0) {
+            throw new IllegalArgumentException("Отрицательный номер критерия: " + index);
+        }
+        this.index = index;
         this.shortName = shortName;
         this.fullName = fullName;
     }
 
+    /**
+     * @return номер критерия в наборе
+     */
+    public int index() {
+        return index;
+    }
+
     public String getShortName() {
         return shortName;
     }
@@ -30,19 +51,21 @@ public enum Criterion {
         return fullName;
     }
 
-    /**
-     * Получает критерий по его короткому обозначению (Д, В, С).
-     * 
-     * @param shortName короткое обозначение критерия
-     * @return соответствующий критерий
-     * @throws IllegalArgumentException если обозначение не найдено
-     */
-    public static Criterion fromShortName(String shortName) {
-        for (Criterion c : values()) {
-            if (c.shortName.equals(shortName)) {
-                return c;
-            }
-        }
-        throw new IllegalArgumentException("Неизвестный критерий: " + shortName);
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Criterion)) return false;
+        Criterion other = (Criterion) o;
+        return index == other.index && shortName.equals(other.shortName) && fullName.equals(other.fullName);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * index + shortName.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return fullName;
     }
 }
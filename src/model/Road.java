@@ -2,15 +2,16 @@ package model;
 
 /**
  * Представляет дорогу между двумя городами.
- * Дорога характеризуется тремя параметрами: длина, время, стоимость.
- * Все дороги двусторонние.
+ * Дорога характеризуется весами по критериям набора ({@link CriteriaSet}):
+ * по умолчанию это длина, время и стоимость.
+ * По умолчанию дорога двусторонняя; односторонняя дорога (съезд, паром
+ * с разной стоимостью в разные стороны) проходима только от from к to.
  */
 public class Road {
     private final City from;
     private final City to;
-    private final int distance;  // длина в километрах
-    private final int time;      // время в минутах
-    private final int cost;      // стоимость в рублях
+    private final int[] weights; // weights[criterion.index()]
+    private final boolean oneWay;
 
     /**
      * Создаёт новую дорогу между городами.
@@ -22,11 +23,36 @@ public class Road {
      * @param cost     стоимость проезда в рублях
      */
     public Road(City from, City to, int distance, int time, int cost) {
+        this(from, to, distance, time, cost, false);
+    }
+
+    /**
+     * Создаёт новую дорогу с заданной направленностью.
+     * 
+     * @param from     начальный город
+     * @param to       конечный город
+     * @param distance длина дороги в километрах
+     * @param time     время в пути в минутах
+     * @param cost     стоимость проезда в рублях
+     * @param oneWay   true — дорога проходима только от from к to
+     */
+    public Road(City from, City to, int distance, int time, int cost, boolean oneWay) {
+        this(from, to, new int[]{distance, time, cost}, oneWay);
+    }
+
+    /**
+     * Создаёт дорогу с весами по произвольному набору критериев.
+     * 
+     * @param from    начальный город
+     * @param to      конечный город
+     * @param weights веса в порядке критериев набора
+     * @param oneWay  true — дорога проходима только от from к to
+     */
+    public Road(City from, City to, int[] weights, boolean oneWay) {
         this.from = from;
         this.to = to;
-        this.distance = distance;
-        this.time = time;
-        this.cost = cost;
+        this.weights = weights.clone();
+        this.oneWay = oneWay;
     }
 
     public City getFrom() {
@@ -38,15 +64,29 @@ public class Road {
     }
 
     public int getDistance() {
-        return distance;
+        return getValueByCriterion(Criterion.DISTANCE);
     }
 
     public int getTime() {
-        return time;
+        return getValueByCriterion(Criterion.TIME);
     }
 
     public int getCost() {
-        return cost;
+        return getValueByCriterion(Criterion.COST);
+    }
+
+    /**
+     * @return число весов дороги (размер набора критериев)
+     */
+    public int getWeightCount() {
+        return weights.length;
+    }
+
+    /**
+     * @return true, если дорога проходима только от from к to
+     */
+    public boolean isOneWay() {
+        return oneWay;
     }
 
     /**
@@ -56,17 +96,23 @@ public class Road {
      * @return значение соответствующего параметра
      */
     public int getValueByCriterion(Criterion criterion) {
-        switch (criterion) {
-            case DISTANCE: return distance;
-            case TIME: return time;
-            case COST: return cost;
-            default: throw new IllegalArgumentException("Неизвестный критерий: " + criterion);
+        int index = criterion.index();
+        if (index >= weights.length) {
+            throw new IllegalArgumentException("Неизвестный критерий: " + criterion);
         }
+        return weights[index];
     }
 
     @Override
     public String toString() {
-        return String.format("%s - %s: %d км, %d мин, %d руб", 
-                from.getName(), to.getName(), distance, time, cost);
+        if (weights.length == 3) {
+            return String.format("%s %s %s: %d км, %d мин, %d руб",
+                    from.getName(), oneWay ? "->" : "-", to.getName(), weights[0], weights[1], weights[2]);
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int weight : weights) {
+            sb.append(sb.length() == 0 ? "" : ", ").append(weight);
+        }
+        return String.format("%s %s %s: %s", from.getName(), oneWay ? "->" : "-", to.getName(), sb);
     }
 }
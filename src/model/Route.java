@@ -7,16 +7,16 @@ import java.util.StringJoiner;
 
 /**
  * Представляет маршрут — последовательность городов с суммарными параметрами.
- * Хранит общую длину, время и стоимость пути.
+ * Хранит суммы весов пути по всем критериям набора (по умолчанию — общую
+ * длину, время и стоимость).
  */
 public class Route {
     /** Кэшированный пустой маршрут (Flyweight pattern) */
     private static final Route EMPTY = new Route(Collections.emptyList(), Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE);
     
     private final List<City> cities;
-    private final int totalDistance;
-    private final int totalTime;
-    private final int totalCost;
+    private final CriteriaSet criteria;
+    private final int[] totals; // totals[criterion.index()]
 
     /**
      * Создаёт маршрут из списка городов и суммарных параметров.
@@ -27,10 +27,23 @@ public class Route {
      * @param totalCost     общая стоимость в рублях
      */
     public Route(List<City> cities, int totalDistance, int totalTime, int totalCost) {
+        this(cities, CriteriaSet.STANDARD, new int[]{totalDistance, totalTime, totalCost});
+    }
+
+    /**
+     * Создаёт маршрут с суммами по произвольному набору критериев.
+     * 
+     * @param cities   список городов в порядке следования
+     * @param criteria набор критериев
+     * @param totals   суммы весов в порядке критериев набора
+     */
+    public Route(List<City> cities, CriteriaSet criteria, int[] totals) {
+        if (totals.length != criteria.size()) {
+            throw new IllegalArgumentException("Ожидалось " + criteria.size() + " сумм, получено " + totals.length);
+        }
         this.cities = new ArrayList<>(cities);
-        this.totalDistance = totalDistance;
-        this.totalTime = totalTime;
-        this.totalCost = totalCost;
+        this.criteria = criteria;
+        this.totals = totals.clone();
     }
 
     /**
@@ -55,30 +68,40 @@ public class Route {
     }
 
     public int getTotalDistance() {
-        return totalDistance;
+        return getValueByCriterion(Criterion.DISTANCE);
     }
 
     public int getTotalTime() {
-        return totalTime;
+        return getValueByCriterion(Criterion.TIME);
     }
 
     public int getTotalCost() {
-        return totalCost;
+        return getValueByCriterion(Criterion.COST);
+    }
+
+    /**
+     * @return набор критериев, по которым посчитаны суммы
+     */
+    public CriteriaSet getCriteria() {
+        return criteria;
     }
 
     /**
      * Возвращает значение суммарного параметра по заданному критерию.
      * 
      * @param criterion критерий оптимизации
-     * @return значение соответствующего суммарного параметра
+     * @return значение соответствующего суммарного параметра;
+     *         для несуществующего маршрута — Integer.MAX_VALUE
      */
     public int getValueByCriterion(Criterion criterion) {
-        switch (criterion) {
-            case DISTANCE: return totalDistance;
-            case TIME: return totalTime;
-            case COST: return totalCost;
-            default: throw new IllegalArgumentException("Неизвестный критерий: " + criterion);
+        int index = criterion.index();
+        if (index < totals.length) {
+            return totals[index];
         }
+        if (!exists()) {
+            return Integer.MAX_VALUE;
+        }
+        throw new IllegalArgumentException("Неизвестный критерий: " + criterion);
     }
 
     /**
@@ -103,7 +126,11 @@ public class Route {
      * @return строка с параметрами маршрута
      */
     public String getParamsString() {
-        return String.format("Д=%d, В=%d, С=%d", totalDistance, totalTime, totalCost);
+        StringJoiner joiner = new StringJoiner(", ");
+        for (Criterion criterion : criteria) {
+            joiner.add(criterion.getShortName() + "=" + totals[criterion.index()]);
+        }
+        return joiner.toString();
     }
 
     @Override
@@ -1,7 +1,9 @@
 package parser;
 
 import graph.Graph;
+import graph.GraphBuilder;
 import model.City;
+import model.CriteriaSet;
 import model.Criterion;
 import model.Road;
 
@@ -12,24 +14,48 @@ import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * Парсер входного файла с данными о дорожной сети и запросах.
- * Обрабатывает три секции: [CITIES], [ROADS], [REQUESTS].
+ * Обрабатывает секции [CITIES], [ROADS], [REQUESTS] и необязательный
+ * заголовок [CRITERIA] — набор критериев в порядке весов дороги.
+ * Без заголовка используются длина, время и стоимость.
  */
 public class InputParser {
 
-    /** Регулярное выражение для строки города: "ID: Название" */
-    private static final Pattern CITY_PATTERN = Pattern.compile("(\\d+):\\s*(.+)");
+    /** Регулярное выражение для строки критерия: "Обозначение: НАЗВАНИЕ" */
+    private static final Pattern CRITERION_PATTERN = Pattern.compile("([^:\\s]+):\\s*(.+)");
 
-    /** Регулярное выражение для строки дороги: "ID1 - ID2: длина, время, стоимость" */
-    private static final Pattern ROAD_PATTERN = Pattern.compile("(\\d+)\\s*-\\s*(\\d+):\\s*(\\d+),\\s*(\\d+),\\s*(\\d+)");
+    /** Регулярное выражение для строки города: "ID: Название" или "ID: Название | широта, долгота" */
+    private static final Pattern CITY_PATTERN = Pattern.compile(
+            "(\\d+):\\s*(.+?)(?:\\s*\\|\\s*(-?\\d+(?:\\.\\d+)?)\\s*,\\s*(-?\\d+(?:\\.\\d+)?))?");
 
-    /** Регулярное выражение для запроса: "Город1 -> Город2 | (П1,П2,П3)" */
-    private static final Pattern REQUEST_PATTERN = Pattern.compile("(.+?)\\s*->\\s*(.+?)\\s*\\|\\s*\\(([ДВС]),([ДВС]),([ДВС])\\)");
+    /** Регулярное выражение для точки запроса по координатам: "@широта, долгота" */
+    private static final Pattern LOCATION_PATTERN = Pattern.compile("@\\s*(-?\\d+(?:\\.\\d+)?)\\s*,\\s*(-?\\d+(?:\\.\\d+)?)");
 
+    /**
+     * Регулярное выражение для строки дороги: "ID1 - ID2: вес1, вес2, ..."
+     * (двусторонняя) или "ID1 -> ID2: ..." (односторонняя, от ID1 к ID2);
+     * по одному весу на каждый критерий набора
+     */
+    private static final Pattern ROAD_PATTERN = Pattern.compile("(\\d+)\\s*(->|-)\\s*(\\d+):\\s*(\\d+(?:\\s*,\\s*\\d+)*)");
+
+    /** Регулярное выражение для запроса: "Город1 -> Город2 | (П1,П2,...)" */
+    private static final Pattern REQUEST_PATTERN = Pattern.compile("(.+?)\\s*->\\s*(.+?)\\s*\\|\\s*\\(([^)]*)\\)");
+
+    /** Разделитель списков весов и приоритетов */
+    private static final Pattern COMMA = Pattern.compile("\\s*,\\s*");
+
+    /** Обозначения и названия критериев из заголовка [CRITERIA] */
+    private List<String> criterionShortNames;
+    private List<String> criterionFullNames;
+    private CriteriaSet criteria;
+
+    /** Накопитель городов и дорог до первого запроса (массовое построение графа); создаётся после заголовка */
+    private GraphBuilder builder;
     private Graph graph;
     private List<Request> requests;
 
@@ -39,11 +65,28 @@ public class InputParser {
     public static class Request {
         private final String fromCity;
         private final String toCity;
+        private final City from;
+        private final City to;
         private final List<Criterion> priorities;
 
         public Request(String fromCity, String toCity, List<Criterion> priorities) {
+            this(fromCity, toCity, null, null, priorities);
+        }
+
+        /**
+         * Создаёт запрос между уже найденными городами (например, привязанными к точкам
+         * по координатам): решатель не ищет их по названию, поэтому среди городов
+         * с одинаковыми названиями используется именно указанный.
+         */
+        public Request(City from, City to, List<Criterion> priorities) {
+            this(from.getName(), to.getName(), from, to, priorities);
+        }
+
+        private Request(String fromCity, String toCity, City from, City to, List<Criterion> priorities) {
             this.fromCity = fromCity;
             this.toCity = toCity;
+            this.from = from;
+            this.to = to;
             this.priorities = priorities;
         }
 
@@ -55,6 +98,20 @@ public class InputParser {
             return toCity;
         }
 
+        /**
+         * @return город отправления или null, если он задан только названием
+         */
+        public City getFrom() {
+            return from;
+        }
+
+        /**
+         * @return город назначения или null, если он задан только названием
+         */
+        public City getTo() {
+            return to;
+        }
+
         public List<Criterion> getPriorities() {
             return priorities;
         }
@@ -73,7 +130,11 @@ public class InputParser {
      * @throws IllegalArgumentException при ошибке формата данных
      */
     public void parse(String filename) throws IOException {
-        graph = new Graph();
+        criterionShortNames = new ArrayList<>();
+        criterionFullNames = new ArrayList<>();
+        criteria = null;
+        builder = null;
+        graph = null;
         requests = new ArrayList<>();
 
         String currentSection = null;
@@ -102,6 +163,9 @@ public class InputParser {
                 // Обрабатываем строку в зависимости от текущей секции
                 try {
                     switch (currentSection) {
+                        case "CRITERIA":
+                            parseCriterion(line);
+                            break;
                         case "CITIES":
                             parseCity(line);
                             break;
@@ -109,7 +173,7 @@ public class InputParser {
                             parseRoad(line);
                             break;
                         case "REQUESTS":
-                            parseRequest(line);
+                            parseRequest(line, criteria(), builtGraph()::hasCity, builtGraph());
                             break;
                         default:
                             // Игнорируем неизвестные секции
@@ -120,11 +184,121 @@ public class InputParser {
                 }
             }
         }
+        builtGraph();
+    }
+
+    /**
+     * Возвращает граф, при первом обращении строя его из накопленных городов и дорог.
+     * Города и дороги, встреченные после этого, добавляются в граф по одной.
+     */
+    private Graph builtGraph() {
+        if (graph == null) {
+            graph = builder().build();
+            builder = null;
+        }
+        return graph;
+    }
+
+    /**
+     * Возвращает набор критериев, при первом обращении фиксируя заголовок [CRITERIA].
+     */
+    private CriteriaSet criteria() {
+        if (criteria == null) {
+            criteria = criterionShortNames.isEmpty()
+                    ? CriteriaSet.STANDARD
+                    : CriteriaSet.of(criterionShortNames, criterionFullNames);
+        }
+        return criteria;
+    }
+
+    private GraphBuilder builder() {
+        if (builder == null) {
+            builder = new GraphBuilder(criteria(), 16, 16);
+        }
+        return builder;
+    }
+
+    /**
+     * Парсит строку заголовка с критерием.
+     * Формат: "Обозначение: НАЗВАНИЕ"
+     */
+    private void parseCriterion(String line) {
+        if (criteria != null) {
+            throw new IllegalArgumentException("Секция [CRITERIA] должна предшествовать городам, дорогам и запросам");
+        }
+        Matcher matcher = CRITERION_PATTERN.matcher(line);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Неверный формат критерия: " + line);
+        }
+        String shortName = matcher.group(1);
+        if (criterionShortNames.contains(shortName)) {
+            throw new IllegalArgumentException("Повторяющийся критерий: " + shortName);
+        }
+        criterionShortNames.add(shortName);
+        criterionFullNames.add(matcher.group(2).trim());
+    }
+
+    /**
+     * Читает только секцию [REQUESTS] — для запуска по готовому двоичному
+     * файлу графа, когда секции [CITIES] и [ROADS] не нужно разбирать.
+     * 
+     * @param filename  путь к файлу с запросами
+     * @param knownCity проверка существования города по названию
+     * @throws IOException при ошибке чтения файла
+     * @throws IllegalArgumentException при ошибке формата данных
+     */
+    public void parseRequests(String filename, Predicate<String> knownCity) throws IOException {
+        parseRequests(filename, CriteriaSet.STANDARD, knownCity);
+    }
+
+    /**
+     * Читает только секцию [REQUESTS]; приоритеты разбираются по набору критериев графа.
+     * 
+     * @param filename  путь к файлу с запросами
+     * @param criteria  набор критериев графа
+     * @param knownCity проверка существования города по названию
+     * @throws IOException при ошибке чтения файла
+     * @throws IllegalArgumentException при ошибке формата данных
+     */
+    public void parseRequests(String filename, CriteriaSet criteria, Predicate<String> knownCity)
+            throws IOException {
+        this.criteria = criteria;
+        builder = null;
+        graph = null;
+        requests = new ArrayList<>();
+
+        boolean inRequests = false;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(filename), StandardCharsets.UTF_8))) {
+            String line;
+            int lineNumber = 0;
+
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                if (line.startsWith("[") && line.endsWith("]")) {
+                    inRequests = line.equals("[REQUESTS]");
+                    continue;
+                }
+                if (!inRequests) {
+                    continue;
+                }
+                try {
+                    parseRequest(line, criteria, knownCity, null);
+                } catch (Exception e) {
+                    throw new IllegalArgumentException(
+                            "Ошибка парсинга в строке " + lineNumber + ": " + line + "\n" + e.getMessage());
+                }
+            }
+        }
     }
 
     /**
      * Парсит строку с информацией о городе.
-     * Формат: "ID: Название_города"
+     * Формат: "ID: Название_города" или "ID: Название_города | широта, долгота"
      */
     private void parseCity(String line) {
         Matcher matcher = CITY_PATTERN.matcher(line);
@@ -132,16 +306,33 @@ public class InputParser {
             throw new IllegalArgumentException("Неверный формат города: " + line);
         }
 
-        int id = Integer.parseInt(matcher.group(1));
+        long id = Long.parseLong(matcher.group(1));
         String name = matcher.group(2).trim();
 
         City city = new City(id, name);
-        graph.addCity(city);
+        if (matcher.group(3) == null) {
+            if (graph == null) {
+                builder().addCity(city);
+            } else {
+                graph.addCity(city);
+            }
+            return;
+        }
+
+        double latitude = Double.parseDouble(matcher.group(3));
+        double longitude = Double.parseDouble(matcher.group(4));
+        if (graph == null) {
+            builder().addCity(city, latitude, longitude);
+        } else {
+            graph.addCity(city);
+            graph.setLocation(city, latitude, longitude);
+        }
     }
 
     /**
      * Парсит строку с информацией о дороге.
-     * Формат: "ID1 - ID2: длина, время, стоимость"
+     * Формат: "ID1 - ID2: длина, время, стоимость" или "ID1 -> ID2: длина, время, стоимость";
+     * с заголовком [CRITERIA] — по одному весу на каждый объявленный критерий.
      */
     private void parseRoad(String line) {
         Matcher matcher = ROAD_PATTERN.matcher(line);
@@ -149,31 +340,48 @@ public class InputParser {
             throw new IllegalArgumentException("Неверный формат дороги: " + line);
         }
 
-        int fromId = Integer.parseInt(matcher.group(1));
-        int toId = Integer.parseInt(matcher.group(2));
-        int distance = Integer.parseInt(matcher.group(3));
-        int time = Integer.parseInt(matcher.group(4));
-        int cost = Integer.parseInt(matcher.group(5));
-
-        City from = graph.getCityById(fromId);
-        City to = graph.getCityById(toId);
+        long fromId = Long.parseLong(matcher.group(1));
+        boolean oneWay = matcher.group(2).equals("->");
+        long toId = Long.parseLong(matcher.group(3));
+        String[] values = COMMA.split(matcher.group(4));
+        int[] weights = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            weights[i] = Integer.parseInt(values[i]);
+        }
+        if (weights.length != criteria().size()) {
+            throw new IllegalArgumentException("Ожидалось " + criteria().size()
+                    + " весов дороги, получено " + weights.length);
+        }
 
-        if (from == null) {
+        if (!hasCity(fromId)) {
             throw new IllegalArgumentException("Город с ID " + fromId + " не найден");
         }
-        if (to == null) {
+        if (!hasCity(toId)) {
             throw new IllegalArgumentException("Город с ID " + toId + " не найден");
         }
 
-        Road road = new Road(from, to, distance, time, cost);
-        graph.addRoad(road);
+        if (graph == null && oneWay) {
+            builder().addOneWayRoad(fromId, toId, weights);
+        } else if (graph == null) {
+            builder().addRoad(fromId, toId, weights);
+        } else {
+            graph.addRoad(new Road(graph.getCityById(fromId), graph.getCityById(toId), weights, oneWay));
+        }
+    }
+
+    private boolean hasCity(long id) {
+        return graph == null ? builder().hasCity(id) : graph.getCityById(id) != null;
     }
 
     /**
      * Парсит строку с запросом на построение маршрута.
-     * Формат: "Город1 -> Город2 | (Д,В,С)"
+     * Формат: "Город1 -> Город2 | (Д,В,С)" — обозначения критериев набора
+     * в порядке убывания важности. Вместо названия можно указать точку
+     * "@широта, долгота": она привязывается к ближайшему городу с координатами.
+     * 
+     * @param graph граф для привязки координат или null, если граф не разбирался
      */
-    private void parseRequest(String line) {
+    private void parseRequest(String line, CriteriaSet criteria, Predicate<String> knownCity, Graph graph) {
         Matcher matcher = REQUEST_PATTERN.matcher(line);
         if (!matcher.matches()) {
             throw new IllegalArgumentException("Неверный формат запроса: " + line);
@@ -181,28 +389,59 @@ public class InputParser {
 
         String fromCity = matcher.group(1).trim();
         String toCity = matcher.group(2).trim();
+        City from = snap(fromCity, graph);
+        City to = snap(toCity, graph);
 
         // Парсим приоритеты
+        String list = matcher.group(3).trim();
+        if (list.isEmpty()) {
+            throw new IllegalArgumentException("Не заданы приоритеты: " + line);
+        }
         List<Criterion> priorities = new ArrayList<>();
-        priorities.add(Criterion.fromShortName(matcher.group(3)));
-        priorities.add(Criterion.fromShortName(matcher.group(4)));
-        priorities.add(Criterion.fromShortName(matcher.group(5)));
+        for (String shortName : COMMA.split(list)) {
+            priorities.add(criteria.fromShortName(shortName));
+        }
 
-        // Проверяем существование городов
-        if (!graph.hasCity(fromCity)) {
+        // Проверяем существование городов, заданных названием
+        if (from == null && !knownCity.test(fromCity)) {
             throw new IllegalArgumentException("Город отправления не найден: " + fromCity);
         }
-        if (!graph.hasCity(toCity)) {
+        if (to == null && !knownCity.test(toCity)) {
             throw new IllegalArgumentException("Город назначения не найден: " + toCity);
         }
 
-        requests.add(new Request(fromCity, toCity, priorities));
+        if (from == null && to == null) {
+            requests.add(new Request(fromCity, toCity, priorities));
+        } else {
+            // Привязанный город остаётся в запросе сам, а не его название: названия могут повторяться
+            requests.add(new Request(from != null ? from : graph.getCityByName(fromCity),
+                    to != null ? to : graph.getCityByName(toCity), priorities));
+        }
+    }
+
+    /**
+     * Привязывает точку "@широта, долгота" к ближайшему городу; для названия возвращает null.
+     */
+    private City snap(String endpoint, Graph graph) {
+        Matcher matcher = LOCATION_PATTERN.matcher(endpoint);
+        if (!matcher.matches()) {
+            return null;
+        }
+        if (graph == null) {
+            throw new IllegalArgumentException("Точка по координатам требует секции [CITIES] с координатами: " + endpoint);
+        }
+        City city = graph.spatialIndex().nearest(
+                Double.parseDouble(matcher.group(1)), Double.parseDouble(matcher.group(2)));
+        if (city == null) {
+            throw new IllegalArgumentException("Ни у одного города не заданы координаты: " + endpoint);
+        }
+        return city;
     }
 
     /**
      * Возвращает построенный граф дорожной сети.
      * 
-     * @return граф
+     * @return граф или null после {@link #parseRequests}
      */
     public Graph getGraph() {
         return graph;
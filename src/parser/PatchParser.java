@@ -0,0 +1,116 @@
+package parser;
+
+import graph.GraphPatch;
+import model.City;
+import model.CriteriaSet;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Парсер файла изменений дорожной сети (патча).
+ * 
+ * Каждая строка — одно изменение; знак в начале строки задаёт его вид:
+ * <pre>
+ * + 5: Казань               — добавить город
+ * + 1 - 5: 800, 600, 900    — добавить двустороннюю дорогу ("1 -> 5" — одностороннюю)
+ * - 1 - 5                   — закрыть все дороги между городами
+ * = 1 - 2: 700, 470, 820    — новые веса двусторонних дорог ("1 -> 2" — односторонних)
+ * </pre>
+ * Веса перечисляются в порядке критериев графа. Пустые строки пропускаются.
+ */
+public class PatchParser {
+
+    /** Регулярное выражение для нового города: "+ ID: Название" */
+    private static final Pattern CITY_PATTERN = Pattern.compile("\\+\\s*(\\d+):\\s*(.+)");
+
+    /** Регулярное выражение для новой дороги или новых весов: "+ ID1 - ID2: веса" / "= ID1 -> ID2: веса" */
+    private static final Pattern ROAD_PATTERN =
+            Pattern.compile("([+=])\\s*(\\d+)\\s*(->|-)\\s*(\\d+):\\s*(\\d+(?:\\s*,\\s*\\d+)*)");
+
+    /** Регулярное выражение для закрытия дорог: "- ID1 - ID2" */
+    private static final Pattern REMOVE_PATTERN = Pattern.compile("-\\s*(\\d+)\\s*(?:->|-)\\s*(\\d+)");
+
+    /** Разделитель весов */
+    private static final Pattern COMMA = Pattern.compile("\\s*,\\s*");
+
+    /**
+     * Читает патч из файла.
+     * 
+     * @param filename путь к файлу патча
+     * @param criteria набор критериев графа, к которому применяется патч
+     * @return патч
+     * @throws IOException при ошибке чтения файла
+     * @throws IllegalArgumentException при ошибке формата данных
+     */
+    public GraphPatch parse(String filename, CriteriaSet criteria) throws IOException {
+        GraphPatch patch = new GraphPatch();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(filename), StandardCharsets.UTF_8))) {
+            String line;
+            int lineNumber = 0;
+
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                try {
+                    parseChange(line, criteria, patch);
+                } catch (Exception e) {
+                    throw new IllegalArgumentException(
+                            "Ошибка парсинга в строке " + lineNumber + ": " + line + "\n" + e.getMessage());
+                }
+            }
+        }
+        return patch;
+    }
+
+    private void parseChange(String line, CriteriaSet criteria, GraphPatch patch) {
+        Matcher matcher = ROAD_PATTERN.matcher(line);
+        if (matcher.matches()) {
+            long fromId = Long.parseLong(matcher.group(2));
+            boolean oneWay = matcher.group(3).equals("->");
+            long toId = Long.parseLong(matcher.group(4));
+            int[] weights = parseWeights(matcher.group(5), criteria);
+            if (matcher.group(1).equals("+")) {
+                patch.addRoad(fromId, toId, weights, oneWay);
+            } else {
+                patch.updateRoad(fromId, toId, weights, oneWay);
+            }
+            return;
+        }
+
+        matcher = REMOVE_PATTERN.matcher(line);
+        if (matcher.matches()) {
+            patch.removeRoad(Long.parseLong(matcher.group(1)), Long.parseLong(matcher.group(2)));
+            return;
+        }
+
+        matcher = CITY_PATTERN.matcher(line);
+        if (matcher.matches()) {
+            patch.addCity(new City(Long.parseLong(matcher.group(1)), matcher.group(2).trim()));
+            return;
+        }
+        throw new IllegalArgumentException("Неверный формат изменения: " + line);
+    }
+
+    private int[] parseWeights(String list, CriteriaSet criteria) {
+        String[] values = COMMA.split(list);
+        if (values.length != criteria.size()) {
+            throw new IllegalArgumentException("Ожидалось " + criteria.size()
+                    + " весов дороги, получено " + values.length);
+        }
+        int[] weights = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            weights[i] = Integer.parseInt(values[i]);
+        }
+        return weights;
+    }
+}
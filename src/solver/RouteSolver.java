@@ -2,12 +2,23 @@ package solver;
 
 import graph.OptimizedDijkstraPathFinder;
 import graph.Graph;
+import graph.GraphVersion;
+import graph.MappedGraph;
+import graph.PathFinder;
+import graph.RegionView;
+import graph.SpatialIndex;
+import graph.VersionedGraph;
 import model.City;
+import model.CriteriaSet;
 import model.Criterion;
 import model.Route;
 import parser.InputParser.Request;
 
 import java.util.*;
+import java.util.function.BiFunction;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Решатель задачи оптимизации маршрутов.
@@ -15,20 +26,99 @@ import java.util.*;
  * 
  * ОПТИМИЗАЦИЯ: Использует OptimizedDijkstraPathFinder, который выполняет
  * поиск по всем критериям за один проход вместо трёх отдельных запусков.
+ * 
+ * ОПТИМИЗАЦИЯ: Для графа с индексом компонент связности запрос между
+ * городами из разных компонент отвечается «Маршрут не найден» за O(1),
+ * без обхода всей компоненты начального города.
  */
 public class RouteSolver {
 
-    private final Graph graph;
-    private final OptimizedDijkstraPathFinder pathFinder;
+    /** Поиск города по названию */
+    private final Function<String, City> cities;
+    private final PathFinder pathFinder;
+
+    /** Набор критериев графа */
+    private final CriteriaSet criteria;
+
+    /** Проверка достижимости без поиска; null, если представление её не поддерживает */
+    private final BiPredicate<City, City> connected;
+
+    /** Пространственный индекс для запросов по координатам; null, если у представления нет координат */
+    private final Supplier<SpatialIndex> locations;
+
+    /** Версионированный граф; null, если решатель работает с неизменяемым представлением */
+    private final VersionedGraph versionedGraph;
+
+    /** Поиск по версии запроса; рабочие области потоков общие для всех версий */
+    private final OptimizedDijkstraPathFinder versionFinder;
 
     public RouteSolver(Graph graph) {
-        this.graph = graph;
-        this.pathFinder = new OptimizedDijkstraPathFinder(graph);
+        this(graph, new OptimizedDijkstraPathFinder(graph));
+    }
+
+    /**
+     * Создаёт решатель с заданной реализацией поиска
+     * (например, {@link graph.ContractedPathFinder} для графа со сжатыми цепочками
+     * или {@link graph.ParallelPathFinder} для одновременных поисков по критериям).
+     * 
+     * @param graph      граф дорожной сети (для поиска городов по названию)
+     * @param pathFinder алгоритм поиска оптимальных маршрутов
+     */
+    public RouteSolver(Graph graph, PathFinder pathFinder) {
+        this(graph::getCityByName, pathFinder, graph.getCriteria(), graph::isConnected, graph::spatialIndex);
+    }
+
+    /**
+     * Создаёт решатель поверх графа, отображённого из двоичного файла.
+     * 
+     * @param graph граф из файла {@link graph.GraphFile}
+     */
+    public RouteSolver(MappedGraph graph) {
+        this(graph::getCityByName, new OptimizedDijkstraPathFinder(graph), graph.getCriteria(), null, null);
+    }
+
+    /**
+     * Создаёт решатель, работающий только внутри региона: города вне региона
+     * считаются отсутствующими, а маршруты не выходят за его границу.
+     * 
+     * @param region представление региона ({@link RegionView})
+     */
+    public RouteSolver(RegionView region) {
+        this(region::getCityByName, new OptimizedDijkstraPathFinder(region), region.getCriteria(), null, null);
+    }
+
+    private RouteSolver(Function<String, City> cities, PathFinder pathFinder, CriteriaSet criteria,
+                        BiPredicate<City, City> connected, Supplier<SpatialIndex> locations) {
+        this.cities = cities;
+        this.pathFinder = pathFinder;
+        this.criteria = criteria;
+        this.connected = connected;
+        this.locations = locations;
+        this.versionedGraph = null;
+        this.versionFinder = null;
+    }
+
+    /**
+     * Создаёт решатель поверх версионированного графа.
+     * Каждый запрос выполняется целиком по одной версии, опубликованной
+     * на момент его начала, поэтому обновления дорог не влияют на уже
+     * начатые запросы.
+     * 
+     * @param graph версионированный граф дорожной сети
+     */
+    public RouteSolver(VersionedGraph graph) {
+        this.cities = null;
+        this.pathFinder = null;
+        this.criteria = null;
+        this.connected = null;
+        this.locations = null;
+        this.versionedGraph = graph;
+        this.versionFinder = new OptimizedDijkstraPathFinder(graph);
     }
 
     /**
      * Результат решения одного запроса.
-     * Содержит три оптимальных маршрута и один компромиссный.
+     * Содержит оптимальный маршрут по каждому критерию (в порядке набора) и один компромиссный.
      */
     public static class SolutionResult {
         private final Request request;
@@ -62,8 +152,48 @@ public class RouteSolver {
      * @throws IllegalArgumentException если город не найден в графе
      */
     public SolutionResult solve(Request request) {
-        City from = graph.getCityByName(request.getFromCity());
-        City to = graph.getCityByName(request.getToCity());
+        if (versionedGraph != null) {
+            GraphVersion version = versionedGraph.current();
+            return solve(request, version::getCityByName,
+                    (from, to) -> versionFinder.findAllOptimalPaths(version, from, to), version.getCriteria());
+        }
+        return solve(request, cities, pathFinder::findAllOptimalPaths, criteria);
+    }
+
+    /**
+     * Решает запрос по GPS-координатам: каждая точка привязывается к ближайшему
+     * городу с координатами ({@link Graph#spatialIndex()}), запрос в результате
+     * содержит названия этих городов.
+     * 
+     * @param fromLatitude  широта точки отправления
+     * @param fromLongitude долгота точки отправления
+     * @param toLatitude    широта точки назначения
+     * @param toLongitude   долгота точки назначения
+     * @param priorities    критерии в порядке убывания важности
+     * @return результат с оптимальными и компромиссным маршрутами
+     * @throws IllegalStateException    если у представления графа нет координат городов
+     * @throws IllegalArgumentException если координаты вне диапазона или ни у одного города их нет
+     */
+    public SolutionResult solve(double fromLatitude, double fromLongitude, double toLatitude, double toLongitude,
+                                List<Criterion> priorities) {
+        if (locations == null) {
+            throw new IllegalStateException("Запросы по координатам поддерживаются только для графа Graph");
+        }
+        SpatialIndex index = locations.get();
+        City from = index.nearest(fromLatitude, fromLongitude);
+        City to = index.nearest(toLatitude, toLongitude);
+        if (from == null) {
+            throw new IllegalArgumentException("Ни у одного города не заданы координаты");
+        }
+        return solve(new Request(from, to, priorities), from, to,
+                pathFinder::findAllOptimalPaths, criteria);
+    }
+
+    private SolutionResult solve(Request request, Function<String, City> cities,
+                                 BiFunction<City, City, Map<Criterion, Route>> search, CriteriaSet criteria) {
+        // Город, уже найденный при разборе запроса, не ищется повторно по названию
+        City from = request.getFrom() != null ? request.getFrom() : cities.apply(request.getFromCity());
+        City to = request.getTo() != null ? request.getTo() : cities.apply(request.getToCity());
 
         // Валидация
         if (from == null) {
@@ -72,12 +202,25 @@ public class RouteSolver {
         if (to == null) {
             throw new IllegalArgumentException("Город назначения не найден: " + request.getToCity());
         }
+        return solve(request, from, to, search, criteria);
+    }
+
+    private SolutionResult solve(Request request, City from, City to,
+                                 BiFunction<City, City, Map<Criterion, Route>> search, CriteriaSet criteria) {
+        // Города в разных компонентах связности: маршрута нет ни по одному критерию
+        if (connected != null && !connected.test(from, to)) {
+            Map<Criterion, Route> noRoutes = new LinkedHashMap<>();
+            for (Criterion criterion : criteria) {
+                noRoutes.put(criterion, Route.empty());
+            }
+            return new SolutionResult(request, noRoutes, Route.empty());
+        }
 
         // Находим оптимальные маршруты по всем критериям
-        Map<Criterion, Route> optimalRoutes = pathFinder.findAllOptimalPaths(from, to);
+        Map<Criterion, Route> optimalRoutes = search.apply(from, to);
 
         // Выбираем компромиссный маршрут на основе приоритетов
-        Route compromiseRoute = selectCompromise(optimalRoutes, request.getPriorities());
+        Route compromiseRoute = selectCompromise(optimalRoutes, request.getPriorities(), criteria);
 
         return new SolutionResult(request, optimalRoutes, compromiseRoute);
     }
@@ -86,16 +229,19 @@ public class RouteSolver {
      * Выбирает компромиссный маршрут на основе заданных приоритетов.
      * 
      * Логика выбора:
-     * 1. Собираем все уникальные маршруты из трёх оптимальных.
+     * 1. Собираем все уникальные маршруты из оптимальных по каждому критерию.
      * 2. Сортируем их по приоритетам: сначала по первому критерию,
-     *    при равенстве — по второму, затем по третьему.
+     *    при равенстве — по второму и так далее; если приоритеты перечисляют
+     *    не все критерии, оставшиеся сравниваются в порядке набора.
      * 3. Возвращаем лучший маршрут.
      * 
      * @param optimalRoutes маршруты, оптимальные по каждому критерию
      * @param priorities    список критериев в порядке убывания важности
+     * @param criteria      набор критериев графа
      * @return компромиссный маршрут
      */
-    private Route selectCompromise(Map<Criterion, Route> optimalRoutes, List<Criterion> priorities) {
+    private Route selectCompromise(Map<Criterion, Route> optimalRoutes, List<Criterion> priorities,
+                                   CriteriaSet criteria) {
         // Собираем уникальные маршруты
         Set<Route> uniqueRoutes = new HashSet<>(optimalRoutes.values());
 
@@ -106,7 +252,10 @@ public class RouteSolver {
 
         // Сортируем по приоритетам
         List<Route> sortedRoutes = new ArrayList<>(uniqueRoutes);
-        sortedRoutes.sort((r1, r2) -> compareByPriorities(r1, r2, priorities));
+        sortedRoutes.sort((r1, r2) -> {
+            int result = compareByPriorities(r1, r2, priorities);
+            return result != 0 ? result : compareByPriorities(r1, r2, criteria);
+        });
 
         return sortedRoutes.get(0);
     }
@@ -119,7 +268,7 @@ public class RouteSolver {
      * @param priorities критерии в порядке убывания важности
      * @return отрицательное число если r1 лучше, положительное если r2 лучше, 0 если равны
      */
-    private int compareByPriorities(Route r1, Route r2, List<Criterion> priorities) {
+    private int compareByPriorities(Route r1, Route r2, Iterable<Criterion> priorities) {
         for (Criterion criterion : priorities) {
             int value1 = r1.getValueByCriterion(criterion);
             int value2 = r2.getValueByCriterion(criterion);
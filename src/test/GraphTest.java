@@ -0,0 +1,2115 @@
+package test;
+
+import graph.BidirectionalPathFinder;
+import graph.BucketPathFinder;
+import graph.ChainContraction;
+import graph.CompactGraph;
+import graph.CompressedGraph;
+import graph.ContractedPathFinder;
+import graph.DijkstraPathFinder;
+import graph.EdgeCursor;
+import graph.Graph;
+import graph.GraphBuilder;
+import graph.GraphFile;
+import graph.GraphListener;
+import graph.GraphOrdering;
+import graph.GraphPatch;
+import graph.IndexedHeapPathFinder;
+import graph.GraphVersion;
+import graph.MappedGraph;
+import graph.MemoryReport;
+import graph.NameDictionary;
+import graph.OffHeapGraph;
+import graph.OptimizedDijkstraPathFinder;
+import graph.ParallelPathFinder;
+import graph.RegionView;
+import graph.SearchGraph;
+import graph.SpatialIndex;
+import graph.VersionedGraph;
+import model.City;
+import model.CriteriaSet;
+import model.Criterion;
+import model.Road;
+import model.Route;
+import parser.InputParser;
+import solver.RouteSolver;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Тесты структуры графа и его компактных представлений.
+ */
+public class GraphTest {
+
+    private static int testsPassed = 0;
+    private static int testsFailed = 0;
+
+    public static void main(String[] args) {
+        System.out.println("=== Тесты структуры графа ===\n");
+
+        testCompactGraphStructure();
+        testCompactGraphWeights();
+        testSnapshotUpdatedInPlace();
+        testFindersOnCompactGraph();
+        testDenseIndicesForSparseIds();
+        testSharedUndirectedRoads();
+        testPruneDominatedRoads();
+        testPruningKeepsResults();
+        testChainContractionStructure();
+        testContractedSearchMatchesDijkstra();
+        testLocalityRenumbering();
+        testVersionIsolation();
+        testConcurrentReadersAndWriter();
+        testOffHeapGraph();
+        testCompressedAdjacency();
+        testMappedGraphFile();
+        testNameDictionary();
+        testConnectedComponents();
+        testBulkGraphBuilder();
+        testOneWayRoads();
+        testDirectedRepresentationsAgree();
+        testCustomCriteria();
+        testRegionView();
+        testGraphPatch();
+        testMemoryReport();
+        testSpatialIndex();
+        testIndexedHeapFinder();
+        testReusedWorkspace();
+        testBucketFinder();
+        testParallelFinder();
+        testBidirectionalFinder();
+        testIncrementalIndexes();
+
+        System.out.println("\n=== Результаты ===");
+        System.out.println("Пройдено: " + testsPassed);
+        System.out.println("Провалено: " + testsFailed);
+    }
+
+    /**
+     * Тест 1: Смещения и степени вершин CSR-снимка
+     */
+    private static void testCompactGraphStructure() {
+        System.out.println("Тест 1: Структура CSR-снимка");
+
+        Graph graph = createTriangleWithTail();
+        CompactGraph compact = new CompactGraph(graph);
+
+        int b = compact.indexOf(graph.getCityById(2));
+        int d = compact.indexOf(graph.getCityById(4));
+
+        check(compact.getCityCount() == 4, "4 города в снимке");
+        check(compact.getEdgeCount() == 8, "8 направленных рёбер для 4 дорог");
+        check(compact.getDegree(b) == 3 && compact.getDegree(d) == 1, "степени вершин совпадают с графом");
+    }
+
+    /**
+     * Тест 2: Веса рёбер по всем критериям
+     */
+    private static void testCompactGraphWeights() {
+        System.out.println("\nТест 2: Веса рёбер в CSR-снимке");
+
+        Graph graph = createTriangleWithTail();
+        CompactGraph compact = new CompactGraph(graph);
+
+        int b = compact.indexOf(graph.getCityById(2));
+        int d = compact.indexOf(graph.getCityById(4));
+
+        // Обратное ребро Г -> Б должно иметь параметры дороги Б - Г
+        EdgeCursor cursor = compact.edgeCursor();
+        cursor.moveTo(d);
+        boolean found = cursor.next()
+                && cursor.target() == b
+                && cursor.weight(Criterion.DISTANCE) == 50
+                && cursor.weight(Criterion.TIME) == 40
+                && cursor.weight(Criterion.COST) == 30
+                && !cursor.next();
+
+        check(found, "обратное ребро хранит все три веса");
+    }
+
+    /**
+     * Тест 3: Снимок обновляется на месте после изменения графа;
+     * одновременные первые обращения из нескольких потоков получают один снимок
+     */
+    private static void testSnapshotUpdatedInPlace() {
+        System.out.println("\nТест 3: Обновление снимка после изменения графа");
+
+        Graph graph = createTriangleWithTail();
+        CompactGraph before = graph.snapshot();
+        check(before == graph.snapshot(), "снимок переиспользуется без изменений графа");
+
+        graph.addRoad(new Road(graph.getCityById(1), graph.getCityById(4), 10, 10, 10));
+        CompactGraph after = graph.snapshot();
+        check(after == before && after.getEdgeCount() == 10, "после addRoad снимок обновлён на месте");
+
+        // Первые запросы поисков приходят одновременно: снимок и его подписка создаются один раз
+        int threadCount = 8;
+        boolean single = true;
+        int errors = 0;
+        for (int trial = 0; trial < 50; trial++) {
+            Graph fresh = generateRandomGraph(500, 160 + trial);
+            City from = fresh.getCityById(1);
+            City to = fresh.getCityById(2);
+            CompactGraph[] seen = new CompactGraph[threadCount];
+            AtomicInteger failures = new AtomicInteger();
+            CyclicBarrier start = new CyclicBarrier(threadCount);
+            Thread[] threads = new Thread[threadCount];
+            for (int t = 0; t < threadCount; t++) {
+                int slot = t;
+                threads[t] = new Thread(() -> {
+                    try {
+                        start.await();
+                        new IndexedHeapPathFinder(fresh).findPath(from, to, Criterion.DISTANCE);
+                        seen[slot] = fresh.snapshot();
+                    } catch (Exception e) {
+                        failures.incrementAndGet();
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            errors += failures.get();
+            for (CompactGraph snapshot : seen) {
+                single &= snapshot == seen[0];
+            }
+            // Лишний подписанный снимок остался бы в графе и менял бы рёбра вместе с ним
+            fresh.addRoad(new Road(from, to, 1, 1, 1));
+            single &= fresh.snapshot() == seen[0]
+                    && edges(seen[0], false).equals(edges(new CompactGraph(fresh), false));
+        }
+        check(single && errors == 0, "одновременные первые запросы из " + threadCount + " потоков получают один снимок");
+    }
+
+    /**
+     * Тест 4: Поиск по CSR-снимку совпадает с поиском по графу
+     */
+    private static void testFindersOnCompactGraph() {
+        System.out.println("\nТест 4: Поиск по CSR-снимку");
+
+        Graph graph = generateRandomGraph(200, 42);
+        CompactGraph compact = new CompactGraph(graph);
+
+        DijkstraPathFinder onGraph = new DijkstraPathFinder(graph);
+        DijkstraPathFinder onCompact = new DijkstraPathFinder(compact);
+        OptimizedDijkstraPathFinder optimizedOnCompact = new OptimizedDijkstraPathFinder(compact);
+
+        Random random = new Random(7);
+        boolean allMatch = true;
+        for (int i = 0; i < 50; i++) {
+            City from = graph.getCityById(random.nextInt(200) + 1);
+            City to = graph.getCityById(random.nextInt(200) + 1);
+
+            Map<Criterion, Route> expected = onGraph.findAllOptimalPaths(from, to);
+            allMatch &= sameRoutes(expected, onCompact.findAllOptimalPaths(from, to));
+            allMatch &= sameRoutes(expected, optimizedOnCompact.findAllOptimalPaths(from, to));
+        }
+
+        check(allMatch, "маршруты совпадают на 50 случайных запросах");
+    }
+
+    /**
+     * Тест 5: Плотные индексы для разреженных 10-значных ID
+     */
+    private static void testDenseIndicesForSparseIds() {
+        System.out.println("\nТест 5: Плотные индексы для разреженных ID");
+
+        Graph graph = new Graph();
+        City a = new City(9_876_543_210L, "А");
+        City b = new City(17, "Б");
+        City c = new City(4_000_000_001L, "В");
+
+        graph.addCity(a);
+        graph.addCity(b);
+        graph.addCity(c);
+        graph.addRoad(new Road(a, b, 10, 10, 10));
+        graph.addRoad(new Road(b, c, 10, 10, 10));
+
+        check(graph.indexOf(a) == 0 && graph.indexOf(b) == 1 && graph.indexOf(c) == 2,
+                "индексы назначаются подряд в порядке добавления");
+        check(graph.getCityById(9_876_543_210L) == a && graph.getCityById(123) == null,
+                "поиск по 10-значному ID");
+
+        Route route = new DijkstraPathFinder(graph).findPath(a, c, Criterion.DISTANCE);
+        check(route.exists() && route.getTotalDistance() == 20, "поиск маршрута по разреженным ID");
+    }
+
+    /**
+     * Тест 6: Двусторонняя дорога хранится один раз, но видна из обоих концов
+     */
+    private static void testSharedUndirectedRoads() {
+        System.out.println("\nТест 6: Общая запись двусторонней дороги");
+
+        Graph graph = createTriangleWithTail();
+        City b = graph.getCityById(2);
+        City d = graph.getCityById(4);
+
+        check(graph.getRoadCount() == 4, "4 дороги без зеркальных копий");
+
+        List<Road> fromD = graph.getRoadsFrom(d);
+        Road reverse = fromD.get(0);
+        check(fromD.size() == 1 && reverse.getFrom().equals(d) && reverse.getTo().equals(b)
+                        && reverse.getDistance() == 50 && reverse.getTime() == 40 && reverse.getCost() == 30,
+                "обратное направление ориентировано от запрошенного города");
+        check(graph.getRoadsFrom(b).size() == 3, "прямые направления сохранены");
+    }
+
+    /**
+     * Тест 7: Удаление доминируемых параллельных дорог
+     */
+    private static void testPruneDominatedRoads() {
+        System.out.println("\nТест 7: Удаление доминируемых параллельных дорог");
+
+        Graph graph = new Graph();
+        City a = new City(1, "А");
+        City b = new City(2, "Б");
+        graph.addCity(a);
+        graph.addCity(b);
+
+        graph.addRoad(new Road(a, b, 100, 60, 200));   // недоминируемая
+        graph.addRoad(new Road(b, a, 120, 70, 250));   // хуже первой по всем критериям
+        graph.addRoad(new Road(a, b, 150, 30, 300));   // быстрее — остаётся
+        graph.addRoad(new Road(a, b, 100, 60, 200));   // дубликат первой
+        graph.addRoad(new Road(a, b, 90, 60, 200));    // доминирует над первой
+
+        int removed = graph.pruneDominatedRoads();
+        List<Road> roads = graph.getRoadsFrom(a);
+
+        check(removed == 3 && graph.getRoadCount() == 2, "удалено 3 дороги из 5");
+        check(roads.size() == 2 && roads.get(0).getTime() == 30 && roads.get(1).getDistance() == 90,
+                "остались только недоминируемые дороги в исходном порядке");
+        check(graph.getRoadsFrom(b).size() == 2, "обратные направления удалены вместе с дорогами");
+    }
+
+    /**
+     * Тест 8: После удаления доминируемых дорог результаты поиска не меняются
+     */
+    private static void testPruningKeepsResults() {
+        System.out.println("\nТест 8: Результаты поиска после удаления доминируемых дорог");
+
+        Graph original = generateMultiGraph(100, 11);
+        Graph pruned = generateMultiGraph(100, 11);
+        int removed = pruned.pruneDominatedRoads();
+
+        DijkstraPathFinder before = new DijkstraPathFinder(original);
+        DijkstraPathFinder after = new DijkstraPathFinder(pruned);
+        RouteSolver solverBefore = new RouteSolver(original);
+        RouteSolver solverAfter = new RouteSolver(pruned);
+
+        Random random = new Random(3);
+        CriteriaSet criteria = CriteriaSet.STANDARD;
+        boolean allMatch = true;
+        for (int i = 0; i < 50; i++) {
+            City from = original.getCityById(random.nextInt(100) + 1);
+            City to = original.getCityById(random.nextInt(100) + 1);
+            allMatch &= sameRoutes(before.findAllOptimalPaths(from, to), after.findAllOptimalPaths(from, to));
+
+            List<Criterion> priorities = Arrays.asList(criteria.get(i % 3), criteria.get((i + 1) % 3), criteria.get((i + 2) % 3));
+            InputParser.Request request = new InputParser.Request(from.getName(), to.getName(), priorities);
+            Route compromiseBefore = solverBefore.solve(request).getCompromiseRoute();
+            Route compromiseAfter = solverAfter.solve(request).getCompromiseRoute();
+            allMatch &= compromiseBefore.toString().equals(compromiseAfter.toString());
+        }
+
+        check(removed > 0, "удалено доминируемых дорог: " + removed);
+        check(allMatch, "маршруты и компромисс совпадают на 50 запросах");
+    }
+
+    /**
+     * Тест 9: Сжатие цепочек транзитных городов
+     */
+    private static void testChainContractionStructure() {
+        System.out.println("\nТест 9: Сжатие цепочек транзитных городов");
+
+        // Петля 2 - 6 - 5 - 1 - 2 через транзитные города, тупик 2 - 4, кольцо 3 - 7 - 8 без узлов
+        Graph graph = new Graph();
+        for (int id = 1; id <= 8; id++) {
+            graph.addCity(new City(id, "Город" + id));
+        }
+        graph.addRoad(new Road(graph.getCityById(1), graph.getCityById(5), 10, 1, 100));
+        graph.addRoad(new Road(graph.getCityById(5), graph.getCityById(6), 10, 1, 100));
+        graph.addRoad(new Road(graph.getCityById(6), graph.getCityById(2), 10, 1, 100));
+        graph.addRoad(new Road(graph.getCityById(1), graph.getCityById(2), 50, 50, 50));
+        graph.addRoad(new Road(graph.getCityById(2), graph.getCityById(4), 5, 5, 5));
+        graph.addRoad(new Road(graph.getCityById(3), graph.getCityById(7), 1, 1, 1));
+        graph.addRoad(new Road(graph.getCityById(7), graph.getCityById(8), 1, 1, 1));
+        graph.addRoad(new Road(graph.getCityById(8), graph.getCityById(3), 1, 1, 1));
+
+        ChainContraction contraction = new ChainContraction(graph);
+        check(contraction.getContractedCityCount() == 5 && contraction.getCoreCityCount() == 3,
+                "5 транзитных городов сжаты, 3 узловых осталось");
+        check(!contraction.isJunction(graph.getCityById(5)) && contraction.isJunction(graph.getCityById(3)),
+                "кольцо без узлов получает один узловой город");
+
+        ContractedPathFinder finder = new ContractedPathFinder(contraction);
+        Route route = finder.findPath(graph.getCityById(5), graph.getCityById(4), Criterion.TIME);
+        check(route.getPathString().equals("Город5 -> Город6 -> Город2 -> Город4")
+                        && route.getTotalDistance() == 25 && route.getTotalTime() == 7 && route.getTotalCost() == 205,
+                "маршрут из транзитного города раскрыт полностью");
+    }
+
+    /**
+     * Тест 10: Поиск по сжатому графу совпадает с поиском по исходному
+     */
+    private static void testContractedSearchMatchesDijkstra() {
+        System.out.println("\nТест 10: Поиск по сжатому графу");
+
+        Graph graph = generateChainGraph(60, 5, 21);
+        ChainContraction contraction = new ChainContraction(graph);
+
+        DijkstraPathFinder expected = new DijkstraPathFinder(graph);
+        ContractedPathFinder contracted = new ContractedPathFinder(contraction);
+        RouteSolver solver = new RouteSolver(graph);
+        RouteSolver contractedSolver = new RouteSolver(graph, contracted);
+
+        Random random = new Random(5);
+        int cityCount = graph.getCityCount();
+        boolean allMatch = true;
+        for (int i = 0; i < 200; i++) {
+            City from = graph.getCityById(random.nextInt(cityCount) + 1);
+            City to = graph.getCityById(random.nextInt(cityCount) + 1);
+            allMatch &= sameRoutes(expected.findAllOptimalPaths(from, to), contracted.findAllOptimalPaths(from, to));
+
+            InputParser.Request request = new InputParser.Request(from.getName(), to.getName(),
+                    Arrays.asList(Criterion.TIME, Criterion.COST, Criterion.DISTANCE));
+            allMatch &= solver.solve(request).getCompromiseRoute().toString()
+                    .equals(contractedSolver.solve(request).getCompromiseRoute().toString());
+        }
+
+        double share = 100.0 * contraction.getContractedCityCount() / cityCount;
+        check(share > 50, String.format("из поиска убрано %.0f%% городов", share));
+        check(allMatch, "маршруты и компромисс совпадают на 200 запросах");
+    }
+
+    /**
+     * Тест 11: Перенумерация городов для локальности памяти
+     */
+    private static void testLocalityRenumbering() {
+        System.out.println("\nТест 11: Перенумерация городов");
+
+        Graph graph = generateRandomGraph(300, 13);
+        Graph reordered = generateRandomGraph(300, 13);
+        double gapBefore = GraphOrdering.averageNeighborGap(reordered.snapshot());
+        reordered.renumber(GraphOrdering.reverseCuthillMcKee(reordered.snapshot()));
+        double gapAfter = GraphOrdering.averageNeighborGap(reordered.snapshot());
+
+        check(gapAfter < gapBefore, String.format("средний разрыв индексов: %.1f -> %.1f", gapBefore, gapAfter));
+
+        City first = reordered.getCity(0);
+        check(reordered.indexOf(first) == 0 && reordered.getCityById(first.getId()) == first,
+                "ID и индексы согласованы после перенумерации");
+
+        DijkstraPathFinder before = new DijkstraPathFinder(graph);
+        DijkstraPathFinder after = new DijkstraPathFinder(reordered);
+        Random random = new Random(17);
+        boolean allMatch = true;
+        for (int i = 0; i < 50; i++) {
+            long fromId = random.nextInt(300) + 1;
+            long toId = random.nextInt(300) + 1;
+            Map<Criterion, Route> expected = before.findAllOptimalPaths(graph.getCityById(fromId), graph.getCityById(toId));
+            Map<Criterion, Route> actual = after.findAllOptimalPaths(reordered.getCityById(fromId), reordered.getCityById(toId));
+            for (Criterion criterion : CriteriaSet.STANDARD) {
+                allMatch &= expected.get(criterion).getValueByCriterion(criterion)
+                        == actual.get(criterion).getValueByCriterion(criterion);
+            }
+        }
+        check(allMatch, "оптимальные значения совпадают на 50 запросах");
+    }
+
+    // ═══ Вспомогательные методы ═══
+
+    /**
+     * Треугольник А-Б-В с «хвостом» Б-Г.
+     */
+    /**
+     * Тест 12: Начатый запрос не видит изменений, опубликованных позже
+     */
+    private static void testVersionIsolation() {
+        System.out.println("\nТест 12: Изоляция версий графа");
+
+        Graph graph = createTriangleWithTail();
+        City a = graph.getCityById(1);
+        City b = graph.getCityById(2);
+        City d = graph.getCityById(4);
+        VersionedGraph versioned = new VersionedGraph(graph);
+
+        GraphVersion pinned = versioned.current();
+        versioned.closeRoad(a, b);
+        versioned.updateRoad(new Road(d, b, 70, 40, 30));
+
+        Route old = new DijkstraPathFinder(pinned).findPath(a, b, Criterion.DISTANCE);
+        Route fresh = new DijkstraPathFinder(versioned.current()).findPath(a, b, Criterion.DISTANCE);
+        check(old.getTotalDistance() == 100 && fresh.getTotalDistance() == 200,
+                "старая версия сохраняет дорогу А - Б, новая идёт через В");
+        check(pinned.getRoadCount() == 4 && versioned.current().getRoadCount() == 3
+                && versioned.current().getVersion() == 2, "счётчики дорог и номер версии");
+
+        versioned.addCity(new City(5, "Д"));
+        versioned.addRoad(new Road(versioned.current().getCityByName("Д"), d, 10, 10, 10));
+        RouteSolver solver = new RouteSolver(versioned);
+        RouteSolver.SolutionResult result = solver.solve(
+                new InputParser.Request("А", "Д", List.of(Criterion.DISTANCE, Criterion.TIME, Criterion.COST)));
+        check(result.getCompromiseRoute().getTotalDistance() == 280, "решатель видит новый город и обновлённую дорогу");
+        check(pinned.getCityByName("Д") == null, "новый город не попадает в старую версию");
+
+        versioned.addCity(new City(5, "Е"));
+        check(versioned.current().getCityByName("Д") == null
+                        && versioned.current().getCityByName("Е").getId() == 5,
+                "заменённый город не находится по прежнему названию");
+
+        // Тот же решатель ищет в следующих версиях: рабочая область растёт с числом городов
+        versioned.addCity(new City(6, "Ж"));
+        versioned.addRoad(new Road(versioned.current().getCityByName("Е"), versioned.current().getCityByName("Ж"), 10, 10, 10));
+        result = solver.solve(new InputParser.Request("А", "Ж", List.of(Criterion.DISTANCE, Criterion.TIME, Criterion.COST)));
+        check(result.getCompromiseRoute().getTotalDistance() == 290, "решатель ищет в версии с добавленным городом");
+    }
+
+    /**
+     * Тест 13: Параллельные запросы во время обновления дорог
+     */
+    private static void testConcurrentReadersAndWriter() {
+        System.out.println("\nТест 13: Параллельные запросы и обновления");
+
+        Graph graph = generateRandomGraph(400, 19);
+        VersionedGraph versioned = new VersionedGraph(graph);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicInteger mismatches = new AtomicInteger();
+        AtomicInteger queries = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+
+        Thread[] readers = new Thread[4];
+        for (int t = 0; t < readers.length; t++) {
+            long seed = 100 + t;
+            readers[t] = new Thread(() -> {
+                Random random = new Random(seed);
+                try {
+                    while (writing.get()) {
+                        GraphVersion version = versioned.current();
+                        City from = version.getCity(random.nextInt(version.getCityCount()));
+                        City to = version.getCity(random.nextInt(version.getCityCount()));
+                        Map<Criterion, Route> expected = new DijkstraPathFinder(version).findAllOptimalPaths(from, to);
+                        Map<Criterion, Route> actual = new OptimizedDijkstraPathFinder(version).findAllOptimalPaths(from, to);
+                        for (Criterion criterion : CriteriaSet.STANDARD) {
+                            if (expected.get(criterion).getValueByCriterion(criterion)
+                                    != actual.get(criterion).getValueByCriterion(criterion)) {
+                                mismatches.incrementAndGet();
+                            }
+                        }
+                        queries.incrementAndGet();
+                    }
+                } catch (RuntimeException e) {
+                    errors.incrementAndGet();
+                }
+            });
+            readers[t].start();
+        }
+
+        // Писатель меняет параметры и закрывает дороги, пока читатели ищут маршруты
+        Random random = new Random(23);
+        int updates = 0;
+        for (int i = 0; i < 2000 || queries.get() < 200; i++) {
+            GraphVersion version = versioned.current();
+            City from = version.getCity(random.nextInt(version.getCityCount()));
+            EdgeCursor cursor = version.edgeCursor();
+            cursor.moveTo(version.indexOf(from));
+            if (!cursor.next()) {
+                continue;
+            }
+            City to = version.getCity(cursor.target());
+            if (random.nextInt(10) == 0) {
+                versioned.closeRoad(from, to);
+            } else {
+                versioned.updateRoad(new Road(from, to,
+                        random.nextInt(500) + 1, random.nextInt(300) + 1, random.nextInt(1000) + 1));
+            }
+            updates++;
+        }
+        writing.set(false);
+        for (Thread reader : readers) {
+            try {
+                reader.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        check(errors.get() == 0, "нет исключений у читателей (" + queries.get() + " запросов, " + updates + " обновлений)");
+        check(mismatches.get() == 0, "поиски по одной версии согласованы между собой");
+        check(versioned.current().getVersion() == updates, "каждое обновление публикует ровно одну версию");
+    }
+
+    /**
+     * Тест 14: Снимок вне кучи совпадает с CSR-снимком
+     */
+    private static void testOffHeapGraph() {
+        System.out.println("\nТест 14: Граф вне кучи");
+
+        Graph graph = generateRandomGraph(200, 29);
+        graph.addCity(new City(9_876_543_210L, "Город-миллионник"));
+        graph.addRoad(new Road(graph.getCityById(1), graph.getCityById(9_876_543_210L), 5, 5, 5));
+        CompactGraph compact = graph.snapshot();
+        OffHeapGraph offHeap = new OffHeapGraph(graph);
+
+        boolean sameStructure = offHeap.getCityCount() == compact.getCityCount()
+                && offHeap.getEdgeCount() == compact.getEdgeCount();
+        EdgeCursor expected = compact.edgeCursor();
+        EdgeCursor actual = offHeap.edgeCursor();
+        for (int city = 0; city < compact.getCityCount() && sameStructure; city++) {
+            expected.moveTo(city);
+            actual.moveTo(city);
+            while (expected.next()) {
+                sameStructure &= actual.next() && actual.target() == expected.target()
+                        && actual.weight(Criterion.TIME) == expected.weight(Criterion.TIME);
+            }
+            sameStructure &= !actual.next();
+        }
+        check(sameStructure, "рёбра и веса совпадают с CSR-снимком");
+
+        City big = offHeap.getCity(offHeap.indexOf(graph.getCityById(9_876_543_210L)));
+        check(big.getId() == 9_876_543_210L && big.getName().equals("Город-миллионник"),
+                "ID и название в UTF-8 восстанавливаются из памяти вне кучи");
+        check(offHeap.indexOf(new City(42_000_000_000L, "Нет")) == -1, "неизвестный ID не найден");
+
+        OptimizedDijkstraPathFinder heapFinder = new OptimizedDijkstraPathFinder(compact);
+        OptimizedDijkstraPathFinder offHeapFinder = new OptimizedDijkstraPathFinder(offHeap);
+        Random random = new Random(31);
+        boolean allMatch = true;
+        for (int i = 0; i < 30; i++) {
+            City from = compact.getCity(random.nextInt(compact.getCityCount()));
+            City to = compact.getCity(random.nextInt(compact.getCityCount()));
+            allMatch &= sameRoutes(heapFinder.findAllOptimalPaths(from, to), offHeapFinder.findAllOptimalPaths(from, to));
+        }
+        check(allMatch, "маршруты совпадают на 30 запросах");
+    }
+
+    /**
+     * Тест 15: Сжатые списки смежности декодируются в те же рёбра
+     */
+    private static void testCompressedAdjacency() {
+        System.out.println("\nТест 15: Сжатые списки смежности");
+
+        Graph graph = generateRandomGraph(300, 37);
+        graph.renumber(GraphOrdering.reverseCuthillMcKee(graph.snapshot()));
+        CompactGraph compact = graph.snapshot();
+        CompressedGraph compressed = new CompressedGraph(graph);
+
+        // Порядок рёбер города в сжатом виде — по цели, поэтому сравниваем суммы по городу
+        boolean sameEdges = compressed.getEdgeCount() == compact.getEdgeCount();
+        EdgeCursor expected = compact.edgeCursor();
+        EdgeCursor actual = compressed.edgeCursor();
+        for (int city = 0; city < compact.getCityCount(); city++) {
+            long expectedSum = 0;
+            long actualSum = 0;
+            expected.moveTo(city);
+            while (expected.next()) {
+                expectedSum += 31L * expected.target() + expected.weight(Criterion.COST) * 7L + expected.weight(Criterion.TIME);
+            }
+            actual.moveTo(city);
+            while (actual.next()) {
+                actualSum += 31L * actual.target() + actual.weight(Criterion.COST) * 7L + actual.weight(Criterion.TIME);
+            }
+            sameEdges &= expectedSum == actualSum;
+        }
+        check(sameEdges, "рёбра и веса каждого города совпадают с CSR-снимком");
+
+        double bytesPerEdge = (double) compressed.getAdjacencyBytes() / compressed.getEdgeCount();
+        check(bytesPerEdge < 8, String.format("%.2f байт на ребро против 16 в CSR", bytesPerEdge));
+
+        DijkstraPathFinder plainFinder = new DijkstraPathFinder(compact);
+        OptimizedDijkstraPathFinder compressedFinder = new OptimizedDijkstraPathFinder(compressed);
+        Random random = new Random(41);
+        boolean allMatch = true;
+        for (int i = 0; i < 30; i++) {
+            City from = compact.getCity(random.nextInt(compact.getCityCount()));
+            City to = compact.getCity(random.nextInt(compact.getCityCount()));
+            Map<Criterion, Route> expectedRoutes = plainFinder.findAllOptimalPaths(from, to);
+            Map<Criterion, Route> actualRoutes = compressedFinder.findAllOptimalPaths(from, to);
+            for (Criterion criterion : CriteriaSet.STANDARD) {
+                allMatch &= expectedRoutes.get(criterion).getValueByCriterion(criterion)
+                        == actualRoutes.get(criterion).getValueByCriterion(criterion);
+            }
+        }
+        check(allMatch, "оптимальные значения совпадают на 30 запросах");
+    }
+
+    /**
+     * Тест 16: Двоичный файл графа, отображённый в память
+     */
+    private static void testMappedGraphFile() {
+        System.out.println("\nТест 16: Двоичный файл графа");
+
+        Path file = null;
+        try {
+            file = Files.createTempFile("graph", ".bin");
+            Graph graph = generateRandomGraph(250, 43);
+            graph.addCity(new City(7_000_000_001L, "Санкт-Петербург"));
+            graph.addRoad(new Road(graph.getCityById(3), graph.getCityById(7_000_000_001L), 700, 480, 800));
+            CompactGraph compact = graph.snapshot();
+            GraphFile.write(graph, file);
+            MappedGraph mapped = MappedGraph.open(file);
+
+            check(mapped.getCityCount() == compact.getCityCount() && mapped.getEdgeCount() == compact.getEdgeCount(),
+                    "число городов и рёбер совпадает");
+
+            City spb = mapped.getCityByName("Санкт-Петербург");
+            check(spb != null && spb.getId() == 7_000_000_001L && mapped.getCityByName("Москва") == null,
+                    "поиск города по названию в UTF-8");
+
+            OptimizedDijkstraPathFinder heapFinder = new OptimizedDijkstraPathFinder(compact);
+            OptimizedDijkstraPathFinder mappedFinder = new OptimizedDijkstraPathFinder(mapped);
+            Random random = new Random(47);
+            boolean allMatch = sameRoutes(heapFinder.findAllOptimalPaths(graph.getCityById(1), spb),
+                    mappedFinder.findAllOptimalPaths(graph.getCityById(1), spb));
+            for (int i = 0; i < 30; i++) {
+                City from = compact.getCity(random.nextInt(compact.getCityCount()));
+                City to = compact.getCity(random.nextInt(compact.getCityCount()));
+                allMatch &= sameRoutes(heapFinder.findAllOptimalPaths(from, to), mappedFinder.findAllOptimalPaths(from, to));
+            }
+            check(allMatch, "маршруты совпадают с поиском по графу в памяти");
+
+            Files.write(file, "[CITIES]\n1: А\n".getBytes());
+            boolean rejected = false;
+            try {
+                MappedGraph.open(file);
+            } catch (IllegalArgumentException e) {
+                rejected = true;
+            }
+            check(rejected, "текстовый файл отклоняется как неверный формат");
+        } catch (IOException e) {
+            check(false, "ошибка ввода-вывода: " + e.getMessage());
+        } finally {
+            if (file != null) {
+                file.toFile().delete();
+            }
+        }
+    }
+
+    /**
+     * Тест 17: Словарь названий с минимальной совершенной хеш-функцией
+     */
+    private static void testNameDictionary() {
+        System.out.println("\nТест 17: Словарь названий городов");
+
+        int count = 20000;
+        String[] names = new String[count];
+        long rawBytes = 0;
+        for (int i = 0; i < count; i++) {
+            names[i] = i % 1000 == 0 ? "Сочи 🌊 " + i : "Населённый пункт №" + i;
+            rawBytes += names[i].getBytes(StandardCharsets.UTF_8).length;
+        }
+        NameDictionary dictionary = new NameDictionary(names);
+
+        boolean allFound = true;
+        for (int i = 0; i < count; i++) {
+            allFound &= dictionary.indexOf(names[i]) == i && dictionary.getName(i).equals(names[i]);
+        }
+        check(allFound, "все 20000 названий (кириллица, суррогатные пары) находятся по точному индексу");
+
+        check(dictionary.indexOf("Населённый пункт №20000") == -1 && dictionary.indexOf("Сочи 🌊") == -1
+                && dictionary.indexOf("") == -1, "отсутствующие названия не находятся");
+        check(dictionary.indexOf(new StringBuilder("Населённый пункт №777")) == 777, "поиск по CharSequence");
+
+        double overhead = (double) (dictionary.getMemoryBytes() - rawBytes) / count;
+        check(dictionary.getArenaBytes() == rawBytes && overhead < 10,
+                String.format("накладные расходы %.1f байт на название сверх UTF-8", overhead));
+
+        Graph graph = createTriangleWithTail();
+        check(graph.getCityByName("Б") == graph.getCityById(2) && graph.hasCity("Г") && !graph.hasCity("Д"),
+                "поиск по названию в графе");
+        graph.addCity(new City(5, "Д"));
+        graph.addCity(new City(2, "Бэ"));
+        check(graph.getCityByName("Д").getId() == 5 && graph.getCityByName("Бэ").getId() == 2
+                && graph.getCityByName("Б") == null, "словарь перестраивается после добавления и замены городов");
+
+        // Поочерёдные добавления и поиски не перестраивают словарь на каждом шаге
+        Graph growing = new Graph();
+        boolean consistent = true;
+        long start = System.nanoTime();
+        for (int i = 1; i <= 20000; i++) {
+            growing.addCity(new City(i, i % 100 == 0 ? "Дубль" : "Посёлок " + i));
+            consistent &= growing.hasCity("Посёлок 1") && growing.getCityByName("Посёлок " + i) != null == (i % 100 != 0);
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        consistent &= growing.getCityByName("Дубль").getId() == 20000 && growing.getCityByName("Посёлок 19999") != null;
+        growing.addCity(new City(19999, "Переименован"));
+        consistent &= growing.getCityByName("Посёлок 19999") == null && growing.getCityByName("Переименован").getId() == 19999;
+        check(consistent && millis < 2000,
+                "20000 поочерёдных добавлений и поисков за " + millis + " мс, дубли — наибольший индекс");
+    }
+
+    /**
+     * Тест 18: Индекс компонент связности
+     */
+    private static void testConnectedComponents() {
+        System.out.println("\nТест 18: Компоненты связности");
+
+        Graph graph = createTriangleWithTail();
+        City e = new City(5, "Д");
+        City f = new City(6, "Е");
+        City g = new City(7, "Ж");
+        graph.addCity(e);
+        graph.addCity(f);
+        graph.addCity(g);
+        graph.addRoad(new Road(e, f, 10, 10, 10));
+        graph.addRoad(new Road(e, f, 20, 20, 20));
+
+        check(graph.getComponentCount() == 3, "3 компоненты: треугольник с хвостом, пара Д - Е, одинокий Ж");
+        check(graph.isConnected(graph.getCityById(1), graph.getCityById(4)) && graph.isConnected(e, f)
+                && !graph.isConnected(graph.getCityById(1), e) && !graph.isConnected(g, e), "проверка достижимости");
+
+        graph.pruneDominatedRoads();
+        graph.renumber(GraphOrdering.reverseCuthillMcKee(graph.snapshot()));
+        check(graph.getComponentCount() == 3 && graph.isConnected(e, f) && !graph.isConnected(f, graph.getCityById(2)),
+                "компоненты сохраняются после удаления дорог и перенумерации");
+
+        graph.addRoad(new Road(g, graph.getCityById(4), 5, 5, 5));
+        graph.addRoad(new Road(f, g, 5, 5, 5));
+        check(graph.getComponentCount() == 1 && graph.isConnected(e, graph.getCityById(1)),
+                "новые дороги объединяют компоненты");
+
+        Graph islands = createTriangleWithTail();
+        islands.addCity(e);
+        RouteSolver.SolutionResult result = new RouteSolver(islands).solve(
+                new InputParser.Request("А", "Д", List.of(Criterion.TIME, Criterion.COST, Criterion.DISTANCE)));
+        boolean allEmpty = !result.getCompromiseRoute().exists();
+        for (Route route : result.getOptimalRoutes().values()) {
+            allEmpty &= !route.exists();
+        }
+        check(allEmpty && result.getOptimalRoutes().size() == 3, "решатель сразу возвращает «Маршрут не найден»");
+    }
+
+    /**
+     * Тест 19: Массовое построение даёт тот же граф, что и добавление по одной дороге
+     */
+    private static void testBulkGraphBuilder() {
+        System.out.println("\nТест 19: Массовое построение графа");
+
+        int cityCount = 20000;
+        int roadCount = 300000;
+        Random random = new Random(53);
+        Graph incremental = new Graph();
+        GraphBuilder builder = new GraphBuilder(cityCount, roadCount);
+        for (int id = 1; id <= cityCount; id++) {
+            City city = new City(id * 7919L, "Город " + id);
+            incremental.addCity(city);
+            builder.addCity(city);
+        }
+        // Повторный ID заменяет город, сохраняя индекс
+        City renamed = new City(7919L * 5, "Переименованный");
+        incremental.addCity(renamed);
+        builder.addCity(renamed);
+
+        for (int i = 0; i < roadCount; i++) {
+            long fromId = (random.nextInt(cityCount) + 1) * 7919L;
+            // Петли и параллельные дороги тоже должны сохранять порядок
+            long toId = i % 1000 == 0 ? fromId : (random.nextInt(cityCount) + 1) * 7919L;
+            int distance = random.nextInt(1000);
+            int time = random.nextInt(1000);
+            int cost = random.nextInt(1000);
+            incremental.addRoad(new Road(incremental.getCityById(fromId), incremental.getCityById(toId), distance, time, cost));
+            builder.addRoad(fromId, toId, distance, time, cost);
+        }
+        Graph bulk = builder.build();
+
+        boolean same = bulk.getCityCount() == incremental.getCityCount() && bulk.getRoadCount() == incremental.getRoadCount();
+        for (int city = 0; city < cityCount && same; city++) {
+            List<Road> expected = incremental.getRoadsFrom(city);
+            List<Road> actual = bulk.getRoadsFrom(city);
+            same = bulk.getCity(city).equals(incremental.getCity(city)) && expected.size() == actual.size();
+            for (int i = 0; same && i < expected.size(); i++) {
+                Road e = expected.get(i);
+                Road a = actual.get(i);
+                same = e.getTo().equals(a.getTo()) && e.getDistance() == a.getDistance()
+                        && e.getTime() == a.getTime() && e.getCost() == a.getCost();
+            }
+        }
+        check(same, "города и порядок дорог в каждом списке смежности совпадают (" + roadCount + " дорог)");
+        check(bulk.getCityByName("Переименованный") == renamed && bulk.getComponentCount() == incremental.getComponentCount(),
+                "замена города, поиск по названию и компоненты связности");
+
+        boolean rejected = false;
+        try {
+            new GraphBuilder().addCity(new City(1, "А")).addRoad(1, 2, 1, 1, 1).build();
+        } catch (IllegalStateException e) {
+            rejected = true;
+        }
+        check(rejected, "дорога к отсутствующему городу отклоняется");
+    }
+
+    /**
+     * Тест 20: Односторонние дороги, паром с разной стоимостью и обратный поиск
+     */
+    private static void testOneWayRoads() {
+        System.out.println("\nТест 20: Односторонние дороги");
+
+        Graph graph = new Graph();
+        City a = new City(1, "А");
+        City b = new City(2, "Б");
+        City c = new City(3, "В");
+        City d = new City(4, "Г");
+        graph.addCity(a);
+        graph.addCity(b);
+        graph.addCity(c);
+        graph.addCity(d);
+        graph.addRoad(new Road(b, c, 10, 10, 10));
+        graph.addRoad(new Road(c, a, 100, 100, 100));
+        check(!graph.isDirected() && !graph.snapshot().isDirected(), "без односторонних дорог граф неориентированный");
+
+        graph.addRoad(new Road(a, b, 10, 10, 10, true));
+        // Паром: туда дёшево, обратно дорого
+        graph.addRoad(new Road(c, d, 5, 5, 5, true));
+        graph.addRoad(new Road(d, c, 50, 50, 50, true));
+
+        DijkstraPathFinder finder = new DijkstraPathFinder(graph);
+        Route forward = finder.findPath(a, b, Criterion.DISTANCE);
+        Route backward = finder.findPath(b, a, Criterion.DISTANCE);
+        check(graph.isDirected() && forward.getTotalDistance() == 10
+                        && backward.getTotalDistance() == 110 && backward.getCities().equals(Arrays.asList(b, c, a)),
+                "А -> Б по односторонней дороге, обратно — в объезд через В");
+        check(finder.findPath(c, d, Criterion.COST).getTotalCost() == 5
+                        && finder.findPath(d, c, Criterion.COST).getTotalCost() == 50,
+                "паром: разная стоимость в разные стороны");
+        check(graph.getRoadsFrom(b).size() == 1 && graph.getRoadsFrom(a).size() == 2,
+                "односторонняя дорога видна только из своего начала");
+
+        CompactGraph snapshot = graph.snapshot();
+        EdgeCursor incoming = snapshot.reverseEdgeCursor();
+        List<Integer> intoA = new ArrayList<>();
+        incoming.moveTo(graph.indexOf(a));
+        while (incoming.next()) {
+            intoA.add(incoming.target());
+        }
+        check(intoA.equals(Arrays.asList(graph.indexOf(c))), "входящие рёбра А: только из В");
+
+        int[] toA = finder.distancesTo(a, Criterion.DISTANCE);
+        check(toA[graph.indexOf(a)] == 0 && toA[graph.indexOf(b)] == 110
+                        && toA[graph.indexOf(c)] == 100 && toA[graph.indexOf(d)] == 150,
+                "расстояния «многие к одному» по обратным рёбрам");
+
+        // Двусторонняя дорога не хуже односторонней — вытесняет её; встречная односторонняя остаётся
+        Graph parallel = new Graph();
+        parallel.addCity(a);
+        parallel.addCity(b);
+        parallel.addRoad(new Road(a, b, 20, 20, 20, true));
+        parallel.addRoad(new Road(b, a, 20, 20, 20, true));
+        parallel.addRoad(new Road(b, a, 30, 30, 30, true));
+        parallel.addRoad(new Road(b, a, 1, 1, 1, true));
+        parallel.addRoad(new Road(a, b, 10, 10, 10));
+        int removed = parallel.pruneDominatedRoads();
+        check(removed == 3 && parallel.getRoadsFrom(b).size() == 2
+                        && new DijkstraPathFinder(parallel).findPath(b, a, Criterion.DISTANCE).getTotalDistance() == 1,
+                "доминирование учитывает направление дорог");
+
+        VersionedGraph versioned = new VersionedGraph(graph);
+        versioned.closeRoad(c, d);
+        versioned.addRoad(new Road(b, d, 7, 7, 7, true));
+        GraphVersion version = versioned.current();
+        check(version.getRoadCount() == 4 && version.isDirected()
+                        && new DijkstraPathFinder(version).findPath(a, d, Criterion.DISTANCE).getTotalDistance() == 17
+                        && !new DijkstraPathFinder(version).findPath(d, a, Criterion.DISTANCE).exists(),
+                "версии графа: закрытие парома и новая односторонняя дорога");
+
+        // Изменение односторонней дороги не трогает двустороннюю между теми же городами
+        Graph mixed = new Graph();
+        mixed.addCity(a);
+        mixed.addCity(b);
+        mixed.addRoad(new Road(a, b, 10, 10, 10));
+        mixed.addRoad(new Road(a, b, 20, 20, 20, true));
+        VersionedGraph mixedVersions = new VersionedGraph(mixed);
+        Road faster = new Road(a, b, 5, 5, 5, true);
+        mixed.updateRoad(faster);
+        mixedVersions.updateRoad(faster);
+        check(edges(mixedVersions.current(), false).equals(edges(mixed.snapshot(), false))
+                        && edges(mixedVersions.current(), true).equals(edges(mixed.snapshot(), true))
+                        && new DijkstraPathFinder(mixedVersions.current()).findPath(b, a, Criterion.DISTANCE)
+                                .getTotalDistance() == 10,
+                "версии графа: изменение односторонней дороги рядом с двусторонней — как в Graph");
+
+        Graph twoWay = new Graph();
+        twoWay.addCity(a);
+        twoWay.addCity(b);
+        twoWay.addRoad(new Road(a, b, 10, 10, 10));
+        VersionedGraph twoWayVersions = new VersionedGraph(twoWay);
+        twoWayVersions.updateRoad(new Road(a, b, 3, 3, 3));
+        boolean rejected = false;
+        try {
+            twoWayVersions.updateRoad(new Road(a, b, 1, 1, 1, true));
+        } catch (IllegalArgumentException e) {
+            rejected = true;
+        }
+        GraphVersion updated = twoWayVersions.current();
+        check(rejected && !updated.isDirected() && edges(updated, true).equals(edges(updated, false))
+                        && edges(updated, false).size() == 2 && edges(updated, false).get(0).endsWith(":3,3,3,"),
+                "версии графа: односторонней дороги нет — двусторонняя не меняется, граф неориентированный");
+    }
+
+    /**
+     * Тест 21: Все представления графа с односторонними дорогами дают одинаковые рёбра в обе стороны
+     */
+    private static void testDirectedRepresentationsAgree() {
+        System.out.println("\nТест 21: Представления ориентированного графа");
+
+        int cityCount = 400;
+        Random random = new Random(61);
+        Graph graph = new Graph();
+        GraphBuilder builder = new GraphBuilder();
+        for (int id = 1; id <= cityCount; id++) {
+            City city = new City(id, "Город" + id);
+            graph.addCity(city);
+            builder.addCity(city);
+        }
+        for (int i = 0; i < cityCount * 3; i++) {
+            int fromId = random.nextInt(cityCount) + 1;
+            int toId = random.nextInt(cityCount) + 1;
+            int distance = random.nextInt(50_000) + 1;
+            int time = random.nextInt(30_000) + 1;
+            int cost = random.nextInt(100_000) + 1;
+            boolean oneWay = i % 3 == 0;
+            graph.addRoad(new Road(graph.getCityById(fromId), graph.getCityById(toId), distance, time, cost, oneWay));
+            if (oneWay) {
+                builder.addOneWayRoad(fromId, toId, distance, time, cost);
+            } else {
+                builder.addRoad(fromId, toId, distance, time, cost);
+            }
+        }
+
+        CompactGraph compact = graph.snapshot();
+        List<String> forward = edges(compact, false);
+        List<String> reverse = edges(compact, true);
+        check(reverse.equals(transpose(forward)), "входящие рёбра снимка — транспонированные исходящие");
+
+        Path file = null;
+        boolean same;
+        try {
+            file = Files.createTempFile("directed", ".bin");
+            GraphFile.write(graph, file);
+            SearchGraph[] views = {
+                    builder.build().snapshot(),
+                    new OffHeapGraph(compact),
+                    new CompressedGraph(compact),
+                    MappedGraph.open(file),
+                    new VersionedGraph(graph).current()
+            };
+            same = true;
+            for (SearchGraph view : views) {
+                same &= view.isDirected() && edges(view, false).equals(forward) && edges(view, true).equals(reverse);
+            }
+        } catch (IOException e) {
+            same = false;
+        } finally {
+            if (file != null) {
+                file.toFile().delete();
+            }
+        }
+        check(same, "построитель, вне кучи, сжатый, файл и версии совпадают со снимком");
+
+        graph.renumber(GraphOrdering.reverseCuthillMcKee(graph.snapshot()));
+        graph.pruneDominatedRoads();
+        List<String> renumbered = edges(graph.snapshot(), false);
+        check(edges(graph.snapshot(), true).equals(transpose(renumbered)),
+                "после перенумерации и удаления дорог обратные рёбра согласованы");
+
+        DijkstraPathFinder dijkstra = new DijkstraPathFinder(graph);
+        ContractedPathFinder contracted = new ContractedPathFinder(new ChainContraction(graph));
+        boolean optimal = true;
+        for (int i = 0; i < 50 && optimal; i++) {
+            City from = graph.getCityById(random.nextInt(cityCount) + 1);
+            City to = graph.getCityById(random.nextInt(cityCount) + 1);
+            for (Criterion criterion : CriteriaSet.STANDARD) {
+                Route expected = dijkstra.findPath(from, to, criterion);
+                Route actual = contracted.findPath(from, to, criterion);
+                int[] toTarget = dijkstra.distancesTo(to, criterion);
+                int value = toTarget[graph.indexOf(from)];
+                optimal &= expected.exists() == actual.exists()
+                        && (!expected.exists() ? value == Integer.MAX_VALUE
+                        : expected.getValueByCriterion(criterion) == actual.getValueByCriterion(criterion)
+                        && expected.getValueByCriterion(criterion) == value);
+            }
+        }
+        check(optimal, "сжатие цепочек и обратный поиск дают оптимальные значения");
+    }
+
+    /**
+     * Тест 22: Произвольный набор критериев во всех представлениях и в поиске
+     */
+    private static void testCustomCriteria() {
+        System.out.println("\nТест 22: Четыре критерия (с топливом)");
+
+        CriteriaSet criteria = CriteriaSet.of(Arrays.asList("Д", "В", "С", "Т"),
+                Arrays.asList("ДЛИНА", "ВРЕМЯ", "СТОИМОСТЬ", "ТОПЛИВО"));
+        Criterion fuel = criteria.get(3);
+        check(criteria.get(0) == Criterion.DISTANCE && criteria.contains(Criterion.COST)
+                        && !CriteriaSet.STANDARD.contains(fuel),
+                "классические критерии набора — те же константы");
+
+        int cityCount = 300;
+        Random random = new Random(73);
+        Graph graph = new Graph(criteria);
+        GraphBuilder builder = new GraphBuilder(criteria, cityCount, cityCount * 3);
+        for (int id = 1; id <= cityCount; id++) {
+            City city = new City(id, "Город" + id);
+            graph.addCity(city);
+            builder.addCity(city);
+        }
+        for (int i = 0; i < cityCount * 3; i++) {
+            int fromId = random.nextInt(cityCount) + 1;
+            int toId = random.nextInt(cityCount) + 1;
+            // Топливо не связано с длиной: оптимальные маршруты расходятся
+            int[] weights = {random.nextInt(1000) + 1, random.nextInt(600) + 1,
+                    random.nextInt(2000) + 1, random.nextInt(100) + 1};
+            boolean oneWay = i % 5 == 0;
+            graph.addRoad(new Road(graph.getCityById(fromId), graph.getCityById(toId), weights, oneWay));
+            if (oneWay) {
+                builder.addOneWayRoad(fromId, toId, weights);
+            } else {
+                builder.addRoad(fromId, toId, weights);
+            }
+        }
+
+        boolean rejected = false;
+        try {
+            graph.addRoad(new Road(graph.getCityById(1), graph.getCityById(2), 1, 1, 1));
+        } catch (IllegalArgumentException e) {
+            rejected = true;
+        }
+        check(rejected && graph.getRoadCount() == cityCount * 3, "дорога с тремя весами отклонена");
+
+        CompactGraph compact = graph.snapshot();
+        List<String> forward = edges(compact, false);
+        Path file = null;
+        boolean same;
+        try {
+            file = Files.createTempFile("criteria", ".bin");
+            GraphFile.write(graph, file);
+            SearchGraph[] views = {
+                    builder.build().snapshot(),
+                    new OffHeapGraph(compact),
+                    new CompressedGraph(compact),
+                    MappedGraph.open(file),
+                    new VersionedGraph(graph).current()
+            };
+            same = true;
+            for (SearchGraph view : views) {
+                same &= view.getCriteria().equals(criteria) && edges(view, false).equals(forward);
+            }
+        } catch (IOException e) {
+            same = false;
+        } finally {
+            if (file != null) {
+                file.toFile().delete();
+            }
+        }
+        check(same, "построитель, вне кучи, сжатый, файл и версии хранят четыре столбца весов");
+
+        DijkstraPathFinder dijkstra = new DijkstraPathFinder(graph);
+        OptimizedDijkstraPathFinder optimized = new OptimizedDijkstraPathFinder(graph);
+        ContractedPathFinder contracted = new ContractedPathFinder(new ChainContraction(graph));
+        RouteSolver solver = new RouteSolver(graph);
+        boolean optimal = true;
+        boolean ordered = true;
+        boolean compromise = true;
+        for (int i = 0; i < 40; i++) {
+            City from = graph.getCityById(random.nextInt(cityCount) + 1);
+            City to = graph.getCityById(random.nextInt(cityCount) + 1);
+            Map<Criterion, Route> all = optimized.findAllOptimalPaths(from, to);
+            ordered &= new ArrayList<>(all.keySet()).equals(criteria.asList());
+            for (Criterion criterion : criteria) {
+                Route expected = dijkstra.findPath(from, to, criterion);
+                Route actual = contracted.findPath(from, to, criterion);
+                optimal &= expected.exists() == actual.exists() && (!expected.exists()
+                        || expected.getValueByCriterion(criterion) == actual.getValueByCriterion(criterion)
+                        && expected.getValueByCriterion(criterion) == all.get(criterion).getValueByCriterion(criterion));
+            }
+            Route byFuel = solver.solve(new InputParser.Request(from.getName(), to.getName(),
+                    Arrays.asList(fuel))).getCompromiseRoute();
+            for (Route route : all.values()) {
+                compromise &= byFuel.getValueByCriterion(fuel) <= route.getValueByCriterion(fuel);
+            }
+        }
+        check(optimal, "Дейкстра и сжатые цепочки дают одинаковые оптимумы по каждому критерию");
+        check(ordered, "оптимальные маршруты перечислены в порядке набора");
+        check(compromise, "компромисс с приоритетом топлива выбирает самый экономный маршрут");
+    }
+
+    /**
+     * Тест 23: Регион — представление части графа без копирования
+     */
+    private static void testRegionView() {
+        System.out.println("\nТест 23: Регион графа");
+
+        int cityCount = 400;
+        int regionSize = 150;
+        Graph graph = generateRandomGraph(cityCount, 83);
+        RegionView region = RegionView.of(graph, city -> city.getId() <= regionSize);
+
+        // Эталон: отдельный граф только из городов и дорог региона
+        Graph copy = new Graph();
+        for (long id = 1; id <= regionSize; id++) {
+            copy.addCity(graph.getCityById(id));
+        }
+        for (long id = 1; id <= regionSize; id++) {
+            for (Road road : graph.getRoadsFrom(graph.getCityById(id))) {
+                if (road.getTo().getId() <= regionSize && road.getFrom().getId() <= road.getTo().getId()) {
+                    copy.addRoad(road);
+                }
+            }
+        }
+
+        boolean inside = region.getRegionSize() == regionSize
+                && region.indexOf(graph.getCityById(regionSize + 1)) < 0
+                && region.getCityByName("Город" + (regionSize + 1)) == null
+                && region.getCityByName("Город1") != null;
+        EdgeCursor cursor = region.edgeCursor();
+        int regionEdges = 0;
+        for (int city = 0; city < region.getCityCount(); city++) {
+            cursor.moveTo(city);
+            while (cursor.next()) {
+                inside &= region.contains(city) && region.contains(cursor.target());
+                regionEdges++;
+            }
+        }
+        check(inside && regionEdges == copy.snapshot().getEdgeCount(),
+                "в регионе только его города и дороги между ними");
+
+        DijkstraPathFinder inRegion = new DijkstraPathFinder(region);
+        DijkstraPathFinder inCopy = new DijkstraPathFinder(copy);
+        Random random = new Random(89);
+        boolean same = true;
+        for (int i = 0; i < 50; i++) {
+            City from = graph.getCityById(random.nextInt(regionSize) + 1);
+            City to = graph.getCityById(random.nextInt(regionSize) + 1);
+            for (Criterion criterion : CriteriaSet.STANDARD) {
+                Route expected = inCopy.findPath(from, to, criterion);
+                Route actual = inRegion.findPath(from, to, criterion);
+                same &= expected.exists() == actual.exists() && (!expected.exists()
+                        || expected.getValueByCriterion(criterion) == actual.getValueByCriterion(criterion));
+            }
+        }
+        check(same, "поиск в регионе совпадает с поиском по копии подграфа");
+
+        RouteSolver solver = new RouteSolver(region);
+        List<Criterion> priorities = CriteriaSet.STANDARD.asList();
+        boolean rejected = false;
+        try {
+            solver.solve(new InputParser.Request("Город1", "Город" + (regionSize + 1), priorities));
+        } catch (IllegalArgumentException e) {
+            rejected = true;
+        }
+        Route route = solver.solve(new InputParser.Request("Город1", "Город2", priorities)).getCompromiseRoute();
+        boolean bounded = true;
+        for (City city : route.getCities()) {
+            bounded &= city.getId() <= regionSize;
+        }
+        check(rejected && bounded, "решатель по региону не выходит за его границу");
+
+        // Одноимённый город вне региона не заслоняет город региона, поздние изменения графа не видны
+        graph.addCity(new City(cityCount + 1, "Город2"));
+        graph.addCity(new City(3, "Переименован"));
+        check(region.getCityByName("Город2").getId() == 2 && region.getCityByName("Город3").getId() == 3
+                        && region.getCityByName("Переименован") == null,
+                "названия региона — по его городам на момент создания");
+    }
+
+    /**
+     * Тест 24: Патч применяется к графу на месте и даёт тот же граф, что и построение с нуля
+     */
+    private static void testGraphPatch() {
+        System.out.println("\nТест 24: Применение патча к графу");
+
+        int cityCount = 300;
+        Random random = new Random(97);
+        List<City> cities = new ArrayList<>();
+        for (int i = 1; i <= cityCount; i++) {
+            cities.add(new City(i, "Город" + i));
+        }
+        List<Road> roads = new ArrayList<>();
+        for (int i = 0; i < cityCount * 2; i++) {
+            City from = cities.get(random.nextInt(cityCount));
+            City to = cities.get(random.nextInt(cityCount));
+            roads.add(new Road(from, to, randomWeights(random), random.nextInt(5) == 0));
+        }
+        Graph graph = buildGraph(cities, roads);
+        graph.snapshot();
+
+        AtomicInteger events = new AtomicInteger();
+        graph.addListener(new GraphListener() {
+            @Override
+            public void cityAdded(City city, int index) {
+                events.incrementAndGet();
+            }
+
+            @Override
+            public void roadAdded(Road road) {
+                events.incrementAndGet();
+            }
+
+            @Override
+            public void roadsRemoved(City a, City b, int count) {
+                events.incrementAndGet();
+            }
+
+            @Override
+            public void roadUpdated(Road road) {
+                events.incrementAndGet();
+            }
+        });
+
+        // Тот же патч применяется к списку дорог эталона
+        GraphPatch patch = new GraphPatch();
+        for (int i = 0; i < 60; i++) {
+            Road road = roads.get(random.nextInt(roads.size()));
+            long a = road.getFrom().getId();
+            long b = road.getTo().getId();
+            if (random.nextBoolean()) {
+                patch.removeRoad(a, b);
+                roads.removeIf(r -> (r.getFrom() == road.getFrom() && r.getTo() == road.getTo())
+                        || (r.getFrom() == road.getTo() && r.getTo() == road.getFrom()));
+            } else {
+                int[] weights = randomWeights(random);
+                patch.updateRoad(a, b, weights, road.isOneWay());
+                roads.replaceAll(r -> r.isOneWay() == road.isOneWay()
+                        && ((r.getFrom() == road.getFrom() && r.getTo() == road.getTo())
+                        || (!r.isOneWay() && r.getFrom() == road.getTo() && r.getTo() == road.getFrom()))
+                        ? new Road(r.getFrom(), r.getTo(), weights, r.isOneWay()) : r);
+            }
+        }
+        for (int i = 0; i < 20; i++) {
+            City city = new City(cityCount + i + 1, "Новый" + i);
+            City other = cities.get(random.nextInt(cities.size()));
+            int[] weights = randomWeights(random);
+            patch.addCity(city);
+            patch.addRoad(other.getId(), city.getId(), weights, false);
+            cities.add(city);
+            roads.add(new Road(other, city, weights, false));
+        }
+
+        graph.apply(patch);
+        Graph expected = buildGraph(cities, roads);
+        check(graph.getRoadCount() == expected.getRoadCount()
+                        && edges(graph.snapshot(), false).equals(edges(expected.snapshot(), false))
+                        && edges(graph.snapshot(), true).equals(edges(expected.snapshot(), true)),
+                "рёбра в обе стороны совпадают с графом, построенным с нуля");
+        check(graph.getComponentCount() == expected.getComponentCount(),
+                "компоненты связности пересчитаны после удаления дорог");
+        check(events.get() == patch.size(), "подписчик получил уведомление о каждом изменении");
+
+        // Ошибка в ссылке на город обнаруживается до применения первого изменения
+        GraphPatch broken = new GraphPatch();
+        broken.removeRoad(roads.get(0).getFrom().getId(), roads.get(0).getTo().getId());
+        broken.addRoad(1, 999_999, randomWeights(random), false);
+        int roadCount = graph.getRoadCount();
+        boolean rejected = false;
+        try {
+            graph.apply(broken);
+        } catch (IllegalArgumentException e) {
+            rejected = true;
+        }
+        check(rejected && graph.getRoadCount() == roadCount, "патч с неизвестным городом отклонён целиком");
+
+        // Удаление и изменение отсутствующей дороги в середине патча тоже обнаруживаются заранее
+        Road present = roads.get(0);
+        long presentFrom = present.getFrom().getId();
+        long presentTo = present.getTo().getId();
+        List<String> before = edges(graph.snapshot(), false);
+        for (boolean update : new boolean[]{false, true}) {
+            GraphPatch missing = new GraphPatch();
+            missing.updateRoad(presentFrom, presentTo, randomWeights(random), present.isOneWay());
+            missing.removeRoad(presentFrom, presentTo);
+            if (update) {
+                missing.updateRoad(presentFrom, presentTo, randomWeights(random), present.isOneWay());
+            } else {
+                missing.removeRoad(presentTo, presentFrom);
+            }
+            missing.addRoad(presentFrom, presentTo, randomWeights(random), false);
+            String message = "";
+            try {
+                graph.apply(missing);
+            } catch (IllegalArgumentException e) {
+                message = e.getMessage();
+            }
+            check(message.startsWith("Изменение 3") && graph.getRoadCount() == roadCount
+                            && edges(graph.snapshot(), false).equals(before),
+                    (update ? "изменение" : "удаление") + " уже удалённой дороги отклоняет патч целиком");
+        }
+
+        // Дорога, добавленная патчем после удаления, снова доступна для изменения
+        GraphPatch replaced = new GraphPatch();
+        replaced.removeRoad(presentFrom, presentTo);
+        replaced.addRoad(presentTo, presentFrom, new int[]{7, 7, 7}, true);
+        replaced.updateRoad(presentTo, presentFrom, new int[]{8, 8, 8}, true);
+        replaced.removeRoad(presentFrom, presentTo);
+        graph.apply(replaced);
+        check(!graph.getRoadsFrom(present.getTo()).stream().anyMatch(r -> r.getTo() == present.getFrom())
+                        && !graph.getRoadsFrom(present.getFrom()).stream().anyMatch(r -> r.getTo() == present.getTo()),
+                "удаление, добавление и изменение одной дороги в патче учитываются по порядку");
+
+        // Удаление последней односторонней дороги делает граф неориентированным
+        Graph small = createTriangleWithTail();
+        small.addRoad(new Road(small.getCityById(4), small.getCityById(1), 5, 5, 5, true));
+        int removed = small.removeRoads(small.getCityById(1), small.getCityById(4));
+        small.removeRoads(small.getCityById(2), small.getCityById(4));
+        check(removed == 1 && !small.isDirected() && small.getComponentCount() == 2
+                        && !small.isConnected(small.getCityById(1), small.getCityById(4)),
+                "после удаления мостов город отделён, обратные списки не нужны");
+    }
+
+    /**
+     * Тест 25: Точный учёт памяти графа и поиска, уплотнение
+     */
+    private static void testMemoryReport() {
+        System.out.println("\nТест 25: Учёт памяти");
+
+        // 4 дороги заполняют начальную ёмкость столбцов (4): ссылки на 3 столбца + 3 × (IntList + int[4])
+        Graph triangle = createTriangleWithTail();
+        MemoryReport small = triangle.memoryReport();
+        long sum = 0;
+        for (String part : small.getParts()) {
+            sum += small.getBytes(part);
+        }
+        check(small.getBytes("Веса") == 32 + 3 * (24 + 32) && small.getReclaimableBytes("Веса") == 0
+                        && sum == small.getTotalBytes(),
+                "веса треугольника — 200 байт, сумма частей равна итогу");
+
+        Graph graph = generateRandomGraph(500, 101);
+        City twin = new City(501, new String("Город1".toCharArray()));
+        graph.addCity(twin);
+        graph.addRoad(new Road(graph.getCityById(1), twin, 10, 10, 10));
+        graph.snapshot();
+        MemoryReport before = graph.memoryReport();
+        check(before.getReclaimableBytes("Смежность") > 0 && before.getBytes("Снимок CSR") > 0
+                        && before.getReclaimableBytes("Города") == 24 + 32
+                        && before.toString().equals(graph.memoryReport().toString()),
+                "запас массивов и повторное название учтены, отчёт повторяем");
+
+        Route route = new DijkstraPathFinder(graph).findPath(graph.getCityById(1), graph.getCityById(400), Criterion.TIME);
+        long freed = graph.compact();
+        MemoryReport after = graph.memoryReport();
+        Route compacted = new DijkstraPathFinder(graph).findPath(graph.getCityById(1), graph.getCityById(400), Criterion.TIME);
+        check(after.getTotalReclaimableBytes() == 0
+                        && freed >= before.getTotalReclaimableBytes() - before.getBytes("Снимок CSR")
+                        && graph.getCityById(501).getName() == graph.getCityById(1).getName()
+                        && route.getTotalTime() == compacted.getTotalTime(),
+                "уплотнение освобождает объявленные байты и не меняет маршруты");
+
+        CompactGraph compact = graph.snapshot();
+        MemoryReport single = new DijkstraPathFinder(compact).memoryReport();
+        MemoryReport perCriterion = new OptimizedDijkstraPathFinder(compact).memoryReport();
+        long arrays = 2 * (16 + 501 * 4 + 4) + (16 + 504);
+        // Отметки эпох по городам, четыре массива по 3 метки на город, кучи критериев по 501 элементу
+        long labels = 56 + 2 * (16 + 501 * 4 + 4) + 4 * (16 + 1503 * 4 + 4) + 32;
+        check(single.getBytes("Рабочие массивы") == arrays
+                        && perCriterion.getBytes("Рабочие массивы") == labels
+                        && perCriterion.getBytes("Кучи") == 3 * (32 + 16 + 501 * 4 + 4)
+                        && new ContractedPathFinder(new ChainContraction(graph)).memoryReport().getBytes("Сжатые цепочки") > 0,
+                "рабочая память поиска: массивы по числу городов, метки всех критериев рядом");
+    }
+
+    /**
+     * Тест 26: Привязка координат к ближайшему городу совпадает с полным перебором
+     */
+    private static void testSpatialIndex() {
+        System.out.println("\nТест 26: Пространственный индекс");
+
+        int cityCount = 2000;
+        Random random = new Random(103);
+        GraphBuilder builder = new GraphBuilder(cityCount, 0);
+        for (int i = 1; i <= cityCount; i++) {
+            // Каждый пятый город без координат; среди остальных — точки у полюса и линии перемены дат
+            City city = new City(i, "Город" + i);
+            if (i % 5 == 0) {
+                builder.addCity(city);
+                continue;
+            }
+            double latitude = i % 7 == 0 ? 89 + random.nextDouble() : random.nextDouble() * 180 - 90;
+            double longitude = i % 11 == 0 ? 179.5 + random.nextDouble() / 2 : random.nextDouble() * 360 - 180;
+            builder.addCity(city, latitude, longitude);
+        }
+        Graph graph = builder.build();
+        SpatialIndex index = graph.spatialIndex();
+
+        // Эталон — хранимые координаты (с точностью до микроградуса)
+        double[][] locations = new double[cityCount + 1][];
+        for (int i = 0; i < graph.getCityCount(); i++) {
+            if (graph.hasLocation(i)) {
+                locations[(int) graph.getCity(i).getId()] = new double[]{graph.getLatitude(i), graph.getLongitude(i)};
+            }
+        }
+
+        boolean same = index.size() == cityCount - cityCount / 5;
+        for (int q = 0; q < 300 && same; q++) {
+            double latitude = q % 3 == 0 ? 89.5 + random.nextDouble() / 2 : random.nextDouble() * 180 - 90;
+            double longitude = q % 4 == 0 ? -180 + random.nextDouble() : random.nextDouble() * 360 - 180;
+
+            List<Double> expected = new ArrayList<>();
+            for (double[] location : locations) {
+                if (location != null) {
+                    expected.add(SpatialIndex.distanceKm(latitude, longitude, location[0], location[1]));
+                }
+            }
+            Collections.sort(expected);
+            List<City> nearest = index.nearest(latitude, longitude, 5);
+            same &= nearest.size() == 5;
+            for (int i = 0; i < nearest.size() && same; i++) {
+                double[] location = locations[(int) nearest.get(i).getId()];
+                double distance = SpatialIndex.distanceKm(latitude, longitude, location[0], location[1]);
+                same &= Math.abs(distance - expected.get(i)) < 1e-6;
+            }
+            same &= index.nearest(latitude, longitude) == nearest.get(0);
+        }
+        check(same, "ближайший и 5 ближайших совпадают с перебором, включая полюс и линию перемены дат");
+
+        City moscow = graph.getCityById(1);
+        graph.setLocation(moscow, 55.7558, 37.6173);
+        graph.renumber(GraphOrdering.breadthFirst(graph.snapshot()));
+        check(graph.spatialIndex().nearest(55.75, 37.62) == moscow
+                        && graph.getLatitude(graph.indexOf(moscow)) == 55.7558
+                        && !graph.hasLocation(graph.indexOf(graph.getCityById(5)))
+                        && Double.isNaN(graph.getLongitude(graph.indexOf(graph.getCityById(5)))),
+                "координаты следуют за городом при перенумерации, индекс перестроен");
+
+        boolean rejected = false;
+        try {
+            graph.setLocation(moscow, 91, 0);
+        } catch (IllegalArgumentException e) {
+            rejected = true;
+        }
+        check(rejected, "широта вне [-90, 90] отклонена");
+    }
+
+    /**
+     * Тест 27: Дейкстра на индексированной куче совпадает с базовой реализацией
+     */
+    private static void testIndexedHeapFinder() {
+        System.out.println("\nТест 27: Индексированная куча с decrease-key");
+
+        Graph graph = generateMultiGraph(600, 107);
+        Random random = new Random(109);
+        for (int i = 0; i < 300; i++) {
+            graph.addRoad(new Road(graph.getCityById(random.nextInt(600) + 1), graph.getCityById(random.nextInt(600) + 1),
+                    random.nextInt(100) + 1, random.nextInt(60) + 1, random.nextInt(200) + 1, true));
+        }
+        // Изолированный город: маршрута к нему нет
+        graph.addCity(new City(601, "Остров"));
+
+        DijkstraPathFinder expected = new DijkstraPathFinder(graph);
+        IndexedHeapPathFinder indexed = new IndexedHeapPathFinder(graph.snapshot());
+        boolean same = true;
+        for (int i = 0; i < 200; i++) {
+            City from = graph.getCityById(random.nextInt(600) + 1);
+            City to = graph.getCityById(i % 50 == 0 ? 601 : random.nextInt(600) + 1);
+            Map<Criterion, Route> actual = indexed.findAllOptimalPaths(from, to);
+            for (Criterion criterion : CriteriaSet.STANDARD) {
+                Route route = expected.findPath(from, to, criterion);
+                Route other = actual.get(criterion);
+                same &= route.exists() == other.exists()
+                        && route.getValueByCriterion(criterion) == other.getValueByCriterion(criterion);
+            }
+        }
+        check(same, "значения критериев совпадают на 200 запросах, включая односторонние дороги и недостижимый город");
+
+        MemoryReport report = indexed.memoryReport();
+        check(report.getTotalBytes() < new DijkstraPathFinder(graph.snapshot()).memoryReport().getTotalBytes(),
+                "рабочая память ограничена V элементами кучи, без узлов очереди");
+    }
+
+    /**
+     * Тест 28: Рабочие области поиска переиспользуются между запросами без утечки состояния
+     */
+    private static void testReusedWorkspace() {
+        System.out.println("\nТест 28: Переиспользуемая рабочая область поиска");
+
+        Graph graph = generateMultiGraph(300, 113);
+        Random random = new Random(127);
+        OptimizedDijkstraPathFinder optimized = new OptimizedDijkstraPathFinder(graph);
+        IndexedHeapPathFinder indexed = new IndexedHeapPathFinder(graph);
+        DijkstraPathFinder expected = new DijkstraPathFinder(graph);
+
+        // Граф растёт между запросами: области потока увеличиваются, старые отметки не мешают
+        boolean same = true;
+        int cityCount = 300;
+        for (int i = 0; i < 300; i++) {
+            if (i % 60 == 59) {
+                for (int id = cityCount + 1; id <= cityCount + 100; id++) {
+                    City city = new City(id, "Город" + id);
+                    graph.addCity(city);
+                    graph.addRoad(new Road(graph.getCityById(random.nextInt(id - 1) + 1), city,
+                            random.nextInt(100) + 1, random.nextInt(60) + 1, random.nextInt(200) + 1));
+                }
+                cityCount += 100;
+            }
+            City from = graph.getCityById(random.nextInt(cityCount) + 1);
+            City to = graph.getCityById(random.nextInt(cityCount) + 1);
+            Map<Criterion, Route> first = optimized.findAllOptimalPaths(from, to);
+            Map<Criterion, Route> second = indexed.findAllOptimalPaths(from, to);
+            for (Criterion criterion : CriteriaSet.STANDARD) {
+                long value = expected.findPath(from, to, criterion).getValueByCriterion(criterion);
+                same &= first.get(criterion).getValueByCriterion(criterion) == value
+                        && second.get(criterion).getValueByCriterion(criterion) == value;
+            }
+            // Повтор того же запроса даёт тот же маршрут
+            same &= optimized.findAllOptimalPaths(from, to).get(Criterion.TIME).getCities()
+                    .equals(first.get(Criterion.TIME).getCities());
+        }
+        check(same, "300 запросов подряд совпадают с базовой реализацией при росте графа");
+
+        // Один экземпляр поиска из нескольких потоков: у каждого потока своя область
+        CompactGraph snapshot = graph.snapshot();
+        OptimizedDijkstraPathFinder shared = new OptimizedDijkstraPathFinder(snapshot);
+        int[][] queries = new int[200][2];
+        long[] values = new long[queries.length];
+        for (int q = 0; q < queries.length; q++) {
+            queries[q][0] = random.nextInt(cityCount) + 1;
+            queries[q][1] = random.nextInt(cityCount) + 1;
+            values[q] = expected.findPath(graph.getCityById(queries[q][0]), graph.getCityById(queries[q][1]),
+                    Criterion.COST).getTotalCost();
+        }
+        AtomicInteger mismatches = new AtomicInteger();
+        Thread[] workers = new Thread[4];
+        for (int t = 0; t < workers.length; t++) {
+            int offset = t;
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < queries.length; i++) {
+                    int q = (i + offset * 50) % queries.length;
+                    Route route = shared.findPath(graph.getCityById(queries[q][0]), graph.getCityById(queries[q][1]),
+                            Criterion.COST);
+                    if (route.getTotalCost() != values[q]) {
+                        mismatches.incrementAndGet();
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        check(mismatches.get() == 0, "4 потока с общим экземпляром поиска получают верные маршруты");
+    }
+
+    /**
+     * Тест 29: Дейкстра на целочисленных корзинах: выбор очереди по наибольшему весу
+     */
+    private static void testBucketFinder() {
+        System.out.println("\nТест 29: Целочисленная очередь (корзины Дайла / radix-куча)");
+
+        // Малые веса длины и времени, большие (и нулевые) — стоимости
+        int cityCount = 500;
+        Random random = new Random(131);
+        Graph graph = new Graph();
+        for (int i = 1; i <= cityCount; i++) {
+            graph.addCity(new City(i, "Город" + i));
+        }
+        int maxTime = 0;
+        for (int i = 0; i < cityCount * 4; i++) {
+            City from = graph.getCityById(random.nextInt(cityCount) + 1);
+            City to = graph.getCityById(random.nextInt(cityCount) + 1);
+            int time = random.nextInt(60);
+            maxTime = Math.max(maxTime, time);
+            graph.addRoad(new Road(from, to, random.nextInt(100) + 1, time,
+                    random.nextInt(10) == 0 ? 0 : random.nextInt(5_000_000), i % 7 == 0));
+        }
+        check(graph.getMaxWeight(Criterion.TIME) == maxTime
+                        && new CompressedGraph(graph).getMaxWeight(Criterion.TIME) == maxTime,
+                "наибольший вес ребра в графе и в представлении без готового значения");
+
+        BucketPathFinder buckets = new BucketPathFinder(graph);
+        DijkstraPathFinder expected = new DijkstraPathFinder(graph);
+        boolean same = true;
+        for (int i = 0; i < 200; i++) {
+            City from = graph.getCityById(random.nextInt(cityCount) + 1);
+            City to = graph.getCityById(random.nextInt(cityCount) + 1);
+            Map<Criterion, Route> actual = buckets.findAllOptimalPaths(from, to);
+            for (Criterion criterion : CriteriaSet.STANDARD) {
+                Route route = expected.findPath(from, to, criterion);
+                same &= route.exists() == actual.get(criterion).exists()
+                        && route.getValueByCriterion(criterion) == actual.get(criterion).getValueByCriterion(criterion);
+            }
+        }
+        List<String> parts = buckets.memoryReport().getParts();
+        check(same && parts.contains("Очередь ВРЕМЯ (корзины Дайла, " + (maxTime + 1) + ")")
+                        && parts.contains("Очередь СТОИМОСТЬ (radix-куча)"),
+                "200 запросов совпадают с базовой реализацией; ВРЕМЯ — корзины, СТОИМОСТЬ — radix-куча");
+
+        // Новая долгая дорога меняет наибольший вес и число корзин
+        City from = graph.getCityById(1);
+        City to = graph.getCityById(2);
+        graph.addRoad(new Road(from, to, 1, maxTime + 40, 1));
+        Route route = buckets.findPath(from, to, Criterion.TIME);
+        check(graph.getMaxWeight(Criterion.TIME) >= maxTime + 40
+                        && route.getTotalTime() == expected.findPath(from, to, Criterion.TIME).getTotalTime()
+                        && buckets.memoryReport().getParts().contains(
+                                "Очередь ВРЕМЯ (корзины Дайла, " + (graph.getMaxWeight(Criterion.TIME) + 1) + ")"),
+                "после добавления дороги очередь пересоздаётся под новый наибольший вес");
+    }
+
+    /**
+     * Тест 30: Параллельные поиски по критериям в одном запросе
+     */
+    private static void testParallelFinder() {
+        System.out.println("\nТест 30: Параллельные поиски по критериям");
+
+        int cityCount = 1000;
+        Random random = new Random(137);
+        Graph graph = new Graph();
+        for (int i = 1; i <= cityCount; i++) {
+            graph.addCity(new City(i, "Город" + i));
+        }
+        for (int i = 0; i < cityCount * 3; i++) {
+            City from = graph.getCityById(random.nextInt(cityCount) + 1);
+            City to = graph.getCityById(random.nextInt(cityCount) + 1);
+            graph.addRoad(new Road(from, to, random.nextInt(100) + 1, random.nextInt(100) + 1,
+                    random.nextInt(100) + 1, i % 5 == 0));
+        }
+
+        // Пул, считающий задачи: все критерии, кроме первого, уходят в него
+        AtomicInteger forked = new AtomicInteger();
+        Executor counting = task -> {
+            forked.incrementAndGet();
+            ForkJoinPool.commonPool().execute(task);
+        };
+        ParallelPathFinder parallel = new ParallelPathFinder(new IndexedHeapPathFinder(graph),
+                graph.getCriteria(), counting);
+        RouteSolver sequentialSolver = new RouteSolver(graph);
+        RouteSolver parallelSolver = new RouteSolver(graph, parallel);
+        List<Criterion> priorities = List.of(Criterion.TIME, Criterion.COST, Criterion.DISTANCE);
+        boolean same = true;
+        int requests = 100;
+        for (int i = 0; i < requests; i++) {
+            InputParser.Request request = new InputParser.Request(
+                    "Город" + (random.nextInt(cityCount) + 1), "Город" + (random.nextInt(cityCount) + 1), priorities);
+            RouteSolver.SolutionResult expected = sequentialSolver.solve(request);
+            RouteSolver.SolutionResult actual = parallelSolver.solve(request);
+            same &= expected.getOptimalRoutes().keySet().equals(actual.getOptimalRoutes().keySet())
+                    && expected.getCompromiseRoute().equals(actual.getCompromiseRoute());
+            for (Criterion criterion : CriteriaSet.STANDARD) {
+                Route route = expected.getOptimalRoutes().get(criterion);
+                same &= route.getValueByCriterion(criterion)
+                        == actual.getOptimalRoutes().get(criterion).getValueByCriterion(criterion);
+            }
+        }
+        check(same, "100 запросов совпадают с последовательным поиском, включая компромиссный маршрут");
+        check(forked.get() == requests * 2, "первый критерий в вызывающем потоке, два других — в пуле");
+
+        // Исключение поиска в потоке пула пробрасывается без обёртки
+        ParallelPathFinder failing = new ParallelPathFinder(new IndexedHeapPathFinder(graph) {
+            @Override
+            public Route findPath(City from, City to, Criterion criterion) {
+                if (criterion == Criterion.COST) {
+                    throw new IllegalStateException("сбой поиска");
+                }
+                return super.findPath(from, to, criterion);
+            }
+        }, graph.getCriteria(), ForkJoinPool.commonPool());
+        boolean rethrown = false;
+        try {
+            failing.findAllOptimalPaths(graph.getCityById(1), graph.getCityById(2));
+        } catch (IllegalStateException e) {
+            rethrown = e.getMessage().equals("сбой поиска");
+        }
+        check(rethrown, "исключение поиска по критерию пробрасывается вызывающему");
+
+        MemoryReport single = new IndexedHeapPathFinder(graph).memoryReport();
+        check(new ParallelPathFinder(graph).memoryReport().getTotalBytes() == 3 * single.getTotalBytes(),
+                "память — рабочая область на каждый одновременный поиск");
+    }
+
+    /**
+     * Тест 31: Двунаправленный поиск: встреча прямого и обратного поисков
+     */
+    private static void testBidirectionalFinder() {
+        System.out.println("\nТест 31: Двунаправленная Дейкстра");
+
+        // Случайный граф с односторонними дорогами, петлями и нулевыми весами
+        int cityCount = 500;
+        Random random = new Random(139);
+        Graph graph = new Graph();
+        for (int i = 1; i <= cityCount; i++) {
+            graph.addCity(new City(i, "Город" + i));
+        }
+        for (int i = 0; i < cityCount * 3; i++) {
+            City from = graph.getCityById(random.nextInt(cityCount) + 1);
+            City to = i % 50 == 0 ? from : graph.getCityById(random.nextInt(cityCount) + 1);
+            graph.addRoad(new Road(from, to, random.nextInt(100) + 1, random.nextInt(100),
+                    random.nextInt(10) == 0 ? 0 : random.nextInt(1000), i % 3 == 0));
+        }
+
+        BidirectionalPathFinder bidirectional = new BidirectionalPathFinder(graph);
+        DijkstraPathFinder expected = new DijkstraPathFinder(graph);
+        boolean same = true;
+        for (int i = 0; i < 300; i++) {
+            City from = graph.getCityById(random.nextInt(cityCount) + 1);
+            City to = graph.getCityById(random.nextInt(cityCount) + 1);
+            Map<Criterion, Route> actual = bidirectional.findAllOptimalPaths(from, to);
+            for (Criterion criterion : CriteriaSet.STANDARD) {
+                Route route = expected.findPath(from, to, criterion);
+                Route found = actual.get(criterion);
+                same &= route.exists() == found.exists()
+                        && route.getValueByCriterion(criterion) == found.getValueByCriterion(criterion);
+                if (found.exists()) {
+                    same &= found.getCities().get(0).equals(from)
+                            && found.getCities().get(found.getCities().size() - 1).equals(to);
+                }
+            }
+        }
+        check(same, "300 запросов в графе с односторонними дорогами совпадают с базовой реализацией");
+
+        City city = graph.getCityById(7);
+        check(bidirectional.findPath(city, city, Criterion.COST).equals(expected.findPath(city, city, Criterion.COST)),
+                "маршрут из города в него же");
+
+        // Решётка: долгий запрос через её середину
+        int side = 60;
+        Graph grid = new Graph();
+        for (int i = 0; i < side * side; i++) {
+            grid.addCity(new City(i + 1, "Узел" + i));
+        }
+        for (int row = 0; row < side; row++) {
+            for (int column = 0; column < side; column++) {
+                City current = grid.getCityById(row * side + column + 1);
+                if (column + 1 < side) {
+                    grid.addRoad(new Road(current, grid.getCityById(row * side + column + 2),
+                            random.nextInt(10) + 1, random.nextInt(10) + 1, random.nextInt(10) + 1));
+                }
+                if (row + 1 < side) {
+                    grid.addRoad(new Road(current, grid.getCityById((row + 1) * side + column + 1),
+                            random.nextInt(10) + 1, random.nextInt(10) + 1, random.nextInt(10) + 1));
+                }
+            }
+        }
+        City west = grid.getCityById(side / 2 * side + side / 6 + 1);
+        City east = grid.getCityById(side / 2 * side + side * 5 / 6 + 1);
+        BidirectionalPathFinder gridFinder = new BidirectionalPathFinder(grid);
+        Route route = gridFinder.findPath(west, east, Criterion.DISTANCE);
+
+        // Обычный Дейкстра обрабатывает все города ближе цели
+        int[] distances = new DijkstraPathFinder(grid).distancesTo(west, Criterion.DISTANCE);
+        int unidirectional = 0;
+        for (int distance : distances) {
+            if (distance < route.getTotalDistance()) {
+                unidirectional++;
+            }
+        }
+        check(gridFinder.getSearchCount() == 1 && gridFinder.getSettledCount() < unidirectional * 2 / 3,
+                "обработано вершин: " + gridFinder.getSettledCount() + " вместо " + unidirectional);
+        gridFinder.resetCounters();
+        check(gridFinder.getSettledCount() == 0 && gridFinder.getSearchCount() == 0, "счётчики обнуляются");
+    }
+
+    /**
+     * Тест 32: Снимок, компоненты и сжатие цепочек обновляются на месте после изменений графа
+     */
+    private static void testIncrementalIndexes() {
+        System.out.println("\nТест 32: Обновление снимка, компонент и сжатия на месте");
+
+        int cityCount = 300;
+        Graph graph = generateRandomGraph(cityCount, 149);
+        for (long id = 1; id <= cityCount / 2; id++) {
+            // Половина городов без дорог: новые дороги к ним часто становятся мостами
+            City city = graph.getCityById(id);
+            while (!graph.getRoadsFrom(city).isEmpty()) {
+                graph.removeRoads(city, graph.getRoadsFrom(city).get(0).getTo());
+            }
+        }
+        CompactGraph snapshot = graph.snapshot();
+        Random random = new Random(151);
+        boolean sameEdges = true;
+        boolean sameComponents = true;
+        boolean sameMaxWeights = true;
+        int nextId = cityCount + 1;
+        for (int step = 0; step < 600; step++) {
+            City from = graph.getCityById(random.nextInt(nextId - 1) + 1);
+            List<Road> roads = graph.getRoadsFrom(from);
+            int action = random.nextInt(10);
+            if (action == 0) {
+                graph.addCity(new City(nextId, "Город" + nextId++));
+            } else if (action < 4 || roads.isEmpty()) {
+                City to = graph.getCityById(random.nextInt(nextId - 1) + 1);
+                graph.addRoad(new Road(from, to, random.nextInt(100) + 10, random.nextInt(60) + 5,
+                        random.nextInt(200) + 20, random.nextInt(8) == 0));
+            } else if (action < 7) {
+                graph.removeRoads(from, roads.get(random.nextInt(roads.size())).getTo());
+            } else {
+                Road road = roads.get(random.nextInt(roads.size()));
+                graph.updateRoad(new Road(road.getFrom(), road.getTo(), random.nextInt(300) + 1,
+                        random.nextInt(300) + 1, random.nextInt(300) + 1, road.isOneWay()));
+            }
+
+            if (step % 20 == 19) {
+                CompactGraph rebuilt = new CompactGraph(graph);
+                sameEdges &= graph.snapshot() == snapshot
+                        && edges(snapshot, false).equals(edges(rebuilt, false))
+                        && edges(snapshot, true).equals(edges(rebuilt, true))
+                        && snapshot.getEdgeCount() == rebuilt.getEdgeCount()
+                        && snapshot.getCityCount() == graph.getCityCount();
+                for (Criterion criterion : CriteriaSet.STANDARD) {
+                    sameMaxWeights &= graph.getMaxWeight(criterion) == rebuilt.getMaxWeight(criterion);
+                }
+
+                // Эталон компонент: объединение концов всех дорог без учёта направления
+                int[] parent = new int[graph.getCityCount()];
+                for (int city = 0; city < parent.length; city++) {
+                    parent[city] = city;
+                }
+                int components = parent.length;
+                for (int city = 0; city < parent.length; city++) {
+                    for (Road road : graph.getRoadsFrom(graph.getCity(city))) {
+                        int a = root(parent, city);
+                        int b = root(parent, graph.indexOf(road.getTo()));
+                        if (a != b) {
+                            parent[a] = b;
+                            components--;
+                        }
+                    }
+                }
+                sameComponents &= graph.getComponentCount() == components;
+                for (int i = 0; i < 50; i++) {
+                    int a = random.nextInt(parent.length);
+                    int b = random.nextInt(parent.length);
+                    sameComponents &= graph.isConnected(graph.getCity(a), graph.getCity(b))
+                            == (root(parent, a) == root(parent, b));
+                }
+            }
+        }
+        check(sameEdges, "снимок тот же объект и совпадает со снимком, построенным заново");
+        check(sameMaxWeights, "наибольшие веса совпадают после удаления и облегчения самых тяжёлых дорог");
+        check(sameComponents, "компоненты совпадают с пересчитанными заново, в том числе после разделения");
+
+        // Регион хранит состояние графа на момент создания
+        RegionView region = RegionView.of(graph, city -> city.getId() <= 100);
+        List<String> regionEdges = edges(region, false);
+        City first = graph.getCityById(1);
+        graph.addRoad(new Road(first, graph.getCityById(2), 1, 1, 1));
+        graph.removeRoads(first, graph.getCityById(2));
+        check(edges(region, false).equals(regionEdges) && graph.snapshot() != snapshot
+                        && edges(graph.snapshot(), false).equals(edges(new CompactGraph(graph), false)),
+                "изменения графа после создания региона не видны в нём");
+
+        // Сжатие цепочек: новые веса — на месте, новые и удалённые дороги — перестроение
+        Graph chains = generateChainGraph(50, 5, 157);
+        ChainContraction contraction = new ChainContraction(chains);
+        ContractedPathFinder contracted = new ContractedPathFinder(contraction);
+        int junctions = contraction.getCoreCityCount();
+        boolean weightsMatch = true;
+        boolean structureMatch = true;
+        int chainCities = chains.getCityCount();
+        for (int step = 0; step < 40; step++) {
+            City from = chains.getCityById(random.nextInt(chainCities) + 1);
+            for (Road road : chains.getRoadsFrom(from)) {
+                chains.updateRoad(new Road(road.getFrom(), road.getTo(), random.nextInt(50_000) + 1,
+                        random.nextInt(30_000) + 1, random.nextInt(100_000) + 1));
+            }
+            if (step == 30) {
+                City to = chains.getRoadsFrom(from).get(0).getTo();
+                chains.removeRoads(from, to);
+                chains.addRoad(new Road(from, chains.getCityById(random.nextInt(chainCities) + 1), 7, 7, 7));
+            }
+            DijkstraPathFinder expected = new DijkstraPathFinder(chains);
+            for (int i = 0; i < 10; i++) {
+                City a = chains.getCityById(random.nextInt(chainCities) + 1);
+                City b = chains.getCityById(random.nextInt(chainCities) + 1);
+                boolean same = sameRoutes(expected.findAllOptimalPaths(a, b), contracted.findAllOptimalPaths(a, b));
+                if (step < 30) {
+                    weightsMatch &= same;
+                } else {
+                    structureMatch &= same;
+                }
+            }
+            if (step == 29) {
+                weightsMatch &= contraction.getCoreCityCount() == junctions;
+            }
+        }
+        check(weightsMatch, "после изменения весов поиск по сжатию совпадает с Дейкстрой без перестроения вручную");
+        check(structureMatch, "после удаления и добавления дорог сжатие перестраивается само");
+    }
+
+    private static int root(int[] parent, int city) {
+        while (parent[city] != city) {
+            city = parent[city];
+        }
+        return city;
+    }
+
+    /**
+     * Рёбра представления графа в виде отсортированных строк "город>сосед:веса".
+     */
+    private static List<String> edges(SearchGraph graph, boolean reverse) {
+        EdgeCursor cursor = reverse ? graph.reverseEdgeCursor() : graph.edgeCursor();
+        List<String> result = new ArrayList<>();
+        for (int city = 0; city < graph.getCityCount(); city++) {
+            cursor.moveTo(city);
+            while (cursor.next()) {
+                StringBuilder edge = new StringBuilder().append(city).append('>').append(cursor.target()).append(':');
+                for (Criterion criterion : graph.getCriteria()) {
+                    edge.append(cursor.weight(criterion)).append(',');
+                }
+                result.add(edge.toString());
+            }
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    private static List<String> transpose(List<String> edges) {
+        List<String> result = new ArrayList<>();
+        for (String edge : edges) {
+            int arrow = edge.indexOf('>');
+            int colon = edge.indexOf(':');
+            result.add(edge.substring(arrow + 1, colon) + '>' + edge.substring(0, arrow) + edge.substring(colon));
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    private static Graph buildGraph(List<City> cities, List<Road> roads) {
+        Graph graph = new Graph();
+        for (City city : cities) {
+            graph.addCity(city);
+        }
+        for (Road road : roads) {
+            graph.addRoad(road);
+        }
+        return graph;
+    }
+
+    private static int[] randomWeights(Random random) {
+        return new int[]{random.nextInt(100) + 10, random.nextInt(60) + 5, random.nextInt(200) + 20};
+    }
+
+    private static Graph createTriangleWithTail() {
+        Graph graph = new Graph();
+        City a = new City(1, "А");
+        City b = new City(2, "Б");
+        City c = new City(3, "В");
+        City d = new City(4, "Г");
+
+        graph.addCity(a);
+        graph.addCity(b);
+        graph.addCity(c);
+        graph.addCity(d);
+
+        graph.addRoad(new Road(a, b, 100, 60, 200));
+        graph.addRoad(new Road(b, c, 100, 60, 200));
+        graph.addRoad(new Road(c, a, 100, 60, 200));
+        graph.addRoad(new Road(b, d, 50, 40, 30));
+
+        return graph;
+    }
+
+    private static Graph generateRandomGraph(int cityCount, long seed) {
+        Graph graph = new Graph();
+        Random random = new Random(seed);
+
+        for (int i = 1; i <= cityCount; i++) {
+            graph.addCity(new City(i, "Город" + i));
+        }
+        for (int i = 0; i < cityCount * 3; i++) {
+            int fromId = random.nextInt(cityCount) + 1;
+            int toId = random.nextInt(cityCount) + 1;
+            if (fromId != toId) {
+                graph.addRoad(new Road(graph.getCityById(fromId), graph.getCityById(toId),
+                        random.nextInt(100) + 10,
+                        random.nextInt(60) + 5,
+                        random.nextInt(200) + 20));
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Случайный граф, в котором между многими парами городов есть несколько дорог.
+     */
+    private static Graph generateMultiGraph(int cityCount, long seed) {
+        Graph graph = generateRandomGraph(cityCount, seed);
+        Random random = new Random(seed + 1);
+        for (int i = 0; i < cityCount * 3; i++) {
+            City from = graph.getCityById(random.nextInt(cityCount) + 1);
+            for (Road road : graph.getRoadsFrom(from)) {
+                if (random.nextBoolean()) {
+                    graph.addRoad(new Road(road.getTo(), road.getFrom(),
+                            road.getDistance() + random.nextInt(20) - 5,
+                            road.getTime() + random.nextInt(20) - 5,
+                            road.getCost() + random.nextInt(20) - 5));
+                    break;
+                }
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Случайный граф узловых городов, каждая дорога которого разбита
+     * на цепочку из нескольких транзитных городов.
+     * Веса берутся из широкого диапазона, чтобы равноценные маршруты были редкостью.
+     */
+    private static Graph generateChainGraph(int junctionCount, int maxChainLength, long seed) {
+        Graph graph = new Graph();
+        Random random = new Random(seed);
+        int nextId = 1;
+        for (; nextId <= junctionCount; nextId++) {
+            graph.addCity(new City(nextId, "Узел" + nextId));
+        }
+        for (int i = 0; i < junctionCount * 2; i++) {
+            City previous = graph.getCityById(random.nextInt(junctionCount) + 1);
+            City end = graph.getCityById(random.nextInt(junctionCount) + 1);
+            int chainLength = random.nextInt(maxChainLength + 1);
+            for (int k = 0; k < chainLength; k++, nextId++) {
+                City middle = new City(nextId, "Транзит" + nextId);
+                graph.addCity(middle);
+                graph.addRoad(new Road(previous, middle,
+                        random.nextInt(50_000) + 1, random.nextInt(30_000) + 1, random.nextInt(100_000) + 1));
+                previous = middle;
+            }
+            if (!previous.equals(end)) {
+                graph.addRoad(new Road(previous, end,
+                        random.nextInt(50_000) + 1, random.nextInt(30_000) + 1, random.nextInt(100_000) + 1));
+            }
+        }
+        return graph;
+    }
+
+    private static boolean sameRoutes(Map<Criterion, Route> expected, Map<Criterion, Route> actual) {
+        for (Criterion criterion : CriteriaSet.STANDARD) {
+            Route e = expected.get(criterion);
+            Route a = actual.get(criterion);
+            if (e.exists() != a.exists() || !e.getCities().equals(a.getCities())
+                    || e.getTotalDistance() != a.getTotalDistance()
+                    || e.getTotalTime() != a.getTotalTime()
+                    || e.getTotalCost() != a.getTotalCost()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void check(boolean condition, String description) {
+        if (condition) {
+            System.out.println("  ✓ " + description);
+            testsPassed++;
+        } else {
+            System.out.println("  ✗ " + description);
+            testsFailed++;
+        }
+    }
+}
@@ -29,6 +29,7 @@ public class IntegrationTest {
         testComplexScenario();
         testNoPathScenario();
         testOutputFormat();
+        testCoordinateRequests();
 
         // Очистка
         new File(TEST_INPUT).delete();
@@ -281,6 +282,67 @@ public class IntegrationTest {
         }
     }
 
+    /**
+     * Тест 5: Города с координатами и запросы по GPS-точкам
+     */
+    private static void testCoordinateRequests() {
+        System.out.println("\nТест 5: Запросы по координатам");
+
+        String input = "[CITIES]\n" +
+                "1: Москва | 55.7558, 37.6173\n" +
+                "2: Санкт-Петербург | 59.9343, 30.3351\n" +
+                "3: Нижний Новгород | 56.3269, 44.0059\n" +
+                "4: Тверь\n" +
+                "5: Москва | 10.0, 10.0\n" +
+                "\n" +
+                "[ROADS]\n" +
+                "1 - 2: 700, 480, 800\n" +
+                "1 - 3: 400, 250, 300\n" +
+                "1 - 4: 180, 120, 150\n" +
+                "5 - 2: 50, 50, 50\n" +
+                "\n" +
+                "[REQUESTS]\n" +
+                "@55.70, 37.50 -> @59.90, 30.40 | (Д,В,С)\n" +
+                "Тверь -> @56.30, 44.00 | (С)\n";
+
+        try {
+            writeFile(TEST_INPUT, input);
+
+            InputParser parser = new InputParser();
+            parser.parse(TEST_INPUT);
+            List<InputParser.Request> requests = parser.getRequests();
+
+            RouteSolver solver = new RouteSolver(parser.getGraph());
+            SolutionResult byPoints = solver.solve(56.33, 43.99, 59.93, 30.33, List.of(Criterion.DISTANCE));
+            Route route = byPoints.getCompromiseRoute();
+
+            if (requests.get(0).getFromCity().equals("Москва")
+                    && requests.get(0).getToCity().equals("Санкт-Петербург")
+                    && requests.get(1).getToCity().equals("Нижний Новгород")
+                    && byPoints.getRequest().getFromCity().equals("Нижний Новгород")
+                    && route.exists() && route.getTotalDistance() == 1100) {
+                System.out.println("  ✓ Точки привязаны к ближайшим городам, маршрут построен");
+                testsPassed++;
+            } else {
+                System.out.println("  ✗ Неверная привязка: " + requests + ", " + byPoints.getRequest());
+                testsFailed++;
+            }
+
+            // Второй город «Москва» далеко от точки: маршрут строится от привязанного, а не от тёзки
+            Route snapped = solver.solve(requests.get(0)).getCompromiseRoute();
+            if (requests.get(0).getFrom().getId() == 1 && snapped.getTotalDistance() == 700) {
+                System.out.println("  ✓ Привязанный город не подменяется городом с тем же названием");
+                testsPassed++;
+            } else {
+                System.out.println("  ✗ Маршрут построен не от привязанного города: " + snapped);
+                testsFailed++;
+            }
+        } catch (Exception e) {
+            System.out.println("  ✗ Исключение: " + e.getMessage());
+            testsFailed++;
+        }
+    }
+
     private static void writeFile(String filename, String content) throws IOException {
         try (java.io.OutputStreamWriter writer = new java.io.OutputStreamWriter(
                 new FileOutputStream(filename), java.nio.charset.StandardCharsets.UTF_8)) {
@@ -1,12 +1,33 @@
 package test;
 
+import graph.CompactGraph;
+import graph.CompressedGraph;
+import graph.DijkstraPathFinder;
 import graph.Graph;
+import graph.GraphBuilder;
+import graph.GraphFile;
+import graph.GraphOrdering;
+import graph.IndexedHeapPathFinder;
+import graph.MappedGraph;
+import graph.MemoryReport;
+import graph.OffHeapGraph;
 import graph.OptimizedDijkstraPathFinder;
+import graph.PathFinder;
+import graph.SearchGraph;
+import graph.SpatialIndex;
 import model.City;
+import model.CriteriaSet;
 import model.Criterion;
 import model.Road;
 import model.Route;
-
+import parser.InputParser;
+import solver.RouteSolver;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
 
 /**
@@ -17,6 +38,13 @@ import java.util.*;
  * - Стабильность при большом количестве запросов
  * - Потребление памяти
  * - Деградацию производительности под нагрузкой
+ * - Влияние нумерации городов на локальность памяти
+ * - Размер кучи и паузы GC при хранении графа вне кучи
+ * - Сжатие списков смежности: байт на ребро и задержка запроса
+ * - Время запуска: разбор текстового файла против отображения двоичного
+ * - Запросы между несвязанными частями сети
+ * - Массовое построение графа против добавления по одной дороге
+ * - Короткие локальные запросы в графе на миллион городов
  */
 public class LoadTest {
 
@@ -39,6 +67,30 @@ public class LoadTest {
         // Тест 4: Профиль памяти
         testMemoryProfile();
 
+        // Тест 5: Перенумерация городов для локальности памяти
+        testLocalityReordering();
+
+        // Тест 6: Граф вне кучи
+        testOffHeapGraph();
+
+        // Тест 7: Сжатые списки смежности
+        testCompressedAdjacency();
+
+        // Тест 8: Время запуска с двоичным файлом графа
+        testStartupTime();
+
+        // Тест 9: Запросы между несвязанными островами
+        testDisconnectedIslands();
+
+        // Тест 10: Массовое построение графа
+        testBulkBuild();
+
+        // Тест 11: Привязка GPS-координат к ближайшему городу
+        testNearestCity();
+
+        // Тест 12: Короткие запросы в большом графе
+        testShortQueries();
+
         System.out.println("\n════════════════════════════════════════════════════════════");
         System.out.println("Нагрузочное тестирование завершено");
         System.out.println("════════════════════════════════════════════════════════════");
@@ -195,43 +247,535 @@ public class LoadTest {
     private static void testMemoryProfile() {
         System.out.println("═══ ТЕСТ 4: Профиль памяти ═══\n");
 
+        System.out.println("Размер   │ Граф (MB) │ Снимок (MB) │ Поиск (MB) │ Уплотнение (MB)");
+        System.out.println("─────────┼───────────┼─────────────┼────────────┼────────────────");
+
+        int[] sizes = {1000, 2000, 5000};
+        MemoryReport largest = null;
+
+        for (int size : sizes) {
+            Graph graph = generateRandomGraph(size, size * 3);
+            OptimizedDijkstraPathFinder finder = new OptimizedDijkstraPathFinder(graph);
+            finder.findAllOptimalPaths(graph.getCityById(1), graph.getCityById(size));
+
+            MemoryReport report = graph.memoryReport();
+            double snapshotMB = report.getBytes("Снимок CSR") / (1024.0 * 1024.0);
+            double graphMB = report.getTotalBytes() / (1024.0 * 1024.0) - snapshotMB;
+            double searchMB = finder.memoryReport().getTotalBytes() / (1024.0 * 1024.0);
+            double reclaimableMB = report.getTotalReclaimableBytes() / (1024.0 * 1024.0);
+
+            System.out.printf("%8d │ %9.2f │ %11.2f │ %10.2f │ %15.2f%n",
+                    size, graphMB, snapshotMB, searchMB, reclaimableMB);
+            largest = report;
+        }
+        System.out.println();
+        System.out.println(largest);
+        System.out.println();
+    }
+
+    /**
+     * Тест 5: Перенумерация городов для локальности памяти
+     */
+    private static void testLocalityReordering() {
+        System.out.println("═══ ТЕСТ 5: Перенумерация городов (локальность памяти) ═══\n");
+
+        // Решётка 300x300, города перечислены в случайном порядке (как ID из справочника)
+        int side = 300;
+        Graph graph = generateShuffledGrid(side);
+        int cityCount = graph.getCityCount();
+
+        int[][] queries = new int[200][2];
+        for (int[] query : queries) {
+            query[0] = random.nextInt(cityCount) + 1;
+            query[1] = random.nextInt(cityCount) + 1;
+        }
+
+        System.out.println("Порядок        │ Ср. разрыв │ Рёбер в окне 16 │ Ср. запрос (мс)");
+        System.out.println("───────────────┼────────────┼─────────────────┼────────────────");
+        printLayout("Исходный", graph, queries);
+
+        graph.renumber(GraphOrdering.breadthFirst(graph.snapshot()));
+        printLayout("BFS", graph, queries);
+
+        graph.renumber(GraphOrdering.reverseCuthillMcKee(graph.snapshot()));
+        printLayout("RCM", graph, queries);
+        System.out.println();
+    }
+
+    /**
+     * Тест 6: Граф вне кучи — занятая куча и длительность полной сборки мусора
+     */
+    private static void testOffHeapGraph() {
+        System.out.println("═══ ТЕСТ 6: Граф вне кучи ═══\n");
+
         Runtime runtime = Runtime.getRuntime();
 
-        System.out.println("Размер   │ Граф (MB) │ Поиск (MB) │ Всего (MB)");
-        System.out.println("─────────┼───────────┼────────────┼───────────");
+        System.out.println("Вершины │ Куча: Graph (MB) │ GC (мс) │ Куча: off-heap (MB) │ Вне кучи (MB) │ GC (мс) │ Ср. запрос (мс)");
+        System.out.println("────────┼──────────────────┼─────────┼─────────────────────┼───────────────┼─────────┼────────────────");
 
-        int[] sizes = {1000, 2000, 5000};
+        int[] sizes = {10000, 50000, 100000};
 
         for (int size : sizes) {
             runtime.gc();
             long memStart = runtime.totalMemory() - runtime.freeMemory();
 
             Graph graph = generateRandomGraph(size, size * 3);
+            graph.snapshot();
+            double heapGraphMB = (usedAfterGc(runtime) - memStart) / (1024.0 * 1024.0);
+            double gcGraphMs = measureFullGc(runtime);
 
-            runtime.gc();
-            long memAfterGraph = runtime.totalMemory() - runtime.freeMemory();
+            OffHeapGraph offHeap = new OffHeapGraph(graph);
+            graph = null;
+            double heapOffHeapMB = (usedAfterGc(runtime) - memStart) / (1024.0 * 1024.0);
+            double gcOffHeapMs = measureFullGc(runtime);
 
-            OptimizedDijkstraPathFinder finder = new OptimizedDijkstraPathFinder(graph);
-            // Выполняем несколько поисков чтобы аллоцировать память
-            for (int i = 0; i < 10; i++) {
-                finder.findAllOptimalPaths(graph.getCityById(1), graph.getCityById(size));
+            OptimizedDijkstraPathFinder finder = new OptimizedDijkstraPathFinder(offHeap);
+            int queries = 20;
+            long start = System.nanoTime();
+            for (int i = 0; i < queries; i++) {
+                finder.findAllOptimalPaths(offHeap.getCity(random.nextInt(size)), offHeap.getCity(random.nextInt(size)));
             }
+            double avgMs = (System.nanoTime() - start) / 1_000_000.0 / queries;
 
-            runtime.gc();
-            long memAfterSearch = runtime.totalMemory() - runtime.freeMemory();
+            System.out.printf("%7d │ %16.2f │ %7.1f │ %19.2f │ %13.2f │ %7.1f │ %14.2f%n",
+                    size, heapGraphMB, gcGraphMs, heapOffHeapMB,
+                    offHeap.getOffHeapBytes() / (1024.0 * 1024.0), gcOffHeapMs, avgMs);
+        }
+        System.out.println();
+    }
+
+    /**
+     * Тест 7: Сжатые списки смежности (delta + varint) против CSR
+     */
+    private static void testCompressedAdjacency() {
+        System.out.println("═══ ТЕСТ 7: Сжатые списки смежности ═══\n");
+
+        System.out.println("Граф                 │ Представление │ Байт/ребро │ Ср. запрос (мс)");
+        System.out.println("─────────────────────┼───────────────┼────────────┼────────────────");
+
+        Graph grid = generateShuffledGrid(300);
+        grid.renumber(GraphOrdering.reverseCuthillMcKee(grid.snapshot()));
+        compareLayouts("Решётка 300x300, RCM", grid);
+
+        Graph randomGraph = generateRandomGraph(50000, 150000);
+        compareLayouts("Случайный 50000", randomGraph);
+        System.out.println();
+    }
+
+    private static void compareLayouts(String name, Graph graph) {
+        CompactGraph plain = graph.snapshot();
+        CompressedGraph compressed = new CompressedGraph(plain);
+        int cityCount = plain.getCityCount();
+
+        int[][] queries = new int[100][2];
+        for (int[] query : queries) {
+            query[0] = random.nextInt(cityCount);
+            query[1] = random.nextInt(cityCount);
+        }
+
+        long plainBytes = 4L * (cityCount + 1) + 4L * plain.getEdgeCount() * (1 + CriteriaSet.STANDARD.size());
+        System.out.printf("%-20s │ %-13s │ %10.2f │ %14.2f%n", name, "CSR",
+                (double) plainBytes / plain.getEdgeCount(), averageQueryMs(plain, queries));
+        System.out.printf("%-20s │ %-13s │ %10.2f │ %14.2f%n", "", "delta+varint",
+                (double) compressed.getAdjacencyBytes() / compressed.getEdgeCount(), averageQueryMs(compressed, queries));
+    }
+
+    private static double averageQueryMs(SearchGraph graph, int[][] queries) {
+        OptimizedDijkstraPathFinder finder = new OptimizedDijkstraPathFinder(graph);
+
+        // Прогрев
+        for (int i = 0; i < 10; i++) {
+            finder.findAllOptimalPaths(graph.getCity(queries[i][0]), graph.getCity(queries[i][1]));
+        }
+
+        long start = System.nanoTime();
+        for (int[] query : queries) {
+            finder.findAllOptimalPaths(graph.getCity(query[0]), graph.getCity(query[1]));
+        }
+        return (System.nanoTime() - start) / 1_000_000.0 / queries.length;
+    }
+
+    /**
+     * Тест 8: Запуск по текстовому файлу против отображения двоичного файла графа
+     */
+    private static void testStartupTime() {
+        System.out.println("═══ ТЕСТ 8: Время запуска ═══\n");
+
+        System.out.println("Вершины │ Рёбра    │ Разбор текста (мс) │ Открытие .bin (мс) │ Первый запрос (мс)");
+        System.out.println("────────┼──────────┼────────────────────┼────────────────────┼───────────────────");
+
+        int[] sizes = {10000, 100000};
+
+        for (int size : sizes) {
+            Path text = null;
+            Path binary = null;
+            try {
+                text = Files.createTempFile("graph", ".txt");
+                binary = Files.createTempFile("graph", ".bin");
+                Graph graph = generateRandomGraph(size, size * 3);
+                writeText(graph, text);
+                GraphFile.write(graph, binary);
+
+                long start = System.nanoTime();
+                new InputParser().parse(text.toString());
+                double parseMs = (System.nanoTime() - start) / 1_000_000.0;
+
+                start = System.nanoTime();
+                MappedGraph mapped = MappedGraph.open(binary);
+                double openMs = (System.nanoTime() - start) / 1_000_000.0;
+
+                start = System.nanoTime();
+                new OptimizedDijkstraPathFinder(mapped).findAllOptimalPaths(
+                        mapped.getCityByName("City1"), mapped.getCityByName("City" + size));
+                double queryMs = (System.nanoTime() - start) / 1_000_000.0;
+
+                System.out.printf("%7d │ %8d │ %18.1f │ %18.2f │ %17.1f%n",
+                        size, graph.getRoadCount(), parseMs, openMs, queryMs);
+            } catch (IOException e) {
+                System.out.println("Ошибка ввода-вывода: " + e.getMessage());
+            } finally {
+                if (text != null) {
+                    text.toFile().delete();
+                }
+                if (binary != null) {
+                    binary.toFile().delete();
+                }
+            }
+        }
+        System.out.println();
+    }
+
+    /**
+     * Тест 9: Много несвязанных островов — запросы без пути
+     */
+    private static void testDisconnectedIslands() {
+        System.out.println("═══ ТЕСТ 9: Несвязанные острова ═══\n");
+
+        int islandCount = 50;
+        int islandSize = 2000;
+        Graph graph = new Graph();
+        for (int island = 0; island < islandCount; island++) {
+            int first = island * islandSize + 1;
+            for (int id = first; id < first + islandSize; id++) {
+                graph.addCity(new City(id, "City" + id));
+            }
+            for (int id = first + 1; id < first + islandSize; id++) {
+                int other = first + random.nextInt(id - first);
+                graph.addRoad(new Road(graph.getCityById(id), graph.getCityById(other),
+                        random.nextInt(100) + 10, random.nextInt(60) + 5, random.nextInt(200) + 20));
+                int extra = first + random.nextInt(islandSize);
+                if (extra != id) {
+                    graph.addRoad(new Road(graph.getCityById(id), graph.getCityById(extra),
+                            random.nextInt(100) + 10, random.nextInt(60) + 5, random.nextInt(200) + 20));
+                }
+            }
+        }
+        System.out.println("Островов: " + graph.getComponentCount() + ", городов: " + graph.getCityCount()
+                + ", дорог: " + graph.getRoadCount());
+
+        // Запросы между разными островами
+        List<InputParser.Request> requests = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            int fromIsland = random.nextInt(islandCount);
+            int toIsland = (fromIsland + 1 + random.nextInt(islandCount - 1)) % islandCount;
+            requests.add(new InputParser.Request(
+                    "City" + (fromIsland * islandSize + 1 + random.nextInt(islandSize)),
+                    "City" + (toIsland * islandSize + 1 + random.nextInt(islandSize)),
+                    List.of(Criterion.DISTANCE, Criterion.TIME, Criterion.COST)));
+        }
+
+        OptimizedDijkstraPathFinder finder = new OptimizedDijkstraPathFinder(graph);
+        long start = System.nanoTime();
+        for (InputParser.Request request : requests) {
+            finder.findAllOptimalPaths(graph.getCityByName(request.getFromCity()), graph.getCityByName(request.getToCity()));
+        }
+        double searchMs = (System.nanoTime() - start) / 1_000_000.0 / requests.size();
+
+        RouteSolver solver = new RouteSolver(graph);
+        solver.solve(requests.get(0));
+        start = System.nanoTime();
+        int notFound = 0;
+        for (InputParser.Request request : requests) {
+            if (!solver.solve(request).getCompromiseRoute().exists()) {
+                notFound++;
+            }
+        }
+        double solverMs = (System.nanoTime() - start) / 1_000_000.0 / requests.size();
 
-            double graphMB = (memAfterGraph - memStart) / (1024.0 * 1024.0);
-            double searchMB = (memAfterSearch - memAfterGraph) / (1024.0 * 1024.0);
-            double totalMB = (memAfterSearch - memStart) / (1024.0 * 1024.0);
+        System.out.printf("Поиск по всей компоненте:  %.3f мс/запрос%n", searchMs);
+        System.out.printf("Проверка компонент:        %.4f мс/запрос (маршрут не найден: %d из %d)%n%n",
+                solverMs, notFound, requests.size());
+    }
+
+    /**
+     * Тест 10: Массовое построение графа из массивов против addRoad по одной дороге
+     */
+    private static void testBulkBuild() {
+        System.out.println("═══ ТЕСТ 10: Массовое построение графа ═══\n");
+
+        System.out.println("Вершины │ Рёбра    │ addRoad (мс) │ GraphBuilder (мс) │ Ускорение");
+        System.out.println("────────┼──────────┼──────────────┼───────────────────┼──────────");
+
+        int[][] sizes = {{100000, 500000}, {500000, 3000000}};
+
+        for (int[] size : sizes) {
+            int cityCount = size[0];
+            int roadCount = size[1];
+            City[] cities = new City[cityCount];
+            for (int i = 0; i < cityCount; i++) {
+                cities[i] = new City(i + 1, "City" + (i + 1));
+            }
+            long[] fromIds = new long[roadCount];
+            long[] toIds = new long[roadCount];
+            int[] distances = new int[roadCount];
+            int[] times = new int[roadCount];
+            int[] costs = new int[roadCount];
+            for (int i = 0; i < roadCount; i++) {
+                fromIds[i] = random.nextInt(cityCount) + 1;
+                toIds[i] = random.nextInt(cityCount) + 1;
+                distances[i] = random.nextInt(100) + 10;
+                times[i] = random.nextInt(60) + 5;
+                costs[i] = random.nextInt(200) + 20;
+            }
+
+            long start = System.nanoTime();
+            Graph incremental = new Graph();
+            for (City city : cities) {
+                incremental.addCity(city);
+            }
+            for (int i = 0; i < roadCount; i++) {
+                incremental.addRoad(new Road(incremental.getCityById(fromIds[i]), incremental.getCityById(toIds[i]),
+                        distances[i], times[i], costs[i]));
+            }
+            double incrementalMs = (System.nanoTime() - start) / 1_000_000.0;
+            incremental = null;
+
+            start = System.nanoTime();
+            GraphBuilder builder = new GraphBuilder(cityCount, roadCount);
+            for (City city : cities) {
+                builder.addCity(city);
+            }
+            builder.addRoads(fromIds, toIds, distances, times, costs);
+            Graph bulk = builder.build();
+            double bulkMs = (System.nanoTime() - start) / 1_000_000.0;
 
-            System.out.printf("%8d │ %9.2f │ %10.2f │ %9.2f%n",
-                    size, graphMB, searchMB, totalMB);
+            System.out.printf("%7d │ %8d │ %12.0f │ %17.0f │ %8.1fx%n",
+                    cityCount, bulk.getRoadCount(), incrementalMs, bulkMs, incrementalMs / bulkMs);
+        }
+        System.out.println();
+    }
+
+    /**
+     * Тест 11: Привязка GPS-координат к ближайшему городу
+     */
+    private static void testNearestCity() {
+        System.out.println("═══ ТЕСТ 11: Привязка координат к ближайшему городу ═══\n");
+
+        System.out.println("Города   │ Перебор (мкс) │ k-d дерево (мкс) │ 5 ближайших (мкс) │ Привязок/сек");
+        System.out.println("─────────┼───────────────┼──────────────────┼───────────────────┼─────────────");
+
+        int[] sizes = {10000, 100000, 1000000};
+        int queryCount = 20000;
+
+        for (int size : sizes) {
+            GraphBuilder builder = new GraphBuilder(size, 0);
+            double[] latitudes = new double[size];
+            double[] longitudes = new double[size];
+            for (int i = 0; i < size; i++) {
+                // Города европейской части России
+                latitudes[i] = 45 + random.nextDouble() * 20;
+                longitudes[i] = 30 + random.nextDouble() * 30;
+                builder.addCity(new City(i + 1, "City" + (i + 1)), latitudes[i], longitudes[i]);
+            }
+            Graph graph = builder.build();
+
+            long start = System.nanoTime();
+            SpatialIndex index = graph.spatialIndex();
+            double buildMs = (System.nanoTime() - start) / 1_000_000.0;
+
+            double[][] queries = new double[queryCount][];
+            for (int i = 0; i < queryCount; i++) {
+                queries[i] = new double[]{45 + random.nextDouble() * 20, 30 + random.nextDouble() * 30, -1};
+            }
+
+            // Перебор — на части запросов, иначе слишком долго для миллиона городов
+            int scanCount = Math.max(10, queryCount * 10000 / size / 10);
+            start = System.nanoTime();
+            for (int q = 0; q < scanCount; q++) {
+                int best = 0;
+                double bestDistance = Double.MAX_VALUE;
+                for (int i = 0; i < size; i++) {
+                    double distance = SpatialIndex.distanceKm(queries[q][0], queries[q][1], latitudes[i], longitudes[i]);
+                    if (distance < bestDistance) {
+                        bestDistance = distance;
+                        best = i;
+                    }
+                }
+                queries[q][2] = best;
+            }
+            double scanUs = (System.nanoTime() - start) / 1000.0 / scanCount;
+
+            City[] snapped = new City[queryCount];
+            start = System.nanoTime();
+            for (int q = 0; q < queryCount; q++) {
+                snapped[q] = index.nearest(queries[q][0], queries[q][1]);
+            }
+            double nearestUs = (System.nanoTime() - start) / 1000.0 / queryCount;
+
+            start = System.nanoTime();
+            for (double[] query : queries) {
+                index.nearest(query[0], query[1], 5);
+            }
+            double fiveUs = (System.nanoTime() - start) / 1000.0 / queryCount;
+
+            // Индекс и перебор выбирают один и тот же город
+            boolean same = true;
+            for (int q = 0; q < scanCount; q++) {
+                same &= snapped[q].getId() == (long) queries[q][2] + 1;
+            }
+
+            System.out.printf("%8d │ %13.1f │ %16.2f │ %17.2f │ %12.0f%s%n",
+                    size, scanUs, nearestUs, fiveUs, 1_000_000 / nearestUs, same ? "" : "  ✗ расхождение с перебором");
+            System.out.printf("         │ построение индекса: %.0f мс%n", buildMs);
+        }
+        System.out.println();
+    }
+
+    /**
+     * Тест 12: Короткие локальные запросы в графе на миллион городов —
+     * выделение и заполнение массивов на запрос против рабочих областей с отметками эпох
+     */
+    private static void testShortQueries() {
+        System.out.println("═══ ТЕСТ 12: Короткие запросы в большом графе ═══\n");
+
+        int side = 1000;
+        int cityCount = side * side;
+        int roadCount = 2 * side * (side - 1);
+        GraphBuilder builder = new GraphBuilder(cityCount, roadCount);
+        for (int id = 1; id <= cityCount; id++) {
+            builder.addCity(new City(id, "City" + id));
+        }
+        long[] fromIds = new long[roadCount];
+        long[] toIds = new long[roadCount];
+        int[] distances = new int[roadCount];
+        int[] times = new int[roadCount];
+        int[] costs = new int[roadCount];
+        int road = 0;
+        for (int row = 0; row < side; row++) {
+            for (int col = 0; col < side; col++) {
+                int id = row * side + col + 1;
+                if (col + 1 < side) {
+                    fromIds[road] = id;
+                    toIds[road++] = id + 1;
+                }
+                if (row + 1 < side) {
+                    fromIds[road] = id;
+                    toIds[road++] = id + side;
+                }
+            }
+        }
+        for (int i = 0; i < roadCount; i++) {
+            distances[i] = random.nextInt(100) + 10;
+            times[i] = random.nextInt(60) + 5;
+            costs[i] = random.nextInt(200) + 20;
+        }
+        builder.addRoads(fromIds, toIds, distances, times, costs);
+        Graph graph = builder.build();
+        CompactGraph snapshot = graph.snapshot();
+
+        // Соседние кварталы: не дальше 3 шагов по решётке
+        int queryCount = 2000;
+        City[][] queries = new City[queryCount][];
+        for (int q = 0; q < queryCount; q++) {
+            int row = random.nextInt(side - 3);
+            int col = random.nextInt(side - 3);
+            int id = row * side + col + 1;
+            queries[q] = new City[]{graph.getCityById(id),
+                    graph.getCityById(id + random.nextInt(4) * side + random.nextInt(4))};
+        }
+
+        System.out.printf("Граф: %d городов, %d дорог; %d запросов по всем критериям%n%n",
+                cityCount, graph.getRoadCount(), queryCount);
+        System.out.println("Поиск                     │ Запрос (мкс) │ Запросов/сек");
+        System.out.println("──────────────────────────┼──────────────┼─────────────");
+
+        PathFinder[] finders = {new DijkstraPathFinder(snapshot),
+                new OptimizedDijkstraPathFinder(snapshot), new IndexedHeapPathFinder(snapshot)};
+        String[] names = {"Массивы на запрос", "Один проход, эпохи", "Индексная куча, эпохи"};
+        long[] checksums = new long[finders.length];
+        for (int f = 0; f < finders.length; f++) {
+            // Базовой реализации хватает меньшего числа запросов: каждый заполняет массивы на V
+            int count = f == 0 ? queryCount / 10 : queryCount;
+            for (int q = 0; q < 20; q++) {
+                finders[f].findAllOptimalPaths(queries[q][0], queries[q][1]);
+            }
+            long start = System.nanoTime();
+            for (int q = 0; q < count; q++) {
+                Map<Criterion, Route> routes = finders[f].findAllOptimalPaths(queries[q][0], queries[q][1]);
+                if (q < queryCount / 10) {
+                    checksums[f] += routes.get(Criterion.TIME).getTotalTime();
+                }
+            }
+            double queryUs = (System.nanoTime() - start) / 1000.0 / count;
+            System.out.printf("%-25s │ %12.1f │ %12.0f%s%n", names[f], queryUs, 1_000_000 / queryUs,
+                    checksums[f] == checksums[0] ? "" : "  ✗ расхождение с базовой реализацией");
         }
         System.out.println();
     }
 
     // ═══ Вспомогательные методы ═══
 
+    private static void printLayout(String name, Graph graph, int[][] queries) {
+        CompactGraph snapshot = graph.snapshot();
+        OptimizedDijkstraPathFinder finder = new OptimizedDijkstraPathFinder(snapshot);
+
+        // Прогрев
+        for (int i = 0; i < 20; i++) {
+            finder.findAllOptimalPaths(graph.getCityById(queries[i][0]), graph.getCityById(queries[i][1]));
+        }
+
+        long start = System.nanoTime();
+        for (int[] query : queries) {
+            finder.findAllOptimalPaths(graph.getCityById(query[0]), graph.getCityById(query[1]));
+        }
+        double avgMs = (System.nanoTime() - start) / 1_000_000.0 / queries.length;
+
+        System.out.printf("%-14s │ %10.1f │ %14.1f%% │ %14.2f%n", name,
+                GraphOrdering.averageNeighborGap(snapshot),
+                100 * GraphOrdering.localEdgeShare(snapshot, 16), avgMs);
+    }
+
+    /**
+     * Решётка side x side, города добавляются в случайном порядке.
+     */
+    private static Graph generateShuffledGrid(int side) {
+        Graph graph = new Graph();
+        int cityCount = side * side;
+        List<Integer> ids = new ArrayList<>(cityCount);
+        for (int id = 1; id <= cityCount; id++) {
+            ids.add(id);
+        }
+        Collections.shuffle(ids, random);
+        for (int id : ids) {
+            graph.addCity(new City(id, "City" + id));
+        }
+
+        for (int row = 0; row < side; row++) {
+            for (int col = 0; col < side; col++) {
+                int id = row * side + col + 1;
+                if (col + 1 < side) {
+                    graph.addRoad(new Road(graph.getCityById(id), graph.getCityById(id + 1),
+                            random.nextInt(100) + 10, random.nextInt(60) + 5, random.nextInt(200) + 20));
+                }
+                if (row + 1 < side) {
+                    graph.addRoad(new Road(graph.getCityById(id), graph.getCityById(id + side),
+                            random.nextInt(100) + 10, random.nextInt(60) + 5, random.nextInt(200) + 20));
+                }
+            }
+        }
+        return graph;
+    }
+
     private static void testGraph(Graph graph, int fromId, int toId, String prefix) {
         OptimizedDijkstraPathFinder finder = new OptimizedDijkstraPathFinder(graph);
         City from = graph.getCityById(fromId);
@@ -256,6 +800,39 @@ public class LoadTest {
                 route.exists() ? route.getCities().size() + " городов" : "не найден");
     }
 
+    /**
+     * Записывает граф в текстовом формате входного файла (секции [CITIES] и [ROADS]).
+     */
+    private static void writeText(Graph graph, Path path) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write("[CITIES]\n");
+            for (City city : graph.getAllCities()) {
+                writer.write(city.getId() + ": " + city.getName() + "\n");
+            }
+            writer.write("\n[ROADS]\n");
+            for (int index = 0; index < graph.getCityCount(); index++) {
+                for (Road road : graph.getRoadsFrom(index)) {
+                    // Каждая дорога видна из обоих концов — записываем её один раз
+                    if (index <= graph.indexOf(road.getTo())) {
+                        writer.write(road.getFrom().getId() + " - " + road.getTo().getId() + ": "
+                                + road.getDistance() + ", " + road.getTime() + ", " + road.getCost() + "\n");
+                    }
+                }
+            }
+        }
+    }
+
+    private static long usedAfterGc(Runtime runtime) {
+        runtime.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static double measureFullGc(Runtime runtime) {
+        long start = System.nanoTime();
+        runtime.gc();
+        return (System.nanoTime() - start) / 1_000_000.0;
+    }
+
     private static Graph generateRandomGraph(int cityCount, int edgeCount) {
         Graph graph = new Graph();
 
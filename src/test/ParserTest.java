@@ -1,9 +1,13 @@
 package test;
 
 import graph.Graph;
+import graph.GraphPatch;
 import parser.InputParser;
 import parser.InputParser.Request;
+import parser.PatchParser;
+import model.CriteriaSet;
 import model.Criterion;
+import model.Road;
 
 import java.io.FileWriter;
 import java.io.IOException;
@@ -29,6 +33,10 @@ public class ParserTest {
         testInvalidCityFormat();
         testInvalidRoadFormat();
         testNonexistentCity();
+        testOneWayRoads();
+        testCriteriaHeader();
+        testWeightCountMismatch();
+        testPatchFile();
 
         // Удаляем тестовый файл
         new java.io.File(TEST_FILE).delete();
@@ -291,6 +299,184 @@ public class ParserTest {
         }
     }
 
+    /**
+     * Тест 8: Односторонние дороги "ID1 -> ID2" рядом с двусторонними
+     */
+    private static void testOneWayRoads() {
+        System.out.println("\nТест 8: Односторонние дороги");
+
+        String content = "[CITIES]\n" +
+                "1: А\n" +
+                "2: Б\n" +
+                "3: В\n" +
+                "\n" +
+                "[ROADS]\n" +
+                "1 -> 2: 100, 60, 200\n" +
+                "2 - 3: 100, 60, 200\n" +
+                "3->1: 50, 30, 40\n" +
+                "\n" +
+                "[REQUESTS]\n" +
+                "А -> В | (Д,В,С)\n";
+
+        try {
+            writeTestFile(content);
+            InputParser parser = new InputParser();
+            parser.parse(TEST_FILE);
+
+            Graph graph = parser.getGraph();
+            List<Road> fromA = graph.getRoadsFrom(graph.getCityById(1));
+            List<Road> fromB = graph.getRoadsFrom(graph.getCityById(2));
+            boolean oneWayOk = graph.isDirected() && graph.getRoadCount() == 3
+                    && fromA.size() == 1 && fromA.get(0).isOneWay() && fromA.get(0).getTo().getId() == 2
+                    && fromB.size() == 1 && fromB.get(0).getTo().getId() == 3 && !fromB.get(0).isOneWay();
+
+            if (oneWayOk) {
+                System.out.println("  ✓ Направление дорог распознано, двусторонний синтаксис работает");
+                testsPassed++;
+            } else {
+                System.out.println("  ✗ Неверное направление дорог");
+                testsFailed++;
+            }
+        } catch (Exception e) {
+            System.out.println("  ✗ Исключение: " + e.getMessage());
+            testsFailed++;
+        }
+    }
+
+    /**
+     * Тест 9: Набор критериев из заголовка [CRITERIA]
+     */
+    private static void testCriteriaHeader() {
+        System.out.println("\nТест 9: Заголовок [CRITERIA]");
+
+        String content = "[CRITERIA]\n" +
+                "Д: ДЛИНА\n" +
+                "В: ВРЕМЯ\n" +
+                "С: СТОИМОСТЬ\n" +
+                "Т: ТОПЛИВО\n" +
+                "\n" +
+                "[CITIES]\n" +
+                "1: А\n" +
+                "2: Б\n" +
+                "\n" +
+                "[ROADS]\n" +
+                "1 - 2: 100, 60, 200, 12\n" +
+                "\n" +
+                "[REQUESTS]\n" +
+                "А -> Б | (Т,Д)\n";
+
+        try {
+            writeTestFile(content);
+            InputParser parser = new InputParser();
+            parser.parse(TEST_FILE);
+
+            Graph graph = parser.getGraph();
+            CriteriaSet criteria = graph.getCriteria();
+            Criterion fuel = criteria.fromShortName("Т");
+            Road road = graph.getRoadsFrom(graph.getCityById(1)).get(0);
+            List<Criterion> priorities = parser.getRequests().get(0).getPriorities();
+            boolean ok = criteria.size() == 4 && fuel.index() == 3 && fuel.getFullName().equals("ТОПЛИВО")
+                    && criteria.get(0) == Criterion.DISTANCE
+                    && road.getValueByCriterion(fuel) == 12 && road.getCost() == 200
+                    && priorities.size() == 2 && priorities.get(0) == fuel && priorities.get(1) == Criterion.DISTANCE;
+
+            if (ok) {
+                System.out.println("  ✓ Четыре критерия, веса дороги и приоритеты распознаны");
+                testsPassed++;
+            } else {
+                System.out.println("  ✗ Неверный разбор набора критериев: " + criteria);
+                testsFailed++;
+            }
+        } catch (Exception e) {
+            System.out.println("  ✗ Исключение: " + e.getMessage());
+            testsFailed++;
+        }
+    }
+
+    /**
+     * Тест 10: Число весов дороги должно совпадать с числом критериев
+     */
+    private static void testWeightCountMismatch() {
+        System.out.println("\nТест 10: Число весов не совпадает с набором критериев");
+
+        String content = "[CRITERIA]\n" +
+                "Д: ДЛИНА\n" +
+                "Т: ТОПЛИВО\n" +
+                "\n" +
+                "[CITIES]\n" +
+                "1: А\n" +
+                "2: Б\n" +
+                "\n" +
+                "[ROADS]\n" +
+                "1 - 2: 100, 60, 200\n";
+
+        try {
+            writeTestFile(content);
+            InputParser parser = new InputParser();
+            parser.parse(TEST_FILE);
+            System.out.println("  ✗ Ожидалось исключение");
+            testsFailed++;
+        } catch (IllegalArgumentException e) {
+            System.out.println("  ✓ Корректно выброшено исключение: " + e.getMessage().replace('\n', ' '));
+            testsPassed++;
+        } catch (Exception e) {
+            System.out.println("  ✗ Неверный тип исключения: " + e.getClass().getSimpleName());
+            testsFailed++;
+        }
+    }
+
+    /**
+     * Тест 11: Файл изменений дорожной сети
+     */
+    private static void testPatchFile() {
+        System.out.println("\nТест 11: Файл патча");
+
+        String content = "+ 5: Нижний Новгород\n" +
+                "+ 1 - 5: 400, 300, 500\n" +
+                "\n" +
+                "+ 5 -> 2: 10, 10, 10\n" +
+                "- 1 - 2\n" +
+                "= 2 - 3: 700, 470, 820\n";
+
+        try {
+            writeTestFile(content);
+            GraphPatch patch = new PatchParser().parse(TEST_FILE, CriteriaSet.STANDARD);
+            List<GraphPatch.Change> changes = patch.getChanges();
+            boolean ok = patch.size() == 5
+                    && changes.get(0).getKind() == GraphPatch.Kind.ADD_CITY
+                    && changes.get(0).getCity().getName().equals("Нижний Новгород")
+                    && changes.get(1).getKind() == GraphPatch.Kind.ADD_ROAD && !changes.get(1).isOneWay()
+                    && changes.get(2).isOneWay() && changes.get(2).getFromId() == 5
+                    && changes.get(3).getKind() == GraphPatch.Kind.REMOVE_ROAD
+                    && changes.get(4).getKind() == GraphPatch.Kind.UPDATE_ROAD
+                    && changes.get(4).getWeights()[2] == 820;
+
+            if (ok) {
+                System.out.println("  ✓ Все виды изменений распознаны");
+                testsPassed++;
+            } else {
+                System.out.println("  ✗ Неверный разбор патча: " + changes);
+                testsFailed++;
+            }
+        } catch (Exception e) {
+            System.out.println("  ✗ Исключение: " + e.getMessage());
+            testsFailed++;
+        }
+
+        try {
+            writeTestFile("+ 1 - 2: 100, 60\n");
+            new PatchParser().parse(TEST_FILE, CriteriaSet.STANDARD);
+            System.out.println("  ✗ Ожидалось исключение");
+            testsFailed++;
+        } catch (IllegalArgumentException e) {
+            System.out.println("  ✓ Корректно выброшено исключение: " + e.getMessage().replace('\n', ' '));
+            testsPassed++;
+        } catch (Exception e) {
+            System.out.println("  ✗ Неверный тип исключения: " + e.getClass().getSimpleName());
+            testsFailed++;
+        }
+    }
+
     /**
      * Записывает содержимое в тестовый файл
      */
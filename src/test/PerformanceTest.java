@@ -1,9 +1,17 @@
 package test;
 
+import graph.BidirectionalPathFinder;
+import graph.BucketPathFinder;
 import graph.DijkstraPathFinder;
+import graph.EdgeCursor;
 import graph.Graph;
+import graph.IndexedHeapPathFinder;
 import graph.OptimizedDijkstraPathFinder;
+import graph.ParallelPathFinder;
+import graph.PathFinder;
+import graph.SearchGraph;
 import model.City;
+import model.CriteriaSet;
 import model.Criterion;
 import model.Road;
 import model.Route;
@@ -12,7 +20,10 @@ import java.util.Map;
 import java.util.Random;
 
 /**
- * Тест производительности: сравнение обычной и оптимизированной версий Дейкстры.
+ * Тест производительности: сравнение обычной и оптимизированной версий Дейкстры
+ * с версиями на индексированной куче с decrease-key и на целочисленных корзинах,
+ * задержка запроса при параллельных поисках по критериям,
+ * число обработанных вершин однонаправленного и двунаправленного поисков.
  * 
  * Демонстрирует выигрыш от оптимизации на графах разного размера.
  */
@@ -22,12 +33,23 @@ public class PerformanceTest {
         System.out.println("=== Тест производительности ===\n");
 
         // Тестируем на графах разного размера
-        int[] sizes = {100, 500, 1000, 2000};
+        int[] sizes = {100, 500, 1000, 2000, 10000};
         
         for (int size : sizes) {
             testPerformance(size);
         }
 
+        System.out.println("\n=== Один проход по рёбрам для всех критериев ===\n");
+        testSinglePass(false);
+        testSinglePass(true);
+
+        System.out.println("\n=== Параллельные поиски по критериям ===\n");
+        testParallelLatency();
+
+        System.out.println("\n=== Двунаправленный поиск ===\n");
+        testBidirectional("Решётка 300×300 (дорожная сеть)", generateGridGraph(300));
+        testBidirectional("Случайный граф на 100000 городов", generateRandomGraph(100000));
+
         System.out.println("\n=== Проверка корректности оптимизированной версии ===\n");
         testCorrectness();
     }
@@ -45,11 +67,15 @@ public class PerformanceTest {
 
         DijkstraPathFinder original = new DijkstraPathFinder(graph);
         OptimizedDijkstraPathFinder optimized = new OptimizedDijkstraPathFinder(graph);
+        IndexedHeapPathFinder indexed = new IndexedHeapPathFinder(graph);
+        BucketPathFinder buckets = new BucketPathFinder(graph);
 
         // Прогрев JVM
         for (int i = 0; i < 10; i++) {
             original.findAllOptimalPaths(from, to);
             optimized.findAllOptimalPaths(from, to);
+            indexed.findAllOptimalPaths(from, to);
+            buckets.findAllOptimalPaths(from, to);
         }
 
         // Замер обычной версии
@@ -67,11 +93,147 @@ public class PerformanceTest {
         }
         long timeOptimized = (System.nanoTime() - startOptimized) / 1_000_000;
 
-        double speedup = (double) timeOriginal / timeOptimized;
+        // Замер версии на индексированной куче
+        long startIndexed = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            indexed.findAllOptimalPaths(from, to);
+        }
+        long timeIndexed = (System.nanoTime() - startIndexed) / 1_000_000;
+
+        // Замер версии на корзинах
+        long startBuckets = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            buckets.findAllOptimalPaths(from, to);
+        }
+        long timeBuckets = (System.nanoTime() - startBuckets) / 1_000_000;
+
+        // Только критерий ВРЕМЯ (малые веса): куча против корзин
+        long startHeapTime = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            indexed.findPath(from, to, Criterion.TIME);
+        }
+        long timeHeapTime = (System.nanoTime() - startHeapTime) / 1_000_000;
+        long startBucketsTime = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            buckets.findPath(from, to, Criterion.TIME);
+        }
+        long timeBucketsTime = (System.nanoTime() - startBucketsTime) / 1_000_000;
+
+        double speedup = (double) timeOriginal / Math.max(1, timeOptimized);
+        double indexedSpeedup = (double) timeOriginal / Math.max(1, timeIndexed);
+        double bucketsSpeedup = (double) timeOriginal / Math.max(1, timeBuckets);
 
         System.out.printf("  Обычная версия:        %d мс (%d итераций)%n", timeOriginal, iterations);
         System.out.printf("  Оптимизированная:      %d мс (%d итераций)%n", timeOptimized, iterations);
-        System.out.printf("  Ускорение:             %.2fx%n%n", speedup);
+        System.out.printf("  Индексированная куча:  %d мс (%d итераций)%n", timeIndexed, iterations);
+        System.out.printf("  Корзины:               %d мс (%d итераций)%n", timeBuckets, iterations);
+        System.out.printf("  Ускорение:             %.2fx / %.2fx / %.2fx%n", speedup, indexedSpeedup, bucketsSpeedup);
+        System.out.printf("  ВРЕМЯ, куча/корзины:   %d / %d мс%n%n", timeHeapTime, timeBucketsTime);
+    }
+
+    /**
+     * Сравнивает число прочитанных рёбер и время поиска по всем критериям:
+     * отдельные поиски по каждому критерию против одного прохода по рёбрам.
+     *
+     * @param correlated веса согласованы, как в дорожной сети (время и стоимость растут с длиной)
+     */
+    private static void testSinglePass(boolean correlated) {
+        int cityCount = 10000;
+        Graph graph = correlated ? generateCorrelatedGraph(cityCount) : generateRandomGraph(cityCount);
+        CountingGraph counting = new CountingGraph(graph.snapshot());
+        System.out.println(correlated ? "Согласованные веса:" : "Независимые случайные веса:");
+
+        PathFinder[] finders = {new DijkstraPathFinder(counting), new IndexedHeapPathFinder(counting),
+                new OptimizedDijkstraPathFinder(counting)};
+        String[] names = {"Обычная версия", "Индексированная куча", "Один проход"};
+        int queries = 200;
+        long[] times = new long[finders.length];
+        for (int f = 0; f < finders.length; f++) {
+            Random random = new Random(11);
+            for (int i = 0; i < 20; i++) {
+                finders[f].findAllOptimalPaths(graph.getCityById(random.nextInt(cityCount) + 1),
+                        graph.getCityById(random.nextInt(cityCount) + 1));
+            }
+            counting.edges = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < queries; i++) {
+                finders[f].findAllOptimalPaths(graph.getCityById(random.nextInt(cityCount) + 1),
+                        graph.getCityById(random.nextInt(cityCount) + 1));
+            }
+            times[f] = (System.nanoTime() - start) / 1_000_000;
+            System.out.printf("  %-22s %,9d рёбер/запрос  %5d мс (%d запросов)%n",
+                    names[f] + ":", counting.edges / queries, times[f], queries);
+        }
+        System.out.printf("  Ускорение одного прохода: %.2fx / %.2fx%n%n",
+                (double) times[0] / Math.max(1, times[2]), (double) times[1] / Math.max(1, times[2]));
+    }
+
+    /**
+     * Сравнивает задержку одного запроса: три поиска подряд и одновременно.
+     * Выигрыш возможен только при нескольких свободных ядрах.
+     */
+    private static void testParallelLatency() {
+        int cityCount = 100000;
+        Graph graph = generateRandomGraph(cityCount);
+        PathFinder[] finders = {new IndexedHeapPathFinder(graph), new ParallelPathFinder(graph)};
+        String[] names = {"Последовательно", "Параллельно"};
+        System.out.println("Граф на " + cityCount + " городов, ядер: " + Runtime.getRuntime().availableProcessors());
+
+        int queries = 20;
+        long[] times = new long[finders.length];
+        for (int f = 0; f < finders.length; f++) {
+            Random random = new Random(17);
+            for (int i = 0; i < 5; i++) {
+                finders[f].findAllOptimalPaths(graph.getCityById(random.nextInt(cityCount) + 1),
+                        graph.getCityById(random.nextInt(cityCount) + 1));
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < queries; i++) {
+                finders[f].findAllOptimalPaths(graph.getCityById(random.nextInt(cityCount) + 1),
+                        graph.getCityById(random.nextInt(cityCount) + 1));
+            }
+            times[f] = (System.nanoTime() - start) / queries / 1000;
+            System.out.printf("  %-16s %7d мкс/запрос%n", names[f] + ":", times[f]);
+        }
+        System.out.printf("  Ускорение:       %.2fx%n", (double) times[0] / Math.max(1, times[1]));
+    }
+
+    /**
+     * Сравнивает число обработанных вершин и время однонаправленного и двунаправленного поисков.
+     */
+    private static void testBidirectional(String name, Graph graph) {
+        int cityCount = graph.getCityCount();
+        CountingGraph counting = new CountingGraph(graph.snapshot());
+        IndexedHeapPathFinder unidirectional = new IndexedHeapPathFinder(counting);
+        BidirectionalPathFinder bidirectional = new BidirectionalPathFinder(counting);
+        PathFinder[] finders = {unidirectional, bidirectional};
+        System.out.println(name + ":");
+
+        int queries = 50;
+        long[] settled = new long[finders.length];
+        long[] times = new long[finders.length];
+        for (int f = 0; f < finders.length; f++) {
+            Random random = new Random(23);
+            for (int i = 0; i < 10; i++) {
+                finders[f].findPath(graph.getCityById(random.nextInt(cityCount) + 1),
+                        graph.getCityById(random.nextInt(cityCount) + 1), Criterion.DISTANCE);
+            }
+            counting.settled = 0;
+            bidirectional.resetCounters();
+            long start = System.nanoTime();
+            for (int i = 0; i < queries; i++) {
+                finders[f].findPath(graph.getCityById(random.nextInt(cityCount) + 1),
+                        graph.getCityById(random.nextInt(cityCount) + 1), Criterion.DISTANCE);
+            }
+            times[f] = (System.nanoTime() - start) / 1_000_000;
+            settled[f] = f == 0 ? counting.settled : bidirectional.getSettledCount();
+        }
+        System.out.printf("  Однонаправленный:  %,9d вершин/запрос  %5d мс (%d запросов)%n",
+                settled[0] / queries, times[0], queries);
+        System.out.printf("  Двунаправленный:   %,9d вершин/запрос  %5d мс (%d запросов)%n",
+                settled[1] / queries, times[1], queries);
+        System.out.printf("  Доля вершин: %.2f, ускорение: %.2fx%n%n",
+                (double) settled[1] / Math.max(1, settled[0]), (double) times[0] / Math.max(1, times[1]));
     }
 
     /**
@@ -82,21 +244,29 @@ public class PerformanceTest {
         
         DijkstraPathFinder original = new DijkstraPathFinder(graph);
         OptimizedDijkstraPathFinder optimized = new OptimizedDijkstraPathFinder(graph);
+        IndexedHeapPathFinder indexed = new IndexedHeapPathFinder(graph);
+        BucketPathFinder buckets = new BucketPathFinder(graph);
 
         City from = graph.getCityById(1);
         City to = graph.getCityById(50);
 
         Map<Criterion, Route> originalResults = original.findAllOptimalPaths(from, to);
         Map<Criterion, Route> optimizedResults = optimized.findAllOptimalPaths(from, to);
+        Map<Criterion, Route> indexedResults = indexed.findAllOptimalPaths(from, to);
+        Map<Criterion, Route> bucketResults = buckets.findAllOptimalPaths(from, to);
 
         boolean allMatch = true;
-        for (Criterion criterion : Criterion.values()) {
+        for (Criterion criterion : CriteriaSet.STANDARD) {
             Route origRoute = originalResults.get(criterion);
             Route optRoute = optimizedResults.get(criterion);
+            Route indexedRoute = indexedResults.get(criterion);
+            Route bucketRoute = bucketResults.get(criterion);
 
             boolean match = origRoute.getTotalDistance() == optRoute.getTotalDistance()
                     && origRoute.getTotalTime() == optRoute.getTotalTime()
-                    && origRoute.getTotalCost() == optRoute.getTotalCost();
+                    && origRoute.getTotalCost() == optRoute.getTotalCost()
+                    && origRoute.getValueByCriterion(criterion) == indexedRoute.getValueByCriterion(criterion)
+                    && origRoute.getValueByCriterion(criterion) == bucketRoute.getValueByCriterion(criterion);
 
             if (match) {
                 System.out.println("✓ " + criterion.getFullName() + ": результаты совпадают");
@@ -104,6 +274,8 @@ public class PerformanceTest {
                 System.out.println("✗ " + criterion.getFullName() + ": РАСХОЖДЕНИЕ!");
                 System.out.println("  Обычная:        " + origRoute.getParamsString());
                 System.out.println("  Оптимизированная: " + optRoute.getParamsString());
+                System.out.println("  Индексированная куча: " + indexedRoute.getParamsString());
+                System.out.println("  Корзины:        " + bucketRoute.getParamsString());
                 allMatch = false;
             }
         }
@@ -155,4 +327,126 @@ public class PerformanceTest {
 
         return graph;
     }
+
+    /**
+     * Случайный связный граф, в котором время и стоимость дороги растут с её длиной.
+     */
+    private static Graph generateCorrelatedGraph(int cityCount) {
+        Graph graph = new Graph();
+        Random random = new Random(42);
+        for (int i = 1; i <= cityCount; i++) {
+            graph.addCity(new City(i, "Город" + i));
+        }
+        for (int i = 0; i < cityCount * 3; i++) {
+            int fromId = i < cityCount - 1 ? i + 1 : random.nextInt(cityCount) + 1;
+            int toId = i < cityCount - 1 ? i + 2 : random.nextInt(cityCount) + 1;
+            if (fromId != toId) {
+                int distance = random.nextInt(100) + 10;
+                graph.addRoad(new Road(graph.getCityById(fromId), graph.getCityById(toId),
+                        distance, distance * 6 / 10 + random.nextInt(10), distance * 2 + random.nextInt(30)));
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Квадратная решётка городов с дорогами между соседями — модель дорожной сети,
+     * где число городов в радиусе r растёт как r².
+     */
+    private static Graph generateGridGraph(int side) {
+        Graph graph = new Graph();
+        Random random = new Random(42);
+        for (int i = 1; i <= side * side; i++) {
+            graph.addCity(new City(i, "Город" + i));
+        }
+        for (int row = 0; row < side; row++) {
+            for (int column = 0; column < side; column++) {
+                int id = row * side + column + 1;
+                if (column + 1 < side) {
+                    graph.addRoad(new Road(graph.getCityById(id), graph.getCityById(id + 1),
+                            random.nextInt(100) + 10, random.nextInt(60) + 5, random.nextInt(200) + 20));
+                }
+                if (row + 1 < side) {
+                    graph.addRoad(new Road(graph.getCityById(id), graph.getCityById(id + side),
+                            random.nextInt(100) + 10, random.nextInt(60) + 5, random.nextInt(200) + 20));
+                }
+            }
+        }
+        return graph;
+    }
+
+    /**
+     * Представление графа, считающее прочитанные курсорами рёбра
+     * и просмотренные списки смежности (по одному на обработанную вершину).
+     */
+    private static final class CountingGraph implements SearchGraph {
+        private final SearchGraph graph;
+        long edges;
+        long settled;
+
+        CountingGraph(SearchGraph graph) {
+            this.graph = graph;
+        }
+
+        @Override
+        public int getCityCount() {
+            return graph.getCityCount();
+        }
+
+        @Override
+        public CriteriaSet getCriteria() {
+            return graph.getCriteria();
+        }
+
+        @Override
+        public City getCity(int index) {
+            return graph.getCity(index);
+        }
+
+        @Override
+        public int indexOf(City city) {
+            return graph.indexOf(city);
+        }
+
+        @Override
+        public EdgeCursor edgeCursor() {
+            EdgeCursor cursor = graph.edgeCursor();
+            return new EdgeCursor() {
+                @Override
+                public void moveTo(int city) {
+                    settled++;
+                    cursor.moveTo(city);
+                }
+
+                @Override
+                public boolean next() {
+                    if (cursor.next()) {
+                        edges++;
+                        return true;
+                    }
+                    return false;
+                }
+
+                @Override
+                public int target() {
+                    return cursor.target();
+                }
+
+                @Override
+                public int weight(Criterion criterion) {
+                    return cursor.weight(criterion);
+                }
+            };
+        }
+
+        @Override
+        public EdgeCursor reverseEdgeCursor() {
+            return graph.reverseEdgeCursor();
+        }
+
+        @Override
+        public boolean isDirected() {
+            return graph.isDirected();
+        }
+    }
 }
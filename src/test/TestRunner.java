@@ -23,6 +23,10 @@ public class TestRunner {
         System.out.println("────────────────────────────────────────────────────");
         DijkstraTest.main(args);
 
+        System.out.println("\n────────────────────────────────────────────────────");
+        // Запуск тестов структуры графа
+        GraphTest.main(args);
+
         System.out.println("\n────────────────────────────────────────────────────");
         // Запуск тестов выбора компромисса
         CompromiseTest.main(args);
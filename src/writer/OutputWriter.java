@@ -10,6 +10,7 @@ import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Записывает результаты решения в выходной файл.
@@ -43,13 +44,9 @@ public class OutputWriter {
      * Записывает результат одного запроса.
      */
     private void writeResult(BufferedWriter writer, SolutionResult result) throws IOException {
-        // Порядок вывода критериев: ДЛИНА, ВРЕМЯ, СТОИМОСТЬ
-        Criterion[] outputOrder = {Criterion.DISTANCE, Criterion.TIME, Criterion.COST};
-
-        // Выводим оптимальные маршруты по каждому критерию
-        for (Criterion criterion : outputOrder) {
-            Route route = result.getOptimalRoutes().get(criterion);
-            writeLine(writer, criterion.getFullName(), route);
+        // Оптимальные маршруты в порядке набора критериев (по умолчанию ДЛИНА, ВРЕМЯ, СТОИМОСТЬ)
+        for (Map.Entry<Criterion, Route> entry : result.getOptimalRoutes().entrySet()) {
+            writeLine(writer, entry.getKey().getFullName(), entry.getValue());
         }
 
         // Выводим компромиссный маршрут